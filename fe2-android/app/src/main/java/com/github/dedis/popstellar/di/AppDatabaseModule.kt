@@ -3,6 +3,7 @@ package com.github.dedis.popstellar.di
 import android.app.Application
 import androidx.room.Room.databaseBuilder
 import com.github.dedis.popstellar.repository.database.AppDatabase
+import com.github.dedis.popstellar.repository.database.BinaryEntityCodec
 import com.github.dedis.popstellar.repository.database.CustomTypeConverters
 import dagger.Module
 import dagger.Provides
@@ -25,10 +26,14 @@ object AppDatabaseModule {
         In order to avoid overcomplicated solutions here it's created a DataRegistry with null handlers,
         as the only function needed is the one to get the object's type for the Gson serializer
     */
+    val gson = JsonModule.provideGson(DataRegistryModule.provideDataRegistryForGson())
+    val codec = BinaryEntityCodec(gson)
     return databaseBuilder(application, AppDatabase::class.java, DATABASE_NAME)
-        .addTypeConverter(
-            CustomTypeConverters(
-                JsonModule.provideGson(DataRegistryModule.provideDataRegistryForGson())))
+        .addTypeConverter(CustomTypeConverters(gson))
+        .addMigrations(
+            AppDatabase.MIGRATION_5_6,
+            AppDatabase.migration6To7(codec),
+            AppDatabase.migration7To8(codec))
         .fallbackToDestructiveMigration()
         .allowMainThreadQueries()
         .build()
@@ -0,0 +1,190 @@
+package com.github.dedis.popstellar.model
+
+import java.util.AbstractMap.SimpleImmutableEntry
+
+/**
+ * Immutable hash map whose modified versions share their structure with the original one
+ *
+ * It is a hash array mapped trie : the keys are stored in a tree indexed by 5 bits of their hash at
+ * each level. Adding a key only copies the few nodes on its path, so that both the lookup and the
+ * insertion take at most 7 steps, whatever the size of the map.
+ *
+ * As nothing is ever modified in place, the map can be shared freely without defensive copies. The
+ * values are assumed to be immutable as well.
+ *
+ * @param <K> type of key
+ * @param <V> type of value
+ */
+@Immutable
+class PersistentMap<K, V>
+private constructor(private val root: Node<K, V>?, override val size: Int) : AbstractMap<K, V>() {
+
+  override val entries: Set<Map.Entry<K, V>>
+    get() =
+        object : AbstractSet<Map.Entry<K, V>>() {
+          override val size: Int
+            get() = this@PersistentMap.size
+
+          override fun iterator(): Iterator<Map.Entry<K, V>> {
+            return sequence { root?.let { yieldLeaves(it) } }
+                .map { SimpleImmutableEntry(it.key, it.value) }
+                .iterator()
+          }
+        }
+
+  override fun get(key: K): V? {
+    return find(key)?.value
+  }
+
+  override fun containsKey(key: K): Boolean {
+    return find(key) != null
+  }
+
+  /**
+   * Create a map with the given entry added, or replaced if the key is already in this map
+   *
+   * @param key of the entry
+   * @param value of the entry
+   * @return the new map, this one is left untouched
+   */
+  fun put(key: K, value: V): PersistentMap<K, V> {
+    val newSize = if (containsKey(key)) size else size + 1
+    return PersistentMap(insert(root, Leaf(key.hashCode(), key, value), 0), newSize)
+  }
+
+  /**
+   * Create a map with the given entries added, or replaced if their key is already in this map
+   *
+   * @param entries to add
+   * @return the new map, this one is left untouched
+   */
+  fun putAll(entries: Map<out K, V>): PersistentMap<K, V> {
+    return entries.entries.fold(this) { map, (key, value) -> map.put(key, value) }
+  }
+
+  private fun find(key: K): Leaf<K, V>? {
+    var node = root
+    var shift = 0
+    val hash = key.hashCode()
+    while (true) {
+      when (node) {
+        null -> return null
+        is Leaf -> return node.takeIf { it.key == key }
+        is Collision -> return node.leaves.firstOrNull { it.key == key }
+        is Branch -> {
+          node = node.child(hash, shift)
+          shift += BITS
+        }
+      }
+    }
+  }
+
+  private sealed class Node<K, V>
+
+  private class Leaf<K, V>(val hash: Int, val key: K, val value: V) : Node<K, V>()
+
+  /** Keys having the same full hash, stored side by side */
+  private class Collision<K, V>(val hash: Int, val leaves: List<Leaf<K, V>>) : Node<K, V>()
+
+  /**
+   * Inner node of the trie, only holding the children that exist. The bitmap tells which of the 32
+   * possible children are present, and the position of a child in the array is the number of
+   * children before it.
+   */
+  private class Branch<K, V>(val bitmap: Int, val children: Array<Node<K, V>>) : Node<K, V>() {
+
+    fun child(hash: Int, shift: Int): Node<K, V>? {
+      val bit = 1 shl index(hash, shift)
+      return if (bitmap and bit == 0) null else children[position(bit)]
+    }
+
+    fun position(bit: Int): Int {
+      return Integer.bitCount(bitmap and (bit - 1))
+    }
+  }
+
+  companion object {
+    /** Number of bits of the hash consumed at each level of the trie */
+    private const val BITS = 5
+    private const val MASK = (1 shl BITS) - 1
+
+    private val EMPTY = PersistentMap<Any?, Any?>(null, 0)
+
+    /** @return the empty map */
+    @Suppress("UNCHECKED_CAST")
+    @JvmStatic
+    fun <K, V> empty(): PersistentMap<K, V> {
+      return EMPTY as PersistentMap<K, V>
+    }
+
+    /**
+     * @param source map
+     * @return a persistent map with the entries of the source map, the map itself if it already is
+     *   persistent
+     */
+    @Suppress("UNCHECKED_CAST")
+    @JvmStatic
+    fun <K, V> of(source: Map<K, V>): PersistentMap<K, V> {
+      return source as? PersistentMap<K, V> ?: empty<K, V>().putAll(source)
+    }
+
+    /** Index of the child holding the given hash, among the 32 children of a branch */
+    private fun index(hash: Int, shift: Int): Int {
+      return (hash ushr shift) and MASK
+    }
+
+    private suspend fun <K, V> SequenceScope<Leaf<K, V>>.yieldLeaves(node: Node<K, V>) {
+      when (node) {
+        is Leaf -> yield(node)
+        is Collision -> yieldAll(node.leaves)
+        is Branch -> node.children.forEach { yieldLeaves(it) }
+      }
+    }
+
+    private fun <K, V> insert(node: Node<K, V>?, leaf: Leaf<K, V>, shift: Int): Node<K, V> {
+      return when (node) {
+        null -> leaf
+        is Leaf ->
+            when {
+              node.key == leaf.key -> leaf
+              node.hash == leaf.hash -> Collision(leaf.hash, listOf(node, leaf))
+              else -> merge(node, node.hash, leaf, shift)
+            }
+        is Collision ->
+            if (node.hash == leaf.hash) {
+              Collision(node.hash, node.leaves.filter { it.key != leaf.key } + leaf)
+            } else {
+              merge(node, node.hash, leaf, shift)
+            }
+        is Branch -> {
+          val bit = 1 shl index(leaf.hash, shift)
+          val position = node.position(bit)
+          val children = node.children.toMutableList()
+          if (node.bitmap and bit == 0) {
+            children.add(position, leaf)
+          } else {
+            children[position] = insert(children[position], leaf, shift + BITS)
+          }
+          Branch(node.bitmap or bit, children.toTypedArray())
+        }
+      }
+    }
+
+    /** Create the branches splitting a node and a leaf whose hashes are different */
+    private fun <K, V> merge(
+        node: Node<K, V>,
+        nodeHash: Int,
+        leaf: Leaf<K, V>,
+        shift: Int
+    ): Node<K, V> {
+      val nodeIndex = index(nodeHash, shift)
+      val leafIndex = index(leaf.hash, shift)
+      val bitmap = (1 shl nodeIndex) or (1 shl leafIndex)
+      return when {
+        nodeIndex == leafIndex -> Branch(bitmap, arrayOf(merge(node, nodeHash, leaf, shift + BITS)))
+        nodeIndex < leafIndex -> Branch(bitmap, arrayOf(node, leaf))
+        else -> Branch(bitmap, arrayOf(leaf, node))
+      }
+    }
+  }
+}
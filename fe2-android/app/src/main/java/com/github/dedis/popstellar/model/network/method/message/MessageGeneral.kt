@@ -9,6 +9,7 @@ import com.github.dedis.popstellar.model.objects.security.MessageID
 import com.github.dedis.popstellar.model.objects.security.PrivateKey
 import com.github.dedis.popstellar.model.objects.security.PublicKey
 import com.github.dedis.popstellar.model.objects.security.Signature
+import com.github.dedis.popstellar.utility.security.SignatureVerifier
 import com.google.gson.Gson
 import java.nio.charset.StandardCharsets
 import java.security.GeneralSecurityException
@@ -83,18 +84,24 @@ class MessageGeneral {
   }
 
   fun verify(): Boolean {
-    if (!sender.verify(signature, dataEncoded)) {
-      return false
-    }
+    return signatureRequests().all(SignatureVerifier::verify)
+  }
+
+  /**
+   * @return the signatures to verify for this message to be valid : the one of its sender and, for
+   *   a witness signature, the one of the witnessed message
+   */
+  fun signatureRequests(): List<SignatureVerifier.Request> {
+    val senderSignature = SignatureVerifier.Request(sender, signature, dataEncoded)
 
     if (data is WitnessMessageSignature) {
       val witness = data
       val witnessSignature = witness.signature
       val messageID = witness.messageId
-      return sender.verify(witnessSignature, messageID)
+      return listOf(senderSignature, SignatureVerifier.Request(sender, witnessSignature, messageID))
     }
 
-    return true
+    return listOf(senderSignature)
   }
 
   override fun equals(other: Any?): Boolean {
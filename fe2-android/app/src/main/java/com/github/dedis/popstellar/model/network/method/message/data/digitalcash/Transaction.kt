@@ -108,6 +108,21 @@ class Transaction(
     fun computeSigOutputsPairTxOutHashAndIndex(
         outputs: List<Output>,
         inputsPairs: Map<String, Int>
+    ): String {
+      return computeSigOutputsPairTxOutHashAndIndex(outputs, inputsPairs.toList())
+    }
+
+    /**
+     * Function that gives the content signed by the inputs, for inputs that may spend several
+     * outputs of the same transaction
+     *
+     * @param outputs of the transaction
+     * @param inputsPairs the (tx_out_hash, tx_out_index) pairs of the inputs, in order
+     * @return the content to sign
+     */
+    fun computeSigOutputsPairTxOutHashAndIndex(
+        outputs: List<Output>,
+        inputsPairs: List<Pair<String, Int>>
     ): String {
       // input #1: tx_out_hash Value //input #1: tx_out_index Value
       // input #2: tx_out_hash Value //input #2: tx_out_index Value ...
@@ -1,14 +1,24 @@
 package com.github.dedis.popstellar.model.network.serializer
 
 import com.fasterxml.jackson.core.JsonProcessingException
+import com.fasterxml.jackson.databind.JsonNode
 import com.fasterxml.jackson.databind.ObjectMapper
+import com.google.gson.JsonArray
+import com.google.gson.JsonElement
+import com.google.gson.JsonNull
 import com.google.gson.JsonObject
 import com.google.gson.JsonParseException
+import com.google.gson.JsonParser
+import com.google.gson.JsonPrimitive
 import com.networknt.schema.JsonSchema
 import com.networknt.schema.JsonSchemaFactory
 import com.networknt.schema.SpecVersion
+import java.io.IOException
+import java.io.InputStreamReader
 import java.net.URI
+import java.nio.charset.StandardCharsets
 import java.util.concurrent.ConcurrentHashMap
+import java.util.concurrent.atomic.AtomicLong
 import timber.log.Timber
 
 /** Json utility class */
@@ -31,7 +41,29 @@ object JsonUtils {
   const val POP_TOKEN_SCHEME = "protocol/qrcode/pop_token.json"
   const val MAIN_PK_SCHEME = "protocol/qrcode/main_public_key.json"
 
+  /** One locally built document out of this number is validated with the sampled policy */
+  const val SAMPLING_INTERVAL = 16
+
+  /** Type under which the validation time of the invalid documents is recorded */
+  const val INVALID_TYPE = "invalid"
+
   private val schemas: MutableMap<String, JsonSchema> = ConcurrentHashMap()
+  private val statsByType: MutableMap<String, ValidationStats> = ConcurrentHashMap()
+  private val localDocuments = AtomicLong()
+
+  /**
+   * Policy applied when validating json documents against their schema. Validating the documents
+   * built by the app itself is costly and only catches bugs of the app, hence the default policy.
+   */
+  @JvmStatic @Volatile var validationPolicy = ValidationPolicy.INBOUND_ONLY
+
+  /**
+   * Time spent validating the documents, by type of document. The invalid documents are all
+   * recorded under [INVALID_TYPE], so that received documents cannot add types.
+   */
+  @JvmStatic
+  val validationStats: Map<String, ValidationStats>
+    get() = statsByType
 
   /**
    * Test the JsonRPC version of the given object
@@ -65,26 +97,132 @@ object JsonUtils {
   }
 
   /**
-   * Verify the json against the given schema
+   * Verify the received json against the given schema, unless the validation is turned off
    *
    * @param schemaPath the path of the schema resource
    * @param json a string representing the json
+   * @param type of the document, under which the validation time is recorded
    * @throws JsonParseException if the json is invalid or cannot be parsed
    */
   @JvmStatic
+  @JvmOverloads
+  @Throws(JsonParseException::class)
+  fun verifyJson(schemaPath: String, json: String?, type: String = schemaPath) {
+    if (validatesReceivedJson) {
+      validate(schemaPath, json, type)
+    }
+  }
+
+  /**
+   * Parse a received json and verify it against the given schema, unless the validation is turned
+   * off
+   *
+   * The json is parsed only once : the schema is checked on the parsed document, which is then
+   * returned as a tree that can be deserialized without reading the text again.
+   *
+   * @param schemaPath the path of the schema resource
+   * @param json the bytes of the json, encoded in UTF-8
+   * @param typeOf gives the type of the parsed document, under which the validation time is
+   *   recorded
+   * @return the parsed json
+   * @throws JsonParseException if the json is invalid or cannot be parsed
+   */
+  @JvmStatic
+  @Throws(JsonParseException::class)
+  fun parseAndVerifyJson(
+      schemaPath: String,
+      json: ByteArray,
+      typeOf: (JsonElement) -> String
+  ): JsonElement {
+    if (!validatesReceivedJson) {
+      return JsonParser.parseReader(InputStreamReader(json.inputStream(), StandardCharsets.UTF_8))
+    }
+
+    // The schema validator works on its own tree, which is then converted to a gson tree
+    val node =
+        try {
+          OBJECT_MAPPER.readTree(json)
+        } catch (e: IOException) {
+          throw JsonParseException(e)
+        }
+    val element = toGsonTree(node)
+    validate(schemaPath, node, typeOf(element))
+    return element
+  }
+
+  /**
+   * Verify a json built locally against the given schema, depending on the [validationPolicy]
+   *
+   * The json is only converted to a string if it is validated.
+   *
+   * @param schemaPath the path of the schema resource
+   * @param json the json built by the app
+   * @param type of the document, under which the validation time is recorded
+   * @throws JsonParseException if the json is invalid
+   */
+  @JvmStatic
+  @JvmOverloads
   @Throws(JsonParseException::class)
-  fun verifyJson(schemaPath: String, json: String?) {
+  fun verifyLocalJson(schemaPath: String, json: JsonElement, type: String = schemaPath) {
+    val toValidate =
+        when (validationPolicy) {
+          ValidationPolicy.FULL -> true
+          ValidationPolicy.SAMPLED -> localDocuments.getAndIncrement() % SAMPLING_INTERVAL == 0L
+          ValidationPolicy.INBOUND_ONLY,
+          ValidationPolicy.OFF -> false
+        }
+    if (toValidate) {
+      validate(schemaPath, json.toString(), type)
+    }
+  }
+
+  private fun validate(schemaPath: String, json: String?, type: String) {
     Timber.tag(TAG).d("verifyJson for : %s", json)
+    val node =
+        try {
+          OBJECT_MAPPER.readTree(json)
+        } catch (e: JsonProcessingException) {
+          throw JsonParseException(e)
+        }
+    validate(schemaPath, node, type)
+  }
+
+  private fun validate(schemaPath: String, json: JsonNode?, type: String) {
     val schema = loadSchema(schemaPath)
 
+    val start = System.nanoTime()
+    var recordedType = INVALID_TYPE
     try {
-      val errors = schema.validate(OBJECT_MAPPER.readTree(json))
+      val errors = schema.validate(json)
       if (errors.isNotEmpty()) {
         throw JsonParseException(
             "Json : $json\nValidationMessage errors : ${errors.toTypedArray().contentToString()}")
       }
-    } catch (e: JsonProcessingException) {
-      throw JsonParseException(e)
+      recordedType = type
+    } finally {
+      statsByType
+          .computeIfAbsent(recordedType) { ValidationStats() }
+          .record(System.nanoTime() - start)
+    }
+  }
+
+  /** Convert a parsed json tree to the equivalent gson tree, without going through its text */
+  private fun toGsonTree(node: JsonNode?): JsonElement {
+    return when {
+      node == null || node.isNull || node.isMissingNode -> JsonNull.INSTANCE
+      node.isObject -> {
+        val obj = JsonObject()
+        node.fields().forEach { (name, value) -> obj.add(name, toGsonTree(value)) }
+        obj
+      }
+      node.isArray -> {
+        val array = JsonArray(node.size())
+        node.elements().forEach { value -> array.add(toGsonTree(value)) }
+        array
+      }
+      node.isBoolean -> JsonPrimitive(node.booleanValue())
+      node.isNumber -> JsonPrimitive(node.numberValue())
+      else -> JsonPrimitive(node.asText())
     }
   }
 
@@ -100,4 +238,39 @@ object JsonUtils {
       FACTORY.getSchema(URI.create("resource:/$resourcePath"))
     }
   }
+
+  /** Policies deciding which json documents are validated against their schema */
+  enum class ValidationPolicy {
+    /** Validate both the received documents and the ones built locally */
+    FULL,
+    /** Only validate the received documents, the locally built ones are trusted */
+    INBOUND_ONLY,
+    /** Validate the received documents and one locally built document out of [SAMPLING_INTERVAL] */
+    SAMPLED,
+    /** Do not validate any document, the received ones included */
+    OFF
+  }
+
+  /** Statistics of the validations of a type of document */
+  class ValidationStats {
+    private val validationCount = AtomicLong()
+    private val totalNanos = AtomicLong()
+
+    /** Number of validations performed */
+    val count: Long
+      get() = validationCount.get()
+
+    /** Total time spent validating, in nanoseconds */
+    val totalTimeNanos: Long
+      get() = totalNanos.get()
+
+    /** Average time of a validation, in nanoseconds */
+    val averageTimeNanos: Long
+      get() = count.let { if (it == 0L) 0 else totalTimeNanos / it }
+
+    fun record(nanos: Long) {
+      validationCount.incrementAndGet()
+      totalNanos.addAndGet(nanos)
+    }
+  }
 }
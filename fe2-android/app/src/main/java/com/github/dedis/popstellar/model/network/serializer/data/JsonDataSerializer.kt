@@ -5,18 +5,27 @@ import com.github.dedis.popstellar.model.network.method.message.data.Data
 import com.github.dedis.popstellar.model.network.method.message.data.DataRegistry
 import com.github.dedis.popstellar.model.network.method.message.data.Objects
 import com.github.dedis.popstellar.model.network.serializer.JsonUtils
+import com.github.dedis.popstellar.model.network.serializer.JsonUtils.parseAndVerifyJson
 import com.github.dedis.popstellar.model.network.serializer.JsonUtils.verifyJson
+import com.github.dedis.popstellar.model.network.serializer.JsonUtils.verifyLocalJson
+import com.google.gson.Gson
 import com.google.gson.JsonDeserializationContext
 import com.google.gson.JsonDeserializer
 import com.google.gson.JsonElement
+import com.google.gson.JsonObject
 import com.google.gson.JsonParseException
 import com.google.gson.JsonSerializationContext
 import com.google.gson.JsonSerializer
+import com.google.gson.stream.JsonReader
+import java.io.IOException
+import java.io.InputStreamReader
 import java.lang.reflect.Type
+import java.nio.charset.StandardCharsets
 
 /** Json serializer and deserializer for the data messages */
 class JsonDataSerializer(private val dataRegistry: DataRegistry) :
     JsonSerializer<Data>, JsonDeserializer<Data> {
+
   @Throws(JsonParseException::class)
   override fun deserialize(
       json: JsonElement,
@@ -24,25 +33,84 @@ class JsonDataSerializer(private val dataRegistry: DataRegistry) :
       context: JsonDeserializationContext
   ): Data {
     val obj = json.asJsonObject
-    verifyJson(JsonUtils.DATA_SCHEMA, obj.toString())
+    verifyJson(JsonUtils.DATA_SCHEMA, obj.toString(), typeOf(obj))
 
-    val `object` = Objects.find(obj[OBJECT].asString)
-    val action = Action.find(obj[ACTION].asString)
+    return context.deserialize(json, findType(obj[OBJECT].asString, obj[ACTION].asString))
+  }
 
-    if (`object` == null) {
-      throw JsonParseException("Unknown object type : " + obj[OBJECT].asString)
+  /**
+   * Decode a data from its json bytes, parsing them only once
+   *
+   * When the received json is validated, the parsed tree is validated against the schema, gives
+   * the type of the data through its object and action, and is finally deserialized to that type.
+   * Otherwise no tree is built : the object and action are peeked with a streaming reader and the
+   * data is read by the streaming adapter of its type.
+   *
+   * @param json the bytes of the json data, as carried by a message
+   * @param gson used to deserialize the data to its type
+   * @return the decoded data
+   * @throws JsonParseException if the json is invalid or does not describe a known data
+   */
+  @Throws(JsonParseException::class)
+  fun decode(json: ByteArray, gson: Gson): Data {
+    if (!JsonUtils.validatesReceivedJson) {
+      return stream(json, gson)
     }
-    if (action == null) {
-      throw JsonParseException("Unknown action type : " + obj[ACTION].asString)
+
+    val tree = parseAndVerifyJson(JsonUtils.DATA_SCHEMA, json) { typeOf(it) }
+    val obj =
+        tree.takeIf { it.isJsonObject }?.asJsonObject
+            ?: throw JsonParseException("The data is not a json object : $tree")
+    val `object` = stringOf(obj, OBJECT)
+    val action = stringOf(obj, ACTION)
+
+    if (`object` == null || action == null) {
+      throw JsonParseException("The data does not define its object and action : $tree")
     }
 
-    val clazz = dataRegistry.getType(`object`, action)
-    if (!clazz.isPresent) {
-      throw JsonParseException(
-          "The pair (${`object`.`object`}, ${action.action}) does not exists in the protocol")
+    return gson.fromJson(tree, findType(`object`, action))
+  }
+
+  private fun stream(json: ByteArray, gson: Gson): Data {
+    var `object`: String? = null
+    var action: String? = null
+
+    try {
+      readerOf(json).use { reader ->
+        reader.beginObject()
+        while (reader.hasNext() && (`object` == null || action == null)) {
+          when (reader.nextName()) {
+            OBJECT -> `object` = reader.nextString()
+            ACTION -> action = reader.nextString()
+            else -> reader.skipValue()
+          }
+        }
+      }
+    } catch (e: IOException) {
+      throw JsonParseException(e)
+    } catch (e: IllegalStateException) {
+      throw JsonParseException(e)
     }
 
-    return context.deserialize(json, clazz.get())
+    val objectName =
+        `object` ?: throw JsonParseException("The data does not define its object and action")
+    val actionName =
+        action ?: throw JsonParseException("The data does not define its object and action")
+
+    return gson.fromJson(readerOf(json), findType(objectName, actionName))
+        ?: throw JsonParseException("The data is empty")
+  }
+
+  private fun findType(objectName: String, actionName: String): Class<out Data?> {
+    val `object` =
+        Objects.find(objectName) ?: throw JsonParseException("Unknown object type : $objectName")
+    val action =
+        Action.find(actionName) ?: throw JsonParseException("Unknown action type : $actionName")
+
+    return dataRegistry.getType(`object`, action).orElseThrow {
+      JsonParseException(
+          "The pair (${`object`.`object`}, ${action.action}) does not exists in the protocol")
+    }
   }
 
   override fun serialize(
@@ -55,13 +123,36 @@ class JsonDataSerializer(private val dataRegistry: DataRegistry) :
     obj.addProperty(OBJECT, src.`object`)
     obj.addProperty(ACTION, src.action)
 
-    verifyJson(JsonUtils.DATA_SCHEMA, obj.toString())
+    verifyLocalJson(JsonUtils.DATA_SCHEMA, obj, "${src.`object`}#${src.action}")
 
     return obj
   }
 
+  /**
+   * Type of the data under which its validation time is recorded, as object#action. Only the pairs
+   * of the registry are used, any other data is of type [JsonUtils.INVALID_TYPE].
+   */
+  private fun typeOf(json: JsonElement): String {
+    val obj = json.takeIf { it.isJsonObject }?.asJsonObject ?: return JsonUtils.INVALID_TYPE
+    val `object` = stringOf(obj, OBJECT)?.let { Objects.find(it) }
+    val action = stringOf(obj, ACTION)?.let { Action.find(it) }
+
+    if (`object` == null || action == null || !dataRegistry.getType(`object`, action).isPresent) {
+      return JsonUtils.INVALID_TYPE
+    }
+    return "${`object`.`object`}#${action.action}"
+  }
+
+  private fun stringOf(obj: JsonObject, member: String): String? {
+    return obj[member]?.takeIf { it.isJsonPrimitive }?.asString
+  }
+
   companion object {
     private const val OBJECT = "object"
     private const val ACTION = "action"
+
+    private fun readerOf(json: ByteArray): JsonReader {
+      return JsonReader(InputStreamReader(json.inputStream(), StandardCharsets.UTF_8))
+    }
   }
 }
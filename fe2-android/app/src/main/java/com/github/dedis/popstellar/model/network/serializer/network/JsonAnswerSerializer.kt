@@ -6,6 +6,7 @@ import com.github.dedis.popstellar.model.network.answer.Result
 import com.github.dedis.popstellar.model.network.serializer.JsonUtils
 import com.github.dedis.popstellar.model.network.serializer.JsonUtils.testRPCVersion
 import com.github.dedis.popstellar.model.network.serializer.JsonUtils.verifyJson
+import com.github.dedis.popstellar.model.network.serializer.JsonUtils.verifyLocalJson
 import com.google.gson.JsonDeserializationContext
 import com.google.gson.JsonDeserializer
 import com.google.gson.JsonElement
@@ -44,7 +45,7 @@ class JsonAnswerSerializer : JsonSerializer<Answer?>, JsonDeserializer<Answer> {
     val obj = context.serialize(src).asJsonObject
     obj.addProperty(JsonUtils.JSON_RPC, JsonUtils.JSON_RPC_VERSION)
 
-    verifyJson(JsonUtils.ROOT_SCHEMA, obj.toString())
+    verifyLocalJson(JsonUtils.ROOT_SCHEMA, obj)
 
     return obj
   }
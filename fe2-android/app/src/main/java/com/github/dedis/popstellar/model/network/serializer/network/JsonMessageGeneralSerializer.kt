@@ -2,26 +2,33 @@ package com.github.dedis.popstellar.model.network.serializer.network
 
 import com.github.dedis.popstellar.model.network.method.message.MessageGeneral
 import com.github.dedis.popstellar.model.network.method.message.PublicKeySignaturePair
-import com.github.dedis.popstellar.model.network.method.message.data.Data
 import com.github.dedis.popstellar.model.network.serializer.JsonUtils
-import com.github.dedis.popstellar.model.network.serializer.JsonUtils.verifyJson
+import com.github.dedis.popstellar.model.network.serializer.JsonUtils.verifyLocalJson
+import com.github.dedis.popstellar.model.network.serializer.data.JsonDataSerializer
 import com.github.dedis.popstellar.model.objects.security.Base64URLData
 import com.github.dedis.popstellar.model.objects.security.MessageID
 import com.github.dedis.popstellar.model.objects.security.PublicKey
 import com.github.dedis.popstellar.model.objects.security.Signature
+import com.google.gson.Gson
 import com.google.gson.JsonDeserializationContext
 import com.google.gson.JsonDeserializer
 import com.google.gson.JsonElement
 import com.google.gson.JsonParseException
-import com.google.gson.JsonParser
 import com.google.gson.JsonSerializationContext
 import com.google.gson.JsonSerializer
 import com.google.gson.annotations.SerializedName
 import java.lang.reflect.Type
-import java.nio.charset.StandardCharsets
 
-class JsonMessageGeneralSerializer :
-    JsonSerializer<MessageGeneral>, JsonDeserializer<MessageGeneral> {
+/**
+ * Json serializer and deserializer for the general messages
+ *
+ * @param dataSerializer decoding the data of the messages
+ * @param gson gives the gson instance reading the data with the adapters of their types
+ */
+class JsonMessageGeneralSerializer(
+    private val dataSerializer: JsonDataSerializer,
+    private val gson: () -> Gson
+) : JsonSerializer<MessageGeneral>, JsonDeserializer<MessageGeneral> {
   @Throws(JsonParseException::class)
   override fun deserialize(
       json: JsonElement,
@@ -29,8 +36,8 @@ class JsonMessageGeneralSerializer :
       context: JsonDeserializationContext
   ): MessageGeneral {
     val jsonObject = context.deserialize<JsonMessageData>(json, JsonMessageData::class.java)
-    val dataElement = JsonParser.parseString(jsonObject.data.data.toString(StandardCharsets.UTF_8))
-    val data = context.deserialize<Data>(dataElement, Data::class.java)
+    // The data is decoded straight from its bytes, which are parsed only once
+    val data = dataSerializer.decode(jsonObject.data.data, gson())
 
     return MessageGeneral(
         jsonObject.sender,
@@ -51,7 +58,7 @@ class JsonMessageGeneralSerializer :
             src.dataEncoded, src.sender, src.signature, src.messageId, src.witnessSignatures)
     val result = context.serialize(jsonObject)
 
-    verifyJson(JsonUtils.GENERAL_MESSAGE_SCHEMA, result.toString())
+    verifyLocalJson(JsonUtils.GENERAL_MESSAGE_SCHEMA, result)
 
     return result
   }
@@ -1,8 +1,7 @@
 package com.github.dedis.popstellar.model.objects
 
-import com.github.dedis.popstellar.model.Copyable.Companion.copyMapOfList
-import com.github.dedis.popstellar.model.Copyable.Companion.copyMapOfSet
 import com.github.dedis.popstellar.model.Immutable
+import com.github.dedis.popstellar.model.PersistentMap
 import com.github.dedis.popstellar.model.network.method.message.data.election.ElectionQuestion
 import com.github.dedis.popstellar.model.network.method.message.data.election.ElectionVersion
 import com.github.dedis.popstellar.model.network.method.message.data.election.EncryptedVote
@@ -13,16 +12,24 @@ import com.github.dedis.popstellar.model.objects.Channel.Companion.getLaoChannel
 import com.github.dedis.popstellar.model.objects.event.Event
 import com.github.dedis.popstellar.model.objects.event.EventState
 import com.github.dedis.popstellar.model.objects.event.EventType
-import com.github.dedis.popstellar.model.objects.security.Base64URLData
 import com.github.dedis.popstellar.model.objects.security.MessageID
 import com.github.dedis.popstellar.model.objects.security.PublicKey
-import com.github.dedis.popstellar.model.objects.security.elGamal.ElectionPublicKey
+import com.github.dedis.popstellar.model.objects.security.elGamal.PreparedElectionPublicKey
 import com.github.dedis.popstellar.utility.security.HashSHA256.hash
+import java.util.Collections
 import java.util.Objects
 
+/**
+ * Election of a LAO
+ *
+ * The votes and the messages they were cast in are kept in persistent maps, shared between an
+ * election and the ones built from it. Registering a vote thus does not copy the votes of the other
+ * senders.
+ */
 @Immutable
 @Suppress("LongParameterList")
-class Election(
+class Election
+private constructor(
     id: String,
     name: String,
     creation: Long,
@@ -32,10 +39,11 @@ class Election(
     electionQuestions: List<ElectionQuestion>,
     electionKey: String?,
     electionVersion: ElectionVersion,
-    votesBySender: Map<PublicKey, List<Vote>>,
-    messageMap: Map<PublicKey, MessageID>,
+    votesBySender: PersistentMap<PublicKey, List<Vote>>,
+    messageMap: PersistentMap<PublicKey, MessageID>,
     state: EventState?,
-    results: Map<String, Set<QuestionResult>>
+    results: Map<String, Set<QuestionResult>>,
+    tally: ElectionTally
 ) : Event() {
   val channel: Channel
   val id: String
@@ -59,22 +67,24 @@ class Election(
   val electionQuestions: List<ElectionQuestion>
     get() = ArrayList(field)
 
+  private val votes: PersistentMap<PublicKey, List<Vote>>
+  private val messages: PersistentMap<PublicKey, MessageID>
+
   // Map that associates each sender pk to their votes
   val votesBySender: Map<PublicKey, List<Vote>>
-    get() = copyMapOfList(field)
+    get() = votes
 
   // Map that associates each messageId to its sender
   val messageMap: Map<PublicKey, MessageID>
-    get() = HashMap(field)
+    get() = messages
 
   // Results of an election (associated to a question id)
   val results: Map<String, Set<QuestionResult>>
-    get() = copyMapOfSet(field)
 
-  init {
-    // Make sure the vote are encrypted in a secret election and plain in an open election
-    validateVotesTypes(votesBySender, electionVersion)
+  // Count of the votes received so far, kept up to date with votesBySender
+  val tally: ElectionTally
 
+  init {
     this.id = id
     this.name = name
     this.creation = creation
@@ -85,11 +95,47 @@ class Election(
     this.electionKey = electionKey
     this.electionVersion = electionVersion
 
-    // Defensive copies
+    // Defensive copies, the persistent maps are immutable and can be shared
     this.electionQuestions = ArrayList(electionQuestions)
-    this.votesBySender = copyMapOfList(votesBySender)
-    this.results = copyMapOfSet(results)
-    this.messageMap = HashMap(messageMap)
+    this.votes = votesBySender
+    this.messages = messageMap
+    this.results =
+        Collections.unmodifiableMap(
+            results.mapValues { Collections.unmodifiableSet(HashSet(it.value)) })
+    this.tally = tally
+  }
+
+  constructor(
+      id: String,
+      name: String,
+      creation: Long,
+      channel: Channel,
+      start: Long,
+      end: Long,
+      electionQuestions: List<ElectionQuestion>,
+      electionKey: String?,
+      electionVersion: ElectionVersion,
+      votesBySender: Map<PublicKey, List<Vote>>,
+      messageMap: Map<PublicKey, MessageID>,
+      state: EventState?,
+      results: Map<String, Set<QuestionResult>>
+  ) : this(
+      id,
+      name,
+      creation,
+      channel,
+      start,
+      end,
+      electionQuestions,
+      electionKey,
+      electionVersion,
+      PersistentMap.of(votesBySender.mapValues { immutableVotes(it.value) }),
+      PersistentMap.of(messageMap),
+      state,
+      results,
+      ElectionTally.of(electionQuestions, votesBySender.values)) {
+    // Make sure the vote are encrypted in a secret election and plain in an open election
+    validateVotesTypes(votesBySender.values.flatten(), electionVersion)
   }
 
   val creationInMillis: Long
@@ -99,6 +145,15 @@ class Election(
     return results[id]
   }
 
+  /**
+   * @param question of the election
+   * @return the results of the question counted from the votes received so far, null if they
+   *   cannot be counted as the ballot is secret
+   */
+  fun getPartialResults(question: ElectionQuestion): Set<QuestionResult>? {
+    return if (electionVersion == ElectionVersion.OPEN_BALLOT) tally.getResults(question) else null
+  }
+
   /**
    * Computes the hash for the registered votes, when terminating an election (sorted by message
    * id's alphabetical order)
@@ -123,27 +178,22 @@ class Election(
    * @return encrypted votes
    */
   fun encrypt(votes: List<PlainVote>): List<EncryptedVote> {
-    // We need to iterate over all election votes to encrypt them
-    val encryptedVotes: MutableList<EncryptedVote> = ArrayList()
-
-    for (vote in votes) {
-      // We are sure that each vote is unique per question following new specification
-      val voteIndice = vote.vote!!
-
-      // Get the two lsb byte from the indice
-      val voteIndiceInBytes = byteArrayOf((voteIndice shr 8).toByte(), voteIndice.toByte())
-
-      // Create a public key and encrypt the indice
-      val electionKeyToBase64 = Base64URLData(electionKey!!)
-      val key = ElectionPublicKey(electionKeyToBase64)
-
-      // Encrypt the indice
-      val encryptedVotesIndice = key.encrypt(voteIndiceInBytes)
-      val encryptedVote = EncryptedVote(vote.questionId, encryptedVotesIndice, false, null, id)
-      encryptedVotes.add(encryptedVote)
+    // The key is decoded and prepared once for all the votes of the election
+    val key = PreparedElectionPublicKey.of(electionKey!!)
+
+    // We are sure that each vote is unique per question following new specification
+    // Get the two lsb byte from the indice of each vote
+    val voteIndices =
+        votes.map { vote ->
+          val voteIndice = vote.vote!!
+          byteArrayOf((voteIndice shr 8).toByte(), voteIndice.toByte())
+        }
+
+    // Encrypt all the indices at once
+    val encryptedIndices = key.encrypt(voteIndices)
+    return votes.zip(encryptedIndices) { vote, encryptedIndice ->
+      EncryptedVote(vote.questionId, encryptedIndice, false, null, id)
     }
-
-    return encryptedVotes
   }
 
   override fun equals(other: Any?): Boolean {
@@ -206,8 +256,14 @@ class Election(
     private var electionQuestions: List<ElectionQuestion>
     private var electionKey: String? = null
     private var electionVersion: ElectionVersion? = null
-    private val votesBySender: MutableMap<PublicKey, List<Vote>>
-    private val messageMap: MutableMap<PublicKey, MessageID>
+    private var votesBySender: PersistentMap<PublicKey, List<Vote>>
+    private var messageMap: PersistentMap<PublicKey, MessageID>
+
+    // Version the votes of the election the builder started from were validated for, and the votes
+    // added since then. Only those need to be validated again when building the election.
+    private val validatedVersion: ElectionVersion?
+    private val addedVotes: MutableList<Vote> = ArrayList()
+    private var tally: ElectionTally
     private var state: EventState? = null
     private var results: Map<String, Set<QuestionResult>>
 
@@ -226,8 +282,10 @@ class Election(
       this.channel = getLaoChannel(laoId).subChannel(id)
       this.results = HashMap()
       this.electionQuestions = ArrayList()
-      this.votesBySender = HashMap()
-      this.messageMap = HashMap()
+      this.votesBySender = PersistentMap.empty()
+      this.messageMap = PersistentMap.empty()
+      this.validatedVersion = null
+      this.tally = ElectionTally.empty()
     }
 
     constructor(election: Election) {
@@ -241,9 +299,11 @@ class Election(
       electionQuestions = election.electionQuestions
       electionVersion = election.electionVersion
 
-      // We might modify the maps, for safety reason, we need to create a copy
-      votesBySender = HashMap(election.votesBySender)
-      messageMap = HashMap(election.messageMap)
+      // The maps are persistent, modifying them creates new maps sharing most of their content
+      votesBySender = election.votes
+      messageMap = election.messages
+      validatedVersion = election.electionVersion
+      tally = election.tally
       state = election.state
       results = election.results
     }
@@ -265,6 +325,8 @@ class Election(
 
     fun setElectionQuestions(electionQuestions: List<ElectionQuestion>): ElectionBuilder {
       this.electionQuestions = electionQuestions
+      // Only the votes for the ballot options of these questions are counted
+      tally = ElectionTally.of(electionQuestions, votesBySender.values)
       return this
     }
 
@@ -279,12 +341,15 @@ class Election(
     }
 
     fun updateVotes(senderPk: PublicKey, votes: List<Vote>): ElectionBuilder {
-      votesBySender[senderPk] = ArrayList(votes)
+      // The previous votes of the sender no longer count
+      tally = tally.replace(votesBySender[senderPk], votes)
+      votesBySender = votesBySender.put(senderPk, immutableVotes(votes))
+      addedVotes.addAll(votes)
       return this
     }
 
     fun updateMessageMap(senderPk: PublicKey, messageID: MessageID): ElectionBuilder {
-      messageMap[senderPk] = messageID
+      messageMap = messageMap.put(senderPk, messageID)
       return this
     }
 
@@ -300,6 +365,10 @@ class Election(
 
     fun build(): Election {
       checkNotNull(electionVersion) { "Election version is null " }
+      val votesToValidate =
+          if (electionVersion == validatedVersion) addedVotes else votesBySender.values.flatten()
+      validateVotesTypes(votesToValidate, electionVersion)
+
       return Election(
           id,
           name,
@@ -313,19 +382,18 @@ class Election(
           votesBySender,
           messageMap,
           state,
-          results)
+          results,
+          tally)
     }
   }
 
   companion object {
-    private fun validateVotesTypes(
-        votesBySender: Map<PublicKey, List<Vote>>,
-        version: ElectionVersion?
-    ) {
-      votesBySender.values
-          .stream()
-          .flatMap { obj: List<Vote> -> obj.stream() }
-          .forEach { vote: Vote -> validateVoteType(vote, version) }
+    private fun validateVotesTypes(votes: Iterable<Vote>, version: ElectionVersion?) {
+      votes.forEach { vote: Vote -> validateVoteType(vote, version) }
+    }
+
+    private fun immutableVotes(votes: List<Vote>): List<Vote> {
+      return Collections.unmodifiableList(ArrayList(votes))
     }
 
     private fun validateVoteType(vote: Vote, version: ElectionVersion?) {
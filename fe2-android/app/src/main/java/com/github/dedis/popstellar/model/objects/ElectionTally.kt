@@ -0,0 +1,124 @@
+package com.github.dedis.popstellar.model.objects
+
+import com.github.dedis.popstellar.model.Immutable
+import com.github.dedis.popstellar.model.PersistentMap
+import com.github.dedis.popstellar.model.network.method.message.data.election.ElectionQuestion
+import com.github.dedis.popstellar.model.network.method.message.data.election.PlainVote
+import com.github.dedis.popstellar.model.network.method.message.data.election.QuestionResult
+import com.github.dedis.popstellar.model.network.method.message.data.election.Vote
+
+/**
+ * Number of votes received for each ballot option of the questions of an election
+ *
+ * The tally is updated as the votes are cast. As only the last vote of a sender counts, their
+ * previous ballot is retracted when they vote again. It gives the partial results of an election
+ * while it is still open, and can be checked against the results sent by the backend.
+ *
+ * Encrypted votes cannot be counted, the tally of a secret ballot election is thus always empty.
+ *
+ * The votes come from the network, so only the votes for a ballot option of one of the questions
+ * of the election are counted. The counts of each question are allocated once from its number of
+ * ballot options.
+ */
+@Immutable
+class ElectionTally private constructor(private val counts: PersistentMap<String, IntArray>) {
+
+  /**
+   * @param questionId id of the question
+   * @param ballotIndex index of the ballot option in the question
+   * @return the number of votes for the ballot option
+   */
+  fun getCount(questionId: String, ballotIndex: Int): Int {
+    return counts[questionId]?.getOrNull(ballotIndex) ?: 0
+  }
+
+  /**
+   * Create a tally where the previous votes of a sender are replaced by their new ones
+   *
+   * @param previousVotes of the sender, already counted in this tally, null if there is none
+   * @param votes new votes of the sender
+   * @return the new tally, this one is left untouched
+   */
+  fun replace(previousVotes: List<Vote>?, votes: List<Vote>): ElectionTally {
+    var updated = counts
+    previousVotes?.forEach { updated = count(updated, it, -1) }
+    votes.forEach { updated = count(updated, it, 1) }
+    return ElectionTally(updated)
+  }
+
+  /**
+   * @param question of the election
+   * @return the count of each ballot option of the question
+   */
+  fun getResults(question: ElectionQuestion): Set<QuestionResult> {
+    return question.ballotOptions.mapIndexedTo(HashSet()) { index, option ->
+      QuestionResult(option, getCount(question.id, index))
+    }
+  }
+
+  /**
+   * Check results of an election against this tally. The ballot options missing from the results
+   * are expected to have no vote.
+   *
+   * @param questions of the election
+   * @param results of the election, associated to the question ids
+   * @return true if the results have the same counts as this tally
+   */
+  fun matches(
+      questions: List<ElectionQuestion>,
+      results: Map<String, Set<QuestionResult>>
+  ): Boolean {
+    return questions.all { question ->
+      val resultCounts = results[question.id].orEmpty().associate { it.ballot to it.count }
+      question.ballotOptions.withIndex().all { (index, option) ->
+        getCount(question.id, index) == (resultCounts[option] ?: 0)
+      }
+    }
+  }
+
+  companion object {
+    private val EMPTY = ElectionTally(PersistentMap.empty())
+
+    /** @return the tally of an election without question, which counts no vote */
+    @JvmStatic
+    fun empty(): ElectionTally {
+      return EMPTY
+    }
+
+    /**
+     * @param questions of the election, the votes for other questions are not counted
+     * @param votesBySender votes of each sender
+     * @return the tally of the given votes
+     */
+    @JvmStatic
+    fun of(
+        questions: List<ElectionQuestion>,
+        votesBySender: Collection<List<Vote>>
+    ): ElectionTally {
+      val counts =
+          PersistentMap.of(questions.associate { it.id to IntArray(it.ballotOptions.size) })
+      return votesBySender.fold(ElectionTally(counts)) { tally, votes ->
+        tally.replace(null, votes)
+      }
+    }
+
+    private fun count(
+        counts: PersistentMap<String, IntArray>,
+        vote: Vote,
+        delta: Int
+    ): PersistentMap<String, IntArray> {
+      // Encrypted or write-in votes are not counted
+      val index = (vote as? PlainVote)?.vote ?: return counts
+      // Neither are the votes for an unknown question or ballot option
+      val previous = counts[vote.questionId] ?: return counts
+      if (index !in previous.indices) {
+        return counts
+      }
+
+      // The counts are copied, as the previous ones may be shared with other tallies
+      val updated = previous.copyOf()
+      updated[index] += delta
+      return counts.put(vote.questionId, updated)
+    }
+  }
+}
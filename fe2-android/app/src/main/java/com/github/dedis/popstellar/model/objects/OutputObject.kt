@@ -2,7 +2,6 @@ package com.github.dedis.popstellar.model.objects
 
 import com.github.dedis.popstellar.model.Immutable
 import com.github.dedis.popstellar.model.objects.digitalcash.ScriptOutputObject
-import com.github.dedis.popstellar.model.objects.security.PublicKey
 
 @Immutable
 class OutputObject
@@ -15,10 +14,6 @@ class OutputObject
   val pubKeyHash: String
     get() = script.pubKeyHash
 
-  fun isUserOutputRecipient(user: PublicKey): Boolean {
-    return script.pubKeyHash == user.computeHash()
-  }
-
   override fun toString(): String {
     return "OutputObject{value=$value, keyHash=$pubKeyHash}"
   }
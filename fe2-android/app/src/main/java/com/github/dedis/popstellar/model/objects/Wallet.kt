@@ -22,9 +22,7 @@ import io.github.novacrypto.bip39.wordlists.English
 import java.nio.charset.StandardCharsets
 import java.security.GeneralSecurityException
 import java.security.SecureRandom
-import java.util.Arrays
 import java.util.Base64
-import java.util.StringJoiner
 import javax.inject.Inject
 import javax.inject.Singleton
 import org.bouncycastle.crypto.params.Ed25519PrivateKeyParameters
@@ -33,13 +31,28 @@ import timber.log.Timber
 /**
  * This class represent a wallet that will enable users to store their PoP tokens with reasonable,
  * realistic security and usability.
+ *
+ * The derivation of a token decrypts the seed and runs the whole SLIP-10 derivation, which takes a
+ * few milliseconds. The tokens are requested for every chirp, reaction and transaction, so the
+ * derived ones are kept in memory, up to [MAX_CACHED_TOKENS], until the seed changes or the user
+ * logs out.
  */
 @Singleton
 /** Class constructor, initialize the wallet keyset. */
 class Wallet @Inject constructor(@WalletKeyset keysetManager: AndroidKeysetManager) {
-  private var encryptedSeed: ByteArray? = null
+  @Volatile private var encryptedSeed: ByteArray? = null
   private var encryptedMnemonic: ByteArray? = null
 
+  // Ordered by access to evict the least recently used token
+  private val tokens =
+      object : LinkedHashMap<Pair<String, String>, PoPToken>(MAX_CACHED_TOKENS, 0.75f, true) {
+        override fun removeEldestEntry(
+            eldest: MutableMap.MutableEntry<Pair<String, String>, PoPToken>
+        ): Boolean {
+          return size > MAX_CACHED_TOKENS
+        }
+      }
+
   private val aead: Aead =
       try {
         keysetManager.keysetHandle.getPrimitive(Aead::class.java)
@@ -51,6 +64,8 @@ class Wallet @Inject constructor(@WalletKeyset keysetManager: AndroidKeysetManag
   /**
    * Generate a PoPToken from the ID of the LAO and the ID of the RollCall.
    *
+   * The token is only derived the first time, it is then taken from the memory.
+   *
    * @param laoID a String.
    * @param rollCallID a String.
    * @return the PoP Token
@@ -59,19 +74,21 @@ class Wallet @Inject constructor(@WalletKeyset keysetManager: AndroidKeysetManag
    */
   @Throws(KeyGenerationException::class, UninitializedWalletException::class)
   fun generatePoPToken(laoID: String, rollCallID: String): PoPToken {
-    // Generate the string path
-    val res =
-        java.lang.String.join(
-            "/", // delimiter
-            "m",
-            PURPOSE,
-            ACCOUNT,
-            convertDataToPath(laoID),
-            convertDataToPath(rollCallID))
-
-    Timber.tag(TAG).d("Generated path: %s", res)
-
-    return generateKeyFromPath(res)
+    val key = Pair(laoID, rollCallID)
+    synchronized(tokens) { tokens[key] }?.let { return it }
+
+    val seed = encryptedSeed ?: throw UninitializedWalletException()
+    val path = derivationPath(laoID, rollCallID)
+    Timber.tag(TAG).d("Generated path: m/%s", path.joinToString("/"))
+
+    val token = generateKeyFromPath(seed, path)
+    synchronized(tokens) {
+      // The seed may have changed during the derivation, the token is then not kept
+      if (encryptedSeed === seed) {
+        tokens[key] = token
+      }
+    }
+    return token
   }
 
   /**
@@ -136,23 +153,17 @@ class Wallet @Inject constructor(@WalletKeyset keysetManager: AndroidKeysetManag
     }
 
     storeEncrypted(words)
+    clearTokens()
 
     Timber.tag(TAG).d("Mnemonic words were successfully imported")
   }
 
-  private val isSetUp: Boolean
-    /**
-     * Determine whether wallet has been initialized
-     *
-     * @return true if wallet has been set up, false otherwise
-     */
-    get() = encryptedSeed != null
-
   /** Logout the wallet by replacing the seed by a random one */
   fun logout() {
     Timber.tag(TAG).d("Logged out of wallet")
     encryptedSeed = null
     encryptedMnemonic = null
+    clearTokens()
   }
 
   /** Generates mnemonic seed but does not store it */
@@ -179,70 +190,96 @@ class Wallet @Inject constructor(@WalletKeyset keysetManager: AndroidKeysetManag
   }
 
   /**
-   * This method allow to take a 256-bit string, and split it in many 24-bit or less string.
-   *
-   * So, we first convert the string into an byte array, and we iterate on it taking 3 element
-   * (byte) each time concatenate them and append to our result string.
+   * Forget the derived tokens. The copies of the seed and keys made by the wallet are zeroed after
+   * each derivation, the tokens are immutable and are left to the garbage collector.
+   */
+  private fun clearTokens() {
+    synchronized(tokens) { tokens.clear() }
+  }
+
+  /**
+   * Compute the derivation path of a token: m/PURPOSE/ACCOUNT followed by the indexes of the LAO
+   * ID and of the roll call ID.
    *
-   * @param data to covert into a path
-   * @return string of the form 3-byte/3-byte/...
+   * @param laoID a String.
+   * @param rollCallID a String.
+   * @return the indexes of the path, without the leading 'm'
    */
-  private fun convertDataToPath(data: String): String {
-    // extract byte form string
-    val byteString = Base64.getUrlDecoder().decode(data)
-    val joiner = StringJoiner("/")
-    val curPath = StringBuilder()
+  private fun derivationPath(laoID: String, rollCallID: String): IntArray {
+    val laoBytes = Base64.getUrlDecoder().decode(laoID)
+    val rollCallBytes = Base64.getUrlDecoder().decode(rollCallID)
+
+    val path = IntArray(2 + indexCount(laoBytes) + indexCount(rollCallBytes))
+    path[0] = PURPOSE
+    path[1] = ACCOUNT
+    val next = putIndexes(laoBytes, path, 2)
+    putIndexes(rollCallBytes, path, next)
+    return path
+  }
 
-    // create 31-bit index path
-    for (i in byteString.indices) {
-      curPath.append(byteString[i].toInt() and 0xFF)
+  private fun indexCount(data: ByteArray): Int {
+    return (data.size + BYTES_PER_INDEX - 1) / BYTES_PER_INDEX
+  }
 
-      // Every 3 bytes, add the current path to the joiner and reset the builder
-      if (i % 3 == 2) {
-        joiner.add(curPath.toString())
-        curPath.setLength(0)
+  /**
+   * This method allow to take a 256-bit data, and split it in many 24-bit or less indexes.
+   *
+   * We iterate on the bytes taking 3 of them each time and concatenate their decimal
+   * representations, e.g. 12, 255 and 3 give the index 122553.
+   *
+   * @param data to covert into indexes
+   * @param path where the indexes are put
+   * @param start position of the first index in the path
+   * @return the position following the last index
+   */
+  private fun putIndexes(data: ByteArray, path: IntArray, start: Int): Int {
+    var position = start
+    for (i in data.indices step BYTES_PER_INDEX) {
+      var index = 0
+      for (j in i until minOf(i + BYTES_PER_INDEX, data.size)) {
+        val value = data[j].toInt() and 0xFF
+        // Shift the index by the number of decimal digits of the value
+        val shift =
+            when {
+              value < 10 -> 10
+              value < 100 -> 100
+              else -> 1000
+            }
+        index = index * shift + value
       }
+      path[position++] = index
     }
-
-    // If the path is not complete, add the remaining bytes to the joiner
-    if (curPath.isNotEmpty()) {
-      joiner.add(curPath.toString())
-    }
-
-    return joiner.toString()
+    return position
   }
 
   /**
    * Generate a PoPToken (i.e. a key pair) from a given path.
    *
-   * @param path a String path of the form: m/i/j/k/... where i,j,k,.. are 31-bit integer.
+   * @param encryptedSeed the seed of the wallet, encrypted
+   * @param path the indexes i,j,k,.. of the path m/i/j/k/..., which are 31-bit integers.
    * @return the generated PoP Token
    * @throws KeyGenerationException if an error occurs
-   * @throws UninitializedWalletException if the wallet is not initialized with a seed
    */
-  @Throws(KeyGenerationException::class, UninitializedWalletException::class)
+  @Throws(KeyGenerationException::class)
   @Suppress("SpreadOperator")
-  private fun generateKeyFromPath(path: String): PoPToken {
-    if (!isSetUp) {
-      throw UninitializedWalletException()
-    }
-
-    // convert the path string in an array of int
-    val pathValueInt =
-        Arrays.stream(path.split("/".toRegex()).dropLastWhile { it.isEmpty() }.toTypedArray())
-            .skip(1) // remove the first element ('m')
-            .mapToInt { s: String -> s.toInt() }
-            .toArray()
-
+  private fun generateKeyFromPath(encryptedSeed: ByteArray, path: IntArray): PoPToken {
     try {
       // derive private and public key
+      val seed = aead.decrypt(encryptedSeed, ByteArray(0))
       val privateKey =
-          SLIP10.deriveEd25519PrivateKey(aead.decrypt(encryptedSeed, ByteArray(0)), *pathValueInt)
+          try {
+            SLIP10.deriveEd25519PrivateKey(seed, *path)
+          } finally {
+            seed.fill(0)
+          }
       val prK = Ed25519PrivateKeyParameters(privateKey, 0)
       val puK = prK.generatePublicKey()
       val publicKey = puK.encoded
 
-      return PoPToken(privateKey, publicKey)
+      val token = PoPToken(privateKey, publicKey)
+      // The token keeps its own copy of the key
+      privateKey.fill(0)
+      return token
     } catch (e: GeneralSecurityException) {
       throw KeyGenerationException(e)
     }
@@ -250,7 +287,11 @@ class Wallet @Inject constructor(@WalletKeyset keysetManager: AndroidKeysetManag
 
   companion object {
     private val TAG = Wallet::class.java.simpleName
-    private const val PURPOSE = "888"
-    private const val ACCOUNT = "0"
+    private const val PURPOSE = 888
+    private const val ACCOUNT = 0
+    private const val BYTES_PER_INDEX = 3
+
+    /** Maximum number of tokens kept in memory */
+    const val MAX_CACHED_TOKENS = 128
   }
 }
@@ -48,9 +48,10 @@ class WitnessMessage : Copyable<WitnessMessage> {
    * Method to add a new witness that have signed the message
    *
    * @param pk public key of the witness that have signed the message
+   * @return true if the witness had not signed the message yet
    */
-  fun addWitness(pk: PublicKey) {
-    witnesses.add(pk)
+  fun addWitness(pk: PublicKey): Boolean {
+    return witnesses.add(pk)
   }
 
   override fun copy(): WitnessMessage {
@@ -0,0 +1,105 @@
+package com.github.dedis.popstellar.model.objects
+
+import com.github.dedis.popstellar.model.objects.security.PublicKey
+import kotlin.math.roundToInt
+
+/**
+ * Rule deciding when a message of a LAO is signed by enough witnesses to be accepted.
+ *
+ * Each signature adds the weight of its signer to the message, which is accepted once the total
+ * weight reaches the required one. Both only depend on the witnesses of the LAO, so a new signature
+ * is counted in constant time.
+ */
+sealed class WitnessingPolicy {
+
+  /**
+   * @param signer public key of the witness signing the message
+   * @param witnesses witnesses of the lao
+   * @return the weight of the signature, 0 if it does not count towards the acceptance
+   */
+  abstract fun weightOf(signer: PublicKey, witnesses: Set<PublicKey>): Int
+
+  /**
+   * @param witnesses witnesses of the lao
+   * @return the total weight of the signatures needed to accept a message, at least 1
+   */
+  abstract fun requiredWeight(witnesses: Set<PublicKey>): Int
+
+  /** A proportion of the witnesses, rounded to the nearest number of witnesses */
+  class Proportion(private val proportion: Float) : WitnessingPolicy() {
+    init {
+      require(proportion > 0 && proportion <= 1) { "The proportion should be in (0, 1]" }
+    }
+
+    override fun weightOf(signer: PublicKey, witnesses: Set<PublicKey>): Int {
+      return if (signer in witnesses) 1 else 0
+    }
+
+    override fun requiredWeight(witnesses: Set<PublicKey>): Int {
+      return maxOf(1, (witnesses.size * proportion).roundToInt())
+    }
+  }
+
+  /** Any k of the witnesses */
+  class KOfN(private val k: Int) : WitnessingPolicy() {
+    init {
+      require(k > 0) { "At least one witness should sign the messages" }
+    }
+
+    override fun weightOf(signer: PublicKey, witnesses: Set<PublicKey>): Int {
+      return if (signer in witnesses) 1 else 0
+    }
+
+    override fun requiredWeight(witnesses: Set<PublicKey>): Int {
+      return k
+    }
+  }
+
+  /** Witnesses with different weights, the unlisted ones do not count */
+  class Weighted(private val weights: Map<PublicKey, Int>, private val required: Int) :
+      WitnessingPolicy() {
+    init {
+      require(required > 0) { "The required weight should be positive" }
+      require(weights.values.all { it >= 0 }) { "The weights should not be negative" }
+    }
+
+    override fun weightOf(signer: PublicKey, witnesses: Set<PublicKey>): Int {
+      return if (signer in witnesses) weights.getOrDefault(signer, 0) else 0
+    }
+
+    override fun requiredWeight(witnesses: Set<PublicKey>): Int {
+      return required
+    }
+  }
+
+  /**
+   * The organizer and k other witnesses. The signature of the organizer weighs more than all the
+   * other witnesses together, and the required weight is its own plus k.
+   */
+  class OrganizerPlusK(private val organizer: PublicKey, private val k: Int) : WitnessingPolicy() {
+    init {
+      require(k >= 0) { "The number of witnesses should not be negative" }
+    }
+
+    override fun weightOf(signer: PublicKey, witnesses: Set<PublicKey>): Int {
+      return when {
+        signer == organizer -> organizerWeight(witnesses)
+        signer in witnesses -> 1
+        else -> 0
+      }
+    }
+
+    override fun requiredWeight(witnesses: Set<PublicKey>): Int {
+      return organizerWeight(witnesses) + k
+    }
+
+    private fun organizerWeight(witnesses: Set<PublicKey>): Int {
+      return witnesses.size + 1
+    }
+  }
+
+  companion object {
+    /** Around 2/3 of the witnesses, the policy of the LAOs that did not register another one */
+    @JvmField val DEFAULT: WitnessingPolicy = Proportion(2.0f / 3.0f)
+  }
+}
@@ -0,0 +1,20 @@
+package com.github.dedis.popstellar.model.objects.digitalcash
+
+/**
+ * Outputs selected to pay an amount
+ *
+ * @param inputs the outputs to spend
+ * @param amount paid with the outputs, in miniLAOs
+ */
+class CoinSelection(val inputs: List<UnspentOutput>, val amount: Long) {
+  /** Sum of the values of the selected outputs */
+  val total: Long = inputs.sumOf { it.value }
+
+  /** Value left after paying the amount, to be sent back to the owner of the outputs */
+  val change: Long
+    get() = total - amount
+
+  override fun toString(): String {
+    return "CoinSelection{inputs=${inputs.size}, total=$total, amount=$amount, change=$change}"
+  }
+}
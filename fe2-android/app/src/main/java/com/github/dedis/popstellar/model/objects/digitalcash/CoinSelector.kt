@@ -0,0 +1,104 @@
+package com.github.dedis.popstellar.model.objects.digitalcash
+
+/**
+ * Selection of the unspent outputs a transaction spends to pay a given amount.
+ *
+ * The selection first looks for a set of outputs summing exactly to the amount, which avoids a
+ * change output, with a bounded branch and bound search. If none is found with at most as many
+ * outputs as the largest-first selection, the largest outputs are spent until the amount is
+ * reached, which uses the least possible number of inputs.
+ */
+object CoinSelector {
+
+  /** Maximum number of steps of the search of an exact match */
+  const val MAX_TRIES = 100_000
+
+  /**
+   * Select the outputs to spend
+   *
+   * @param unspentOutputs the outputs that can be spent
+   * @param amount to pay, in miniLAOs
+   * @return the selected outputs
+   * @throws IllegalArgumentException if the outputs are not sufficient to pay the amount
+   */
+  @JvmStatic
+  fun select(unspentOutputs: Collection<UnspentOutput>, amount: Long): CoinSelection {
+    require(amount >= 0) { "The amount cannot be negative" }
+
+    val sorted = unspentOutputs.sortedByDescending { it.value }
+    val largestFirst = selectLargestFirst(sorted, amount)
+    val exactMatch = selectExactMatch(sorted, amount, largestFirst.size)
+
+    return CoinSelection(exactMatch ?: largestFirst, amount)
+  }
+
+  private fun selectLargestFirst(sorted: List<UnspentOutput>, amount: Long): List<UnspentOutput> {
+    var total = 0L
+    val selected = sorted.takeWhile { output ->
+      val missing = total < amount
+      total += output.value
+      missing
+    }
+
+    require(selected.sumOf { it.value } >= amount) {
+      "The unspent outputs are not sufficient to pay $amount miniLAOs"
+    }
+    return selected
+  }
+
+  /**
+   * Depth first search of a subset of the outputs summing to the amount, including the largest
+   * outputs first. A branch is pruned as soon as it exceeds the amount, cannot reach it anymore or
+   * would need more than [maxSize] outputs.
+   */
+  private fun selectExactMatch(
+      sorted: List<UnspentOutput>,
+      amount: Long,
+      maxSize: Int
+  ): List<UnspentOutput>? {
+    val values = LongArray(sorted.size) { sorted[it].value }
+    // remaining[i] is the sum of the values starting at index i
+    val remaining = LongArray(values.size + 1)
+    for (i in values.indices.reversed()) {
+      remaining[i] = remaining[i + 1] + values[i]
+    }
+
+    val selected = ArrayList<Int>()
+    var total = 0L
+    var index = 0
+    var tries = 0
+
+    while (tries++ < MAX_TRIES) {
+      if (total == amount) {
+        return selected.map { sorted[it] }
+      }
+
+      val backtrack =
+          total > amount ||
+              total + remaining[index] < amount ||
+              selected.size >= maxSize ||
+              index == values.size
+      if (!backtrack) {
+        // Include the next output
+        selected.add(index)
+        total += values[index]
+        index++
+        continue
+      }
+
+      if (selected.isEmpty()) {
+        return null
+      }
+      // Exclude the last included output, skipping the outputs of the same value that would only
+      // lead to the same sums
+      val last = selected.removeAt(selected.size - 1)
+      total -= values[last]
+      index = last + 1
+      while (index < values.size && values[index] == values[last]) {
+        index++
+      }
+    }
+
+    return null
+  }
+}
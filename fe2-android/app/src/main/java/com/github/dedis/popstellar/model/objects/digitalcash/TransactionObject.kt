@@ -82,61 +82,6 @@ class TransactionObject(
     return sendersTransaction.contains(publicKey)
   }
 
-  /**
-   * Function that given a Public Key gives the miniLaoCoin received for this transaction object
-   *
-   * @param user Public Key of a potential receiver
-   * @return int amount of Lao Coin
-   */
-  fun getSumForUser(user: PublicKey): Long {
-    // We are well aware that the logic could be compressed in a single filtering of outputs, but we
-    // rejected it in favour of (some) clarity
-    if (isCoinBaseTransaction) {
-      // If it is an issuance, we return the sum of all output where the user is the recipient
-      return outputs
-          .stream()
-          .filter { output: OutputObject -> output.isUserOutputRecipient(user) }
-          .mapToLong { obj: OutputObject -> obj.value }
-          .sum()
-    }
-
-    var sum = 0L
-    if (isSender(user)) {
-      // if the user is sender, we subtract the value of all output
-      sum -= outputs.stream().mapToLong { obj: OutputObject -> obj.value }.sum()
-    }
-
-    // Regardless of if the user is the sender, we sum all output where the user is the recipient.
-    // This is because of how the protocol is designed i.e. the sender will be in receivers as well
-    sum +=
-        outputs
-            .stream()
-            .filter { output: OutputObject -> output.isUserOutputRecipient(user) }
-            .mapToLong { obj: OutputObject -> obj.value }
-            .sum()
-
-    return sum
-  }
-
-  /**
-   * Function that return the index of the output for a given key in this Transaction
-   *
-   * @param publicKey PublicKey of an individual in Transaction output
-   * @return int index in the transaction outputs
-   */
-  fun getIndexTransaction(publicKey: PublicKey): Int {
-    val hashPubKey = publicKey.computeHash()
-
-    for ((index, outObj) in outputs.withIndex()) {
-      if (outObj.pubKeyHash == hashPubKey) {
-        return index
-      }
-    }
-
-    throw IllegalArgumentException(
-        "this public key is not contained in the output of this transaction")
-  }
-
   val isCoinBaseTransaction: Boolean
     /**
      * Function that return if a Transaction is a coin base transaction or not
@@ -0,0 +1,19 @@
+package com.github.dedis.popstellar.model.objects.digitalcash
+
+import com.github.dedis.popstellar.model.Immutable
+
+/**
+ * Output of a transaction that was not spent yet
+ *
+ * @param txOutHash id of the transaction holding the output
+ * @param txOutIndex index of the output in the transaction
+ * @param pubKeyHash hash of the public key owning the output
+ * @param value of the output, in miniLAOs
+ */
+@Immutable
+data class UnspentOutput(
+    val txOutHash: String,
+    val txOutIndex: Int,
+    val pubKeyHash: String,
+    val value: Long
+)
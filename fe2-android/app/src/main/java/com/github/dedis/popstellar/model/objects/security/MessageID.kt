@@ -8,6 +8,8 @@ import com.github.dedis.popstellar.utility.security.HashSHA256.hash
 class MessageID : Base64URLData {
   constructor(data: String) : super(data)
 
+  constructor(data: ByteArray) : super(data)
+
   /**
    * Create the message id based on the data it transport and the sender's signature
    *
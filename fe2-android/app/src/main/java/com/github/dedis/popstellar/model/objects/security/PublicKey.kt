@@ -1,13 +1,10 @@
 package com.github.dedis.popstellar.model.objects.security
 
 import com.github.dedis.popstellar.model.Immutable
+import com.github.dedis.popstellar.utility.security.PublicKeyHashCache
 import com.google.crypto.tink.PublicKeyVerify
 import com.google.crypto.tink.subtle.Ed25519Verify
 import java.security.GeneralSecurityException
-import java.security.MessageDigest
-import java.security.NoSuchAlgorithmException
-import java.util.Arrays
-import java.util.Base64
 import timber.log.Timber
 
 /** A public key that can be used to verify a signature */
@@ -34,20 +31,13 @@ class PublicKey : Base64URLData {
   }
 
   /**
-   * Function that compute the hash of a public key
+   * Function that compute the hash of a public key. The hash is only computed the first time, see
+   * [PublicKeyHashCache]
    *
    * @return String which correspond to the SHA256 Hash
    */
   fun computeHash(): String {
-    try {
-      val digest = MessageDigest.getInstance("SHA-256")
-      val hash = digest.digest(data)
-
-      return Base64.getUrlEncoder().encodeToString(Arrays.copyOf(hash, 20))
-    } catch (e: NoSuchAlgorithmException) {
-      Timber.tag(TAG).e(e, "Something is wrong by hashing the String element")
-      throw IllegalArgumentException("Error in computing the hash in public key")
-    }
+    return PublicKeyHashCache.getHash(this)
   }
 
   companion object {
@@ -0,0 +1,109 @@
+package com.github.dedis.popstellar.model.objects.security.elGamal
+
+import ch.epfl.dedis.lib.crypto.Ed25519Point
+import ch.epfl.dedis.lib.crypto.Point
+import net.i2p.crypto.eddsa.math.GroupElement
+import net.i2p.crypto.eddsa.spec.EdDSANamedCurveTable
+
+/**
+ * Multiples of a fixed point, precomputed to multiply it by any scalar with additions only
+ *
+ * The scalar is split in 64 digits of 4 bits. The table holds d * 16^i * point for each digit d
+ * and position i, so the product is the sum of the multiples of its digits : 64 additions instead
+ * of the 255 doublings and additions of a full scalar multiplication.
+ *
+ * The scalar is secret, so the multiplication runs in constant time : a point is added for every
+ * digit, the identity for a zero digit, and it is selected by reading the whole row with masks
+ * rather than by indexing the row with the digit.
+ *
+ * @param point multiplied by the scalars
+ */
+class FixedBaseTable(point: Point) {
+  // rows[i] holds the coordinates of d * 16^i * point for each digit d, starting with the identity
+  private val rows: Array<ByteArray>
+
+  init {
+    var power = GroupElement(CURVE, point.toBytes())
+    rows =
+        Array(DIGITS) {
+          val row = ByteArray(DIGIT_VALUES * ENTRY_SIZE)
+          var multiple = IDENTITY
+          for (digit in 0 until DIGIT_VALUES) {
+            write(multiple, row, digit * ENTRY_SIZE)
+            multiple = multiple.add(power.toCached()).toP3()
+          }
+          // 16^(i + 1) * point, for the next position
+          power = multiple
+          row
+        }
+  }
+
+  /**
+   * Multiply the point by a scalar
+   *
+   * @param scalar 32 bytes of the scalar, little endian, must not be zero
+   * @return the product of the point and the scalar
+   */
+  fun mul(scalar: ByteArray): Point {
+    require(scalar.size == SCALAR_SIZE) { "The scalar should contain $SCALAR_SIZE bytes" }
+    // Merge all the bytes instead of stopping at the first one that is not zero
+    require(scalar.fold(0) { acc, byte -> acc or byte.toInt() } != 0) {
+      "The scalar should not be zero"
+    }
+
+    val entry = ByteArray(ENTRY_SIZE)
+    var product = IDENTITY
+    for (i in 0 until DIGITS) {
+      val digit = (scalar[i / 2].toInt() shr (BITS * (i % 2))) and (DIGIT_VALUES - 1)
+      select(rows[i], digit, entry)
+      product = product.add(read(entry).toCached()).toP3()
+    }
+    entry.fill(0)
+
+    return Ed25519Point(product.toByteArray())
+  }
+
+  companion object {
+    /** Size of the scalars, in bytes */
+    const val SCALAR_SIZE = 32
+
+    private const val BITS = 4
+    private const val DIGIT_VALUES = 1 shl BITS
+    private const val DIGITS = SCALAR_SIZE * 8 / BITS
+
+    // X, Y, Z and T extended coordinates of a point, of 32 bytes each
+    private const val COORDINATE_SIZE = 32
+    private const val ENTRY_SIZE = 4 * COORDINATE_SIZE
+
+    private val CURVE = EdDSANamedCurveTable.getByName(EdDSANamedCurveTable.ED_25519).curve
+    private val IDENTITY = CURVE.getZero(GroupElement.Representation.P3)
+
+    /** Copy the entry of the digit in the given buffer, reading all the entries of the row */
+    private fun select(row: ByteArray, digit: Int, entry: ByteArray) {
+      entry.fill(0)
+      for (candidate in 0 until DIGIT_VALUES) {
+        // All ones if the candidate is the digit, zero otherwise
+        val mask = ((candidate xor digit) - 1) shr (Int.SIZE_BITS - 1)
+        val offset = candidate * ENTRY_SIZE
+        for (b in 0 until ENTRY_SIZE) {
+          entry[b] = (entry[b].toInt() or (row[offset + b].toInt() and mask)).toByte()
+        }
+      }
+    }
+
+    private fun write(point: GroupElement, row: ByteArray, offset: Int) {
+      listOf(point.x, point.y, point.z, point.t).forEachIndexed { i, coordinate ->
+        coordinate.toByteArray().copyInto(row, offset + i * COORDINATE_SIZE)
+      }
+    }
+
+    private fun read(entry: ByteArray): GroupElement {
+      val coordinates =
+          List(4) {
+            CURVE.field.fromByteArray(
+                entry.copyOfRange(it * COORDINATE_SIZE, (it + 1) * COORDINATE_SIZE))
+          }
+      return GroupElement.p3(CURVE, coordinates[0], coordinates[1], coordinates[2], coordinates[3])
+    }
+  }
+}
@@ -0,0 +1,91 @@
+package com.github.dedis.popstellar.model.objects.security.elGamal
+
+import ch.epfl.dedis.lib.crypto.Ed25519Point
+import com.github.dedis.popstellar.model.objects.security.Base64URLData
+import java.security.SecureRandom
+
+/**
+ * Election public key ready to encrypt many votes
+ *
+ * The key is decoded once, and the multiples of both the key and the generator are precomputed, so
+ * that an encryption only costs additions of points. The ciphertexts have the same format as the
+ * ones of [ElectionPublicKey.encrypt] and are decrypted by the [ElectionPrivateKey].
+ *
+ * @param electionPublicKey the key to prepare
+ */
+class PreparedElectionPublicKey(val electionPublicKey: ElectionPublicKey) {
+  private val keyTable = FixedBaseTable(electionPublicKey.publicKey)
+
+  /**
+   * Encrypts with ElGamal under Ed25519 curve
+   *
+   * @param message a 2 byte integer corresponding to the chosen vote
+   * @return the 32 bytes of point K followed by the 32 bytes of point C, base64 encoded
+   */
+  fun encrypt(message: ByteArray): String {
+    require(message.size <= MAX_MESSAGE_SIZE) {
+      "The message should contain at maximum $MAX_MESSAGE_SIZE bytes"
+    }
+    val m = Ed25519Point.embed(message)
+
+    // K = k * G and C = k * Y + M, for a random k
+    val k = randomScalar()
+    val kPoint = BASE_TABLE.mul(k)
+    val cPoint = keyTable.mul(k).add(m)
+
+    return Base64URLData(kPoint.toBytes() + cPoint.toBytes()).encoded
+  }
+
+  /**
+   * Encrypts several messages with the same prepared key
+   *
+   * @param messages to encrypt, of 2 bytes each
+   * @return the encrypted messages, in the same order
+   */
+  fun encrypt(messages: List<ByteArray>): List<String> {
+    return messages.map(::encrypt)
+  }
+
+  companion object {
+    private const val MAX_MESSAGE_SIZE = 29
+
+    /** Maximum number of election keys kept prepared */
+    private const val MAX_CACHED_KEYS = 8
+
+    private val BASE_TABLE by lazy { FixedBaseTable(Ed25519Point.base()) }
+    private val random = SecureRandom()
+
+    private val cache =
+        object : LinkedHashMap<String, PreparedElectionPublicKey>(MAX_CACHED_KEYS, 0.75f, true) {
+          override fun removeEldestEntry(
+              eldest: MutableMap.MutableEntry<String, PreparedElectionPublicKey>
+          ): Boolean {
+            return size > MAX_CACHED_KEYS
+          }
+        }
+
+    /**
+     * Prepared key of an election, only prepared once for the few elections currently in use
+     *
+     * @param electionKey base64 encoded election key
+     * @return the prepared key
+     */
+    @JvmStatic
+    fun of(electionKey: String): PreparedElectionPublicKey {
+      synchronized(cache) { cache[electionKey] }?.let { return it }
+
+      // Prepared outside of the lock, as computing the multiples takes a few milliseconds
+      val prepared = PreparedElectionPublicKey(ElectionPublicKey(Base64URLData(electionKey)))
+      synchronized(cache) { cache[electionKey] = prepared }
+      return prepared
+    }
+
+    private fun randomScalar(): ByteArray {
+      val scalar = ByteArray(FixedBaseTable.SCALAR_SIZE)
+      do {
+        random.nextBytes(scalar)
+      } while (scalar.all { it == 0.toByte() })
+      return scalar
+    }
+  }
+}
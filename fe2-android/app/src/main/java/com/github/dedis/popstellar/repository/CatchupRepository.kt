@@ -0,0 +1,142 @@
+package com.github.dedis.popstellar.repository
+
+import android.app.Activity
+import android.app.Application
+import androidx.lifecycle.Lifecycle
+import com.github.dedis.popstellar.model.objects.Channel
+import com.github.dedis.popstellar.model.objects.security.MessageID
+import com.github.dedis.popstellar.repository.database.AppDatabase
+import com.github.dedis.popstellar.repository.database.WriteBehindQueue
+import com.github.dedis.popstellar.repository.database.catchup.CatchupDao
+import com.github.dedis.popstellar.repository.database.catchup.CatchupEntity
+import com.github.dedis.popstellar.utility.GeneralUtils.buildLifecycleCallback
+import io.reactivex.Completable
+import io.reactivex.disposables.CompositeDisposable
+import io.reactivex.schedulers.Schedulers
+import java.util.EnumMap
+import java.util.concurrent.ConcurrentHashMap
+import java.util.function.Consumer
+import javax.inject.Inject
+import javax.inject.Singleton
+import timber.log.Timber
+
+/**
+ * This class is the repository of the catchup high-water marks, i.e. the last message of each
+ * channel history that was processed by a catchup.
+ *
+ * As the catchup query always returns the whole history of a channel, the high-water mark allows
+ * to only process the messages that follow it. The marks are loaded once at creation, so that
+ * looking one up never performs an I/O operation. A missing mark only leads to a full catchup.
+ *
+ * A mark is only written once the messages it covers left the write-behind queues of the
+ * repositories, so that it never gets ahead of their effects on the disk.
+ */
+@Singleton
+class CatchupRepository @Inject constructor(appDatabase: AppDatabase, application: Application) {
+  private val lastSeenByChannel = ConcurrentHashMap<Channel, MessageID>()
+  private val catchupDao: CatchupDao = appDatabase.catchupDao()
+  private val disposables = CompositeDisposable()
+
+  init {
+    val consumerMap: MutableMap<Lifecycle.Event, Consumer<Activity>> =
+        EnumMap(Lifecycle.Event::class.java)
+    consumerMap[Lifecycle.Event.ON_STOP] = Consumer { disposables.clear() }
+    application.registerActivityLifecycleCallbacks(buildLifecycleCallback(consumerMap))
+    loadStorage()
+  }
+
+  /** This function is called at creation to load the persisted marks asynchronously */
+  private fun loadStorage() {
+    disposables.add(
+        catchupDao
+            .getAllCatchups()
+            .subscribeOn(Schedulers.io())
+            .subscribe(
+                { catchups: List<CatchupEntity>? ->
+                  catchups?.forEach { catchup: CatchupEntity ->
+                    // Marks set in the meantime are more recent than the persisted ones
+                    lastSeenByChannel.putIfAbsent(
+                        Channel.fromString(catchup.channel), catchup.lastMessageId)
+                  }
+                },
+                { err: Throwable -> Timber.tag(TAG).e(err, "Error loading the catchup marks") }))
+  }
+
+  /**
+   * @param channel the catchup is performed on
+   * @return the last message processed on the channel, null if unknown
+   */
+  fun getLastSeen(channel: Channel): MessageID? {
+    return lastSeenByChannel[channel]
+  }
+
+  /**
+   * This function updates the high-water mark of a channel.
+   *
+   * @param channel the catchup was performed on
+   * @param messageId last message of the channel history that was processed
+   * @param toPersist whether the mark has to be saved on disk (true) or only kept in memory
+   *   (false). It should only be persisted if all the processed messages were persisted as well,
+   *   otherwise their effects would be lost after a restart.
+   */
+  fun setLastSeen(channel: Channel, messageId: MessageID, toPersist: Boolean) {
+    lastSeenByChannel[channel] = messageId
+
+    val completable =
+        if (toPersist) {
+          WriteBehindQueue.flushAll()
+              .andThen(
+                  Completable.defer {
+                    // A more recent mark may have been set while the queues were flushed
+                    if (lastSeenByChannel[channel] != messageId) {
+                      Completable.complete()
+                    } else {
+                      catchupDao.insert(
+                          CatchupEntity(channel.asString, messageId, System.currentTimeMillis()))
+                    }
+                  })
+        } else {
+          catchupDao.delete(channel.asString)
+        }
+    disposables.add(
+        completable
+            .subscribeOn(Schedulers.io())
+            .subscribe(
+                { Timber.tag(TAG).d("Updated catchup mark of %s", channel) },
+                { err: Throwable ->
+                  Timber.tag(TAG).e(err, "Error updating the catchup mark of %s", channel)
+                }))
+  }
+
+  /**
+   * This function removes the high-water mark of a channel, such that its full history is
+   * processed on the next catchup.
+   *
+   * @param channel to reset
+   */
+  fun clearLastSeen(channel: Channel) {
+    lastSeenByChannel.remove(channel)
+    disposables.add(
+        catchupDao
+            .delete(channel.asString)
+            .subscribeOn(Schedulers.io())
+            .subscribe(
+                { Timber.tag(TAG).d("Cleared catchup mark of %s", channel) },
+                { err: Throwable ->
+                  Timber.tag(TAG).e(err, "Error clearing the catchup mark of %s", channel)
+                }))
+  }
+
+  /**
+   * This function forgets all the marks kept in memory, it is called when the database is cleared.
+   * The full history of every channel is then processed on the next catchup.
+   */
+  fun clear() {
+    disposables.clear()
+    lastSeenByChannel.clear()
+  }
+
+  companion object {
+    private val TAG = CatchupRepository::class.java.simpleName
+  }
+}
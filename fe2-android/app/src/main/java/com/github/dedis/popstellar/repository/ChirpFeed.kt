@@ -0,0 +1,121 @@
+package com.github.dedis.popstellar.repository
+
+import com.github.dedis.popstellar.model.objects.Chirp
+import io.reactivex.Observable
+import io.reactivex.subjects.PublishSubject
+import io.reactivex.subjects.Subject
+import java.util.Collections
+
+/**
+ * Chirps of a LAO, ordered from the newest to the oldest.
+ *
+ * The chirps are inserted at their position with a binary search, and each modification of the
+ * feed is published as a [Change] holding that position. The observers can then keep a copy of the
+ * feed up to date without sorting it again nor observing every chirp.
+ *
+ * A deleted chirp stays in the feed, as it is still displayed, so its deletion is an update.
+ */
+class ChirpFeed {
+  private val chirps = ArrayList<Chirp>()
+  private val changes: Subject<Change> = PublishSubject.create()
+
+  /** Number of chirps in the feed */
+  val size: Int
+    @Synchronized get() = chirps.size
+
+  /**
+   * Insert a chirp at its position in the feed
+   *
+   * @param chirp to insert
+   * @return true if the chirp was inserted, false if it was already in the feed
+   */
+  @Synchronized
+  fun add(chirp: Chirp): Boolean {
+    val position = Collections.binarySearch(chirps, chirp, ORDER)
+    if (position >= 0) {
+      return false
+    }
+
+    val insertionPosition = -(position + 1)
+    chirps.add(insertionPosition, chirp)
+    changes.onNext(Change.Insert(insertionPosition, chirp))
+    return true
+  }
+
+  /**
+   * Replace a chirp of the feed by a new version of it, e.g. once deleted
+   *
+   * @param chirp new version of the chirp, with the same id and timestamp
+   * @return true if the chirp was replaced, false if it is not in the feed
+   */
+  @Synchronized
+  fun update(chirp: Chirp): Boolean {
+    val position = Collections.binarySearch(chirps, chirp, ORDER)
+    if (position < 0) {
+      return false
+    }
+
+    chirps[position] = chirp
+    changes.onNext(Change.Update(position, chirp))
+    return true
+  }
+
+  /** @return a copy of the chirps of the feed, from the newest to the oldest */
+  @Synchronized
+  fun getChirps(): List<Chirp> {
+    return ArrayList(chirps)
+  }
+
+  /**
+   * @return an observable of the changes of the feed. The first change is a [Change.Reset] to the
+   *   current chirps, followed by the changes made since then.
+   */
+  fun getChanges(): Observable<Change> {
+    return Observable.create { emitter ->
+      // Changes are published with the lock held, so none is missed nor sent twice
+      synchronized(this) {
+        emitter.onNext(Change.Reset(ArrayList(chirps)))
+        emitter.setDisposable(changes.subscribe(emitter::onNext, emitter::onError))
+      }
+    }
+  }
+
+  /** Modification of the feed, that can be applied to a copy of it */
+  sealed class Change {
+
+    /**
+     * Apply the change on a copy of the feed
+     *
+     * @param list the copy of the feed, up to date with the previous changes
+     */
+    abstract fun applyTo(list: MutableList<Chirp>)
+
+    /** All the chirps of the feed, replacing any previous content */
+    class Reset(val chirps: List<Chirp>) : Change() {
+      override fun applyTo(list: MutableList<Chirp>) {
+        list.clear()
+        list.addAll(chirps)
+      }
+    }
+
+    /** A new chirp, inserted at the given position */
+    class Insert(val position: Int, val chirp: Chirp) : Change() {
+      override fun applyTo(list: MutableList<Chirp>) {
+        list.add(position, chirp)
+      }
+    }
+
+    /** A new version of the chirp at the given position */
+    class Update(val position: Int, val chirp: Chirp) : Change() {
+      override fun applyTo(list: MutableList<Chirp>) {
+        list[position] = chirp
+      }
+    }
+  }
+
+  companion object {
+    /** Newest chirps first, chirps sent at the same time are ordered by id */
+    private val ORDER: Comparator<Chirp> =
+        compareByDescending<Chirp> { it.timestamp }.thenBy { it.id.encoded }
+  }
+}
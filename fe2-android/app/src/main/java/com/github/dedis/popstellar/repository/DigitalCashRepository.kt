@@ -5,14 +5,17 @@ import android.app.Application
 import androidx.lifecycle.Lifecycle
 import com.github.dedis.popstellar.model.objects.OutputObject
 import com.github.dedis.popstellar.model.objects.digitalcash.TransactionObject
+import com.github.dedis.popstellar.model.objects.digitalcash.UnspentOutput
 import com.github.dedis.popstellar.model.objects.security.PublicKey
 import com.github.dedis.popstellar.repository.database.AppDatabase
+import com.github.dedis.popstellar.repository.database.WriteBehindQueue
 import com.github.dedis.popstellar.repository.database.digitalcash.HashDao
 import com.github.dedis.popstellar.repository.database.digitalcash.HashEntity
 import com.github.dedis.popstellar.repository.database.digitalcash.TransactionDao
 import com.github.dedis.popstellar.repository.database.digitalcash.TransactionEntity
 import com.github.dedis.popstellar.utility.GeneralUtils.buildLifecycleCallback
 import com.github.dedis.popstellar.utility.error.keys.NoRollCallException
+import com.github.dedis.popstellar.utility.security.PublicKeyHashCache
 import io.reactivex.Observable
 import io.reactivex.android.schedulers.AndroidSchedulers
 import io.reactivex.disposables.CompositeDisposable
@@ -35,12 +38,23 @@ constructor(appDatabase: AppDatabase, application: Application) {
   private val transactionsByLao: MutableMap<String, LaoTransactions> = HashMap()
   private val transactionDao: TransactionDao = appDatabase.transactionDao()
   private val hashDao: HashDao = appDatabase.hashDao()
+  private val transactionQueue =
+      WriteBehindQueue(
+          TAG,
+          { transactions: List<TransactionEntity> -> transactionDao.insertAll(transactions) })
   private val disposables = CompositeDisposable()
 
+  /** Number of transactions that are not yet written on the disk */
+  val persistenceBacklog: Int
+    get() = transactionQueue.backlog
+
   init {
     val consumerMap: MutableMap<Lifecycle.Event, Consumer<Activity>> =
         EnumMap(Lifecycle.Event::class.java)
-    consumerMap[Lifecycle.Event.ON_STOP] = Consumer { disposables.clear() }
+    consumerMap[Lifecycle.Event.ON_STOP] = Consumer {
+      transactionQueue.flush()
+      disposables.clear()
+    }
     application.registerActivityLifecycleCallbacks(buildLifecycleCallback(consumerMap))
   }
 
@@ -80,6 +94,17 @@ constructor(appDatabase: AppDatabase, application: Application) {
     return getLaoTransactions(laoId).getUserBalance(user)
   }
 
+  /**
+   * The function returns the outputs owned by the user that were not spent yet.
+   *
+   * @param laoId of the lao the transactions are part of
+   * @param user public key
+   * @return the unspent outputs of the user
+   */
+  fun getUnspentOutputs(laoId: String, user: PublicKey): List<UnspentOutput> {
+    return getLaoTransactions(laoId).getUnspentOutputs(user)
+  }
+
   /**
    * This updates and persist a transaction in a digital cash state of a lao.
    *
@@ -128,6 +153,12 @@ constructor(appDatabase: AppDatabase, application: Application) {
     /** Thread-safe dictionary to maps the hash to the user's public key */
     private val hashDictionary = ConcurrentHashMap<String, PublicKey>()
 
+    /** Ids of the transactions already added, to ignore the duplicates in constant time */
+    private val transactionIds: MutableSet<String> = ConcurrentHashMap.newKeySet()
+
+    /** Unspent outputs of the lao, from which the balances are computed */
+    private val unspentOutputs = UnspentOutputSet()
+
     init {
       loadLaoState()
     }
@@ -140,10 +171,11 @@ constructor(appDatabase: AppDatabase, application: Application) {
     fun initializeDigitalCash(attendees: List<PublicKey>) {
       Timber.tag(TAG).d("initializing digital cash with attendees %s", attendees)
 
-      // Clear the transactions on the database for the given lao
+      // Clear the transactions on the database for the given lao, once the queued ones are written
       repository.disposables.add(
-          repository.transactionDao
-              .deleteByLaoId(laoId)
+          repository.transactionQueue
+              .flush()
+              .andThen(repository.transactionDao.deleteByLaoId(laoId))
               .subscribeOn(Schedulers.io())
               .observeOn(AndroidSchedulers.mainThread())
               .subscribe(
@@ -154,6 +186,8 @@ constructor(appDatabase: AppDatabase, application: Application) {
 
       // Clear the memory
       hashDictionary.clear()
+      transactionIds.clear()
+      unspentOutputs.clear()
       transactions.clear()
       transactionsSubject.clear()
       transactionsSubject.values.forEach(
@@ -170,6 +204,11 @@ constructor(appDatabase: AppDatabase, application: Application) {
             // Save the mapping in a list
             hashEntities.add(HashEntity(hash, laoId, publicKey))
           })
+      Timber.tag(TAG)
+          .d(
+              "Public key hash cache: %d keys, hit rate %.2f",
+              PublicKeyHashCache.size,
+              PublicKeyHashCache.hitRate)
 
       // Save all the entries at once to minimize I/O accesses
       // Ensure to delete before adding the new entries
@@ -212,50 +251,57 @@ constructor(appDatabase: AppDatabase, application: Application) {
         throw NoRollCallException("No roll call attendees could be found")
       }
 
-      for (current in getReceiversTransaction(transaction)) {
-        var transactionList = transactions[current]
-        if (transactionList == null) {
-          transactionList = ConcurrentLinkedQueue()
-          transactionList.add(transaction)
-
-          // An empty subject might have been created already
-          if (transactionsSubject.containsKey(current)) {
-            // Updating subject
-            transactionsSubject.getValue(current).toSerialized().onNext(ArrayList(transactionList))
-          } else {
-            // Creating new subject
-            transactionsSubject[current] = BehaviorSubject.createDefault(ArrayList(transactionList))
-          }
+      val receivers = getReceiversTransaction(transaction)
+      if (!transactionIds.add(transaction.transactionId)) {
+        Timber.tag(TAG).d("Transaction %s is already known", transaction.transactionId)
+        return
+      }
 
-          // Add it to the map
-          transactions[current] = transactionList
-        } else if (!transactionList.contains(transaction)) {
-          transactionList.add(transaction)
-          transactionsSubject[current]?.toSerialized()?.onNext(ArrayList(transactionList))
-        }
+      unspentOutputs.add(transaction)
+      for (current in receivers) {
+        addToHistory(current, transaction)
+        publishHistory(current)
       }
 
       // Store the transaction in the db if the flag is true
       if (toBeStored) {
-        val transactionEntity = TransactionEntity(laoId, transaction)
-        repository.disposables.add(
-            repository.transactionDao
-                .insert(transactionEntity)
-                .subscribeOn(Schedulers.io())
-                .observeOn(AndroidSchedulers.mainThread())
-                .subscribe(
-                    {
-                      Timber.tag(TAG)
-                          .d("Successfully persisted transaction %s", transaction.transactionId)
-                    },
-                    { err: Throwable ->
-                      Timber.tag(TAG)
-                          .e(
-                              err,
-                              "Error in persisting the transaction %s",
-                              transaction.transactionId)
-                    }))
+        repository.transactionQueue.enqueue(TransactionEntity(laoId, transaction))
+      }
+    }
+
+    /**
+     * Add the transactions loaded from the db at once, rebuilding the unspent outputs in bulk and
+     * notifying the observers of each user a single time
+     */
+    private fun loadTransactions(transactionObjects: List<TransactionObject>) {
+      if (hashDictionary.isEmpty()) {
+        Timber.tag(TAG).e("No roll call attendees to load the transactions of lao %s", laoId)
+        return
+      }
+
+      val loaded = transactionObjects.filter { transactionIds.add(it.transactionId) }
+      val receivers: MutableSet<PublicKey> = HashSet()
+      for (transaction in loaded) {
+        for (current in getReceiversTransaction(transaction)) {
+          addToHistory(current, transaction)
+          receivers.add(current)
+        }
       }
+
+      unspentOutputs.addAll(loaded)
+      receivers.forEach { publishHistory(it) }
+      Timber.tag(TAG).d("Loaded %d transactions from db for lao %s", loaded.size, laoId)
+    }
+
+    private fun addToHistory(user: PublicKey, transaction: TransactionObject) {
+      transactions.computeIfAbsent(user) { ConcurrentLinkedQueue() }.add(transaction)
+    }
+
+    private fun publishHistory(user: PublicKey) {
+      val history = ArrayList(transactions[user] ?: return)
+      // An empty subject might have been created already
+      val subject = transactionsSubject.putIfAbsent(user, BehaviorSubject.createDefault(history))
+      subject?.toSerialized()?.onNext(history)
     }
 
     fun getTransactionsObservable(user: PublicKey): Observable<List<TransactionObject>> {
@@ -275,6 +321,7 @@ constructor(appDatabase: AppDatabase, application: Application) {
       return transaction.outputs
           .stream()
           .map { obj: OutputObject -> obj.pubKeyHash }
+          .distinct()
           .map { hash: String ->
             val key = hashDictionary[hash] ?: error("The hash is not in dictionary of known hashes")
             key
@@ -283,11 +330,11 @@ constructor(appDatabase: AppDatabase, application: Application) {
     }
 
     fun getUserBalance(user: PublicKey): Long {
-      val transactionList = transactions[user] ?: return 0
-      return transactionList
-          .stream()
-          .mapToLong { transaction: TransactionObject -> transaction.getSumForUser(user) }
-          .sum()
+      return unspentOutputs.getBalance(user.computeHash())
+    }
+
+    fun getUnspentOutputs(user: PublicKey): List<UnspentOutput> {
+      return unspentOutputs.getUnspentOutputs(user.computeHash())
     }
 
     /**
@@ -307,6 +354,8 @@ constructor(appDatabase: AppDatabase, application: Application) {
                     hashEntities?.forEach(
                         Consumer { hashEntity: HashEntity ->
                           hashDictionary[hashEntity.hash] = hashEntity.publicKey
+                          // The hashes are already known, no need to compute them again
+                          PublicKeyHashCache.put(hashEntity.hash, hashEntity.publicKey)
                         })
                     Timber.tag(TAG).d("Retrieved the hash dictionary from db")
                     // Then load the transactions
@@ -317,25 +366,7 @@ constructor(appDatabase: AppDatabase, application: Application) {
                             .observeOn(AndroidSchedulers.mainThread())
                             .subscribe(
                                 { transactionObjects: List<TransactionObject>? ->
-                                  transactionObjects?.forEach(
-                                      Consumer { transactionObject: TransactionObject ->
-                                        Timber.tag(TAG)
-                                            .d(
-                                                "Retrieved transaction %s from db",
-                                                transactionObject.transactionId)
-                                        try {
-                                          updateTransactions(transactionObject, false)
-                                        } catch (e: NoRollCallException) {
-                                          Timber.tag(TAG)
-                                              .e(
-                                                  e,
-                                                  "No roll call exception to load for lao %s",
-                                                  laoId)
-                                          // This exception can't ever be thrown, as if the
-                                          // transactions are in the db,
-                                          // then they have a valid public key associated
-                                        }
-                                      })
+                                  transactionObjects?.let { loadTransactions(it) }
                                 },
                                 { err: Throwable ->
                                   Timber.tag(TAG).e(err, "No transaction to load for lao %s", laoId)
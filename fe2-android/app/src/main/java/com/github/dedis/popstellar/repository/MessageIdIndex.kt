@@ -0,0 +1,121 @@
+package com.github.dedis.popstellar.repository
+
+import com.github.dedis.popstellar.model.objects.security.MessageID
+
+/**
+ * Compact membership index of message ids.
+ *
+ * Each id is reduced to a 64-bit fingerprint stored in an open-addressed table of primitive longs,
+ * which costs 8 to 16 bytes per message instead of a full object graph. As two ids may share the
+ * same fingerprint, a positive answer only means that the message may be present, while a negative
+ * answer is certain. It is thus used to avoid disk lookups for messages that were never seen.
+ */
+class MessageIdIndex(initialCapacity: Int = DEFAULT_CAPACITY) {
+  private var table = LongArray(tableSizeFor(initialCapacity))
+  private var count = 0
+
+  /** Number of fingerprints stored in the index */
+  val size: Int
+    @Synchronized get() = count
+
+  /**
+   * Add a message id to the index
+   *
+   * @param messageID to add
+   */
+  @Synchronized
+  fun add(messageID: MessageID) {
+    if ((count + 1) * 4 > table.size * 3) {
+      resize()
+    }
+    if (insert(table, fingerprint(messageID))) {
+      count++
+    }
+  }
+
+  /**
+   * Add all the given message ids to the index
+   *
+   * @param messageIDs to add
+   */
+  @Synchronized
+  fun addAll(messageIDs: Collection<MessageID>) {
+    messageIDs.forEach { add(it) }
+  }
+
+  /**
+   * @param messageID to look for
+   * @return false if the message was never added, true if it may have been added
+   */
+  @Synchronized
+  fun mightContain(messageID: MessageID): Boolean {
+    val fingerprint = fingerprint(messageID)
+    val mask = table.size - 1
+    var slot = mix(fingerprint).toInt() and mask
+    while (true) {
+      val current = table[slot]
+      if (current == EMPTY) {
+        return false
+      }
+      if (current == fingerprint) {
+        return true
+      }
+      slot = (slot + 1) and mask
+    }
+  }
+
+  private fun resize() {
+    val newTable = LongArray(table.size * 2)
+    table.forEach { fingerprint -> if (fingerprint != EMPTY) insert(newTable, fingerprint) }
+    table = newTable
+  }
+
+  companion object {
+    private const val DEFAULT_CAPACITY = 1024
+    private const val EMPTY = 0L
+
+    /** Insert the fingerprint in the table, returns false if it was already present */
+    private fun insert(table: LongArray, fingerprint: Long): Boolean {
+      val mask = table.size - 1
+      var slot = mix(fingerprint).toInt() and mask
+      while (true) {
+        val current = table[slot]
+        if (current == EMPTY) {
+          table[slot] = fingerprint
+          return true
+        }
+        if (current == fingerprint) {
+          return false
+        }
+        slot = (slot + 1) and mask
+      }
+    }
+
+    /**
+     * Message ids are SHA-256 digests, so their bytes are already uniformly distributed. The
+     * fingerprint folds them into a single long, 0 being reserved for empty slots.
+     */
+    private fun fingerprint(messageID: MessageID): Long {
+      val bytes = messageID.data
+      var hash = 0L
+      for (i in bytes.indices) {
+        hash = hash xor ((bytes[i].toLong() and 0xFF) shl ((i % 8) * 8))
+      }
+      return if (hash == EMPTY) 1L else hash
+    }
+
+    /** Spread the fingerprint bits over the low bits used to pick the slot */
+    private fun mix(fingerprint: Long): Long {
+      val h = fingerprint * -0x61c8864680b583ebL
+      return h xor (h ushr 32)
+    }
+
+    private fun tableSizeFor(capacity: Int): Int {
+      var size = 16
+      while (size * 3 < capacity * 4) {
+        size = size shl 1
+      }
+      return size
+    }
+  }
+}
@@ -7,6 +7,7 @@ import androidx.lifecycle.Lifecycle
 import com.github.dedis.popstellar.model.network.method.message.MessageGeneral
 import com.github.dedis.popstellar.model.objects.security.MessageID
 import com.github.dedis.popstellar.repository.database.AppDatabase
+import com.github.dedis.popstellar.repository.database.WriteBehindQueue
 import com.github.dedis.popstellar.repository.database.message.MessageDao
 import com.github.dedis.popstellar.repository.database.message.MessageEntity
 import com.github.dedis.popstellar.utility.GeneralUtils.buildLifecycleCallback
@@ -15,6 +16,7 @@ import io.reactivex.disposables.CompositeDisposable
 import io.reactivex.schedulers.Schedulers
 import java.util.EnumMap
 import java.util.concurrent.ConcurrentHashMap
+import java.util.concurrent.TimeUnit
 import java.util.function.Consumer
 import javax.inject.Inject
 import javax.inject.Singleton
@@ -36,20 +38,66 @@ class MessageRepository @Inject constructor(appDatabase: AppDatabase, applicatio
 
   /** Cache for efficient lookups and for avoiding I/O operations */
   private val messageCache = LruCache<MessageID, Any>(CACHED_MESSAGES)
+
+  /**
+   * Index of all the persisted message ids, used to avoid I/O operations for messages that were
+   * never persisted. It can only be trusted once fully loaded from the disk.
+   */
+  private val persistedIndex = MessageIdIndex()
+  @Volatile private var isIndexLoaded = false
+
   private val messageDao: MessageDao = appDatabase.messageDao()
+
+  /**
+   * Persisted messages waiting in the write-behind queue. They are not yet on the disk, but must
+   * still be found even if they are evicted from the cache.
+   */
+  private val unwrittenMessages = ConcurrentHashMap<MessageID, MessageGeneral>()
+  private val messageQueue =
+      WriteBehindQueue(
+          TAG,
+          { messages: List<MessageEntity> -> messageDao.insertAll(messages) },
+          onWritten = { messages: List<MessageEntity> ->
+            messages.forEach { msg: MessageEntity -> unwrittenMessages.remove(msg.messageId) }
+          })
   private val disposables = CompositeDisposable()
 
   init {
     val consumerMap: MutableMap<Lifecycle.Event, Consumer<Activity>> =
         EnumMap(Lifecycle.Event::class.java)
-    consumerMap[Lifecycle.Event.ON_STOP] = Consumer { disposables.clear() }
+    consumerMap[Lifecycle.Event.ON_STOP] = Consumer {
+      messageQueue.flush()
+      disposables.clear()
+    }
     application.registerActivityLifecycleCallbacks(buildLifecycleCallback(consumerMap))
     // Full the cache at starting time
     loadCache()
+    loadIndex()
+  }
+
+  /** This function is called at creation to load the ids of all the persisted messages */
+  private fun loadIndex() {
+    disposables.add(
+        messageDao
+            .getAllMessageIds()
+            .subscribeOn(Schedulers.io())
+            .subscribe(
+                { messageIds: List<MessageID>? ->
+                  messageIds?.let { persistedIndex.addAll(it) }
+                  isIndexLoaded = true
+                  Timber.tag(TAG).d("Loaded %d persisted message ids", persistedIndex.size)
+                },
+                { err: Throwable -> Timber.tag(TAG).e(err, "Error loading message id index") }))
+  }
+
+  /** @return true if the message is surely not persisted, which avoids an I/O operation */
+  private fun isSurelyNotPersisted(messageID: MessageID): Boolean {
+    return isIndexLoaded && !persistedIndex.mightContain(messageID)
   }
 
   /** This function is called at creation to fill the cache asynchronously */
   private fun loadCache() {
+    val start = System.nanoTime()
     disposables.add(
         messageDao
             .takeFirstNMessages(CACHED_MESSAGES)
@@ -57,6 +105,12 @@ class MessageRepository @Inject constructor(appDatabase: AppDatabase, applicatio
             .observeOn(AndroidSchedulers.mainThread())
             .subscribe(
                 { messageEntities: List<MessageEntity>? ->
+                  // Cold-load time, dominated by the decoding of the rows
+                  Timber.tag(TAG)
+                      .d(
+                          "Loaded %d messages in %d ms",
+                          messageEntities?.size ?: 0,
+                          TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start))
                   messageEntities?.forEach(
                       Consumer { msg: MessageEntity ->
                         messageCache.put(
@@ -74,7 +128,7 @@ class MessageRepository @Inject constructor(appDatabase: AppDatabase, applicatio
    * This function gets a message from the repository given its unique identifier.
    *
    * @param messageID identifier of the message to retrieve
-   * @return the message if present, null if absent
+   * @return the message if present, null if absent or if its content was not stored
    */
   fun getMessage(messageID: MessageID): MessageGeneral? {
     // Check if it's an ephemeral message, so no need to look up in the db
@@ -87,16 +141,28 @@ class MessageRepository @Inject constructor(appDatabase: AppDatabase, applicatio
     synchronized(messageCache) {
       val cachedMessage = messageCache[messageID]
       if (cachedMessage != null) {
-        return cachedMessage as MessageGeneral
+        // The EMPTY placeholder stands for a message whose content was not stored
+        return cachedMessage as? MessageGeneral
       }
     }
 
+    val unwrittenMessage = unwrittenMessages[messageID]
+    if (unwrittenMessage != null) {
+      return if (unwrittenMessage.isEmpty) null else unwrittenMessage
+    }
+
+    if (isSurelyNotPersisted(messageID)) {
+      return null
+    }
+
     // Search in the db
     val messageEntity = messageDao.getMessageById(messageID)
     if (messageEntity != null) {
       val messageGeneral = messageEntity.content
       // Put it into cache
-      synchronized(messageCache) { messageCache.put(messageID, messageGeneral) }
+      synchronized(messageCache) {
+        messageCache.put(messageID, messageGeneral ?: MessageGeneral.EMPTY)
+      }
       return messageGeneral
     }
 
@@ -128,18 +194,11 @@ class MessageRepository @Inject constructor(appDatabase: AppDatabase, applicatio
       synchronized(messageCache) {
         messageCache.put(messageID, if (message.isEmpty) MessageGeneral.EMPTY else message)
       }
+      persistedIndex.add(messageID)
+      unwrittenMessages[messageID] = message
 
-      // Add asynchronously the messages to the database
-      disposables.add(
-          messageDao
-              .insert(MessageEntity(messageID, if (message.isEmpty) null else message))
-              .subscribeOn(Schedulers.io())
-              .observeOn(AndroidSchedulers.mainThread())
-              .subscribe(
-                  { Timber.tag(TAG).d("Persisted message %s", messageID) },
-                  { err: Throwable ->
-                    Timber.tag(TAG).e(err, "Error persisting the message %s", messageID)
-                  }))
+      // Add asynchronously the messages to the database, in batches
+      messageQueue.enqueue(MessageEntity(messageID, if (message.isEmpty) null else message))
     }
   }
 
@@ -166,10 +225,23 @@ class MessageRepository @Inject constructor(appDatabase: AppDatabase, applicatio
       }
     }
 
+    if (unwrittenMessages.containsKey(messageID)) {
+      return true
+    }
+
+    // Negative answers of the index are certain, so the disk is only checked on positive ones
+    if (isSurelyNotPersisted(messageID)) {
+      return false
+    }
+
     // Otherwise perform an I/O operation
     return messageDao.getMessageById(messageID) != null
   }
 
+  /** Number of persisted messages that are not yet written on the disk */
+  val persistenceBacklog: Int
+    get() = messageQueue.backlog
+
   companion object {
     private val TAG = MessageRepository::class.java.simpleName
 
@@ -22,7 +22,6 @@ import java.util.Collections
 import java.util.EnumMap
 import java.util.concurrent.ConcurrentHashMap
 import java.util.function.Consumer
-import java.util.stream.Collectors
 import javax.inject.Inject
 import javax.inject.Singleton
 import timber.log.Timber
@@ -120,7 +119,8 @@ class RollCallRepository @Inject constructor(appDatabase: AppDatabase, applicati
   }
 
   /**
-   * Returns the set of all attendees who have ever attended a roll call in the lao
+   * Returns the set of all attendees who have ever attended a roll call in the lao. The set is kept
+   * up to date as the roll calls change, so this is a constant time lookup.
    *
    * @param laoId the id of the considered lao
    * @return the set of all attendees who have ever attended a roll call in the lao
@@ -130,7 +130,8 @@ class RollCallRepository @Inject constructor(appDatabase: AppDatabase, applicati
   }
 
   /**
-   * Returns the last closed roll call on a temporal basis.
+   * Returns the last closed roll call on a temporal basis. It is tracked as the roll calls change,
+   * so this is a constant time lookup.
    *
    * @param laoId the id of the considered lao
    * @return the roll call that has been the last one to be closed
@@ -138,13 +139,7 @@ class RollCallRepository @Inject constructor(appDatabase: AppDatabase, applicati
    */
   @Throws(NoRollCallException::class)
   fun getLastClosedRollCall(laoId: String): RollCall {
-    return getLaoRollCalls(laoId)
-        .rollCallByPersistentId
-        .values
-        .stream()
-        .filter { obj: RollCall -> obj.isClosed }
-        .max(Comparator.comparing { obj: RollCall -> obj.end })
-        .orElseThrow { NoRollCallException(laoId) }
+    return getLaoRollCalls(laoId).lastClosedRollCall ?: throw NoRollCallException(laoId)
   }
 
   /**
@@ -154,10 +149,7 @@ class RollCallRepository @Inject constructor(appDatabase: AppDatabase, applicati
    * @return true if all roll calls in the given lao are not open yet, false otherwise
    */
   fun canOpenRollCall(laoId: String): Boolean {
-    return getLaoRollCalls(laoId).rollCallByPersistentId.values.stream().noneMatch { obj: RollCall
-      ->
-      obj.isOpen
-    }
+    return !getLaoRollCalls(laoId).hasOpenRollCall
   }
 
   fun addDisposable(disposable: Disposable) {
@@ -174,7 +166,7 @@ class RollCallRepository @Inject constructor(appDatabase: AppDatabase, applicati
       private val laoId: String
   ) {
     /** Thread-safe mapping between a roll call persistent id and its object reference */
-    val rollCallByPersistentId = ConcurrentHashMap<String, RollCall>()
+    private val rollCallByPersistentId = ConcurrentHashMap<String, RollCall>()
 
     /**
      * Thread-safe mapping between the roll call ephemeral id (state dependant) and its persistent
@@ -189,6 +181,27 @@ class RollCallRepository @Inject constructor(appDatabase: AppDatabase, applicati
     private val rollCallsSubject: Subject<Set<RollCall>> =
         BehaviorSubject.createDefault(Collections.unmodifiableSet(emptySet()))
 
+    // The following indices are updated along with each roll call, under the lock of this object
+
+    /** Persistent ids of the roll calls currently open */
+    private val openRollCalls: MutableSet<String> = HashSet()
+
+    /** Persistent ids of the roll calls attended by each attendee */
+    private val rollCallsByAttendee = HashMap<PublicKey, MutableSet<String>>()
+
+    /** Closed roll call with the latest end, null if none is closed */
+    @Volatile
+    var lastClosedRollCall: RollCall? = null
+      private set
+
+    /** Attendees of all the roll calls, replaced by a new set when one is added or removed */
+    @Volatile
+    var allAttendees: Set<PublicKey> = emptySet()
+      private set
+
+    val hasOpenRollCall: Boolean
+      @Synchronized get() = openRollCalls.isNotEmpty()
+
     init {
       loadStorage()
     }
@@ -201,7 +214,10 @@ class RollCallRepository @Inject constructor(appDatabase: AppDatabase, applicati
     fun update(rollCall: RollCall) {
       // Updating repo data
       val persistentId = rollCall.persistentId
-      rollCallByPersistentId[persistentId] = rollCall
+      synchronized(this) {
+        val previous = rollCallByPersistentId.put(persistentId, rollCall)
+        updateIndices(previous, rollCall)
+      }
 
       // We update the alias map with
       rollCallIdAlias[rollCall.id] = rollCall.persistentId
@@ -244,13 +260,58 @@ class RollCallRepository @Inject constructor(appDatabase: AppDatabase, applicati
       return rollCallsSubject
     }
 
-    val allAttendees: Set<PublicKey>
-      get() = // For all roll calls we add all attendees to the returned set
-      rollCallByPersistentId.values
-              .stream()
-              .map { obj: RollCall -> obj.attendees }
-              .flatMap { obj: Set<PublicKey> -> obj.stream() }
-              .collect(Collectors.toSet())
+    /**
+     * Update the indices with the new version of a roll call. Only the difference between the
+     * versions is applied. Must be called with the lock held.
+     *
+     * @param previous version of the roll call, null if it is new
+     * @param rollCall the new version of the roll call
+     */
+    private fun updateIndices(previous: RollCall?, rollCall: RollCall) {
+      val persistentId = rollCall.persistentId
+
+      if (rollCall.isOpen) {
+        openRollCalls.add(persistentId)
+      } else {
+        openRollCalls.remove(persistentId)
+      }
+
+      val lastClosed = lastClosedRollCall
+      if (lastClosed != null && lastClosed.persistentId == persistentId) {
+        // The last closed roll call changed, e.g. it was reopened, the others have to be compared
+        lastClosedRollCall =
+            rollCallByPersistentId.values.filter(RollCall::isClosed).maxByOrNull(RollCall::end)
+      } else if (rollCall.isClosed && (lastClosed == null || rollCall.end >= lastClosed.end)) {
+        lastClosedRollCall = rollCall
+      }
+
+      val previousAttendees: Set<PublicKey> = previous?.attendees ?: emptySet()
+      var attendeesChanged = false
+      for (attendee in rollCall.attendees) {
+        if (attendee !in previousAttendees) {
+          val rollCalls = rollCallsByAttendee[attendee]
+          if (rollCalls == null) {
+            rollCallsByAttendee[attendee] = hashSetOf(persistentId)
+            attendeesChanged = true
+          } else {
+            rollCalls.add(persistentId)
+          }
+        }
+      }
+      for (attendee in previousAttendees) {
+        if (attendee !in rollCall.attendees) {
+          val rollCalls = rollCallsByAttendee.getValue(attendee)
+          rollCalls.remove(persistentId)
+          if (rollCalls.isEmpty()) {
+            rollCallsByAttendee.remove(attendee)
+            attendeesChanged = true
+          }
+        }
+      }
+      if (attendeesChanged) {
+        allAttendees = Collections.unmodifiableSet(HashSet(rollCallsByAttendee.keys))
+      }
+    }
 
     /**
      * Load in memory the rollcalls from the disk only when the user clicks on the respective LAO,
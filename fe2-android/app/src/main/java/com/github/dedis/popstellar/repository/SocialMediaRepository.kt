@@ -6,14 +6,20 @@ import androidx.lifecycle.Lifecycle
 import com.github.dedis.popstellar.model.objects.Chirp
 import com.github.dedis.popstellar.model.objects.Reaction
 import com.github.dedis.popstellar.model.objects.security.MessageID
+import com.github.dedis.popstellar.model.objects.security.PublicKey
 import com.github.dedis.popstellar.repository.database.AppDatabase
+import com.github.dedis.popstellar.repository.database.WriteBehindQueue
 import com.github.dedis.popstellar.repository.database.socialmedia.ChirpDao
 import com.github.dedis.popstellar.repository.database.socialmedia.ChirpEntity
+import com.github.dedis.popstellar.repository.database.socialmedia.ChirpSearchDao
+import com.github.dedis.popstellar.repository.database.socialmedia.ChirpSearchEntity
 import com.github.dedis.popstellar.repository.database.socialmedia.ReactionDao
 import com.github.dedis.popstellar.repository.database.socialmedia.ReactionEntity
+import com.github.dedis.popstellar.repository.database.socialmedia.ReactionIds
 import com.github.dedis.popstellar.utility.GeneralUtils.buildLifecycleCallback
 import com.github.dedis.popstellar.utility.error.UnknownChirpException
 import io.reactivex.Observable
+import io.reactivex.Single
 import io.reactivex.android.schedulers.AndroidSchedulers
 import io.reactivex.disposables.CompositeDisposable
 import io.reactivex.schedulers.Schedulers
@@ -38,12 +44,29 @@ constructor(appDatabase: AppDatabase, application: Application) {
   private val chirpsByLao: MutableMap<String, LaoChirps> = HashMap()
   private val reactionDao: ReactionDao = appDatabase.reactionDao()
   private val chirpDao: ChirpDao = appDatabase.chirpDao()
+  private val reactionQueue =
+      WriteBehindQueue(TAG, { reactions: List<ReactionEntity> -> reactionDao.insertAll(reactions) })
+  private val chirpQueue =
+      WriteBehindQueue(TAG, { chirps: List<ChirpEntity> -> chirpDao.insertAll(chirps) })
+  private val chirpSearchDao: ChirpSearchDao = appDatabase.chirpSearchDao()
+  private val chirpSearchQueue =
+      WriteBehindQueue(
+          TAG, { entities: List<ChirpSearchEntity> -> chirpSearchDao.insertAll(entities) })
   private val disposables = CompositeDisposable()
 
+  /** Number of chirps and reactions that are not yet written on the disk */
+  val persistenceBacklog: Int
+    get() = chirpQueue.backlog + reactionQueue.backlog + chirpSearchQueue.backlog
+
   init {
     val consumerMap: MutableMap<Lifecycle.Event, Consumer<Activity>> =
         EnumMap(Lifecycle.Event::class.java)
-    consumerMap[Lifecycle.Event.ON_STOP] = Consumer { disposables.clear() }
+    consumerMap[Lifecycle.Event.ON_STOP] = Consumer {
+      chirpQueue.flush()
+      reactionQueue.flush()
+      chirpSearchQueue.flush()
+      disposables.clear()
+    }
     application.registerActivityLifecycleCallbacks(buildLifecycleCallback(consumerMap))
   }
 
@@ -58,17 +81,11 @@ constructor(appDatabase: AppDatabase, application: Application) {
   fun addChirp(laoId: String, chirp: Chirp) {
     Timber.tag(TAG).d("Adding new chirp on lao %s : %s", laoId, chirp)
 
-    // Persist the chirp
-    disposables.add(
-        chirpDao
-            .insert(ChirpEntity(laoId, chirp))
-            .subscribeOn(Schedulers.io())
-            .observeOn(AndroidSchedulers.mainThread())
-            .subscribe(
-                { Timber.tag(TAG).d("Successfully persisted chirp %s", chirp.id) },
-                { err: Throwable ->
-                  Timber.tag(TAG).e(err, "Error in persisting chirp %s", chirp.id)
-                }))
+    // Persist the chirp and index it for the search
+    chirpQueue.enqueue(ChirpEntity(laoId, chirp))
+    if (!chirp.isDeleted) {
+      chirpSearchQueue.enqueue(ChirpSearchEntity(laoId, chirp))
+    }
 
     // Retrieve Lao data and add the chirp to it
     getLaoChirps(laoId).add(chirp)
@@ -85,6 +102,75 @@ constructor(appDatabase: AppDatabase, application: Application) {
     return getLaoChirps(laoId).delete(id)
   }
 
+  /**
+   * Search the chirps of a lao containing words starting with the words of the given text
+   *
+   * @param laoId of the lao the chirps were sent on
+   * @param text searched
+   * @param after last chirp of the previous page of results, null for the first page
+   * @return the matching chirps of the page, from the newest to the oldest
+   */
+  fun searchChirpsByText(laoId: String, text: String, after: Chirp?): Single<List<Chirp>> {
+    return searchChirps(laoId, ChirpSearchEntity.textPrefixQuery(text), after)
+  }
+
+  /**
+   * Search the chirps of a lao sent by a given author
+   *
+   * @param laoId of the lao the chirps were sent on
+   * @param author public key of the sender of the chirps
+   * @param after last chirp of the previous page of results, null for the first page
+   * @return the chirps of the page, from the newest to the oldest
+   */
+  fun searchChirpsByAuthor(laoId: String, author: PublicKey, after: Chirp?): Single<List<Chirp>> {
+    return searchChirps(laoId, ChirpSearchEntity.authorQuery(author), after)
+  }
+
+  /**
+   * Search the chirps of a lao with a given hashtag
+   *
+   * @param laoId of the lao the chirps were sent on
+   * @param hashtag searched, with or without its leading #
+   * @param after last chirp of the previous page of results, null for the first page
+   * @return the matching chirps of the page, from the newest to the oldest
+   */
+  fun searchChirpsByHashtag(laoId: String, hashtag: String, after: Chirp?): Single<List<Chirp>> {
+    return searchChirps(laoId, ChirpSearchEntity.hashtagQuery(hashtag), after)
+  }
+
+  private fun searchChirps(laoId: String, match: String?, after: Chirp?): Single<List<Chirp>> {
+    if (match == null) {
+      return Single.just(emptyList())
+    }
+
+    val page =
+        if (after == null) chirpSearchDao.search(laoId, match, SEARCH_PAGE_SIZE)
+        else chirpSearchDao.searchAfter(laoId, match, after.timestamp, after.id, SEARCH_PAGE_SIZE)
+
+    // The chirps received just before must be found too
+    return chirpQueue
+        .flush()
+        .andThen(chirpSearchQueue.flush())
+        .andThen(page)
+        // A chirp deleted just before may not be removed from the index yet
+        .map { entities: List<ChirpEntity> -> entities.map { it.chirp }.filter { !it.isDeleted } }
+        .subscribeOn(Schedulers.io())
+  }
+
+  /** Remove a deleted chirp from the search index, once it is written there */
+  private fun removeFromSearch(laoId: String, id: MessageID) {
+    disposables.add(
+        chirpSearchQueue
+            .flush()
+            .andThen(chirpSearchDao.deleteByChirpId(id))
+            .subscribeOn(Schedulers.io())
+            .subscribe(
+                { Timber.tag(TAG).d("Removed chirp %s of lao %s from the search", id, laoId) },
+                { err: Throwable ->
+                  Timber.tag(TAG).e(err, "Error in removing chirp %s from the search", id)
+                }))
+  }
+
   /** @return the observable of a specific chirp */
   @Throws(UnknownChirpException::class)
   fun getChirp(laoId: String, id: MessageID): Observable<Chirp> {
@@ -104,11 +190,20 @@ constructor(appDatabase: AppDatabase, application: Application) {
 
   /**
    * @param laoId of the lao we want to observe the chirp list
-   * @return an observable set of message ids whose correspond to the set of chirp published on the
-   *   given lao
+   * @return an observable of the changes of the chirps published on the given lao, ordered from
+   *   the newest to the oldest, starting with all the current chirps
+   */
+  fun getChirpFeed(laoId: String): Observable<ChirpFeed.Change> {
+    return getLaoChirps(laoId).feed.getChanges()
+  }
+
+  /**
+   * Load the next page of chirps stored on the disk, if it is not loaded yet
+   *
+   * @param laoId of the lao whose chirps are displayed
    */
-  fun getChirpsOfLao(laoId: String): Observable<Set<MessageID>> {
-    return getLaoChirps(laoId).getChirpsSubject()
+  fun loadMoreChirps(laoId: String) {
+    getLaoChirps(laoId).loadNextPage()
   }
 
   /**
@@ -122,16 +217,7 @@ constructor(appDatabase: AppDatabase, application: Application) {
     Timber.tag(TAG).d("Adding new reaction on lao %s : %s", laoId, reaction)
 
     // Persist the reaction
-    disposables.add(
-        reactionDao
-            .insert(ReactionEntity(reaction))
-            .subscribeOn(Schedulers.io())
-            .observeOn(AndroidSchedulers.mainThread())
-            .subscribe(
-                { Timber.tag(TAG).d("Successfully persisted reaction %s", reaction.id) },
-                { err: Throwable ->
-                  Timber.tag(TAG).e(err, "Error in persisting reaction %s", reaction.id)
-                }))
+    reactionQueue.enqueue(ReactionEntity(reaction))
 
     // Retrieve Lao data and add the reaction to it
     return getLaoChirps(laoId).addReaction(reaction)
@@ -170,15 +256,29 @@ constructor(appDatabase: AppDatabase, application: Application) {
     // Chirps
     private val chirps = ConcurrentHashMap<MessageID, Chirp>()
     private val chirpSubjects = ConcurrentHashMap<MessageID, Subject<Chirp>>()
-    private val chirpsSubject: Subject<Set<MessageID>> = BehaviorSubject.createDefault(emptySet())
+    val feed = ChirpFeed()
 
     // Reactions
     val reactionByChirpId = ConcurrentHashMap<MessageID, MutableSet<Reaction>>()
     private val reactions = ConcurrentHashMap<MessageID, Reaction>()
     private val reactionSubjectsByChirpId = ConcurrentHashMap<MessageID, Subject<Set<Reaction>>>()
 
+    // Paging of the chirps stored on the disk, the last chirp loaded being the start of the next
+    // page. Only accessed while holding the lock of this object
+    private var lastLoaded: ChirpEntity? = null
+    private var loading = false
+    private var fullyLoaded = false
+
+    // Ids of the chirps and reactions stored on the disk, whose pages may not be loaded yet. They
+    // are read once, such that the messages about them are checked without reading the disk
+    private val storedChirpIds: MutableSet<MessageID> = ConcurrentHashMap.newKeySet()
+    private val storedReactionChirpIds = ConcurrentHashMap<MessageID, MessageID>()
+    private var idsLoading = false
+    @Volatile private var idsLoaded = false
+
     init {
-      loadStorage()
+      loadStoredIds()
+      loadNextPage()
     }
 
     fun add(chirp: Chirp) {
@@ -196,32 +296,35 @@ constructor(appDatabase: AppDatabase, application: Application) {
 
       // Publish new values on subjects
       chirpSubjects[id] = BehaviorSubject.createDefault(chirp)
-      chirpsSubject.toSerialized().onNext(HashSet(chirps.keys))
+      feed.add(chirp)
     }
 
     fun addReaction(reaction: Reaction): Boolean {
       // Check if the associated chirp is present
-      val chirp = chirps[reaction.chirpId] ?: return false
-      val chirpReactions = reactionByChirpId.getValue(chirp.id)
-
-      // Search for a previous deleted reaction
-      val deleted = reactions[reaction.id]
-      if (deleted != null) {
-        chirpReactions.remove(deleted)
+      return withChirp(reaction.chirpId) { chirp ->
+        // A chirp deleted before being loaded is not kept in memory, the reaction is only persisted
+        val chirpReactions = reactionByChirpId[chirp.id] ?: return@withChirp
+
+        // Search for a previous deleted reaction
+        val deleted = reactions[reaction.id]
+        if (deleted != null) {
+          chirpReactions.remove(deleted)
+        }
+
+        // Update repository data
+        reactions[reaction.id] = reaction
+        chirpReactions.add(reaction)
+        reactionSubjectsByChirpId[chirp.id]?.toSerialized()?.onNext(HashSet(chirpReactions))
       }
-
-      // Update repository data
-      reactions[reaction.id] = reaction
-      chirpReactions.add(reaction)
-      reactionSubjectsByChirpId[chirp.id]?.toSerialized()?.onNext(HashSet(chirpReactions))
-      return true
     }
 
     fun delete(id: MessageID): Boolean {
-      val chirp = chirps[id] ?: return false
-      if (chirp.isDeleted) {
-        Timber.tag(TAG).d("The chirp with id %s is already deleted", id)
-      } else {
+      return withChirp(id) { chirp ->
+        if (chirp.isDeleted) {
+          Timber.tag(TAG).d("The chirp with id %s is already deleted", id)
+          return@withChirp
+        }
+
         val subject =
             chirpSubjects[id]
                 ?: // This should really never occurs
@@ -229,30 +332,29 @@ constructor(appDatabase: AppDatabase, application: Application) {
         val deleted = chirp.deleted()
         chirps[id] = deleted
         subject.toSerialized().onNext(deleted)
+        feed.update(deleted)
 
         // Persist the deleted reaction (done only for completeness, this is not necessary)
-        repository.disposables.add(
-            repository.chirpDao
-                .insert(ChirpEntity(laoId, deleted))
-                .subscribeOn(Schedulers.io())
-                .observeOn(AndroidSchedulers.mainThread())
-                .subscribe(
-                    { Timber.tag(TAG).d("Successfully persisted deleted chirp %s", deleted.id) },
-                    { err: Throwable ->
-                      Timber.tag(TAG).e(err, "Error in persisting deleted chirp %s", deleted.id)
-                    }))
+        // It goes through the same queue as the chirp, so it cannot be overridden by it
+        repository.chirpQueue.enqueue(ChirpEntity(laoId, deleted))
+        repository.removeFromSearch(laoId, id)
       }
-      return true
     }
 
     fun deleteReaction(reactionId: MessageID): Boolean {
-      // Check if the associated reaction is present
-      val reaction = reactions[reactionId] ?: return false
-      val chirp = chirps[reaction.chirpId] ?: error("The reaction refers to a not existing chirp")
-      // If the chirp the reaction refers to it's not present then throw an error
-      if (reaction.isDeleted) {
-        Timber.tag(TAG).d("The reaction with id %s is already deleted", reactionId)
-      } else {
+      // Check if the associated reaction is present, or stored with a chirp that is not loaded
+      val chirpId =
+          reactions[reactionId]?.chirpId
+              ?: storedReactionChirpIds[reactionId]?.takeIf { storedIdsLoaded() }
+              ?: return false
+
+      return withChirp(chirpId) { chirp ->
+        val reaction = reactions[reactionId]
+        if (reaction == null || reaction.isDeleted) {
+          Timber.tag(TAG).d("The reaction with id %s is already deleted", reactionId)
+          return@withChirp
+        }
+
         // Update the repository data
         val deleted = reaction.deleted()
         reactions[reactionId] = deleted
@@ -264,22 +366,97 @@ constructor(appDatabase: AppDatabase, application: Application) {
         reactionSubjectsByChirpId[chirp.id]?.toSerialized()?.onNext(chirpReactions)
 
         // Persist the deleted reaction (done only for completeness, this is not necessary)
-        repository.disposables.add(
-            repository.reactionDao
-                .insert(ReactionEntity(deleted))
-                .subscribeOn(Schedulers.io())
-                .observeOn(AndroidSchedulers.mainThread())
-                .subscribe(
-                    { Timber.tag(TAG).d("Successfully persisted deleted reaction %s", deleted.id) },
-                    { err: Throwable ->
-                      Timber.tag(TAG).e(err, "Error in persisting deleted reaction %s", deleted.id)
-                    }))
+        repository.reactionQueue.enqueue(ReactionEntity(deleted))
       }
+    }
+
+    /**
+     * Apply an operation on a chirp, loading it from the disk if its page is not loaded yet.
+     * Messages about a chirp (reactions, deletions) can be received before the user scrolls to it,
+     * so the chirp is then loaded on its own along with its reactions, and the operation is
+     * applied once it is loaded. The disk is never read by the caller.
+     *
+     * @param id id of the chirp
+     * @param operation applied on the chirp
+     * @return true if the chirp is known, false if it is unknown or if the ids of the stored
+     *   chirps are not loaded yet, in which case the message is processed again later
+     */
+    private fun withChirp(id: MessageID, operation: (Chirp) -> Unit): Boolean {
+      val chirp = chirps[id]
+      if (chirp != null) {
+        operation(chirp)
+        return true
+      }
+
+      if (!storedIdsLoaded() || !storedChirpIds.contains(id)) {
+        return false
+      }
+
+      repository.disposables.add(
+          repository.chirpDao
+              .getChirpById(laoId, id)
+              .flatMapSingle { entity: ChirpEntity ->
+                repository.reactionDao.getReactionsByChirpId(id).map { reactions ->
+                  Pair(entity.chirp, reactions.orEmpty())
+                }
+              }
+              .subscribeOn(Schedulers.io())
+              .observeOn(AndroidSchedulers.mainThread())
+              .subscribe(
+                  { (stored, reactions) ->
+                    // Deleted chirps are not loaded in memory, as for the pages
+                    if (!stored.isDeleted) {
+                      add(stored)
+                      reactions.filter { !it.isDeleted }.forEach { addReaction(it) }
+                      Timber.tag(TAG).d("Loaded from db the chirp %s before its page", id)
+                    }
+                    operation(chirps[id] ?: stored)
+                  },
+                  { err: Throwable -> Timber.tag(TAG).e(err, "Error in loading chirp %s", id) }))
       return true
     }
 
-    fun getChirpsSubject(): Observable<Set<MessageID>> {
-      return chirpsSubject
+    /** @return true if the ids of the stored chirps are loaded, starting to load them otherwise */
+    private fun storedIdsLoaded(): Boolean {
+      if (!idsLoaded) {
+        loadStoredIds()
+      }
+      return idsLoaded
+    }
+
+    /** Load in memory the ids of the stored chirps and reactions, if not loaded or loading yet */
+    private fun loadStoredIds() {
+      synchronized(this) {
+        if (idsLoading || idsLoaded) {
+          return
+        }
+        idsLoading = true
+      }
+
+      repository.disposables.add(
+          repository.chirpDao
+              .getChirpIds(laoId)
+              .flatMap { chirpIds: List<MessageID> ->
+                repository.reactionDao.getReactionIds(laoId).map { reactionIds: List<ReactionIds> ->
+                  Pair(chirpIds, reactionIds)
+                }
+              }
+              .subscribeOn(Schedulers.io())
+              .doFinally { synchronized(this) { idsLoading = false } }
+              .subscribe(
+                  { (chirpIds, reactionIds) ->
+                    storedChirpIds.addAll(chirpIds)
+                    reactionIds.forEach { storedReactionChirpIds[it.reactionId] = it.chirpId }
+                    idsLoaded = true
+                    Timber.tag(TAG)
+                        .d(
+                            "Retrieved from db the ids of %d chirps and %d reactions",
+                            chirpIds.size,
+                            reactionIds.size)
+                  },
+                  { err: Throwable ->
+                    Timber.tag(TAG).e(err, "Error in retrieving the stored ids of lao %s", laoId)
+                  }))
     }
 
     @Throws(UnknownChirpException::class)
@@ -293,55 +470,59 @@ constructor(appDatabase: AppDatabase, application: Application) {
     }
 
     /**
-     * Load in memory the chirps and their respective reactions from the disk only when the user
-     * wants to inflate the chirps adapter. It can be done only once per LAO, as during the
-     * execution everything is also stored in memory.
+     * Load in memory the next page of chirps from the disk, from the newest to the oldest, along
+     * with their reactions. The first page is loaded when the user wants to inflate the chirps
+     * adapter, and the following ones when the user scrolls to them, such that only the chirps
+     * displayed are read. It can be done only once per page, as during the execution everything is
+     * also stored in memory.
      */
-    private fun loadStorage() {
+    fun loadNextPage() {
+      val last =
+          synchronized(this) {
+            if (loading || fullyLoaded) {
+              return
+            }
+            loading = true
+            lastLoaded
+          }
+
+      val page =
+          if (last == null) repository.chirpDao.getLatestChirps(laoId, PAGE_SIZE)
+          else repository.chirpDao.getChirpsAfter(laoId, last.timestamp, last.chirpId, PAGE_SIZE)
+
       repository.disposables.add(
-          repository.chirpDao
-              .getChirpsByLaoId(laoId)
+          page
+              // Retrieve the reactions of the whole page at once
+              .flatMap { entities: List<ChirpEntity> ->
+                if (entities.isEmpty()) {
+                  Single.just(Pair(entities, emptyList<Reaction>()))
+                } else {
+                  repository.reactionDao
+                      .getReactionsByChirpIds(entities.map { it.chirpId })
+                      .map { reactions: List<Reaction> -> Pair(entities, reactions) }
+                }
+              }
               .subscribeOn(Schedulers.io())
               .observeOn(AndroidSchedulers.mainThread())
+              .doFinally { synchronized(this) { loading = false } }
               .subscribe(
-                  { chirpsList: List<Chirp>? ->
-                    chirpsList?.forEach(
-                        Consumer outer@{ chirp: Chirp ->
-                          // Do not retrieve deleted chirps
-                          if (chirp.isDeleted) {
-                            return@outer
-                          }
-                          // Load the chirp into the memory
-                          add(chirp)
-                          Timber.tag(TAG).d("Retrieved from db chirp %s", chirp.id)
-                          // When retrieving the chirp also retrieve its reactions
-                          repository.disposables.add(
-                              repository.reactionDao
-                                  .getReactionsByChirpId(chirp.id)
-                                  .subscribeOn(Schedulers.io())
-                                  .observeOn(AndroidSchedulers.mainThread())
-                                  .subscribe(
-                                      { reactionsList: List<Reaction>? ->
-                                        reactionsList?.forEach(
-                                            Consumer inner@{ reaction: Reaction ->
-                                              // Do not retrieve deleted reactions
-                                              if (reaction.isDeleted) {
-                                                return@inner
-                                              }
-                                              // Load the reaction into the memory
-                                              addReaction(reaction)
-                                              Timber.tag(TAG)
-                                                  .d("Retrieved from db reaction %s", reaction.id)
-                                            })
-                                      },
-                                      { err: Throwable ->
-                                        Timber.tag(TAG)
-                                            .e(
-                                                err,
-                                                "No reaction found in the storage for chirp %s",
-                                                chirp.id)
-                                      }))
-                        })
+                  { (entities, reactions) ->
+                    // Do not retrieve deleted chirps and reactions
+                    entities.filter { !it.chirp.isDeleted }.forEach { add(it.chirp) }
+                    // The reactions of the deleted chirps are not kept, as the chirps themselves
+                    reactions
+                        .filter { !it.isDeleted && chirps.containsKey(it.chirpId) }
+                        .forEach { addReaction(it) }
+                    Timber.tag(TAG)
+                        .d(
+                            "Retrieved from db %d chirps and %d reactions",
+                            entities.size,
+                            reactions.size)
+
+                    synchronized(this) {
+                      lastLoaded = entities.lastOrNull() ?: last
+                      fullyLoaded = entities.size < PAGE_SIZE
+                    }
                   },
                   { err: Throwable ->
                     Timber.tag(TAG).e(err, "No chirp found in the storage for lao %s", laoId)
@@ -351,5 +532,11 @@ constructor(appDatabase: AppDatabase, application: Application) {
 
   companion object {
     private val TAG = SocialMediaRepository::class.java.simpleName
+
+    /** Number of chirps loaded at once from the disk */
+    private const val PAGE_SIZE = 100
+
+    /** Number of chirps returned by a search at once */
+    private const val SEARCH_PAGE_SIZE = 50
   }
 }
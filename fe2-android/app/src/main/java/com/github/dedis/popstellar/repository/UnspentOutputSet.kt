@@ -0,0 +1,113 @@
+package com.github.dedis.popstellar.repository
+
+import com.github.dedis.popstellar.model.objects.digitalcash.TransactionObject
+import com.github.dedis.popstellar.model.objects.digitalcash.UnspentOutput
+
+/**
+ * Set of the unspent transaction outputs (UTXO) of a LAO.
+ *
+ * The outputs are keyed by their (txOutHash, txOutIndex) outpoint and indexed by the hash of the
+ * public key owning them, along with the balance of each owner. Adding a transaction removes the
+ * outputs its inputs spend and adds its own outputs, such that the balances are kept up to date in
+ * time proportional to the size of the transaction instead of the history of its users.
+ *
+ * The outpoints spent by the inputs are remembered, so that an output spent by a transaction added
+ * before the one holding it never becomes unspent.
+ */
+class UnspentOutputSet {
+  private val outputs = HashMap<OutPoint, UnspentOutput>()
+  private val outputsByOwner = HashMap<String, MutableMap<OutPoint, UnspentOutput>>()
+  private val balances = HashMap<String, Long>()
+  private val spent = HashSet<OutPoint>()
+
+  /** Number of unspent outputs */
+  val size: Int
+    @Synchronized get() = outputs.size
+
+  /**
+   * Add a transaction, spending the outputs referenced by its inputs
+   *
+   * @param transaction to add
+   */
+  @Synchronized
+  fun add(transaction: TransactionObject) {
+    spendInputs(transaction)
+    addOutputs(transaction)
+  }
+
+  /**
+   * Add all the given transactions at once. All their inputs are spent before their outputs are
+   * added, so the order of the transactions does not matter.
+   *
+   * @param transactions to add
+   */
+  @Synchronized
+  fun addAll(transactions: Collection<TransactionObject>) {
+    transactions.forEach { spendInputs(it) }
+    transactions.forEach { addOutputs(it) }
+  }
+
+  /** Remove all the outputs */
+  @Synchronized
+  fun clear() {
+    outputs.clear()
+    outputsByOwner.clear()
+    balances.clear()
+    spent.clear()
+  }
+
+  /**
+   * @param pubKeyHash hash of the public key of the owner
+   * @return the sum of the unspent outputs of the owner, in miniLAOs
+   */
+  @Synchronized
+  fun getBalance(pubKeyHash: String): Long {
+    return balances[pubKeyHash] ?: 0
+  }
+
+  /**
+   * @param pubKeyHash hash of the public key of the owner
+   * @return the unspent outputs of the owner, in the order they were added
+   */
+  @Synchronized
+  fun getUnspentOutputs(pubKeyHash: String): List<UnspentOutput> {
+    return outputsByOwner[pubKeyHash]?.values?.toList() ?: emptyList()
+  }
+
+  private fun spendInputs(transaction: TransactionObject) {
+    if (transaction.isCoinBaseTransaction) {
+      // The input of an issuance does not refer to any output
+      return
+    }
+
+    for (input in transaction.inputs) {
+      val outPoint = OutPoint(input.txOutHash, input.txOutIndex ?: continue)
+      spent.add(outPoint)
+
+      val output = outputs.remove(outPoint) ?: continue
+      outputsByOwner[output.pubKeyHash]?.let { owned ->
+        owned.remove(outPoint)
+        if (owned.isEmpty()) {
+          outputsByOwner.remove(output.pubKeyHash)
+        }
+      }
+      balances.merge(output.pubKeyHash, -output.value, Long::plus)
+    }
+  }
+
+  private fun addOutputs(transaction: TransactionObject) {
+    for ((index, output) in transaction.outputs.withIndex()) {
+      val outPoint = OutPoint(transaction.transactionId, index)
+      if (spent.contains(outPoint) || outputs.containsKey(outPoint)) {
+        continue
+      }
+
+      val unspent = UnspentOutput(transaction.transactionId, index, output.pubKeyHash, output.value)
+      outputs[outPoint] = unspent
+      outputsByOwner.computeIfAbsent(output.pubKeyHash) { LinkedHashMap() }[outPoint] = unspent
+      balances.merge(output.pubKeyHash, output.value, Long::plus)
+    }
+  }
+
+  private data class OutPoint(val txOutHash: String, val txOutIndex: Int)
+}
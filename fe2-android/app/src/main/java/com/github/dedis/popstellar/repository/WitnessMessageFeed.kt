@@ -0,0 +1,160 @@
+package com.github.dedis.popstellar.repository
+
+import com.github.dedis.popstellar.model.objects.WitnessMessage
+import com.github.dedis.popstellar.model.objects.security.MessageID
+import com.github.dedis.popstellar.model.objects.security.PublicKey
+import io.reactivex.Observable
+import io.reactivex.subjects.PublishSubject
+import io.reactivex.subjects.Subject
+import java.util.Collections
+
+/**
+ * Witness messages of a LAO, identified by the id of the message to sign.
+ *
+ * Each modification is published as a [Change] holding the id of the message it concerns, instead
+ * of the whole collection. A new signature thus costs the same whatever the number of messages, and
+ * the observers can keep their copy of the messages up to date by applying the changes.
+ */
+class WitnessMessageFeed {
+  private val messages = HashMap<MessageID, WitnessMessage>()
+  private val changes: Subject<Change> = PublishSubject.create()
+
+  /**
+   * @param messageID id of the message to sign
+   * @return the witness message with that id, or null if there is none
+   */
+  @Synchronized
+  operator fun get(messageID: MessageID): WitnessMessage? {
+    return messages[messageID]
+  }
+
+  /** Whether the feed contains no witness message */
+  val isEmpty: Boolean
+    @Synchronized get() = messages.isEmpty()
+
+  /**
+   * Add a witness message to the feed, or replace the one with the same id
+   *
+   * @param witnessMessage to add
+   */
+  @Synchronized
+  fun add(witnessMessage: WitnessMessage) {
+    messages[witnessMessage.messageId] = witnessMessage
+    changes.onNext(Change.MessageAdded(witnessMessage))
+  }
+
+  /**
+   * Add a witness to a message of the feed
+   *
+   * @param witnessMessage message of the feed signed by the witness
+   * @param witness public key of the witness
+   * @return true if the witness was added, false if it had already signed the message
+   */
+  @Synchronized
+  fun addWitness(witnessMessage: WitnessMessage, witness: PublicKey): Boolean {
+    if (!witnessMessage.addWitness(witness)) {
+      return false
+    }
+
+    changes.onNext(Change.WitnessAdded(witnessMessage.messageId, witness))
+    return true
+  }
+
+  /**
+   * Publish that a message has just been signed by enough witnesses
+   *
+   * @param messageID id of the accepted message
+   */
+  @Synchronized
+  fun accept(messageID: MessageID) {
+    changes.onNext(Change.MessageAccepted(messageID))
+  }
+
+  /**
+   * Remove witness messages from the feed
+   *
+   * @param messageIDs ids of the messages to remove
+   */
+  @Synchronized
+  fun remove(messageIDs: Set<MessageID>) {
+    if (messages.keys.removeAll(messageIDs)) {
+      changes.onNext(Change.MessagesRemoved(messageIDs))
+    }
+  }
+
+  /** @return a copy of the witness messages, from the newest to the oldest */
+  @Synchronized
+  fun getMessages(): List<WitnessMessage> {
+    return messages.values.sortedWith(ORDER)
+  }
+
+  /**
+   * @return an observable of the changes of the feed. The first change is a [Change.Reset] to the
+   *   current messages, followed by the changes made since then.
+   */
+  fun getChanges(): Observable<Change> {
+    return Observable.create { emitter ->
+      // Changes are published with the lock held, so none is missed nor sent twice
+      synchronized(this) {
+        emitter.onNext(Change.Reset(getMessages()))
+        emitter.setDisposable(changes.subscribe(emitter::onNext, emitter::onError))
+      }
+    }
+  }
+
+  /** Modification of the feed, that can be applied to a copy of it */
+  sealed class Change {
+
+    /**
+     * Apply the change on a copy of the feed
+     *
+     * @param list the copy of the feed, from the newest to the oldest message, up to date with the
+     *   previous changes
+     */
+    abstract fun applyTo(list: MutableList<WitnessMessage>)
+
+    /** All the messages of the feed, replacing any previous content */
+    class Reset(val messages: List<WitnessMessage>) : Change() {
+      override fun applyTo(list: MutableList<WitnessMessage>) {
+        list.clear()
+        list.addAll(messages)
+      }
+    }
+
+    /** A new message, or a new version of a message */
+    class MessageAdded(val message: WitnessMessage) : Change() {
+      override fun applyTo(list: MutableList<WitnessMessage>) {
+        list.removeIf { it.messageId == message.messageId }
+        val position = Collections.binarySearch(list, message, ORDER)
+        list.add(if (position >= 0) position else -(position + 1), message)
+      }
+    }
+
+    /** A new signature of the message with the given id */
+    class WitnessAdded(val messageID: MessageID, val witness: PublicKey) : Change() {
+      override fun applyTo(list: MutableList<WitnessMessage>) {
+        list.find { it.messageId == messageID }?.addWitness(witness)
+      }
+    }
+
+    /** The message with the given id has just been signed by enough witnesses */
+    class MessageAccepted(val messageID: MessageID) : Change() {
+      override fun applyTo(list: MutableList<WitnessMessage>) {
+        // The signatures are already in the list, only the observers acting on it are concerned
+      }
+    }
+
+    /** Messages removed from the feed */
+    class MessagesRemoved(val messageIDs: Set<MessageID>) : Change() {
+      override fun applyTo(list: MutableList<WitnessMessage>) {
+        list.removeIf { it.messageId in messageIDs }
+      }
+    }
+  }
+
+  companion object {
+    /** Newest messages first, messages created at the same time are ordered by id */
+    private val ORDER: Comparator<WitnessMessage> =
+        compareByDescending<WitnessMessage> { it.timestamp }.thenBy { it.messageId.encoded }
+  }
+}
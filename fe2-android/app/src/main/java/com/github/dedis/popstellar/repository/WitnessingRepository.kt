@@ -6,9 +6,11 @@ import androidx.annotation.VisibleForTesting
 import androidx.lifecycle.Lifecycle
 import com.github.dedis.popstellar.model.network.method.message.data.Objects
 import com.github.dedis.popstellar.model.objects.WitnessMessage
+import com.github.dedis.popstellar.model.objects.WitnessingPolicy
 import com.github.dedis.popstellar.model.objects.security.MessageID
 import com.github.dedis.popstellar.model.objects.security.PublicKey
 import com.github.dedis.popstellar.repository.database.AppDatabase
+import com.github.dedis.popstellar.repository.database.WriteBehindQueue
 import com.github.dedis.popstellar.repository.database.witnessing.PendingDao
 import com.github.dedis.popstellar.repository.database.witnessing.PendingEntity
 import com.github.dedis.popstellar.repository.database.witnessing.WitnessDao
@@ -24,16 +26,17 @@ import io.reactivex.android.schedulers.AndroidSchedulers
 import io.reactivex.disposables.CompositeDisposable
 import io.reactivex.schedulers.Schedulers
 import io.reactivex.subjects.BehaviorSubject
+import io.reactivex.subjects.CompletableSubject
 import io.reactivex.subjects.Subject
 import java.util.Collections
 import java.util.EnumMap
 import java.util.Optional
 import java.util.concurrent.ConcurrentHashMap
+import java.util.concurrent.atomic.AtomicLong
 import java.util.function.Consumer
 import java.util.stream.Collectors
 import javax.inject.Inject
 import javax.inject.Singleton
-import kotlin.math.roundToInt
 import timber.log.Timber
 
 /**
@@ -54,16 +57,17 @@ import timber.log.Timber
  * the reception of a witness signature to know the pending object only from the message
  * id.<br></br> *- What does "enough" mean?*<br></br> The number of signatures to make a message
  * valid (and consequently its relative pending object) are established by the witnessing policy.
- * This repository is in charge of checking the witnessing policy through the method
- * hasRequiredSignatures().<br></br> *- What does processing a pending object mean?*<br></br> It
- * means considering that object as valid, adding it to its own repository and doing other
- * processing job involved depending the object's type. <br></br> <br></br> *Example*<br></br> We
- * receive an OpenRollCall, which contains the data of a RollCall object. We create an empty
- * witnessing message (i.e. with no witnesses) and add it to the repo. That RollCall object is also
- * put in the pending state. When we receive witnessing signatures matching the id of the
- * OpenRollCall message, the witnessing message is updated and each time we check if the witnessing
- * policy is passing. As soon as it passes, the pending RollCall is removed from the pending state
- * and processed. In the case of OpenRollCall processing means simply adding it to the
+ * Each LAO can register its own [WitnessingPolicy]. This repository is in charge of checking it
+ * through the method hasJustBeenAccepted(), on a weight of signatures kept per message and
+ * increased by each new signature.<br></br> *- What does processing a pending object
+ * mean?*<br></br> It means considering that object as valid, adding it to its own repository and
+ * doing other processing job involved depending the object's type. <br></br> <br></br>
+ * *Example*<br></br> We receive an OpenRollCall, which contains the data of a RollCall object. We
+ * create an empty witnessing message (i.e. with no witnesses) and add it to the repo. That RollCall
+ * object is also put in the pending state. When we receive witnessing signatures matching the id of
+ * the OpenRollCall message, the witnessing message is updated and each time we check if the
+ * witnessing policy is passing. As soon as it passes, the pending RollCall is removed from the
+ * pending state and processed. In the case of OpenRollCall processing means simply adding it to the
  * RollCallRepository. In some other cases other actions are performed depending on the object.
  */
 @Singleton
@@ -86,11 +90,29 @@ constructor(
   private val witnessDao: WitnessDao = appDatabase.witnessDao()
   private val pendingDao: PendingDao = appDatabase.pendingDao()
   private val disposables = CompositeDisposable()
+  // Loads of the witnesses, kept apart as they must not be cleared when the app is stopped
+  private val witnessLoads = CompositeDisposable()
+  private val blockingLoads = AtomicLong()
+
+  /** Ids of the witness messages whose new signatures are waiting to be persisted */
+  private val pendingSignatureWrites: MutableSet<MessageID> = ConcurrentHashMap.newKeySet()
+  private val witnessingQueue =
+      WriteBehindQueue(
+          TAG,
+          { entities: List<WitnessingEntity> ->
+            // The signatures received from now on are not serialized anymore with these entities
+            entities.forEach { pendingSignatureWrites.remove(it.messageID) }
+            witnessingDao.insertAll(entities)
+          },
+          flushDelayMs = PERSIST_DELAY_MS)
 
   init {
     val consumerMap: MutableMap<Lifecycle.Event, Consumer<Activity>> =
         EnumMap(Lifecycle.Event::class.java)
-    consumerMap[Lifecycle.Event.ON_STOP] = Consumer { disposables.clear() }
+    consumerMap[Lifecycle.Event.ON_STOP] = Consumer {
+      witnessingQueue.flush()
+      disposables.clear()
+    }
     application.registerActivityLifecycleCallbacks(buildLifecycleCallback(consumerMap))
   }
 
@@ -105,17 +127,7 @@ constructor(
     Timber.tag(TAG).d("Adding a witness message on lao %s : %s", laoId, witnessMessage)
 
     // Persist the message
-    val witnessingEntity = WitnessingEntity(laoId, witnessMessage)
-    disposables.add(
-        witnessingDao
-            .insert(witnessingEntity)
-            .subscribeOn(Schedulers.io())
-            .observeOn(AndroidSchedulers.mainThread())
-            .subscribe(
-                { Timber.tag(TAG).d("Successfully persisted witness message %s", witnessMessage) },
-                { err: Throwable ->
-                  Timber.tag(TAG).e(err, "Error in persisting witness message")
-                }))
+    witnessingQueue.enqueue(WitnessingEntity(laoId, witnessMessage))
 
     // Retrieve Lao data and add the witness message to it
     getLaoWitness(laoId).add(witnessMessage)
@@ -166,21 +178,33 @@ constructor(
   }
 
   /**
-   * It checks if a public keys belongs to the set of witnesses for a given lao.
+   * It checks if a public keys belongs to the set of witnesses for a given lao. It waits for the
+   * witnesses to be loaded from the disk, so the UI should rather observe
+   * [getWitnessesObservableInLao].
    *
    * @param laoId lao identifier
    * @param witness public key to check
    * @return true if present, false otherwise
    */
   fun isWitness(laoId: String, witness: PublicKey): Boolean {
-    return getLaoWitness(laoId).isWitness(witness)
+    return getLoadedLaoWitness(laoId).isWitness(witness)
   }
 
-  /** Check whether the witness set is empty for a given lao. */
+  /**
+   * Check whether the witness set is empty for a given lao. As [isWitness], it waits for the
+   * witnesses to be loaded from the disk.
+   */
   fun areWitnessesEmpty(laoId: String): Boolean {
-    return getLaoWitness(laoId).isWitnessEmpty
+    return getLoadedLaoWitness(laoId).isWitnessEmpty
   }
 
+  /**
+   * Number of witness checks that had to wait for the witnesses of their lao to be loaded from the
+   * disk. Once the witnesses are loaded, the checks are answered from the memory only.
+   */
+  val blockingLoadCount: Long
+    get() = blockingLoads.get()
+
   /**
    * This returns the set of public keys of the witnesses of a lao.
    *
@@ -192,25 +216,27 @@ constructor(
   }
 
   /**
-   * Returns an observable over the set of witnesses in a lao.
+   * Returns an observable over the set of witnesses in a lao. It starts once the witnesses stored
+   * on the disk are loaded, such that every set published is complete.
    *
    * @param laoId the id of the Lao whose witnesses we want to observe
    * @return an observable over the set of public keys which corresponds to the set of witnesses on
    *   the given lao
    */
   fun getWitnessesObservableInLao(laoId: String): Observable<Set<PublicKey>> {
-    return getLaoWitness(laoId).getWitnessesSubject()
+    val laoWitness = getLaoWitness(laoId)
+    return laoWitness.witnessesLoaded.andThen(laoWitness.getWitnessesSubject())
   }
 
   /**
-   * Returns an observable of the list of witness messages. Each time a witness is added to a
-   * witness message the observable is notified with the updated list.
+   * Returns an observable of the changes of the witness messages. It starts with all the current
+   * messages, then each new message, signature and acceptance is published on its own.
    *
    * @param laoId identifier of the lao whose witness messages are observed
-   * @return an observable list of witness messages (message id and witnesses having signed it)
+   * @return an observable of the changes of the witness messages of the lao
    */
-  fun getWitnessMessagesObservableInLao(laoId: String): Observable<List<WitnessMessage>> {
-    return getLaoWitness(laoId).getWitnessMessagesSubject()
+  fun getWitnessMessageFeed(laoId: String): Observable<WitnessMessageFeed.Change> {
+    return getLaoWitness(laoId).witnessMessages.getChanges()
   }
 
   /**
@@ -222,6 +248,18 @@ constructor(
     getLaoWitness(laoId).deleteAcceptedMessages()
   }
 
+  /**
+   * Register the witnessing policy of a lao, deciding when its messages are accepted. The messages
+   * already received are evaluated again with the new policy.
+   *
+   * @param laoId identifier of the lao
+   * @param policy the witnessing policy, [WitnessingPolicy.DEFAULT] until another one is registered
+   */
+  fun setWitnessingPolicy(laoId: String, policy: WitnessingPolicy) {
+    Timber.tag(TAG).d("Setting the witnessing policy of lao %s : %s", laoId, policy)
+    getLaoWitness(laoId).setPolicy(policy)
+  }
+
   /**
    * This function adds a pending entity.
    *
@@ -256,6 +294,20 @@ constructor(
     return witnessByLao.computeIfAbsent(laoId) { LaoWitness(laoId, this) }
   }
 
+  /**
+   * Get the witness object of a lao, once its witnesses are loaded from the disk. The set of
+   * witnesses is then complete and can be used to tell that a key is not a witness.
+   */
+  private fun getLoadedLaoWitness(laoId: String): LaoWitness {
+    val laoWitness = getLaoWitness(laoId)
+    if (!laoWitness.witnessesLoaded.hasComplete()) {
+      blockingLoads.incrementAndGet()
+      Timber.tag(TAG).d("Waiting for the witnesses of lao %s to be loaded", laoId)
+      laoWitness.witnessesLoaded.blockingAwait()
+    }
+    return laoWitness
+  }
+
   @VisibleForTesting
   fun getWitnessMessage(laoId: String, messageID: MessageID): Optional<WitnessMessage> {
     return Optional.ofNullable(getLaoWitness(laoId).witnessMessages[messageID])
@@ -263,7 +315,7 @@ constructor(
 
   @VisibleForTesting
   fun areWitnessMessagesEmpty(laoId: String): Boolean {
-    return getLaoWitness(laoId).witnessMessages.isEmpty()
+    return getLaoWitness(laoId).witnessMessages.isEmpty
   }
 
   private class LaoWitness(private val laoId: String, private val repo: WitnessingRepository) {
@@ -272,39 +324,53 @@ constructor(
     /** Thread-safe structure for saving the witnesses of a given lao */
     val witnesses: MutableSet<PublicKey> = ConcurrentHashMap.newKeySet()
 
+    /** Completed once the witnesses stored on the disk are in [witnesses] */
+    val witnessesLoaded: CompletableSubject = CompletableSubject.create()
+
     /** Subject to observe the witnesses collection as a whole */
     private val witnessesSubject: Subject<Set<PublicKey>> =
         BehaviorSubject.createDefault(Collections.unmodifiableSet(emptySet()))
 
-    /** Thread-safe map to save witness messages by their ids */
-    val witnessMessages = ConcurrentHashMap<MessageID, WitnessMessage>()
-
-    /** Subject to observe the witness messages collection as a whole */
-    private val witnessMessagesSubject: Subject<List<WitnessMessage>> =
-        BehaviorSubject.createDefault(Collections.unmodifiableList(emptyList()))
+    /** Thread-safe feed of the witness messages, publishing each of their changes */
+    val witnessMessages = WitnessMessageFeed()
 
     /** Thread-safe map to save pending entities by their message id */
     private val pendingEntities = ConcurrentHashMap<MessageID, PendingEntity>()
 
+    // The following state is guarded by the lock of this object
+
+    /** Policy deciding when the witness messages are accepted */
+    private var policy: WitnessingPolicy = WitnessingPolicy.DEFAULT
+
+    /** Weight of signatures required by the policy, given the current witnesses */
+    private var requiredWeight = policy.requiredWeight(witnesses)
+
+    /** Weight of the signatures of each witness message, counted as they are received */
+    private val signatureWeights = HashMap<MessageID, Int>()
+
+    /** Ids of the accepted witness messages, in their order of acceptance */
+    private val acceptedMessages: MutableSet<MessageID> = LinkedHashSet()
+
     init {
       loadFromDisk()
     }
 
     /**
      * This function adds (or replaces if there's already a witness message with the same id) a
-     * WitnessMessage to the in-memory data structure and updates the subject containing the whole
-     * collection of witness messages.
+     * WitnessMessage to the in-memory feed, which publishes it to its observers.
      *
      * @param witnessMessage the new witness message to add/replace
      */
     fun add(witnessMessage: WitnessMessage) {
-      val messageID = witnessMessage.messageId
-      witnessMessages[messageID] = witnessMessage
-
-      // Publish the updated collection in a thread-safe fashion
-      witnessMessagesSubject
-          .toSerialized()
-          .onNext(Collections.unmodifiableList(ArrayList(witnessMessages.values)))
+      val released =
+          synchronized(this) {
+            witnessMessages.add(witnessMessage)
+            // The message may come with signatures, e.g. when loaded from the disk
+            val messageID = witnessMessage.messageId
+            signatureWeights[messageID] = weightOf(witnessMessage)
+            if (hasJustBeenAccepted(messageID)) accept(listOf(messageID)) else emptyList()
+          }
+      releasePendingEntities(released)
     }
 
     /**
@@ -314,9 +380,28 @@ constructor(
      * @param witnesses set of public keys representing the witnesses' public keys
      */
     fun addWitnesses(witnesses: Set<PublicKey>) {
-      this.witnesses.addAll(witnesses)
+      val released =
+          synchronized(this) {
+            this.witnesses.addAll(witnesses)
+            reevaluateMessages()
+          }
       // Publish the update collection in a thread-safe fashion
       witnessesSubject.toSerialized().onNext(Collections.unmodifiableSet(HashSet(this.witnesses)))
+      releasePendingEntities(released)
+    }
+
+    /**
+     * Replace the witnessing policy of the lao
+     *
+     * @param policy the new policy
+     */
+    fun setPolicy(policy: WitnessingPolicy) {
+      val released =
+          synchronized(this) {
+            this.policy = policy
+            reevaluateMessages()
+          }
+      releasePendingEntities(released)
     }
 
     /**
@@ -328,52 +413,39 @@ constructor(
      * @return false if there's no message matching the given id, true otherwise
      */
     fun addWitnessToMessage(messageID: MessageID, witness: PublicKey): Boolean {
-      val witnessMessage = witnessMessages[messageID] ?: return false
-      // Add the witness to the witness message
-      witnessMessage.addWitness(witness)
-
-      // Persist the new message
-      repo.disposables.add(
-          repo.witnessingDao
-              .insert(WitnessingEntity(laoId, witnessMessage))
-              .subscribeOn(Schedulers.io())
-              .observeOn(AndroidSchedulers.mainThread())
-              .subscribe(
-                  {
-                    Timber.tag(TAG).d("Successfully persisted witness message %s", witnessMessage)
-                  },
-                  { err: Throwable ->
-                    Timber.tag(TAG).e(err, "Error in persisting witness message")
-                  }))
+      val released =
+          synchronized(this) {
+            val witnessMessage = witnessMessages[messageID] ?: return false
+            // Add the witness to the witness message, which publishes only this signature
+            if (!witnessMessages.addWitness(witnessMessage, witness)) {
+              // The witness already signed the message, nothing changes
+              return true
+            }
+
+            // Persist the new signature along with the next ones
+            persistSignatures(witnessMessage)
+
+            // Upon reception of a new signature, only its weight is added to the message. The
+            // message is accepted once, when its weight first reaches the required one.
+            signatureWeights.merge(messageID, policy.weightOf(witness, witnesses), Int::plus)
+            if (hasJustBeenAccepted(messageID)) accept(listOf(messageID)) else emptyList()
+          }
+
+      // The pending entity of the message can now be considered valid and added to its repository
+      releasePendingEntities(released)
+      return true
+    }
 
-      // Upon reception of a new signature check that the witnessing policy is passing.
-      // The following function is designed to return true only once (when it just achieves the
-      // minimum threshold).
-      if (hasRequiredSignatures(witnessMessage)) {
-        // Get and remove the pending entity
-        val pendingEntity = pendingEntities.remove(messageID)
-        if (pendingEntity != null) {
-          // Process the entity by calling its action: the pending object can be now be considered
-          // valid and added to its repository
-          processPendingEntity(pendingEntity)
-
-          // Then delete asynchronously the pending entity from the db
-          repo.disposables.add(
-              repo.pendingDao
-                  .removePendingObject(messageID)
-                  .subscribeOn(Schedulers.io())
-                  .observeOn(AndroidSchedulers.mainThread())
-                  .subscribe(
-                      { Timber.tag(TAG).d("Removed successfully pending object from disk") },
-                      { err: Throwable ->
-                        Timber.tag(TAG).e(err, "Error in removing the pending object from disk")
-                      }))
-        }
+    /**
+     * Persist the signatures of a witness message. The message is only enqueued if it is not
+     * already waiting to be written, as it is serialized with all its signatures when written.
+     *
+     * @param witnessMessage whose signatures to persist
+     */
+    private fun persistSignatures(witnessMessage: WitnessMessage) {
+      if (repo.pendingSignatureWrites.add(witnessMessage.messageId)) {
+        repo.witnessingQueue.enqueue(WitnessingEntity(laoId, witnessMessage))
       }
-
-      // Reinsert the witness message with the new witness to update the subject
-      add(witnessMessage)
-      return true
     }
 
     /**
@@ -383,37 +455,63 @@ constructor(
      * @return true if the given public key has a match in the set of witnesses, false otherwise
      */
     fun isWitness(witness: PublicKey): Boolean {
-      // It may happen that this check is scheduled before the db retrieval, so to be sure we
-      // perform a disk lookup. Trivially, by the compiler optimizations, if the first check is true
-      // then the lookup is avoided.
-      return witnesses.contains(witness) || repo.witnessDao.isWitness(laoId, witness) != 0
+      return witnesses.contains(witness)
     }
 
     val isWitnessEmpty: Boolean
       get() = witnesses.isEmpty()
 
     /**
-     * This function checks whether a witness message has been signed by enough witnesses. The
-     * "enough" is established by the witnessing policy, which for now is just an hardcoded
-     * threshold. The function is designed to return true only once, at the achievement of the
-     * signature threshold, not before nor after. This choice is due to the fact that the function
-     * is called every time a new signature is added.
+     * This function checks whether a witness message has just been signed by enough witnesses. The
+     * "enough" is established by the witnessing policy of the lao, which gives the weight of each
+     * signature and the total weight to reach. It returns true only once per message, when its
+     * weight first reaches the required one, as the message is then remembered as accepted.
      *
-     * @param witnessMessage witness message to check if it has enough signatures
-     * @return true if the signatures number is exactly matching the threshold, false otherwise
+     * Must be called with the lock held.
+     *
+     * @param messageID id of the witness message
+     * @return true if the message is accepted and was not yet, false otherwise
      */
-    fun hasRequiredSignatures(witnessMessage: WitnessMessage?): Boolean {
-      if (witnessMessage == null) {
-        return false
-      }
+    private fun hasJustBeenAccepted(messageID: MessageID): Boolean {
+      val weight = signatureWeights[messageID] ?: return false
+      return weight >= requiredWeight && acceptedMessages.add(messageID)
+    }
 
-      // In the future more complex policies can be defined, even at lao creation the organizer
-      // could specify its own, s.t. we have personalized policies across laos. For now (25.05.2023)
-      // the very simple rule consists of having around 2/3 of witnesses signed the message.
-      val requiredSignatures = (witnesses.size * WITNESSING_THRESHOLD).roundToInt()
+    /** Total weight of the signatures of a message. Must be called with the lock held. */
+    private fun weightOf(witnessMessage: WitnessMessage): Int {
+      return witnessMessage.witnesses.sumOf { policy.weightOf(it, witnesses) }
+    }
 
-      // Check if it does match exactly the threshold (so it will return true just once)
-      return witnessMessage.witnesses.size == requiredSignatures
+    /**
+     * Compute again the weights of all the messages, once the policy or the witnesses changed. This
+     * is the only operation visiting all the messages, and happens rarely. Must be called with the
+     * lock held.
+     *
+     * @return the pending entities of the messages accepted by the change
+     */
+    private fun reevaluateMessages(): List<PendingEntity> {
+      requiredWeight = policy.requiredWeight(witnesses)
+      val newlyAccepted = ArrayList<MessageID>()
+      for (witnessMessage in witnessMessages.getMessages()) {
+        val messageID = witnessMessage.messageId
+        signatureWeights[messageID] = weightOf(witnessMessage)
+        if (hasJustBeenAccepted(messageID)) {
+          newlyAccepted.add(messageID)
+        }
+      }
+      return accept(newlyAccepted)
+    }
+
+    /**
+     * Publish the acceptance of messages and take their pending entities. Must be called with the
+     * lock held.
+     *
+     * @param messageIDs ids of the messages that were just accepted
+     * @return the pending entities of the messages, to release without the lock held
+     */
+    private fun accept(messageIDs: List<MessageID>): List<PendingEntity> {
+      messageIDs.forEach(witnessMessages::accept)
+      return messageIDs.mapNotNull(pendingEntities::remove)
     }
 
     /**
@@ -423,18 +521,25 @@ constructor(
      * the future this deletion could be automatic.
      */
     fun deleteAcceptedMessages() {
-      // Find the messages to delete
-      val idsToDelete =
-          witnessMessages.values
-              .stream()
-              .filter { witnessMessage: WitnessMessage -> hasRequiredSignatures(witnessMessage) }
-              .map { obj: WitnessMessage -> obj.messageId }
-              .collect(Collectors.toSet())
-
-      // Delete from db asynchronously
+      // The accepted messages are already known, the other ones are not visited
+      val idsToDelete: Set<MessageID> =
+          synchronized(this) {
+            val ids = HashSet(acceptedMessages)
+            acceptedMessages.clear()
+            signatureWeights.keys.removeAll(ids)
+            // Delete from memory, which publishes the removal
+            witnessMessages.remove(ids)
+            ids
+          }
+      if (idsToDelete.isEmpty()) {
+        return
+      }
+
+      // Delete from db asynchronously, once the pending writes of the messages are done
       repo.disposables.add(
-          repo.witnessingDao
-              .deleteMessagesByIds(laoId, idsToDelete)
+          repo.witnessingQueue
+              .flush()
+              .andThen(repo.witnessingDao.deleteMessagesByIds(laoId, idsToDelete))
               .subscribeOn(Schedulers.io())
               .observeOn(AndroidSchedulers.mainThread())
               .subscribe(
@@ -445,26 +550,57 @@ constructor(
                   { err: Throwable ->
                     Timber.tag(TAG).e(err, "Error deleting witness messages in lao %s", laoId)
                   }))
-
-      // Delete from memory
-      idsToDelete.forEach(Consumer { key: MessageID -> witnessMessages.remove(key) })
-
-      // Publish the updated collection
-      witnessMessagesSubject
-          .toSerialized()
-          .onNext(Collections.unmodifiableList(ArrayList(witnessMessages.values)))
     }
 
     fun addPendingEntity(pendingEntity: PendingEntity) {
-      pendingEntities[pendingEntity.messageID] = pendingEntity
+      val messageID = pendingEntity.messageID
+      val released =
+          synchronized(this) {
+            // The message may already be accepted, e.g. when the entity is loaded after it
+            if (messageID in acceptedMessages) {
+              listOf(pendingEntity)
+            } else {
+              pendingEntities[messageID] = pendingEntity
+              emptyList()
+            }
+          }
+      releasePendingEntities(released)
     }
 
-    fun getWitnessesSubject(): Observable<Set<PublicKey>> {
-      return witnessesSubject
+    /**
+     * Process the pending entities whose messages were accepted, then delete them all at once from
+     * the disk.
+     *
+     * @param released pending entities of the accepted messages
+     */
+    private fun releasePendingEntities(released: List<PendingEntity>) {
+      if (released.isEmpty()) {
+        return
+      }
+
+      // Process each entity by calling its action: the pending object can be now be considered
+      // valid and added to its repository
+      released.forEach(::processPendingEntity)
+
+      // Then delete asynchronously the pending entities from the db
+      val messageIDs = released.mapTo(HashSet(), PendingEntity::messageID)
+      repo.disposables.add(
+          repo.pendingDao
+              .removePendingObjects(messageIDs)
+              .subscribeOn(Schedulers.io())
+              .observeOn(AndroidSchedulers.mainThread())
+              .subscribe(
+                  {
+                    Timber.tag(TAG)
+                        .d("Removed successfully %d pending objects from disk", messageIDs.size)
+                  },
+                  { err: Throwable ->
+                    Timber.tag(TAG).e(err, "Error in removing the pending objects from disk")
+                  }))
     }
 
-    fun getWitnessMessagesSubject(): Observable<List<WitnessMessage>> {
-      return witnessMessagesSubject
+    fun getWitnessesSubject(): Observable<Set<PublicKey>> {
+      return witnessesSubject
     }
 
     /**
@@ -494,17 +630,18 @@ constructor(
       if (alreadyRetrieved) {
         return
       }
-      repo.disposables.addAll( // Load in parallel all the witnesses
+      // Load in parallel all the witnesses. They are added from the io thread, as the witness
+      // checks of the handlers might be waiting for them. The load is not cleared with the other
+      // ones, as the set of witnesses would otherwise be considered complete while it is not.
+      repo.witnessLoads.add(
           repo.witnessDao
               .getWitnessesByLao(laoId)
               .subscribeOn(Schedulers.io())
-              .observeOn(AndroidSchedulers.mainThread())
+              .doFinally { witnessesLoaded.onComplete() }
               .subscribe(
                   { witnessList: List<PublicKey> -> addWitnesses(HashSet(witnessList)) },
-                  { err: Throwable ->
-                    Timber.tag(TAG).e(err, "No witness messages found on the disk")
-                  }),
-          // And all the witness messages of a given lao
+                  { err: Throwable -> Timber.tag(TAG).e(err, "No witnesses found on the disk") }))
+      repo.disposables.addAll( // And all the witness messages of a given lao
           repo.witnessingDao
               .getWitnessMessagesByLao(laoId)
               .subscribeOn(Schedulers.io())
@@ -539,7 +676,7 @@ constructor(
   companion object {
     private val TAG = WitnessingRepository::class.java.simpleName
 
-    /** Constant used to decide the percentage of witness signatures required */
-    private const val WITNESSING_THRESHOLD = 2.0f / 3.0f
+    /** Delay during which the witness messages and their signatures are gathered in a batch */
+    private const val PERSIST_DELAY_MS = 200L
   }
 }
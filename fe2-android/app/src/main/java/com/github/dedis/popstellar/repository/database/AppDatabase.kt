@@ -1,8 +1,14 @@
 package com.github.dedis.popstellar.repository.database
 
+import android.database.SQLException
 import androidx.room.Database
 import androidx.room.RoomDatabase
 import androidx.room.TypeConverters
+import androidx.room.migration.Migration
+import androidx.sqlite.db.SupportSQLiteDatabase
+import com.github.dedis.popstellar.model.objects.Chirp
+import com.github.dedis.popstellar.repository.database.catchup.CatchupDao
+import com.github.dedis.popstellar.repository.database.catchup.CatchupEntity
 import com.github.dedis.popstellar.repository.database.digitalcash.HashDao
 import com.github.dedis.popstellar.repository.database.digitalcash.HashEntity
 import com.github.dedis.popstellar.repository.database.digitalcash.TransactionDao
@@ -19,6 +25,9 @@ import com.github.dedis.popstellar.repository.database.message.MessageDao
 import com.github.dedis.popstellar.repository.database.message.MessageEntity
 import com.github.dedis.popstellar.repository.database.socialmedia.ChirpDao
 import com.github.dedis.popstellar.repository.database.socialmedia.ChirpEntity
+import com.github.dedis.popstellar.repository.database.socialmedia.ChirpSearchDao
+import com.github.dedis.popstellar.repository.database.socialmedia.ChirpSearchEntity
+import com.github.dedis.popstellar.repository.database.socialmedia.ChirpSearchFtsEntity
 import com.github.dedis.popstellar.repository.database.socialmedia.ReactionDao
 import com.github.dedis.popstellar.repository.database.socialmedia.ReactionEntity
 import com.github.dedis.popstellar.repository.database.subscriptions.SubscriptionsDao
@@ -32,6 +41,7 @@ import com.github.dedis.popstellar.repository.database.witnessing.WitnessEntity
 import com.github.dedis.popstellar.repository.database.witnessing.WitnessingDao
 import com.github.dedis.popstellar.repository.database.witnessing.WitnessingEntity
 import javax.inject.Singleton
+import timber.log.Timber
 
 @Singleton
 @Database(
@@ -45,13 +55,16 @@ import javax.inject.Singleton
             RollCallEntity::class,
             MeetingEntity::class,
             ChirpEntity::class,
+            ChirpSearchEntity::class,
+            ChirpSearchFtsEntity::class,
             ReactionEntity::class,
             TransactionEntity::class,
             HashEntity::class,
             WitnessingEntity::class,
             WitnessEntity::class,
-            PendingEntity::class],
-    version = 4)
+            PendingEntity::class,
+            CatchupEntity::class],
+    version = 8)
 @TypeConverters(CustomTypeConverters::class)
 abstract class AppDatabase : RoomDatabase() {
   abstract fun messageDao(): MessageDao
@@ -76,9 +89,196 @@ abstract class AppDatabase : RoomDatabase() {
 
   abstract fun chirpDao(): ChirpDao
 
+  abstract fun chirpSearchDao(): ChirpSearchDao
+
   abstract fun reactionDao(): ReactionDao
 
   abstract fun transactionDao(): TransactionDao
 
   abstract fun hashDao(): HashDao
+
+  abstract fun catchupDao(): CatchupDao
+
+  companion object {
+    private val TAG = AppDatabase::class.java.simpleName
+
+    /**
+     * The columns storing objects converted by the [BinaryEntityCodec] are now blobs. As SQLite
+     * cannot change the type of a column, their tables are rebuilt. The rows are copied untouched:
+     * their json content is still readable and is replaced by the binary format when written again.
+     */
+    @JvmField
+    val MIGRATION_5_6: Migration =
+        object : Migration(5, 6) {
+          override fun migrate(database: SupportSQLiteDatabase) {
+            database.rebuildTable(
+                "messages",
+                "`message_id` TEXT NOT NULL, `message` BLOB, PRIMARY KEY(`message_id`)",
+                null)
+            database.rebuildTable(
+                "laos", "`lao_id` TEXT NOT NULL, `lao` BLOB NOT NULL, PRIMARY KEY(`lao_id`)", null)
+            database.rebuildTable(
+                "rollcalls",
+                "`rollcall_id` TEXT NOT NULL, `lao_id` TEXT NOT NULL, `rollcall` BLOB NOT NULL, " +
+                    "PRIMARY KEY(`rollcall_id`)",
+                "lao_id")
+            database.rebuildTable(
+                "chirps",
+                "`chirp_id` TEXT NOT NULL, `lao_id` TEXT NOT NULL, `chirp` BLOB NOT NULL, " +
+                    "PRIMARY KEY(`chirp_id`)",
+                "lao_id")
+            database.rebuildTable(
+                "transactions",
+                "`transaction_id` TEXT NOT NULL, `lao_id` TEXT NOT NULL, " +
+                    "`transaction` BLOB NOT NULL, PRIMARY KEY(`transaction_id`)",
+                "lao_id")
+            database.rebuildTable(
+                "pending_objects",
+                "`id` TEXT NOT NULL, `lao_id` TEXT NOT NULL, `rollcall` BLOB, `election` TEXT, " +
+                    "`meeting` TEXT, PRIMARY KEY(`id`)",
+                null)
+          }
+        }
+
+    /**
+     * The timestamp of the chirps is stored in its own column to page them in their order. The
+     * timestamp of the chirps stored before is read from their content, in SQL for the json rows
+     * and by decoding the others with the given codec.
+     *
+     * @param codec decoding the chirps whose content is not readable in SQL
+     */
+    @JvmStatic
+    fun migration6To7(codec: BinaryEntityCodec): Migration =
+        object : Migration(6, 7) {
+          override fun migrate(database: SupportSQLiteDatabase) {
+            database.execSQL(
+                "ALTER TABLE `chirps` ADD COLUMN `timestamp` INTEGER NOT NULL DEFAULT 0")
+            database.execSQL(
+                "CREATE INDEX IF NOT EXISTS `index_chirps_lao_id_timestamp` " +
+                    "ON `chirps` (`lao_id`, `timestamp`)")
+
+            try {
+              database.execSQL(
+                  "UPDATE `chirps` SET `timestamp` = " +
+                      "IFNULL(json_extract(`chirp`, '$.timestamp'), 0) WHERE " +
+                      "CASE WHEN typeof(`chirp`) = 'text' THEN json_valid(`chirp`) ELSE 0 END")
+            } catch (e: SQLException) {
+              // The json functions are not available in the SQLite of every Android version
+              Timber.tag(TAG).w(e, "Unable to read the timestamp of the json chirps in SQL")
+            }
+
+            // The remaining chirps are binary, or json if it could not be read in SQL. They are
+            // all read before being updated, as updating them would move the cursor over them
+            val timestamps = ArrayList<Pair<String, Long>>()
+            database.forEachChirp(codec, "`timestamp` = 0") { chirpId, _, chirp ->
+              timestamps.add(Pair(chirpId, chirp.timestamp))
+            }
+            timestamps.forEach { (chirpId, timestamp) ->
+              database.execSQL(
+                  "UPDATE `chirps` SET `timestamp` = ? WHERE `chirp_id` = ?",
+                  arrayOf<Any>(timestamp, chirpId))
+            }
+          }
+        }
+
+    /**
+     * The chirps are indexed for full-text search in a table holding their searchable content,
+     * kept in sync with its FTS4 index by triggers. The chirps stored before are decoded with the
+     * given codec to be indexed as well, as their hashtags are extracted the same way as for the
+     * chirps received from then on.
+     *
+     * @param codec decoding the stored chirps
+     */
+    @JvmStatic
+    fun migration7To8(codec: BinaryEntityCodec): Migration =
+        object : Migration(7, 8) {
+          override fun migrate(database: SupportSQLiteDatabase) {
+            database.execSQL(
+                "CREATE TABLE IF NOT EXISTS `chirp_search` (`chirp_id` TEXT NOT NULL, " +
+                    "`lao_id` TEXT NOT NULL, `timestamp` INTEGER NOT NULL, `text` TEXT NOT NULL, " +
+                    "`sender` TEXT NOT NULL, `hashtags` TEXT NOT NULL, PRIMARY KEY(`chirp_id`))")
+            database.execSQL(
+                "CREATE VIRTUAL TABLE IF NOT EXISTS `chirp_search_fts` USING FTS4(" +
+                    "`text` TEXT NOT NULL, `sender` TEXT NOT NULL, `hashtags` TEXT NOT NULL, " +
+                    "content=`chirp_search`)")
+
+            // Same triggers as the ones created by Room to sync the index with its content
+            val columns = "`text`, `sender`, `hashtags`"
+            val values = "NEW.`text`, NEW.`sender`, NEW.`hashtags`"
+            val delete = "DELETE FROM `chirp_search_fts` WHERE `docid`=OLD.`rowid`"
+            val insert =
+                "INSERT INTO `chirp_search_fts`(`docid`, $columns) VALUES (NEW.`rowid`, $values)"
+            database.createSyncTrigger("BEFORE UPDATE", delete)
+            database.createSyncTrigger("BEFORE DELETE", delete)
+            database.createSyncTrigger("AFTER UPDATE", insert)
+            database.createSyncTrigger("AFTER INSERT", insert)
+
+            // Index the stored chirps, the triggers adding them to the full-text index. Deleted
+            // chirps are not searchable, as for the chirps received from then on
+            database.forEachChirp(codec, "1") { chirpId, laoId, chirp ->
+              if (!chirp.isDeleted) {
+                val entity = ChirpSearchEntity(laoId, chirp)
+                database.execSQL(
+                    "INSERT OR IGNORE INTO `chirp_search` " +
+                        "(`chirp_id`, `lao_id`, `timestamp`, `text`, `sender`, `hashtags`) " +
+                        "VALUES (?, ?, ?, ?, ?, ?)",
+                    arrayOf<Any>(
+                        chirpId,
+                        laoId,
+                        entity.timestamp,
+                        entity.text,
+                        entity.sender,
+                        entity.hashtags))
+              }
+            }
+          }
+
+          private fun SupportSQLiteDatabase.createSyncTrigger(event: String, statement: String) {
+            val name = "room_fts_content_sync_chirp_search_fts_${event.replace(' ', '_')}"
+            execSQL(
+                "CREATE TRIGGER IF NOT EXISTS $name $event ON `chirp_search` BEGIN $statement; END")
+          }
+        }
+
+    /**
+     * Decode the stored chirps matching a condition, one at a time
+     *
+     * @param codec decoding the content of the chirps
+     * @param condition on the rows of the chirps, in SQL
+     * @param action called with the stored id, the lao id and the content of each chirp
+     */
+    private fun SupportSQLiteDatabase.forEachChirp(
+        codec: BinaryEntityCodec,
+        condition: String,
+        action: (chirpId: String, laoId: String, chirp: Chirp) -> Unit
+    ) {
+      query("SELECT `chirp_id`, `lao_id`, `chirp` FROM `chirps` WHERE $condition").use { cursor ->
+        while (cursor.moveToNext()) {
+          action(cursor.getString(0), cursor.getString(1), codec.decodeChirp(cursor.getBlob(2)))
+        }
+      }
+    }
+
+    /**
+     * Recreate a table with the given columns, keeping its rows
+     *
+     * @param table name of the table
+     * @param columns definition of the columns, in the same order as in the current table
+     * @param indexedColumn column to index, null if none
+     */
+    private fun SupportSQLiteDatabase.rebuildTable(
+        table: String,
+        columns: String,
+        indexedColumn: String?
+    ) {
+      execSQL("CREATE TABLE `${table}_new` ($columns)")
+      execSQL("INSERT INTO `${table}_new` SELECT * FROM `$table`")
+      execSQL("DROP TABLE `$table`")
+      execSQL("ALTER TABLE `${table}_new` RENAME TO `$table`")
+      if (indexedColumn != null) {
+        val index = "index_${table}_$indexedColumn"
+        execSQL("CREATE INDEX IF NOT EXISTS `$index` ON `$table` (`$indexedColumn`)")
+      }
+    }
+  }
 }
@@ -0,0 +1,377 @@
+package com.github.dedis.popstellar.repository.database
+
+import com.github.dedis.popstellar.model.network.method.message.MessageGeneral
+import com.github.dedis.popstellar.model.network.method.message.PublicKeySignaturePair
+import com.github.dedis.popstellar.model.network.method.message.data.Data
+import com.github.dedis.popstellar.model.objects.Channel
+import com.github.dedis.popstellar.model.objects.Chirp
+import com.github.dedis.popstellar.model.objects.InputObject
+import com.github.dedis.popstellar.model.objects.Lao
+import com.github.dedis.popstellar.model.objects.OutputObject
+import com.github.dedis.popstellar.model.objects.PendingUpdate
+import com.github.dedis.popstellar.model.objects.RollCall
+import com.github.dedis.popstellar.model.objects.digitalcash.ScriptInputObject
+import com.github.dedis.popstellar.model.objects.digitalcash.ScriptOutputObject
+import com.github.dedis.popstellar.model.objects.digitalcash.TransactionObject
+import com.github.dedis.popstellar.model.objects.event.EventState
+import com.github.dedis.popstellar.model.objects.security.Base64URLData
+import com.github.dedis.popstellar.model.objects.security.MessageID
+import com.github.dedis.popstellar.model.objects.security.PublicKey
+import com.github.dedis.popstellar.model.objects.security.Signature
+import com.google.gson.Gson
+import java.io.ByteArrayInputStream
+import java.io.ByteArrayOutputStream
+import java.io.DataInputStream
+import java.io.DataOutputStream
+import java.nio.charset.StandardCharsets
+
+/**
+ * Binary codec of the objects stored in the database.
+ *
+ * An encoded object starts with the [MAGIC] byte and the format [VERSION], followed by its fields.
+ * Keys, signatures and ids are stored as raw bytes instead of base64 strings, and every variable
+ * length field is prefixed by its length. The data of a message is stored as the raw json it was
+ * signed on, which avoids decoding base64 and parsing the envelope of the message on each read.
+ *
+ * The rows written before this format contain json, which never starts with [MAGIC]. They are
+ * still decoded with Gson, and are migrated lazily as they are written again in the binary format
+ * the next time they are persisted.
+ */
+@Suppress("TooManyFunctions")
+class BinaryEntityCodec(private val gson: Gson) {
+
+  /* ----  MessageGeneral  ---- */
+  fun encodeMessage(message: MessageGeneral): ByteArray {
+    return encode { writer: EntityWriter ->
+      writer.writeBytes(message.sender.data)
+      writer.writeBytes(message.dataEncoded.data)
+      writer.writeBytes(message.signature.data)
+      writer.writeBytes(message.messageId.data)
+      writer.writeList(message.witnessSignatures) { pair: PublicKeySignaturePair ->
+        writer.writeBytes(pair.witness.data)
+        writer.writeBytes(pair.signature.data)
+      }
+    }
+  }
+
+  fun decodeMessage(value: ByteArray): MessageGeneral {
+    return decode(value, MessageGeneral::class.java) { reader: EntityReader ->
+      val sender = PublicKey(reader.readBytes())
+      val dataEncoded = Base64URLData(reader.readBytes())
+      val signature = Signature(reader.readBytes())
+      val messageId = MessageID(reader.readBytes())
+      val witnessSignatures =
+          reader.readList { pair: EntityReader ->
+            PublicKeySignaturePair(PublicKey(pair.readBytes()), Signature(pair.readBytes()))
+          }
+      val data =
+          gson.fromJson(String(dataEncoded.data, StandardCharsets.UTF_8), Data::class.java)
+
+      MessageGeneral(sender, dataEncoded, data, signature, messageId, witnessSignatures)
+    }
+  }
+
+  /* ----  Lao  ---- */
+  fun encodeLao(lao: Lao): ByteArray {
+    return encode { writer: EntityWriter ->
+      // The channel is not stored, as it is derived from the id
+      writer.writeString(lao.id)
+      writer.writeNullable(lao.name) { writer.writeString(it) }
+      writer.writeLong(lao.lastModified)
+      writer.writeLong(lao.creation)
+      writer.writeNullable(lao.organizer) { writer.writeBytes(it.data) }
+      writer.writeNullable(lao.modificationId) { writer.writeBytes(it.data) }
+      writer.writeList(lao.pendingUpdates.toList()) { update: PendingUpdate ->
+        writer.writeLong(update.modificationTime)
+        writer.writeBytes(update.messageId.data)
+      }
+    }
+  }
+
+  fun decodeLao(value: ByteArray): Lao {
+    return decode(value, Lao::class.java) { reader: EntityReader ->
+      val id = reader.readString()
+      val name = reader.readNullable { it.readString() }
+      val lastModified = reader.readLong()
+      val creation = reader.readLong()
+      val organizer = reader.readNullable { PublicKey(it.readBytes()) }
+      val modificationId = reader.readNullable { MessageID(it.readBytes()) }
+      val pendingUpdates =
+          reader.readList { update: EntityReader ->
+            PendingUpdate(update.readLong(), MessageID(update.readBytes()))
+          }
+
+      Lao(id).also { lao: Lao ->
+        // The fields are set one by one, as the constructors require a name and an organizer
+        if (name != null) {
+          lao.setName(name)
+        }
+        lao.lastModified = lastModified
+        lao.creation = creation
+        lao.organizer = organizer
+        lao.modificationId = modificationId
+        lao.pendingUpdates = HashSet(pendingUpdates)
+      }
+    }
+  }
+
+  /* ----  RollCall  ---- */
+  fun encodeRollCall(rollCall: RollCall): ByteArray {
+    return encode { writer: EntityWriter ->
+      writer.writeString(rollCall.id)
+      writer.writeString(rollCall.persistentId)
+      writer.writeString(rollCall.name)
+      writer.writeLong(rollCall.creation)
+      writer.writeLong(rollCall.startTimestamp)
+      writer.writeLong(rollCall.end)
+      writer.writeString(rollCall.state.name)
+      writer.writeList(rollCall.attendees.toList()) { attendee: PublicKey ->
+        writer.writeBytes(attendee.data)
+      }
+      writer.writeString(rollCall.location)
+      writer.writeString(rollCall.description)
+    }
+  }
+
+  fun decodeRollCall(value: ByteArray): RollCall {
+    return decode(value, RollCall::class.java) { reader: EntityReader ->
+      RollCall(
+          id = reader.readString(),
+          persistentId = reader.readString(),
+          name = reader.readString(),
+          creation = reader.readLong(),
+          startTimestamp = reader.readLong(),
+          end = reader.readLong(),
+          state = EventState.valueOf(reader.readString()),
+          attendees = reader.readList { PublicKey(it.readBytes()) }.toMutableSet(),
+          location = reader.readString(),
+          description = reader.readString())
+    }
+  }
+
+  /* ----  Chirp  ---- */
+  fun encodeChirp(chirp: Chirp): ByteArray {
+    return encode { writer: EntityWriter ->
+      writer.writeBytes(chirp.id.data)
+      writer.writeBytes(chirp.sender.data)
+      writer.writeString(chirp.text)
+      writer.writeLong(chirp.timestamp)
+      writer.writeBoolean(chirp.isDeleted)
+      writer.writeBytes(chirp.parentId.data)
+    }
+  }
+
+  fun decodeChirp(value: ByteArray): Chirp {
+    return decode(value, Chirp::class.java) { reader: EntityReader ->
+      Chirp(
+          MessageID(reader.readBytes()),
+          PublicKey(reader.readBytes()),
+          reader.readString(),
+          reader.readLong(),
+          reader.readBoolean(),
+          MessageID(reader.readBytes()))
+    }
+  }
+
+  /* ----  TransactionObject  ---- */
+  fun encodeTransaction(transaction: TransactionObject): ByteArray {
+    return encode { writer: EntityWriter ->
+      writer.writeString(transaction.channel.asString)
+      writer.writeInt(transaction.version)
+      writer.writeList(transaction.inputs) { input: InputObject ->
+        writer.writeString(input.txOutHash)
+        writer.writeNullable(input.txOutIndex) { writer.writeInt(it) }
+        writer.writeString(input.script.type)
+        writer.writeBytes(input.script.pubKey.data)
+        writer.writeBytes(input.script.sig.data)
+      }
+      writer.writeList(transaction.outputs) { output: OutputObject ->
+        writer.writeLong(output.value)
+        writer.writeString(output.script.type)
+        writer.writeString(output.script.pubKeyHash)
+      }
+      writer.writeLong(transaction.lockTime)
+      writer.writeString(transaction.transactionId)
+    }
+  }
+
+  fun decodeTransaction(value: ByteArray): TransactionObject {
+    return decode(value, TransactionObject::class.java) { reader: EntityReader ->
+      val channel = Channel.fromString(reader.readString())
+      val version = reader.readInt()
+      val inputs =
+          reader.readList { input: EntityReader ->
+            val txOutHash = input.readString()
+            val txOutIndex = input.readNullable { it.readInt() }
+            val script =
+                ScriptInputObject(
+                    input.readString(), PublicKey(input.readBytes()), Signature(input.readBytes()))
+            InputObject(txOutHash, txOutIndex, script)
+          }
+      val outputs =
+          reader.readList { output: EntityReader ->
+            val value = output.readLong()
+            OutputObject(value, ScriptOutputObject(output.readString(), output.readString()))
+          }
+
+      TransactionObject(channel, version, inputs, outputs, reader.readLong(), reader.readString())
+    }
+  }
+
+  private fun encode(encoder: (EntityWriter) -> Unit): ByteArray {
+    val writer = EntityWriter()
+    writer.writeByte(MAGIC)
+    writer.writeByte(VERSION)
+    encoder(writer)
+    return writer.toByteArray()
+  }
+
+  private fun <T> decode(value: ByteArray, type: Class<T>, decoder: (EntityReader) -> T): T {
+    if (!isBinary(value)) {
+      return gson.fromJson(legacyJson(value), type)
+    }
+
+    val reader = EntityReader(value)
+    reader.readByte()
+    val version = reader.readByte()
+    check(version <= VERSION) { "Unsupported format version $version for ${type.simpleName}" }
+    return decoder(reader)
+  }
+
+  /** Writer of the binary fields, all the lengths are encoded as unsigned varints */
+  private class EntityWriter {
+    private val bytes = ByteArrayOutputStream()
+    private val output = DataOutputStream(bytes)
+
+    fun writeByte(value: Int) {
+      output.writeByte(value)
+    }
+
+    fun writeBoolean(value: Boolean) {
+      output.writeBoolean(value)
+    }
+
+    fun writeInt(value: Int) {
+      output.writeInt(value)
+    }
+
+    fun writeLong(value: Long) {
+      output.writeLong(value)
+    }
+
+    fun writeLength(length: Int) {
+      var remaining = length
+      while (remaining and 0x7F.inv() != 0) {
+        output.writeByte((remaining and 0x7F) or 0x80)
+        remaining = remaining ushr 7
+      }
+      output.writeByte(remaining)
+    }
+
+    fun writeBytes(value: ByteArray) {
+      writeLength(value.size)
+      output.write(value)
+    }
+
+    fun writeString(value: String) {
+      writeBytes(value.toByteArray(StandardCharsets.UTF_8))
+    }
+
+    fun <T> writeNullable(value: T?, writeValue: (T) -> Unit) {
+      writeBoolean(value != null)
+      if (value != null) {
+        writeValue(value)
+      }
+    }
+
+    fun <T> writeList(values: List<T>, writeValue: (T) -> Unit) {
+      writeLength(values.size)
+      values.forEach(writeValue)
+    }
+
+    fun toByteArray(): ByteArray {
+      output.flush()
+      return bytes.toByteArray()
+    }
+  }
+
+  /** Reader of the fields written by an [EntityWriter] */
+  private class EntityReader(value: ByteArray) {
+    private val input = DataInputStream(ByteArrayInputStream(value))
+
+    fun readByte(): Int {
+      return input.readUnsignedByte()
+    }
+
+    fun readBoolean(): Boolean {
+      return input.readBoolean()
+    }
+
+    fun readInt(): Int {
+      return input.readInt()
+    }
+
+    fun readLong(): Long {
+      return input.readLong()
+    }
+
+    fun readLength(): Int {
+      var length = 0
+      var shift = 0
+      while (true) {
+        val byte = input.readUnsignedByte()
+        length = length or ((byte and 0x7F) shl shift)
+        if (byte and 0x80 == 0) {
+          return length
+        }
+        shift += 7
+      }
+    }
+
+    fun readBytes(): ByteArray {
+      val value = ByteArray(readLength())
+      input.readFully(value)
+      return value
+    }
+
+    fun readString(): String {
+      return String(readBytes(), StandardCharsets.UTF_8)
+    }
+
+    fun <T> readNullable(readValue: (EntityReader) -> T): T? {
+      return if (readBoolean()) readValue(this) else null
+    }
+
+    fun <T> readList(readValue: (EntityReader) -> T): List<T> {
+      val size = readLength()
+      val values = ArrayList<T>(size)
+      repeat(size) { values.add(readValue(this)) }
+      return values
+    }
+  }
+
+  companion object {
+    /** First byte of the binary format, which cannot start a json document */
+    const val MAGIC = 0xB1
+
+    /** Current version of the binary format */
+    const val VERSION = 1
+
+    /** @return true if the given value is in the binary format, false if it is legacy json */
+    fun isBinary(value: ByteArray): Boolean {
+      return value.isNotEmpty() && (value[0].toInt() and 0xFF) == MAGIC
+    }
+
+    /**
+     * SQLite may return the text of a legacy row with a trailing null character when read as a
+     * blob, which is not valid json.
+     */
+    private fun legacyJson(value: ByteArray): String {
+      var end = value.size
+      while (end > 0 && value[end - 1] == 0.toByte()) {
+        end--
+      }
+      return String(value, 0, end, StandardCharsets.UTF_8)
+    }
+  }
+}
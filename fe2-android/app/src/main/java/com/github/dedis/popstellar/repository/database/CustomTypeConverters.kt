@@ -17,24 +17,73 @@ import com.github.dedis.popstellar.model.objects.security.PublicKey
 import com.google.gson.Gson
 import com.google.gson.reflect.TypeToken
 
-/** Class used by the database to convert all the fields in Entities into Strings and vice versa */
+/**
+ * Class used by the database to convert all the fields in Entities into Strings and vice versa.
+ *
+ * The most stored objects are converted into a compact binary format instead, see
+ * [BinaryEntityCodec].
+ */
 @ProvidedTypeConverter
 @Suppress("TooManyFunctions")
 class CustomTypeConverters(private val gson: Gson) {
-  /* ----  From String to Object  ---- */
+  private val codec = BinaryEntityCodec(gson)
+
+  /* ----  From bytes to Object  ---- */
   @TypeConverter
-  fun messageFromString(value: String): MessageGeneral? {
-    return gson.fromJson(value, MessageGeneral::class.java)
+  fun messageFromBytes(value: ByteArray): MessageGeneral? {
+    return codec.decodeMessage(value)
   }
 
   @TypeConverter
-  fun messageIDFromString(value: String): MessageID {
-    return gson.fromJson(value, MessageID::class.java)
+  fun laoFromBytes(value: ByteArray): Lao {
+    return codec.decodeLao(value)
+  }
+
+  @TypeConverter
+  fun rollcallFromBytes(value: ByteArray): RollCall? {
+    return codec.decodeRollCall(value)
+  }
+
+  @TypeConverter
+  fun chirpFromBytes(value: ByteArray): Chirp {
+    return codec.decodeChirp(value)
+  }
+
+  @TypeConverter
+  fun transactionObjectFromBytes(value: ByteArray): TransactionObject {
+    return codec.decodeTransaction(value)
+  }
+
+  /* ----  From Object to bytes  ---- */
+  @TypeConverter
+  fun messageToBytes(messageGeneral: MessageGeneral?): ByteArray? {
+    return messageGeneral?.let { codec.encodeMessage(it) }
+  }
+
+  @TypeConverter
+  fun laoToBytes(lao: Lao?): ByteArray? {
+    return lao?.let { codec.encodeLao(it) }
+  }
+
+  @TypeConverter
+  fun rollcallToBytes(rollCall: RollCall?): ByteArray? {
+    return rollCall?.let { codec.encodeRollCall(it) }
   }
 
   @TypeConverter
-  fun laoFromString(value: String): Lao {
-    return gson.fromJson(value, Lao::class.java)
+  fun chirpToBytes(chirp: Chirp?): ByteArray? {
+    return chirp?.let { codec.encodeChirp(it) }
+  }
+
+  @TypeConverter
+  fun transactionObjectToBytes(transactionObject: TransactionObject?): ByteArray? {
+    return transactionObject?.let { codec.encodeTransaction(it) }
+  }
+
+  /* ----  From String to Object  ---- */
+  @TypeConverter
+  fun messageIDFromString(value: String): MessageID {
+    return gson.fromJson(value, MessageID::class.java)
   }
 
   @TypeConverter
@@ -52,21 +101,11 @@ class CustomTypeConverters(private val gson: Gson) {
     return gson.fromJson(value, Election::class.java)
   }
 
-  @TypeConverter
-  fun rollcallFromString(value: String): RollCall? {
-    return gson.fromJson(value, RollCall::class.java)
-  }
-
   @TypeConverter
   fun meetingFromString(value: String): Meeting? {
     return gson.fromJson(value, Meeting::class.java)
   }
 
-  @TypeConverter
-  fun chirpFromString(value: String): Chirp {
-    return gson.fromJson(value, Chirp::class.java)
-  }
-
   @TypeConverter
   fun reactionFromString(value: String): Reaction {
     return gson.fromJson(value, Reaction::class.java)
@@ -77,32 +116,17 @@ class CustomTypeConverters(private val gson: Gson) {
     return gson.fromJson(value, PublicKey::class.java)
   }
 
-  @TypeConverter
-  fun transactionObjectFromString(value: String): TransactionObject {
-    return gson.fromJson(value, TransactionObject::class.java)
-  }
-
   @TypeConverter
   fun witnessMessageFromString(value: String): WitnessMessage {
     return gson.fromJson(value, WitnessMessage::class.java)
   }
 
   /* ----  From Object to String  ---- */
-  @TypeConverter
-  fun messageToString(messageGeneral: MessageGeneral?): String {
-    return gson.toJson(messageGeneral, MessageGeneral::class.java)
-  }
-
   @TypeConverter
   fun messageIDToString(messageID: MessageID?): String {
     return gson.toJson(messageID, MessageID::class.java)
   }
 
-  @TypeConverter
-  fun laoToString(lao: Lao?): String {
-    return gson.toJson(lao, Lao::class.java)
-  }
-
   @TypeConverter
   fun listOfStringsToString(seed: List<String>?): String {
     return gson.toJson(seed, object : TypeToken<List<String>?>() {}.type)
@@ -118,21 +142,11 @@ class CustomTypeConverters(private val gson: Gson) {
     return gson.toJson(election, Election::class.java)
   }
 
-  @TypeConverter
-  fun rollcallToString(rollCall: RollCall?): String {
-    return gson.toJson(rollCall, RollCall::class.java)
-  }
-
   @TypeConverter
   fun meetingToString(meeting: Meeting?): String {
     return gson.toJson(meeting, Meeting::class.java)
   }
 
-  @TypeConverter
-  fun chirpToString(chirp: Chirp?): String {
-    return gson.toJson(chirp, Chirp::class.java)
-  }
-
   @TypeConverter
   fun reactionToString(reaction: Reaction?): String {
     return gson.toJson(reaction, Reaction::class.java)
@@ -143,11 +157,6 @@ class CustomTypeConverters(private val gson: Gson) {
     return gson.toJson(publicKey, PublicKey::class.java)
   }
 
-  @TypeConverter
-  fun transactionObjectToString(transactionObject: TransactionObject?): String {
-    return gson.toJson(transactionObject, TransactionObject::class.java)
-  }
-
   @TypeConverter
   fun witnessMessageToString(witnessMessage: WitnessMessage?): String {
     return gson.toJson(witnessMessage, WitnessMessage::class.java)
@@ -0,0 +1,172 @@
+package com.github.dedis.popstellar.repository.database
+
+import io.reactivex.Completable
+import io.reactivex.Scheduler
+import io.reactivex.disposables.Disposable
+import io.reactivex.schedulers.Schedulers
+import io.reactivex.subjects.CompletableSubject
+import io.reactivex.subjects.PublishSubject
+import java.util.Collections
+import java.util.WeakHashMap
+import java.util.concurrent.TimeUnit
+import java.util.concurrent.atomic.AtomicInteger
+import java.util.concurrent.atomic.AtomicLong
+import timber.log.Timber
+
+/**
+ * Write-behind queue coalescing the insertions of a DAO into batches.
+ *
+ * Instead of running one transaction per inserted entity, the entities are buffered and written at
+ * once with a single `insertAll`, either when [batchSize] entities are pending or [flushDelayMs]
+ * milliseconds after the first one was enqueued. The batches are written one after the other, such
+ * that the entities always reach the disk in the order they were enqueued.
+ *
+ * The writes are not bound to the disposables of the repositories, so they are not cancelled when
+ * the application is stopped. Instead, the repositories [flush] the queue on stop.
+ *
+ * @param name of the queue, used for logging
+ * @param insertAll function inserting a list of entities in a single transaction
+ * @param batchSize number of pending entities triggering a flush
+ * @param flushDelayMs maximum time an entity stays in the queue before being flushed
+ * @param scheduler on which the batches are written
+ * @param onWritten called with each batch once it left the queue, whether its write succeeded or
+ *   not
+ */
+class WriteBehindQueue<T>(
+    private val name: String,
+    private val insertAll: (List<T>) -> Completable,
+    private val batchSize: Int = DEFAULT_BATCH_SIZE,
+    private val flushDelayMs: Long = DEFAULT_FLUSH_DELAY_MS,
+    private val scheduler: Scheduler = Schedulers.io(),
+    private val onWritten: (List<T>) -> Unit = {}
+) : Disposable {
+  private val batches = PublishSubject.create<Batch<T>>().toSerialized()
+  private val writer: Disposable
+  private val backlogCount = AtomicInteger()
+  private val writtenCount = AtomicLong()
+
+  private var pending: MutableList<T> = ArrayList()
+  private var scheduledFlush: Disposable? = null
+
+  /** Number of entities enqueued but not yet written on disk */
+  val backlog: Int
+    get() = backlogCount.get()
+
+  /** Number of entities written on disk since the creation of the queue */
+  val written: Long
+    get() = writtenCount.get()
+
+  init {
+    writer = batches.concatMapCompletable { batch: Batch<T> -> write(batch) }.subscribe()
+    queues.add(this)
+  }
+
+  /**
+   * Enqueue an entity to be inserted
+   *
+   * @param entity to insert
+   */
+  fun enqueue(entity: T) {
+    val isFull: Boolean
+    synchronized(this) {
+      pending.add(entity)
+      backlogCount.incrementAndGet()
+      isFull = pending.size >= batchSize
+      if (!isFull && scheduledFlush == null) {
+        scheduledFlush =
+            Completable.timer(flushDelayMs, TimeUnit.MILLISECONDS, scheduler).subscribe { flush() }
+      }
+    }
+
+    if (isFull) {
+      flush()
+    }
+  }
+
+  /**
+   * Write all the pending entities now
+   *
+   * @return a [Completable] that completes once all the entities enqueued before the call were
+   *   written on disk (or failed to be)
+   */
+  fun flush(): Completable {
+    val batch: Batch<T>
+    synchronized(this) {
+      scheduledFlush?.dispose()
+      scheduledFlush = null
+      batch = Batch(pending)
+      pending = ArrayList()
+      // Emitted under the lock to keep the batches in order. Even an empty batch is emitted, so
+      // that it completes only after the previous ones
+      batches.onNext(batch)
+    }
+    return batch.done
+  }
+
+  private fun write(batch: Batch<T>): Completable {
+    if (batch.entities.isEmpty()) {
+      batch.done.onComplete()
+      return Completable.complete()
+    }
+
+    val size = batch.entities.size
+    return Completable.defer { insertAll(batch.entities) }
+        .subscribeOn(scheduler)
+        .doOnComplete {
+          writtenCount.addAndGet(size.toLong())
+          Timber.tag(TAG).d("%s : persisted a batch of %d entities", name, size)
+        }
+        .doOnError { err: Throwable ->
+          Timber.tag(TAG).e(err, "%s : error persisting a batch of %d entities", name, size)
+        }
+        .onErrorComplete()
+        .doFinally {
+          backlogCount.addAndGet(-size)
+          onWritten(batch.entities)
+          batch.done.onComplete()
+        }
+  }
+
+  override fun dispose() {
+    queues.remove(this)
+    synchronized(this) {
+      scheduledFlush?.dispose()
+      scheduledFlush = null
+    }
+    writer.dispose()
+  }
+
+  override fun isDisposed(): Boolean {
+    return writer.isDisposed
+  }
+
+  private class Batch<T>(val entities: List<T>) {
+    val done: CompletableSubject = CompletableSubject.create()
+  }
+
+  companion object {
+    private val TAG = WriteBehindQueue::class.java.simpleName
+
+    // Queues in use, weakly referenced so that they do not outlive their repository
+    private val queues: MutableSet<WriteBehindQueue<*>> =
+        Collections.synchronizedSet(Collections.newSetFromMap(WeakHashMap()))
+
+    /** Default number of pending entities triggering a flush */
+    const val DEFAULT_BATCH_SIZE = 64
+
+    /** Default maximum time in milliseconds an entity is kept in the queue */
+    const val DEFAULT_FLUSH_DELAY_MS = 100L
+
+    /**
+     * Write the pending entities of all the queues now
+     *
+     * @return a [Completable] that completes once all the entities enqueued before the call, in any
+     *   queue, were written on disk (or failed to be)
+     */
+    @JvmStatic
+    fun flushAll(): Completable {
+      val snapshot = synchronized(queues) { ArrayList(queues) }
+      return Completable.merge(snapshot.map { queue: WriteBehindQueue<*> -> queue.flush() })
+    }
+  }
+}
@@ -0,0 +1,25 @@
+package com.github.dedis.popstellar.repository.database.catchup
+
+import androidx.room.Dao
+import androidx.room.Insert
+import androidx.room.OnConflictStrategy
+import androidx.room.Query
+import io.reactivex.Completable
+import io.reactivex.Single
+
+/** Interface to query the table containing the catchup high-water mark of each channel */
+@Dao
+interface CatchupDao {
+  @Insert(onConflict = OnConflictStrategy.REPLACE)
+  fun insert(catchupEntity: CatchupEntity): Completable
+
+  /** It selects the high-water marks of all the channels */
+  @Query("SELECT * FROM catchups") fun getAllCatchups(): Single<List<CatchupEntity>?>
+
+  /**
+   * It deletes the high-water mark of a channel, such that its full history is processed again.
+   *
+   * @param channel string representation of the channel
+   */
+  @Query("DELETE FROM catchups WHERE channel = :channel") fun delete(channel: String): Completable
+}
@@ -0,0 +1,19 @@
+package com.github.dedis.popstellar.repository.database.catchup
+
+import androidx.room.ColumnInfo
+import androidx.room.Entity
+import androidx.room.PrimaryKey
+import com.github.dedis.popstellar.model.Immutable
+import com.github.dedis.popstellar.model.objects.security.MessageID
+
+/**
+ * High-water mark of the catchups performed on a channel: the last message of the channel history
+ * that was processed, and when it was processed.
+ */
+@Entity(tableName = "catchups")
+@Immutable
+class CatchupEntity(
+    @field:PrimaryKey @field:ColumnInfo(name = "channel") val channel: String,
+    @field:ColumnInfo(name = "last_message_id") val lastMessageId: MessageID,
+    @field:ColumnInfo(name = "timestamp") val timestamp: Long
+)
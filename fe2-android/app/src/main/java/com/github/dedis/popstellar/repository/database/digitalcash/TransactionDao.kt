@@ -13,6 +13,9 @@ interface TransactionDao {
   @Insert(onConflict = OnConflictStrategy.REPLACE)
   fun insert(transactionEntity: TransactionEntity): Completable
 
+  @Insert(onConflict = OnConflictStrategy.REPLACE)
+  fun insertAll(transactionEntities: List<TransactionEntity>): Completable
+
   @Query("SELECT `transaction` FROM transactions WHERE lao_id = :laoId")
   fun getTransactionsByLaoId(laoId: String): Single<List<TransactionObject>?>
 
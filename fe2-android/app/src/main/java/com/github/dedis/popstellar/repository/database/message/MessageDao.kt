@@ -12,9 +12,14 @@ import io.reactivex.Single
 interface MessageDao {
   @Insert(onConflict = OnConflictStrategy.REPLACE) fun insert(message: MessageEntity): Completable
 
+  @Insert(onConflict = OnConflictStrategy.REPLACE)
+  fun insertAll(messages: List<MessageEntity>): Completable
+
   @Query("SELECT * FROM messages WHERE message_id = :messageId")
   fun getMessageById(messageId: MessageID): MessageEntity?
 
+  @Query("SELECT message_id FROM messages") fun getAllMessageIds(): Single<List<MessageID>?>
+
   @Query("SELECT * FROM messages LIMIT :n")
   fun takeFirstNMessages(n: Int): Single<List<MessageEntity>?>
 }
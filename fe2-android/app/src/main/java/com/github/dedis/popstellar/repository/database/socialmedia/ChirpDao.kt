@@ -5,13 +5,70 @@ import androidx.room.Insert
 import androidx.room.OnConflictStrategy
 import androidx.room.Query
 import com.github.dedis.popstellar.model.objects.Chirp
+import com.github.dedis.popstellar.model.objects.security.MessageID
 import io.reactivex.Completable
+import io.reactivex.Maybe
 import io.reactivex.Single
 
 @Dao
 interface ChirpDao {
   @Insert(onConflict = OnConflictStrategy.REPLACE) fun insert(chirpEntity: ChirpEntity): Completable
 
+  @Insert(onConflict = OnConflictStrategy.REPLACE)
+  fun insertAll(chirpEntities: List<ChirpEntity>): Completable
+
   @Query("SELECT chirp FROM chirps WHERE lao_id = :laoId")
   fun getChirpsByLaoId(laoId: String): Single<List<Chirp>?>
+
+  /**
+   * Get the newest chirps of a lao, ordered from the newest to the oldest
+   *
+   * @param laoId identifier of the lao
+   * @param limit maximum number of chirps to return
+   * @return the newest chirps
+   */
+  @Query(
+      "SELECT * FROM chirps WHERE lao_id = :laoId ORDER BY timestamp DESC, chirp_id LIMIT :limit")
+  fun getLatestChirps(laoId: String, limit: Int): Single<List<ChirpEntity>>
+
+  /**
+   * Get the chirps of a lao that come after a given chirp, ordered from the newest to the oldest.
+   * The page starts right after the given position, which is read from the index of the table
+   * without skipping the previous chirps.
+   *
+   * @param laoId identifier of the lao
+   * @param timestamp stored timestamp of the last chirp of the previous page
+   * @param chirpId id of the last chirp of the previous page
+   * @param limit maximum number of chirps to return
+   * @return the chirps of the page
+   */
+  @Query(
+      "SELECT * FROM chirps WHERE lao_id = :laoId " +
+          "AND (timestamp < :timestamp OR (timestamp = :timestamp AND chirp_id > :chirpId)) " +
+          "ORDER BY timestamp DESC, chirp_id LIMIT :limit")
+  fun getChirpsAfter(
+      laoId: String,
+      timestamp: Long,
+      chirpId: MessageID,
+      limit: Int
+  ): Single<List<ChirpEntity>>
+
+  /**
+   * Get a single chirp of a lao, whether or not its page was already loaded
+   *
+   * @param laoId identifier of the lao
+   * @param chirpId id of the chirp
+   * @return the stored chirp, empty if it is unknown
+   */
+  @Query("SELECT * FROM chirps WHERE lao_id = :laoId AND chirp_id = :chirpId")
+  fun getChirpById(laoId: String, chirpId: MessageID): Maybe<ChirpEntity>
+
+  /**
+   * Get the ids of all the chirps of a lao, without reading their content
+   *
+   * @param laoId identifier of the lao
+   * @return the ids of the stored chirps
+   */
+  @Query("SELECT chirp_id FROM chirps WHERE lao_id = :laoId")
+  fun getChirpIds(laoId: String): Single<List<MessageID>>
 }
@@ -3,18 +3,21 @@ package com.github.dedis.popstellar.repository.database.socialmedia
 import androidx.room.ColumnInfo
 import androidx.room.Entity
 import androidx.room.Ignore
+import androidx.room.Index
 import androidx.room.PrimaryKey
 import com.github.dedis.popstellar.model.Immutable
 import com.github.dedis.popstellar.model.objects.Chirp
 import com.github.dedis.popstellar.model.objects.security.MessageID
 
-@Entity(tableName = "chirps")
+@Entity(tableName = "chirps", indices = [Index(value = ["lao_id", "timestamp"])])
 @Immutable
 class ChirpEntity(
     @field:ColumnInfo(name = "chirp_id") @field:PrimaryKey val chirpId: MessageID,
     @field:ColumnInfo(name = "lao_id", index = true) val laoId: String,
-    @field:ColumnInfo(name = "chirp") val chirp: Chirp
+    @field:ColumnInfo(name = "chirp") val chirp: Chirp,
+    /** Timestamp of the chirp, stored apart from it to page the chirps in their order */
+    @field:ColumnInfo(name = "timestamp", defaultValue = "0") val timestamp: Long
 ) {
 
-  @Ignore constructor(laoId: String, chirp: Chirp) : this(chirp.id, laoId, chirp)
+  @Ignore constructor(laoId: String, chirp: Chirp) : this(chirp.id, laoId, chirp, chirp.timestamp)
 }
@@ -0,0 +1,66 @@
+package com.github.dedis.popstellar.repository.database.socialmedia
+
+import androidx.room.Dao
+import androidx.room.Insert
+import androidx.room.OnConflictStrategy
+import androidx.room.Query
+import com.github.dedis.popstellar.model.objects.security.MessageID
+import io.reactivex.Completable
+import io.reactivex.Single
+
+@Dao
+interface ChirpSearchDao {
+  /**
+   * The content of a chirp never changes, so an already indexed chirp is ignored. Replacing it
+   * would not remove its previous entry from the index.
+   */
+  @Insert(onConflict = OnConflictStrategy.IGNORE)
+  fun insertAll(entities: List<ChirpSearchEntity>): Completable
+
+  @Query("DELETE FROM chirp_search WHERE chirp_id = :chirpId")
+  fun deleteByChirpId(chirpId: MessageID): Completable
+
+  /**
+   * Search the chirps of a lao, from the newest to the oldest
+   *
+   * @param laoId identifier of the lao
+   * @param match full-text query, see [ChirpSearchEntity] to build it
+   * @param limit maximum number of chirps to return
+   * @return the newest matching chirps
+   */
+  @Query(
+      "SELECT chirps.* FROM chirp_search " +
+          "JOIN chirp_search_fts ON chirp_search.rowid = chirp_search_fts.rowid " +
+          "JOIN chirps ON chirps.chirp_id = chirp_search.chirp_id " +
+          "WHERE chirp_search_fts MATCH :match AND chirp_search.lao_id = :laoId " +
+          "ORDER BY chirp_search.timestamp DESC, chirp_search.chirp_id LIMIT :limit")
+  fun search(laoId: String, match: String, limit: Int): Single<List<ChirpEntity>>
+
+  /**
+   * Search the chirps of a lao that come after a given chirp, from the newest to the oldest. As
+   * for [ChirpDao.getChirpsAfter], the page starts right after the given position instead of
+   * skipping the previous results.
+   *
+   * @param laoId identifier of the lao
+   * @param match full-text query, see [ChirpSearchEntity] to build it
+   * @param timestamp timestamp of the last chirp of the previous page
+   * @param chirpId id of the last chirp of the previous page
+   * @param limit maximum number of chirps to return
+   * @return the matching chirps of the page
+   */
+  @Query(
+      "SELECT chirps.* FROM chirp_search " +
+          "JOIN chirp_search_fts ON chirp_search.rowid = chirp_search_fts.rowid " +
+          "JOIN chirps ON chirps.chirp_id = chirp_search.chirp_id " +
+          "WHERE chirp_search_fts MATCH :match AND chirp_search.lao_id = :laoId " +
+          "AND (chirp_search.timestamp < :timestamp " +
+          "OR (chirp_search.timestamp = :timestamp AND chirp_search.chirp_id > :chirpId)) " +
+          "ORDER BY chirp_search.timestamp DESC, chirp_search.chirp_id LIMIT :limit")
+  fun searchAfter(
+      laoId: String,
+      match: String,
+      timestamp: Long,
+      chirpId: MessageID,
+      limit: Int
+  ): Single<List<ChirpEntity>>
+}
@@ -0,0 +1,89 @@
+package com.github.dedis.popstellar.repository.database.socialmedia
+
+import androidx.room.ColumnInfo
+import androidx.room.Entity
+import androidx.room.Ignore
+import androidx.room.PrimaryKey
+import com.github.dedis.popstellar.model.Immutable
+import com.github.dedis.popstellar.model.objects.Chirp
+import com.github.dedis.popstellar.model.objects.security.MessageID
+import com.github.dedis.popstellar.model.objects.security.PublicKey
+
+/**
+ * Searchable content of a chirp, indexed by the full-text search table [ChirpSearchFtsEntity].
+ *
+ * Each insertion or deletion of a row updates the index through the triggers created by Room.
+ */
+@Entity(tableName = "chirp_search")
+@Immutable
+class ChirpSearchEntity(
+    @field:ColumnInfo(name = "chirp_id") @field:PrimaryKey val chirpId: MessageID,
+    @field:ColumnInfo(name = "lao_id") val laoId: String,
+    @field:ColumnInfo(name = "timestamp") val timestamp: Long,
+    @field:ColumnInfo(name = "text") val text: String,
+    @field:ColumnInfo(name = "sender") val sender: String,
+    /** Hashtags of the text, in lower case and without the leading #, separated by spaces */
+    @field:ColumnInfo(name = "hashtags") val hashtags: String
+) {
+
+  @Ignore
+  constructor(
+      laoId: String,
+      chirp: Chirp
+  ) : this(
+      chirp.id,
+      laoId,
+      chirp.timestamp,
+      chirp.text,
+      chirp.sender.encoded,
+      extractHashtags(chirp.text))
+
+  companion object {
+    private val HASHTAG = Regex("#([\\p{L}\\p{N}_]+)")
+    private val SEPARATOR = Regex("[^\\p{L}\\p{N}]+")
+
+    /** @return the hashtags of a text, in lower case and separated by spaces */
+    @JvmStatic
+    fun extractHashtags(text: String): String {
+      return HASHTAG.findAll(text).joinToString(" ") { it.groupValues[1].lowercase() }
+    }
+
+    /**
+     * Build the full-text query matching the chirps containing words starting with the words of
+     * the given text
+     *
+     * @param text searched
+     * @return the query, null if the text contains no word
+     */
+    @JvmStatic
+    fun textPrefixQuery(text: String): String? {
+      val words = tokenize(text)
+      return if (words.isEmpty()) null else words.joinToString(" ") { "text:$it*" }
+    }
+
+    /**
+     * @param author public key of the sender of the chirps
+     * @return the full-text query matching the chirps of the author
+     */
+    @JvmStatic
+    fun authorQuery(author: PublicKey): String {
+      // The key is split by the tokenizer, so its parts are searched as a phrase
+      return "sender:\"${tokenize(author.encoded).joinToString(" ")}\""
+    }
+
+    /**
+     * @param hashtag searched, with or without its leading #
+     * @return the full-text query matching the chirps with the hashtag, null if it is empty
+     */
+    @JvmStatic
+    fun hashtagQuery(hashtag: String): String? {
+      val words = tokenize(hashtag)
+      return if (words.isEmpty()) null else "hashtags:\"${words.joinToString(" ")}\""
+    }
+
+    /** Split a text into the words that are indexed, discarding the query syntax */
+    private fun tokenize(text: String): List<String> {
+      return text.split(SEPARATOR).filter { it.isNotEmpty() }
+    }
+  }
+}
@@ -0,0 +1,17 @@
+package com.github.dedis.popstellar.repository.database.socialmedia
+
+import androidx.room.ColumnInfo
+import androidx.room.Entity
+import androidx.room.Fts4
+
+/**
+ * Full-text index of the searchable content of the chirps. It stores no content itself, which is
+ * read from [ChirpSearchEntity] through the rowid.
+ */
+@Fts4(contentEntity = ChirpSearchEntity::class)
+@Entity(tableName = "chirp_search_fts")
+class ChirpSearchFtsEntity(
+    @field:ColumnInfo(name = "text") val text: String,
+    @field:ColumnInfo(name = "sender") val sender: String,
+    @field:ColumnInfo(name = "hashtags") val hashtags: String
+)
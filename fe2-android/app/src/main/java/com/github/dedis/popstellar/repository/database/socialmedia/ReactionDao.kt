@@ -14,6 +14,29 @@ interface ReactionDao {
   @Insert(onConflict = OnConflictStrategy.REPLACE)
   fun insert(reactionEntity: ReactionEntity): Completable
 
+  @Insert(onConflict = OnConflictStrategy.REPLACE)
+  fun insertAll(reactionEntities: List<ReactionEntity>): Completable
+
   @Query("SELECT reaction FROM reactions WHERE chirp_id = :chirpId")
   fun getReactionsByChirpId(chirpId: MessageID): Single<List<Reaction>?>
+
+  /**
+   * Get the reactions of several chirps at once, e.g. of a page of chirps
+   *
+   * @param chirpIds ids of the chirps
+   * @return the reactions to any of the chirps
+   */
+  @Query("SELECT reaction FROM reactions WHERE chirp_id IN (:chirpIds)")
+  fun getReactionsByChirpIds(chirpIds: List<MessageID>): Single<List<Reaction>>
+
+  /**
+   * Get the ids of all the reactions to the chirps of a lao, along with the ids of their chirps
+   *
+   * @param laoId identifier of the lao
+   * @return the ids of the stored reactions
+   */
+  @Query(
+      "SELECT reactions.reaction_id, reactions.chirp_id FROM reactions " +
+          "JOIN chirps ON reactions.chirp_id = chirps.chirp_id WHERE chirps.lao_id = :laoId")
+  fun getReactionIds(laoId: String): Single<List<ReactionIds>>
 }
@@ -0,0 +1,12 @@
+package com.github.dedis.popstellar.repository.database.socialmedia
+
+import androidx.room.ColumnInfo
+import com.github.dedis.popstellar.model.Immutable
+import com.github.dedis.popstellar.model.objects.security.MessageID
+
+/** Id of a stored reaction along with the id of the chirp it refers to */
+@Immutable
+class ReactionIds(
+    @field:ColumnInfo(name = "reaction_id") val reactionId: MessageID,
+    @field:ColumnInfo(name = "chirp_id") val chirpId: MessageID
+)
@@ -16,6 +16,6 @@ interface PendingDao {
   @Query("SELECT * FROM pending_objects WHERE lao_id = :laoId")
   fun getPendingObjectsFromLao(laoId: String): Single<List<PendingEntity>?>
 
-  @Query("DELETE FROM pending_objects WHERE id = :messageID")
-  fun removePendingObject(messageID: MessageID): Completable
+  @Query("DELETE FROM pending_objects WHERE id IN (:messageIDs)")
+  fun removePendingObjects(messageIDs: Set<MessageID>): Completable
 }
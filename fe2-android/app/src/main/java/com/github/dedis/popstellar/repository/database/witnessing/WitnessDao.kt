@@ -15,7 +15,4 @@ interface WitnessDao {
 
   @Query("SELECT witness FROM witnesses WHERE lao_id = :laoId")
   fun getWitnessesByLao(laoId: String): Single<List<PublicKey>>
-
-  @Query("SELECT COUNT(*) FROM witnesses WHERE lao_id = :laoId AND witness = :witness")
-  fun isWitness(laoId: String, witness: PublicKey): Int
 }
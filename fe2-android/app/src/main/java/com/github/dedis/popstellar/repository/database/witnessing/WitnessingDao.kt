@@ -14,6 +14,9 @@ interface WitnessingDao {
   @Insert(onConflict = OnConflictStrategy.REPLACE)
   fun insert(witnessingEntity: WitnessingEntity): Completable
 
+  @Insert(onConflict = OnConflictStrategy.REPLACE)
+  fun insertAll(witnessingEntities: List<WitnessingEntity>): Completable
+
   @Query("SELECT message FROM witness_messages WHERE lao_id = :laoId")
   fun getWitnessMessagesByLao(laoId: String): Single<List<WitnessMessage>?>
 
@@ -2,6 +2,7 @@ package com.github.dedis.popstellar.repository.remote
 
 import com.github.dedis.popstellar.BuildConfig
 import com.github.dedis.popstellar.model.objects.Channel
+import com.github.dedis.popstellar.repository.CatchupRepository
 import com.github.dedis.popstellar.utility.handler.MessageHandler
 import com.github.dedis.popstellar.utility.scheduler.SchedulerProvider
 import com.google.gson.Gson
@@ -17,12 +18,20 @@ constructor(
     private val messageHandler: MessageHandler,
     private val connectionFactory: ConnectionFactory,
     private val gson: Gson,
-    private val schedulerProvider: SchedulerProvider
+    private val schedulerProvider: SchedulerProvider,
+    private val catchupRepo: CatchupRepository
 ) : Disposable {
   private var networkManager: MessageSender? = null
   var currentUrl: String? = null
     private set
 
+  /** The channel currently viewed by the user, kept across connections */
+  var viewedChannel: Channel? = null
+    set(value) {
+      field = value
+      networkManager?.viewedChannel = value
+    }
+
   init {
     connect(BuildConfig.DEFAULT_URL)
   }
@@ -37,7 +46,9 @@ constructor(
             connectionFactory.createMultiConnection(url),
             gson,
             schedulerProvider,
+            catchupRepo,
             subscriptions)
+    networkManager?.viewedChannel = viewedChannel
     currentUrl = url
   }
 
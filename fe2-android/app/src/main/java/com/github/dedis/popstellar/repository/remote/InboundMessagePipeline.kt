@@ -0,0 +1,278 @@
+package com.github.dedis.popstellar.repository.remote
+
+import com.github.dedis.popstellar.model.network.method.Broadcast
+import com.github.dedis.popstellar.model.network.method.message.MessageGeneral
+import com.github.dedis.popstellar.model.objects.Channel
+import com.github.dedis.popstellar.model.objects.security.MessageID
+import com.github.dedis.popstellar.utility.scheduler.SchedulerProvider
+import io.reactivex.Completable
+import io.reactivex.Observable
+import io.reactivex.Single
+import io.reactivex.disposables.Disposable
+import io.reactivex.subjects.CompletableSubject
+import io.reactivex.subjects.PublishSubject
+import io.reactivex.subjects.Subject
+import java.util.EnumMap
+import java.util.concurrent.ConcurrentHashMap
+import java.util.concurrent.atomic.AtomicInteger
+import java.util.concurrent.atomic.AtomicLong
+import java.util.concurrent.atomic.AtomicReference
+import timber.log.Timber
+
+/**
+ * Staged pipeline through which every message received from the network goes before being handed
+ * to the [com.github.dedis.popstellar.utility.handler.MessageHandler].
+ *
+ * The messages are first decoded from their network container, then their signatures are verified
+ * in parallel on a bounded number of workers. Messages already in flight are dropped, and the
+ * remaining ones are finally applied one at a time on a single thread, in the order in which they
+ * were submitted. As the order is preserved globally, it is in particular preserved per channel.
+ *
+ * Each stage keeps track of its queue depth and latency, which can be retrieved with [metrics].
+ */
+class InboundMessagePipeline(
+    schedulerProvider: SchedulerProvider,
+    private val consumer: (InboundMessage) -> Unit,
+    parallelism: Int = DEFAULT_PARALLELISM
+) : Disposable {
+
+  /** Stages composing the pipeline, in the order they are traversed */
+  enum class Stage {
+    DECODE,
+    VERIFY,
+    DEDUP,
+    APPLY
+  }
+
+  /**
+   * A message that went through the pipeline
+   *
+   * @param channel the channel on which the message was received
+   * @param message the message itself
+   * @param broadcast the broadcast containing the message, null if it comes from a catchup
+   */
+  class InboundMessage(
+      val channel: Channel,
+      val message: MessageGeneral,
+      val broadcast: Broadcast?
+  )
+
+  /** Queue depth and latency of a single stage of the pipeline */
+  class StageMetrics {
+    private val depth = AtomicInteger()
+    private val processedCount = AtomicLong()
+    private val totalLatency = AtomicLong()
+    private val maxLatency = AtomicLong()
+
+    /** Number of messages currently waiting for or being processed by the stage */
+    val queueDepth: Int
+      get() = depth.get()
+
+    /** Number of messages that went through the stage */
+    val processed: Long
+      get() = processedCount.get()
+
+    /** Mean time, in nanoseconds, a message spends waiting for and being processed by the stage */
+    val averageLatencyNanos: Long
+      get() {
+        val count = processedCount.get()
+        return if (count == 0L) 0L else totalLatency.get() / count
+      }
+
+    /** Highest time, in nanoseconds, a message spent in the stage */
+    val maxLatencyNanos: Long
+      get() = maxLatency.get()
+
+    fun enter() {
+      depth.incrementAndGet()
+    }
+
+    fun exit(enteredAt: Long) {
+      val latency = System.nanoTime() - enteredAt
+      depth.decrementAndGet()
+      processedCount.incrementAndGet()
+      totalLatency.addAndGet(latency)
+      maxLatency.accumulateAndGet(latency) { a: Long, b: Long -> maxOf(a, b) }
+    }
+
+    override fun toString(): String {
+      return "StageMetrics{queueDepth=$queueDepth, processed=$processed, " +
+          "averageLatencyNanos=$averageLatencyNanos, maxLatencyNanos=$maxLatencyNanos}"
+    }
+  }
+
+  private val input: Subject<Envelope> = PublishSubject.create<Envelope>().toSerialized()
+  private val inFlight: MutableSet<MessageID> = ConcurrentHashMap.newKeySet()
+  private val stageMetrics: MutableMap<Stage, StageMetrics> = EnumMap(Stage::class.java)
+  private val disposable: Disposable
+
+  init {
+    Stage.values().forEach { stage -> stageMetrics[stage] = StageMetrics() }
+
+    disposable =
+        input
+            // Verify the signatures concurrently while keeping the submission order
+            .concatMapEager(
+                { envelope: Envelope -> verify(envelope, schedulerProvider) },
+                parallelism,
+                parallelism)
+            .filter { envelope: Envelope -> dedup(envelope) }
+            // A single worker is used to apply the messages in order
+            .observeOn(schedulerProvider.newThread())
+            .subscribe(
+                { envelope: Envelope -> apply(envelope) },
+                { error: Throwable -> Timber.tag(TAG).e(error, "Error in the inbound pipeline") })
+  }
+
+  /** @return the metrics of each stage of the pipeline */
+  val metrics: Map<Stage, StageMetrics>
+    get() = stageMetrics
+
+  /**
+   * Submit a broadcast received from the network
+   *
+   * @param broadcast to process
+   */
+  fun submit(broadcast: Broadcast) {
+    submit(broadcast.channel, broadcast.message, broadcast, null)
+  }
+
+  /**
+   * Submit the messages received as the result of a catchup
+   *
+   * @param channel the catchup was performed on
+   * @param messages retrieved by the catchup
+   * @return a [Completable] that completes once all the messages went through the pipeline
+   */
+  fun submit(channel: Channel, messages: List<MessageGeneral>): Completable {
+    if (messages.isEmpty()) {
+      return Completable.complete()
+    }
+
+    val batch = Batch(messages.size)
+    messages.forEach { message: MessageGeneral -> submit(channel, message, null, batch) }
+    return batch.completion
+  }
+
+  private fun submit(
+      channel: Channel,
+      message: MessageGeneral,
+      broadcast: Broadcast?,
+      batch: Batch?
+  ) {
+    val decodeStart = enter(Stage.DECODE)
+    val envelope = Envelope(InboundMessage(channel, message, broadcast), batch)
+    exit(Stage.DECODE, decodeStart)
+
+    envelope.enteredAt = enter(Stage.VERIFY)
+    input.onNext(envelope)
+  }
+
+  private fun verify(
+      envelope: Envelope,
+      schedulerProvider: SchedulerProvider
+  ): Observable<Envelope> {
+    return Single.fromCallable {
+          envelope.isValid =
+              try {
+                envelope.inbound.message.verify()
+              } catch (e: Exception) {
+                // An error would end the pipeline, the message is dropped as invalid instead
+                Timber.tag(TAG)
+                    .e(e, "Error while verifying message %s", envelope.inbound.message.messageId)
+                false
+              }
+          exit(Stage.VERIFY, envelope.enteredAt)
+          envelope
+        }
+        .subscribeOn(schedulerProvider.computation())
+        .toObservable()
+  }
+
+  private fun dedup(envelope: Envelope): Boolean {
+    val message = envelope.inbound.message
+    if (!envelope.isValid) {
+      Timber.tag(TAG).e("Dropping message %s with an invalid signature", message.messageId)
+      envelope.batch?.done(null)
+      return false
+    }
+
+    val start = enter(Stage.DEDUP)
+    val isNew = inFlight.add(message.messageId)
+    exit(Stage.DEDUP, start)
+
+    if (!isNew) {
+      Timber.tag(TAG).d("Message %s is already being processed", message.messageId)
+      envelope.batch?.done(null)
+      return false
+    }
+
+    envelope.enteredAt = enter(Stage.APPLY)
+    return true
+  }
+
+  private fun apply(envelope: Envelope) {
+    var error: Throwable? = null
+    try {
+      consumer(envelope.inbound)
+    } catch (e: Throwable) {
+      Timber.tag(TAG).e(e, "Error while applying message %s", envelope.inbound.message.messageId)
+      error = e
+    } finally {
+      inFlight.remove(envelope.inbound.message.messageId)
+      exit(Stage.APPLY, envelope.enteredAt)
+      envelope.batch?.done(error)
+    }
+  }
+
+  private fun enter(stage: Stage): Long {
+    stageMetrics.getValue(stage).enter()
+    return System.nanoTime()
+  }
+
+  private fun exit(stage: Stage, enteredAt: Long) {
+    stageMetrics.getValue(stage).exit(enteredAt)
+  }
+
+  override fun dispose() {
+    disposable.dispose()
+  }
+
+  override fun isDisposed(): Boolean {
+    return disposable.isDisposed
+  }
+
+  /** Wrapper of an inbound message keeping track of its progress in the pipeline */
+  private class Envelope(val inbound: InboundMessage, val batch: Batch?) {
+    @Volatile var enteredAt: Long = 0
+    @Volatile var isValid: Boolean = false
+  }
+
+  /** Group of messages whose completion is awaited together, such as a catchup result */
+  private class Batch(size: Int) {
+    private val remaining = AtomicInteger(size)
+    private val error = AtomicReference<Throwable>()
+    val completion: CompletableSubject = CompletableSubject.create()
+
+    fun done(err: Throwable?) {
+      if (err != null) {
+        error.compareAndSet(null, err)
+      }
+      if (remaining.decrementAndGet() == 0) {
+        val failure = error.get()
+        if (failure == null) {
+          completion.onComplete()
+        } else {
+          completion.onError(failure)
+        }
+      }
+    }
+  }
+
+  companion object {
+    private val TAG = InboundMessagePipeline::class.java.simpleName
+
+    /** Number of signature verifications that can run concurrently */
+    @JvmField val DEFAULT_PARALLELISM = Runtime.getRuntime().availableProcessors().coerceAtLeast(2)
+  }
+}
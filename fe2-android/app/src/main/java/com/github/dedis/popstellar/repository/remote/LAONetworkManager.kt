@@ -13,9 +13,11 @@ import com.github.dedis.popstellar.model.network.method.Subscribe
 import com.github.dedis.popstellar.model.network.method.Unsubscribe
 import com.github.dedis.popstellar.model.network.method.message.MessageGeneral
 import com.github.dedis.popstellar.model.network.method.message.data.Data
+import com.github.dedis.popstellar.model.network.method.message.data.Objects
 import com.github.dedis.popstellar.model.objects.Channel
 import com.github.dedis.popstellar.model.objects.PeerAddress
 import com.github.dedis.popstellar.model.objects.security.KeyPair
+import com.github.dedis.popstellar.repository.CatchupRepository
 import com.github.dedis.popstellar.utility.error.DataHandlingException
 import com.github.dedis.popstellar.utility.error.JsonRPCErrorException
 import com.github.dedis.popstellar.utility.error.UnknownElectionException
@@ -25,6 +27,7 @@ import com.github.dedis.popstellar.utility.error.UnknownWitnessMessageException
 import com.github.dedis.popstellar.utility.error.keys.NoRollCallException
 import com.github.dedis.popstellar.utility.handler.MessageHandler
 import com.github.dedis.popstellar.utility.scheduler.SchedulerProvider
+import com.github.dedis.popstellar.utility.security.SignatureVerifier
 import com.google.gson.Gson
 import com.tinder.scarlet.WebSocket
 import io.reactivex.Completable
@@ -45,6 +48,7 @@ class LAONetworkManager(
     private val multiConnection: MultiConnection,
     private val gson: Gson,
     private val schedulerProvider: SchedulerProvider,
+    private val catchupRepo: CatchupRepository,
     subscribedChannels: Set<Channel>
 ) : MessageSender {
   private val requestCounter = AtomicInteger()
@@ -55,7 +59,23 @@ class LAONetworkManager(
   private val subscribedChannels: MutableSet<Channel> = HashSet(subscribedChannels)
   private val disposables = CompositeDisposable()
 
+  // Requests waiting for an answer, expired after the reprocessing delay
+  private val pendingRequests = PendingRequests(schedulerProvider, REPROCESSING_DELAY)
+
+  // Scheduler bounding and ordering the resubscriptions after a reconnection
+  private val reconnectionScheduler = ReconnectionScheduler()
+
+  // Channels on which a catchup message could not be handled
+  private val incompleteCatchups: MutableSet<Channel> = ConcurrentHashMap.newKeySet()
+
+  override var viewedChannel: Channel? = null
+
+  // Pipeline verifying the received messages before handing them to the message handler
+  private val pipeline = InboundMessagePipeline(schedulerProvider, this::handleInboundMessage)
+
   init {
+    // Start routing the answers to their requests
+    routeAnswers()
     // Start the incoming message processing
     processIncomingMessages()
     // Start the routine aimed at resubscribing to channels when the connection is lost
@@ -73,19 +93,36 @@ class LAONetworkManager(
             // message for each channel we are supposed to be subscribed to.
             .subscribe(
                 {
-                  subscribedChannels.forEach { channel: Channel ->
-                    disposables.add(
-                        subscribe(channel)
-                            .subscribe(
-                                { Timber.tag(TAG).d("resubscription successful to : %s", channel) },
-                                { error: Throwable ->
-                                  Timber.tag(TAG).e(error, "error on resubscription to")
-                                }))
-                  }
+                  // The channels are resubscribed to by priority, a few at a time
+                  disposables.add(
+                      reconnectionScheduler
+                          .schedule(HashSet(subscribedChannels), viewedChannel) { channel ->
+                            subscribe(channel)
+                          }
+                          .subscribe(
+                              { Timber.tag(TAG).d("resubscription completed") },
+                              { error: Throwable ->
+                                Timber.tag(TAG).e(error, "error on resubscription")
+                              }))
                 },
                 { error: Throwable -> Timber.tag(TAG).e(error, "Error on resubscription") }))
   }
 
+  private fun routeAnswers() {
+    disposables.add(
+        multiConnection
+            .observeMessage()
+            .filter { obj: GenericMessage -> obj is Answer } // Filter the Answers
+            .map { obj: GenericMessage -> obj as Answer }
+            .subscribe(
+                { answer: Answer ->
+                  if (!pendingRequests.complete(answer)) {
+                    Timber.tag(TAG).d("No pending request for answer %s", answer.id)
+                  }
+                },
+                { error: Throwable -> Timber.tag(TAG).e(error, "Error on routing answers") }))
+  }
+
   private fun processIncomingMessages() {
     disposables.add(
         Observable.merge( // Normal message received over the wire
@@ -100,7 +137,7 @@ class LAONetworkManager(
             .map { obj: GenericMessage -> obj as Broadcast }
             .subscribeOn(schedulerProvider.newThread())
             .subscribe(
-                { broadcast: Broadcast -> handleBroadcast(broadcast) },
+                { broadcast: Broadcast -> pipeline.submit(broadcast) },
                 { error: Throwable -> Timber.tag(TAG).e(error, "Error on processing message") }))
   }
 
@@ -114,8 +151,62 @@ class LAONetworkManager(
         .doOnSuccess { msgs: List<MessageGeneral> ->
           Timber.tag(TAG).d("Received catchup response on %s, retrieved : %s", channel, msgs)
         }
-        .doOnSuccess { messages: List<MessageGeneral> -> handleMessages(messages, channel) }
-        .ignoreElement()
+        .flatMapCompletable { messages: List<MessageGeneral> ->
+          val newMessages = messagesAfterLastSeen(channel, messages)
+          verifySignatures(newMessages)
+              .andThen(pipeline.submit(channel, newMessages))
+              .doOnComplete { updateLastSeen(channel, messages) }
+        }
+  }
+
+  /**
+   * Verify the signatures of the messages of a catchup as a single batch, split among all the
+   * cores. The pipeline then finds the valid ones already verified.
+   */
+  private fun verifySignatures(messages: List<MessageGeneral>): Completable {
+    return Completable.fromAction {
+          SignatureVerifier.verifyAll(messages.flatMap(MessageGeneral::signatureRequests))
+          Timber.tag(TAG)
+              .d(
+                  "Verified the signatures of %d messages, %.0f signatures/s",
+                  messages.size,
+                  SignatureVerifier.throughput)
+        }
+        .subscribeOn(schedulerProvider.computation())
+  }
+
+  /**
+   * The catchup always returns the whole history of the channel. When the last message processed by
+   * a previous catchup (possibly before a restart of the app) is found in that history, only the
+   * messages following it are processed. Otherwise the whole history is processed again.
+   */
+  private fun messagesAfterLastSeen(
+      channel: Channel,
+      messages: List<MessageGeneral>
+  ): List<MessageGeneral> {
+    val lastSeen = catchupRepo.getLastSeen(channel) ?: return messages
+    val index = messages.indexOfLast { msg: MessageGeneral -> msg.messageId == lastSeen }
+    if (index == -1) {
+      Timber.tag(TAG).d("Last seen message not found on %s, processing full history", channel)
+      return messages
+    }
+
+    Timber.tag(TAG).d("Resuming catchup on %s after %d known messages", channel, index + 1)
+    return messages.subList(index + 1, messages.size)
+  }
+
+  private fun updateLastSeen(channel: Channel, messages: List<MessageGeneral>) {
+    // If a message could not be handled, the history is processed again on the next catchup
+    if (incompleteCatchups.remove(channel)) {
+      catchupRepo.clearLastSeen(channel)
+    } else if (messages.isNotEmpty()) {
+      // Only persist the mark if the effects of all the messages are persisted as well
+      val toPersist =
+          messages.all { msg: MessageGeneral ->
+            Objects.find(msg.data.`object`)?.hasToBePersisted() == true
+          }
+      catchupRepo.setLastSeen(channel, messages.last().messageId, toPersist)
+    }
   }
 
   override fun publish(keyPair: KeyPair, channel: Channel, data: Data): Completable {
@@ -168,6 +259,14 @@ class LAONetworkManager(
   override val subscriptions: Set<Channel>
     get() = HashSet(subscribedChannels)
 
+  /** @return the number of requests currently waiting for an answer */
+  val inFlightRequestCount: Int
+    get() = pendingRequests.inFlightCount
+
+  /** @return the queue depth and latency of each stage of the inbound message pipeline */
+  val pipelineMetrics: Map<InboundMessagePipeline.Stage, InboundMessagePipeline.StageMetrics>
+    get() = pipeline.metrics
+
   override fun extendConnection(peerAddressList: List<PeerAddress>) {
     // If the connections to other peers are not created then do nothing
     if (!multiConnection.connectToPeers(peerAddressList)) {
@@ -175,6 +274,8 @@ class LAONetworkManager(
     }
     // First dispose the previous connections
     disposables.clear()
+    // Route the answers received on all the new connections
+    routeAnswers()
     // Start the incoming message processing for all the new connections
     processIncomingMessages()
     // Start the routine aimed at resubscribing to channels when the connection is lost
@@ -204,46 +305,47 @@ class LAONetworkManager(
     }
   }
 
-  private fun handleMessages(messages: List<MessageGeneral>, channel: Channel) {
+  private fun handleInboundMessage(inbound: InboundMessagePipeline.InboundMessage) {
+    val broadcast = inbound.broadcast
+    if (broadcast != null) {
+      handleBroadcast(broadcast)
+    } else {
+      handleCatchupMessage(inbound.channel, inbound.message)
+    }
+  }
+
+  private fun handleCatchupMessage(channel: Channel, msg: MessageGeneral) {
     fun handleError(e: Exception) {
       Timber.tag(TAG).e(e, "Error while handling received catchup message")
+      incompleteCatchups.add(channel)
     }
 
-    for (msg in messages) {
-      try {
-        messageHandler.handleMessage(this, channel, msg)
-      } catch (e: Exception) {
-        when (e) {
-          is DataHandlingException,
-          is UnknownLaoException,
-          is UnknownRollCallException,
-          is NoRollCallException,
-          is UnknownElectionException,
-          is UnknownWitnessMessageException -> handleError(e)
-          else -> throw e
-        }
+    try {
+      messageHandler.handleMessage(this, channel, msg)
+    } catch (e: Exception) {
+      when (e) {
+        is DataHandlingException,
+        is UnknownLaoException,
+        is UnknownRollCallException,
+        is NoRollCallException,
+        is UnknownElectionException,
+        is UnknownWitnessMessageException -> handleError(e)
+        else -> throw e
       }
     }
   }
 
   private fun request(query: Query): Single<Answer> {
-    return multiConnection
-        .observeMessage() // Observe incoming messages
-        // Send the message upon subscription the the incoming messages. That way we are
-        // certain the reply will be processed and the message is only sent when an observer
-        // subscribes to the request answer.
-        .doOnSubscribe { multiConnection.sendMessage(query) }
-        .filter { obj: GenericMessage -> obj is Answer } // Filter for Answers
-        .map { obj: GenericMessage ->
-          obj as Answer
-        } // This specific request has an id, only let the related Answer pass
-        .filter { answer: Answer -> answer.id == query.requestId }
-        .doOnNext { answer: Answer ->
-          Timber.tag(TAG).d("request id: %s", answer.id)
-        } // Transform from an Observable to a Single
-        // This Means that we expect a result before the source is disposed and an error
-        // will be produced if no value is received.
-        .firstOrError() // If we receive an error, transform the flow to a Failure
+    return Single.defer {
+          // Register the request before sending it, so that the answer is routed to it even if
+          // it is received right away. The message is only sent when an observer subscribes to
+          // the request answer.
+          val answer = pendingRequests.register(query.requestId)
+          multiConnection.sendMessage(query)
+          answer
+        }
+        .doOnSuccess { answer: Answer -> Timber.tag(TAG).d("request id: %s", answer.id) }
+        // If we receive an error, transform the flow to a Failure
         .flatMap { answer: Answer ->
           if (answer is Error) {
             return@flatMap Single.error<Answer>(JsonRPCErrorException(answer))
@@ -252,11 +354,7 @@ class LAONetworkManager(
           }
         }
         .subscribeOn(schedulerProvider.io())
-        .observeOn(
-            schedulerProvider
-                .mainThread()) // Add a timeout to automatically dispose of the flow and end with a
-        // failure
-        .timeout(REPROCESSING_DELAY.toLong(), TimeUnit.SECONDS)
+        .observeOn(schedulerProvider.mainThread())
         .cache()
   }
 
@@ -283,6 +381,8 @@ class LAONetworkManager(
   override fun dispose() {
     multiConnection.close()
     disposables.dispose()
+    pendingRequests.dispose()
+    pipeline.dispose()
   }
 
   override fun isDisposed(): Boolean {
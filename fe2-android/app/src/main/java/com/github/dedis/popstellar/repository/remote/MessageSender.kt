@@ -65,6 +65,12 @@ interface MessageSender : Disposable {
   /** @return an Observable of WebSocket events of the underlying connection */
   val connectEvents: Observable<WebSocket.Event>
 
+  /**
+   * The channel currently viewed by the user, null if none. It is given priority when resubscribing
+   * to the channels after a reconnection.
+   */
+  var viewedChannel: Channel?
+
   /** @return the list of channels we subscribed to */
   val subscriptions: Set<Channel>
 
@@ -0,0 +1,138 @@
+package com.github.dedis.popstellar.repository.remote
+
+import com.github.dedis.popstellar.model.network.answer.Answer
+import com.github.dedis.popstellar.utility.scheduler.SchedulerProvider
+import io.reactivex.Observable
+import io.reactivex.Single
+import io.reactivex.disposables.Disposable
+import io.reactivex.subjects.SingleSubject
+import java.util.concurrent.ConcurrentHashMap
+import java.util.concurrent.TimeUnit
+import java.util.concurrent.TimeoutException
+import java.util.concurrent.atomic.AtomicLong
+import timber.log.Timber
+
+/**
+ * Table of the requests sent to the backend that are still waiting for an answer, keyed by their
+ * JSON-RPC id.
+ *
+ * Incoming answers are routed to their request in constant time. Stale requests are expired by a
+ * single timing wheel shared by all the requests: each request is placed in the slot of the tick at
+ * which it expires, and every tick fails all the requests of the current slot with a
+ * [TimeoutException]. The wheel only ticks while requests are pending.
+ *
+ * @param timeout number of seconds after which a request without answer fails
+ */
+class PendingRequests(private val schedulerProvider: SchedulerProvider, timeout: Int) : Disposable {
+  private val pending = ConcurrentHashMap<Int, PendingRequest>()
+  private val wheel: Array<MutableSet<Int>> =
+      Array(timeout + 2) { ConcurrentHashMap.newKeySet<Int>() }
+  private val currentTick = AtomicLong()
+  private val expiredCount = AtomicLong()
+  private var timer: Disposable? = null
+  private var disposed = false
+
+  /** Number of requests currently waiting for an answer */
+  val inFlightCount: Int
+    get() = pending.size
+
+  /** Number of requests that expired without receiving an answer */
+  val expired: Long
+    get() = expiredCount.get()
+
+  /**
+   * Register a new request waiting for an answer
+   *
+   * @param id the JSON-RPC id of the request
+   * @return a [Single] that succeeds with the answer of the request or fails when it expires, or
+   *   right away if the requests were disposed
+   */
+  @Synchronized
+  fun register(id: Int): Single<Answer> {
+    if (disposed) {
+      return Single.error(IllegalStateException("network manager disposed"))
+    }
+
+    // The slot is timeout + 1 ticks ahead so that the request lives at least for the timeout
+    val slot = ((currentTick.get() + wheel.size - 1) % wheel.size).toInt()
+    val request = PendingRequest(slot)
+    pending[id] = request
+    wheel[slot].add(id)
+    startTimer()
+
+    return request.answer
+  }
+
+  /**
+   * Complete the request the given answer relates to
+   *
+   * @param answer received from the backend
+   * @return true if a request was waiting for this answer, false otherwise
+   */
+  fun complete(answer: Answer): Boolean {
+    val request = pending.remove(answer.id) ?: return false
+    wheel[request.slot].remove(answer.id)
+    request.answer.onSuccess(answer)
+    return true
+  }
+
+  private fun startTimer() {
+    if (timer != null || disposed) {
+      return
+    }
+    timer =
+        Observable.interval(TICK_SECONDS, TimeUnit.SECONDS, schedulerProvider.computation())
+            .subscribe(
+                { tick() }, { err: Throwable -> Timber.tag(TAG).e(err, "Error in request timer") })
+  }
+
+  private fun tick() {
+    val slot = (currentTick.incrementAndGet() % wheel.size).toInt()
+    val bucket = wheel[slot]
+    val iterator = bucket.iterator()
+    while (iterator.hasNext()) {
+      val id = iterator.next()
+      iterator.remove()
+      val request = pending.remove(id) ?: continue
+      expiredCount.incrementAndGet()
+      Timber.tag(TAG).d("request %d expired", id)
+      request.answer.onError(TimeoutException("No answer received for request $id"))
+    }
+
+    synchronized(this) {
+      // Stop ticking when nothing is left to expire, the timer restarts on the next request
+      if (pending.isEmpty()) {
+        timer?.dispose()
+        timer = null
+      }
+    }
+  }
+
+  @Synchronized
+  override fun dispose() {
+    disposed = true
+    timer?.dispose()
+    timer = null
+    // The callers waiting for an answer are notified that none will come
+    val requests = ArrayList(pending.values)
+    pending.clear()
+    wheel.forEach { it.clear() }
+    requests.forEach { it.answer.onError(IllegalStateException("network manager disposed")) }
+  }
+
+  @Synchronized
+  override fun isDisposed(): Boolean {
+    return disposed
+  }
+
+  private class PendingRequest(val slot: Int) {
+    val answer: SingleSubject<Answer> = SingleSubject.create()
+  }
+
+  companion object {
+    private val TAG = PendingRequests::class.java.simpleName
+
+    /** Duration of a tick of the timing wheel */
+    private const val TICK_SECONDS = 1L
+  }
+}
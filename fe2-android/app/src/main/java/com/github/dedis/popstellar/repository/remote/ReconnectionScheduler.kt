@@ -0,0 +1,73 @@
+package com.github.dedis.popstellar.repository.remote
+
+import com.github.dedis.popstellar.model.objects.Channel
+import io.reactivex.Completable
+import io.reactivex.Observable
+import timber.log.Timber
+
+/**
+ * Schedules the resubscription to the channels after a reconnection.
+ *
+ * Instead of firing one subscribe (and the following catchup) per channel all at once, at most
+ * [maxConcurrency] channels are processed at a time. The channel currently viewed by the user is
+ * processed first, followed by the LAO channels and then by the remaining channels, shallowest
+ * first as the deeper channels usually depend on the data of their parents.
+ *
+ * @param maxConcurrency maximum number of channels whose subscription is in flight at a time
+ */
+class ReconnectionScheduler(private val maxConcurrency: Int = DEFAULT_MAX_CONCURRENCY) {
+
+  /**
+   * Sort the given channels by priority
+   *
+   * @param channels to sort
+   * @param viewedChannel the channel currently viewed by the user, null if none
+   * @return the channels, the most urgent first
+   */
+  fun prioritize(channels: Collection<Channel>, viewedChannel: Channel?): List<Channel> {
+    return channels.sortedWith(
+        compareBy<Channel> { channel: Channel -> channel != viewedChannel }
+            .thenBy { channel: Channel -> !channel.isLaoChannel }
+            .thenBy { channel: Channel -> depth(channel) })
+  }
+
+  /**
+   * Run the given task for each channel in priority order, with a bounded concurrency
+   *
+   * A failure on a channel is logged and does not prevent the other channels from being processed.
+   *
+   * @param channels to process
+   * @param viewedChannel the channel currently viewed by the user, null if none
+   * @param task producing the [Completable] resubscribing to a channel
+   * @return a [Completable] that completes when all the channels were processed
+   */
+  fun schedule(
+      channels: Collection<Channel>,
+      viewedChannel: Channel?,
+      task: (Channel) -> Completable
+  ): Completable {
+    return Observable.fromIterable(prioritize(channels, viewedChannel))
+        .flatMapCompletable(
+            { channel: Channel ->
+              task(channel)
+                  .doOnComplete { Timber.tag(TAG).d("resubscription successful to : %s", channel) }
+                  .doOnError { error: Throwable ->
+                    Timber.tag(TAG).e(error, "error on resubscription to %s", channel)
+                  }
+                  .onErrorComplete()
+            },
+            false,
+            maxConcurrency)
+  }
+
+  private fun depth(channel: Channel): Int {
+    return channel.asString.count { c: Char -> c == '/' }
+  }
+
+  companion object {
+    private val TAG = ReconnectionScheduler::class.java.simpleName
+
+    /** Default number of channels resubscribed to concurrently */
+    const val DEFAULT_MAX_CONCURRENCY = 4
+  }
+}
@@ -11,6 +11,7 @@ import com.github.dedis.popstellar.model.objects.Wallet
 import com.github.dedis.popstellar.model.objects.view.LaoView
 import com.github.dedis.popstellar.model.qrcode.ConnectToLao
 import com.github.dedis.popstellar.model.qrcode.ConnectToLao.Companion.extractFrom
+import com.github.dedis.popstellar.repository.CatchupRepository
 import com.github.dedis.popstellar.repository.LAORepository
 import com.github.dedis.popstellar.repository.database.AppDatabase
 import com.github.dedis.popstellar.repository.remote.GlobalNetworkManager
@@ -41,6 +42,7 @@ constructor(
     private val gson: Gson,
     private val wallet: Wallet,
     private val laoRepository: LAORepository,
+    private val catchupRepository: CatchupRepository,
     private val networkManager: GlobalNetworkManager,
     private val appDatabase: AppDatabase
 ) : AndroidViewModel(application), QRCodeScanningViewModel, PopViewModel {
@@ -156,6 +158,7 @@ constructor(
     }
     networkManager.dispose()
     laoRepository.clearRepository()
+    catchupRepository.clear()
   }
 
   @Throws(GeneralSecurityException::class, SeedValidationException::class)
@@ -332,8 +332,10 @@ class LaoActivity : AppCompatActivity() {
    * Set to invisible in the drawer menu the 'Witness' tab if it has been disabled upon LAO creation
    */
   private fun setWitnessingTabVisibility() {
-    binding.laoNavigationDrawer.menu.findItem(R.id.main_menu_witnessing).isVisible =
-        laoViewModel.isWitnessingEnabled
+    laoViewModel.isWitnessingEnabled.observe(this) { isWitnessingEnabled: Boolean ->
+      binding.laoNavigationDrawer.menu.findItem(R.id.main_menu_witnessing).isVisible =
+          isWitnessingEnabled
+    }
   }
 
   /** Opens Witness tab and select it in the drawer menu */
@@ -6,6 +6,7 @@ import androidx.lifecycle.AndroidViewModel
 import androidx.lifecycle.MutableLiveData
 import com.github.dedis.popstellar.R
 import com.github.dedis.popstellar.model.Role
+import com.github.dedis.popstellar.model.objects.Channel
 import com.github.dedis.popstellar.model.objects.RollCall
 import com.github.dedis.popstellar.model.objects.Wallet
 import com.github.dedis.popstellar.model.objects.security.PoPToken
@@ -62,6 +63,7 @@ constructor(
 
   var isOrganizer = false
   val isWitness = MutableLiveData(java.lang.Boolean.FALSE)
+  val isWitnessingEnabled = MutableLiveData(java.lang.Boolean.FALSE)
   val isAttendee = MutableLiveData(java.lang.Boolean.FALSE)
   val role = MutableLiveData(Role.MEMBER)
 
@@ -82,6 +84,12 @@ constructor(
     }
   }
 
+  private fun setIsWitnessingEnabled(isWitnessingEnabled: Boolean) {
+    if (java.lang.Boolean.valueOf(isWitnessingEnabled) != this.isWitnessingEnabled.value) {
+      this.isWitnessingEnabled.value = isWitnessingEnabled
+    }
+  }
+
   private fun setIsAttendee(isAttendee: Boolean) {
     if (java.lang.Boolean.valueOf(isAttendee) != this.isAttendee.value) {
       this.isAttendee.value = isAttendee
@@ -134,6 +142,16 @@ constructor(
     disposables.dispose()
   }
 
+  /**
+   * Indicate the channel the user is currently looking at, it is resubscribed to first after a
+   * reconnection
+   *
+   * @param channel currently viewed
+   */
+  fun setViewedChannel(channel: Channel) {
+    networkManager.viewedChannel = channel
+  }
+
   fun saveSubscriptionsData() {
     val toDispose = saveSubscriptionsRoutine(laoId!!, networkManager, subscriptionsDao)
     toDispose?.let { addDisposable(it) }
@@ -176,6 +194,7 @@ constructor(
   }
 
   fun observeLao(laoId: String) {
+    setViewedChannel(Channel.getLaoChannel(laoId))
     addDisposable(
         laoRepo
             .getLaoObservable(laoId)
@@ -185,11 +204,21 @@ constructor(
                   Timber.tag(TAG).d("got an update for lao: %s", laoView)
 
                   isOrganizer = laoView.organizer == keyManager.mainPublicKey
-                  setIsWitness(witnessingRepo.isWitness(laoId, keyManager.mainPublicKey))
 
                   updateRole()
                 },
                 { error: Throwable -> Timber.tag(TAG).e(error, "error updating LAO") }))
+    // The witnesses are observed once loaded from the disk, instead of waiting for them here
+    addDisposable(
+        witnessingRepo
+            .getWitnessesObservableInLao(laoId)
+            .observeOn(AndroidSchedulers.mainThread())
+            .subscribe(
+                { witnesses: Set<PublicKey> ->
+                  setIsWitnessingEnabled(witnesses.isNotEmpty())
+                  setIsWitness(witnesses.contains(keyManager.mainPublicKey))
+                },
+                { error: Throwable -> Timber.tag(TAG).e(error, "error updating the witnesses") }))
   }
 
   fun observeRollCalls(laoId: String) {
@@ -235,9 +264,6 @@ constructor(
     }
   }
 
-  val isWitnessingEnabled: Boolean
-    get() = !witnessingRepo.areWitnessesEmpty(laoId!!)
-
   companion object {
     val TAG: String = LaoViewModel::class.java.simpleName
   }
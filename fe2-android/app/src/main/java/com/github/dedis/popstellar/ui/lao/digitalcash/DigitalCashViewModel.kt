@@ -16,6 +16,7 @@ import com.github.dedis.popstellar.model.network.method.message.data.digitalcash
 import com.github.dedis.popstellar.model.network.method.message.data.digitalcash.Transaction
 import com.github.dedis.popstellar.model.network.method.message.data.digitalcash.Transaction.Companion.computeSigOutputsPairTxOutHashAndIndex
 import com.github.dedis.popstellar.model.objects.RollCall
+import com.github.dedis.popstellar.model.objects.digitalcash.CoinSelector
 import com.github.dedis.popstellar.model.objects.digitalcash.TransactionObject
 import com.github.dedis.popstellar.model.objects.security.Base64URLData
 import com.github.dedis.popstellar.model.objects.security.KeyPair
@@ -299,23 +300,25 @@ constructor(
       amountFromReceiver: Long,
       inputs: MutableList<Input>
   ) {
-    var index: Int
-    var transactionHash: String
-    val transactions = getTransactionsForUser(keyPair.publicKey)!!
-
-    val amountSender = getUserBalance(keyPair.publicKey) - amountFromReceiver
-    val outputSender = Output(amountSender, ScriptOutput(TYPE, keyPair.publicKey.computeHash()))
-    outputs.add(outputSender)
-
-    val transactionInpMap: MutableMap<String, Int> = HashMap()
-    for (transactionPrevious in transactions) {
-      transactionHash = transactionPrevious.transactionId
-      index = transactionPrevious.getIndexTransaction(keyPair.publicKey)
-      transactionInpMap[transactionHash] = index
+    // Only spend the unspent outputs needed to pay the amount instead of the whole history
+    val selection =
+        CoinSelector.select(
+            digitalCashRepo.getUnspentOutputs(laoId!!, keyPair.publicKey), amountFromReceiver)
+    Timber.tag(TAG).d("Selected inputs %s : %s", selection, selection.inputs)
+
+    if (selection.change > 0) {
+      outputs.add(Output(selection.change, ScriptOutput(TYPE, keyPair.publicKey.computeHash())))
     }
 
-    for (currentHash in transactionInpMap.keys) {
-      inputs.add(processSignInput(keyPair, outputs, transactionInpMap, currentHash))
+    // All the inputs are owned by the same key and sign the same content, so it is signed once
+    val inputPairs = selection.inputs.map { Pair(it.txOutHash, it.txOutIndex) }
+    val sig =
+        keyPair.sign(
+            Base64URLData(
+                computeSigOutputsPairTxOutHashAndIndex(outputs, inputPairs)
+                    .toByteArray(StandardCharsets.UTF_8)))
+    for ((txOutHash, txOutIndex) in inputPairs) {
+      inputs.add(Input(txOutHash, txOutIndex, ScriptInput(TYPE, keyPair.publicKey, sig)))
     }
   }
 
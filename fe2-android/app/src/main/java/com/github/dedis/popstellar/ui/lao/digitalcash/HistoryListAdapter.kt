@@ -92,6 +92,8 @@ class HistoryListAdapter(
           return ArrayList()
         }
 
+    val ownHash = ownKey.computeHash()
+
     for (transactionObject in transactionObjects) {
       // To know if we are in input or not. We assume that no two different person
       val isSender = transactionObject.isSender(ownKey)
@@ -103,7 +105,7 @@ class HistoryListAdapter(
               // we want all output we are in: so we filter isInInput XOR isInOutput
               // if it is an issuance, we want all outputs where we are
               .filter { outputObject: OutputObject ->
-                val isOwn = outputObject.pubKeyHash == ownKey.computeHash()
+                val isOwn = outputObject.pubKeyHash == ownHash
                 isIssuance && isOwn || !isIssuance && isSender xor isOwn
               }
               .map { outputObject: OutputObject ->
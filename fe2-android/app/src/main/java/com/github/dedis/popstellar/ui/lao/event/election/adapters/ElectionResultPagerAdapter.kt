@@ -38,7 +38,9 @@ constructor(viewModel: LaoViewModel, electionRepository: ElectionRepository, ele
                     e.electionQuestions
                         .stream()
                         .map { q: ElectionQuestion ->
-                          QuestionResults(q, e.getResultsForQuestionId(q.id))
+                          // Until the results are received, show the count of the votes so far
+                          QuestionResults(
+                              q, e.getResultsForQuestionId(q.id) ?: e.getPartialResults(q))
                         }
                         .collect(Collectors.toList())
                 if (results != currentResults) {
@@ -75,7 +77,7 @@ constructor(viewModel: LaoViewModel, electionRepository: ElectionRepository, ele
 
     // Create the displayable results
     val adaptedResults =
-        questionResults!!
+        questionResults.orEmpty()
             .stream()
             .sorted(Comparator.comparing(QuestionResult::count).reversed())
             .map { result: QuestionResult ->
@@ -97,7 +99,10 @@ constructor(viewModel: LaoViewModel, electionRepository: ElectionRepository, ele
     val questionView: TextView = itemView.findViewById(R.id.election_result_question)
   }
 
-  private class QuestionResults(val question: ElectionQuestion, val results: Set<QuestionResult>?)
+  private data class QuestionResults(
+      val question: ElectionQuestion,
+      val results: Set<QuestionResult>?
+  )
 
   companion object {
     private val TAG = ElectionResultFragment::class.java.simpleName
@@ -15,6 +15,7 @@ import androidx.core.widget.ImageViewCompat
 import androidx.fragment.app.Fragment
 import androidx.fragment.app.FragmentManager
 import com.github.dedis.popstellar.R
+import com.github.dedis.popstellar.model.objects.Channel
 import com.github.dedis.popstellar.model.objects.Election
 import com.github.dedis.popstellar.model.objects.event.EventState
 import com.github.dedis.popstellar.repository.ElectionRepository
@@ -186,6 +187,14 @@ class ElectionFragment : Fragment() {
     super.onResume()
     laoViewModel.setPageTitle(R.string.election_title)
     laoViewModel.setIsTab(false)
+    laoViewModel.setViewedChannel(
+        Channel.getLaoChannel(laoViewModel.laoId!!).subChannel(electionId))
+  }
+
+  override fun onPause() {
+    super.onPause()
+    // The election is no longer viewed, the LAO channel is favoured again
+    laoViewModel.setViewedChannel(Channel.getLaoChannel(laoViewModel.laoId!!))
   }
 
   override fun onDestroy() {
@@ -17,6 +17,7 @@ import com.github.dedis.popstellar.model.objects.Chirp
 import com.github.dedis.popstellar.model.objects.Reaction
 import com.github.dedis.popstellar.model.objects.Reaction.ReactionEmoji
 import com.github.dedis.popstellar.model.objects.security.MessageID
+import com.github.dedis.popstellar.repository.ChirpFeed
 import com.github.dedis.popstellar.ui.lao.LaoViewModel
 import com.github.dedis.popstellar.utility.error.ErrorUtils.logAndShow
 import com.github.dedis.popstellar.utility.error.UnknownChirpException
@@ -34,30 +35,42 @@ class ChirpListAdapter(
     private val laoViewModel: LaoViewModel
 ) : BaseAdapter() {
   private val layoutInflater: LayoutInflater = LayoutInflater.from(context)
-  private var chirps: List<Chirp>? = null
+  private val chirps: MutableList<Chirp> = ArrayList()
   private val disposables = CompositeDisposable()
 
   init {
     laoViewModel.addDisposable(
-        socialMediaViewModel.chirps.subscribe(
-            { chirps: List<Chirp> -> replaceList(chirps) },
+        socialMediaViewModel.chirpChanges.subscribe(
+            { change: ChirpFeed.Change -> applyChange(change) },
             { err: Throwable -> logAndShow(context, TAG, err, R.string.unknown_chirp_exception) }))
   }
 
   fun replaceList(chirps: List<Chirp>?) {
-    // Dispose of previous observables
-    disposables.clear()
+    applyChange(ChirpFeed.Change.Reset(chirps ?: emptyList()))
+  }
 
-    this.chirps = chirps
+  /**
+   * Apply a change of the chirps to the displayed list. The list is only modified at the position
+   * of the change, and the list view only binds the visible chirps again.
+   *
+   * @param change of the chirps
+   */
+  fun applyChange(change: ChirpFeed.Change) {
+    if (change is ChirpFeed.Change.Reset) {
+      // Dispose of previous observables
+      disposables.clear()
+    }
+
+    change.applyTo(chirps)
     notifyDataSetChanged()
   }
 
   override fun getCount(): Int {
-    return chirps?.size ?: 0
+    return chirps.size
   }
 
   override fun getItem(position: Int): Chirp? {
-    return chirps?.get(position)
+    return chirps.getOrNull(position)
   }
 
   override fun getItemId(position: Int): Long {
@@ -69,6 +82,11 @@ class ChirpListAdapter(
 
     val chirp = getItem(position) ?: throw IllegalArgumentException("The chirp does not exist")
 
+    // Read the next stored chirps before the user reaches the end of the list
+    if (position >= count - LOAD_MORE_THRESHOLD) {
+      socialMediaViewModel.loadMoreChirps()
+    }
+
     // If the user has no valid pop token then it's not possible to react
     // (make invisible the buttons)
     try {
@@ -78,9 +96,10 @@ class ChirpListAdapter(
       view.findViewById<View>(R.id.chirp_card_buttons).visibility = View.GONE
     }
 
-    // Dispose of previous observables for the chirp at this position
+    // Dispose of previous observables for the chirp at this position. Removing it from the
+    // composite disposes it, and keeps the composite from growing with each bind
     val previousDisposable = view.getTag(R.id.chirp_card_buttons) as Disposable?
-    previousDisposable?.dispose()
+    previousDisposable?.let { disposables.remove(it) }
 
     val sender = chirp.sender
     val timestamp = chirp.timestamp
@@ -287,5 +306,8 @@ class ChirpListAdapter(
 
   companion object {
     private val TAG = ChirpListAdapter::class.java.simpleName
+
+    /** Number of chirps left to display under which the next stored chirps are loaded */
+    private const val LOAD_MORE_THRESHOLD = 10
   }
 }
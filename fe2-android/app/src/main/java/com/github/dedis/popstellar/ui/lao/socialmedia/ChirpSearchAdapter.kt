@@ -0,0 +1,75 @@
+package com.github.dedis.popstellar.ui.lao.socialmedia
+
+import android.content.Context
+import android.text.format.DateUtils
+import android.view.LayoutInflater
+import android.view.View
+import android.view.ViewGroup
+import android.widget.BaseAdapter
+import android.widget.TextView
+import com.github.dedis.popstellar.R
+import com.github.dedis.popstellar.model.objects.Chirp
+
+/**
+ * Adapter of the chirps found by a search. The chirps found may not be loaded in the feed, so they
+ * are displayed without their reactions.
+ *
+ * @param context of the list
+ * @param onEndReached called when the user scrolls to the last chirps found, to find the next ones
+ */
+class ChirpSearchAdapter(context: Context, private val onEndReached: () -> Unit) :
+    BaseAdapter() {
+  private val layoutInflater: LayoutInflater = LayoutInflater.from(context)
+  private val chirps: MutableList<Chirp> = ArrayList()
+
+  /** Last chirp displayed, from which the next page of results starts */
+  val lastChirp: Chirp?
+    get() = chirps.lastOrNull()
+
+  fun replaceList(chirps: List<Chirp>) {
+    this.chirps.clear()
+    addAll(chirps)
+  }
+
+  fun addAll(chirps: List<Chirp>) {
+    this.chirps.addAll(chirps)
+    notifyDataSetChanged()
+  }
+
+  override fun getCount(): Int {
+    return chirps.size
+  }
+
+  override fun getItem(position: Int): Chirp? {
+    return chirps.getOrNull(position)
+  }
+
+  override fun getItemId(position: Int): Long {
+    return position.toLong()
+  }
+
+  override fun getView(position: Int, chirpView: View?, viewGroup: ViewGroup): View {
+    val view = chirpView ?: layoutInflater.inflate(R.layout.chirp_card, viewGroup, false)
+
+    val chirp = getItem(position) ?: throw IllegalArgumentException("The chirp does not exist")
+
+    // Find the next chirps before the user reaches the end of the list
+    if (position >= count - LOAD_MORE_THRESHOLD) {
+      onEndReached()
+    }
+
+    view.findViewById<View>(R.id.chirp_card_buttons).visibility = View.GONE
+    view.findViewById<View>(R.id.delete_chirp_button).visibility = View.GONE
+    view.findViewById<TextView>(R.id.social_media_username).text = chirp.sender.encoded
+    view.findViewById<TextView>(R.id.social_media_time).text =
+        DateUtils.getRelativeTimeSpanString(chirp.timestamp * 1000)
+    view.findViewById<TextView>(R.id.social_media_text).text = chirp.text
+
+    return view
+  }
+
+  companion object {
+    /** Number of chirps left to display below which the next ones are searched */
+    private const val LOAD_MORE_THRESHOLD = 10
+  }
+}
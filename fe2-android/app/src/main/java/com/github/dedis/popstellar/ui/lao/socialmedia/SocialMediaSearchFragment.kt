@@ -4,21 +4,33 @@ import android.os.Bundle
 import android.view.LayoutInflater
 import android.view.View
 import android.view.ViewGroup
+import android.view.inputmethod.EditorInfo
 import androidx.fragment.app.Fragment
 import com.github.dedis.popstellar.R
 import com.github.dedis.popstellar.databinding.SocialMediaSearchFragmentBinding
+import com.github.dedis.popstellar.model.objects.Chirp
 import com.github.dedis.popstellar.ui.lao.LaoActivity.Companion.addBackNavigationCallback
 import com.github.dedis.popstellar.ui.lao.LaoActivity.Companion.obtainSocialMediaViewModel
 import com.github.dedis.popstellar.ui.lao.LaoActivity.Companion.obtainViewModel
 import com.github.dedis.popstellar.ui.lao.LaoViewModel
 import com.github.dedis.popstellar.utility.ActivityUtils.buildBackButtonCallback
+import com.github.dedis.popstellar.utility.error.ErrorUtils.logAndShow
 import dagger.hilt.android.AndroidEntryPoint
+import io.reactivex.disposables.Disposable
 
 /** Fragment that let us search for chirps and users */
 @AndroidEntryPoint
 class SocialMediaSearchFragment : Fragment() {
 
   private lateinit var laoViewModel: LaoViewModel
+  private lateinit var socialMediaViewModel: SocialMediaViewModel
+  private lateinit var adapter: ChirpSearchAdapter
+
+  // Search whose results are displayed, and the subscription to its last page
+  private var query = ""
+  private var searchDisposable: Disposable? = null
+  private var searching = false
+  private var allFound = true
 
   override fun onCreateView(
       inflater: LayoutInflater,
@@ -29,11 +41,12 @@ class SocialMediaSearchFragment : Fragment() {
         SocialMediaSearchFragmentBinding.inflate(inflater, container, false)
 
     laoViewModel = obtainViewModel(requireActivity())
-    val socialMediaViewModel = obtainSocialMediaViewModel(requireActivity(), laoViewModel.laoId!!)
+    socialMediaViewModel = obtainSocialMediaViewModel(requireActivity(), laoViewModel.laoId!!)
 
     binding.viewModel = socialMediaViewModel
     binding.lifecycleOwner = viewLifecycleOwner
 
+    setupSearch(binding)
     handleBackNav()
 
     return binding.root
@@ -45,6 +58,60 @@ class SocialMediaSearchFragment : Fragment() {
     laoViewModel.setIsTab(true)
   }
 
+  override fun onDestroyView() {
+    super.onDestroyView()
+    searchDisposable?.dispose()
+  }
+
+  private fun setupSearch(binding: SocialMediaSearchFragmentBinding) {
+    adapter = ChirpSearchAdapter(requireContext()) { searchNextPage() }
+    binding.socialMediaSearchResults.adapter = adapter
+
+    binding.socialMediaSearchInput.setOnEditorActionListener { input, actionId, _ ->
+      if (actionId == EditorInfo.IME_ACTION_SEARCH) {
+        query = input.text.toString()
+        allFound = false
+        search(null)
+        true
+      } else {
+        false
+      }
+    }
+  }
+
+  private fun searchNextPage() {
+    if (!searching && !allFound) {
+      search(adapter.lastChirp)
+    }
+  }
+
+  /**
+   * Search the chirps of the query, replacing the results if this is the first page
+   *
+   * @param after last chirp displayed, or null to start a new search
+   */
+  private fun search(after: Chirp?) {
+    // A new search replaces the page that is still being searched
+    searchDisposable?.dispose()
+    searching = true
+    searchDisposable =
+        socialMediaViewModel
+            .searchChirps(query, after)
+            .doFinally { searching = false }
+            .subscribe(
+                { chirps ->
+                  if (after == null) {
+                    adapter.replaceList(chirps)
+                  } else {
+                    adapter.addAll(chirps)
+                  }
+                  allFound = chirps.isEmpty()
+                },
+                { error: Throwable ->
+                  logAndShow(requireContext(), TAG, error, R.string.error_search_chirps)
+                })
+  }
+
   private fun handleBackNav() {
     addBackNavigationCallback(
         requireActivity(),
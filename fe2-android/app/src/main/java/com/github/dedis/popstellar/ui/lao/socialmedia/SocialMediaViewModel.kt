@@ -14,7 +14,9 @@ import com.github.dedis.popstellar.model.objects.Chirp
 import com.github.dedis.popstellar.model.objects.Reaction
 import com.github.dedis.popstellar.model.objects.security.MessageID
 import com.github.dedis.popstellar.model.objects.security.PoPToken
+import com.github.dedis.popstellar.model.objects.security.PublicKey
 import com.github.dedis.popstellar.model.objects.view.LaoView
+import com.github.dedis.popstellar.repository.ChirpFeed
 import com.github.dedis.popstellar.repository.LAORepository
 import com.github.dedis.popstellar.repository.RollCallRepository
 import com.github.dedis.popstellar.repository.SocialMediaRepository
@@ -31,8 +33,6 @@ import dagger.hilt.android.lifecycle.HiltViewModel
 import io.reactivex.Observable
 import io.reactivex.Single
 import io.reactivex.disposables.CompositeDisposable
-import java.util.Arrays
-import java.util.stream.Collectors
 import javax.inject.Inject
 import timber.log.Timber
 
@@ -221,35 +221,52 @@ constructor(
         }
   }
 
-  val chirps: Observable<List<Chirp>>
+  /**
+   * Changes of the chirps of the lao, ordered from the newest to the oldest, starting with all the
+   * current chirps
+   */
+  val chirpChanges: Observable<ChirpFeed.Change>
     get() =
         socialMediaRepository
-            .getChirpsOfLao(laoId)
-            // Retrieve chirp subjects per id
-            .map { ids: Set<MessageID> ->
-              val chirps: MutableList<Observable<Chirp>> = ArrayList(ids.size)
-              for (id in ids) {
-                chirps.add(socialMediaRepository.getChirp(laoId, id))
-              }
-              chirps
-            }
-            // Zip the subjects together to a sorted list
-            .flatMap { observables: List<Observable<Chirp>> ->
-              Observable.combineLatest(observables) { chirps: Array<Any?> ->
-                Arrays.stream(chirps)
-                    .map { obj: Any? -> Chirp::class.java.cast(obj) }
-                    .sorted(
-                        Comparator.comparing { chirp: Chirp? ->
-                          if (chirp != null) -chirp.timestamp else 0
-                        })
-                    .collect(Collectors.toList())
-              }
-            }
+            .getChirpFeed(laoId)
             // We want to observe these changes on the main thread such that any modification done
-            // to
-            // the view are done on the thread. Otherwise, the app might crash
+            // to the view are done on the thread. Otherwise, the app might crash
             .observeOn(schedulerProvider.mainThread())
 
+  /** Load the next chirps stored on the disk, once the user scrolled to the last ones displayed */
+  fun loadMoreChirps() {
+    socialMediaRepository.loadMoreChirps(laoId)
+  }
+
+  /**
+   * Search the chirps of the lao. A query starting with # searches a hashtag, one starting with @
+   * the chirps of the author with the given public key, and any other the words of the chirps.
+   *
+   * @param query typed by the user
+   * @param after last chirp of the previous page of results, null for the first page
+   * @return the matching chirps of the page, from the newest to the oldest
+   */
+  fun searchChirps(query: String, after: Chirp?): Single<List<Chirp>> {
+    val searched = query.trim()
+    val results =
+        when {
+          searched.startsWith(HASHTAG_PREFIX) ->
+              socialMediaRepository.searchChirpsByHashtag(laoId, searched, after)
+          searched.startsWith(AUTHOR_PREFIX) -> {
+            val author =
+                try {
+                  PublicKey(searched.substring(AUTHOR_PREFIX.length))
+                } catch (e: IllegalArgumentException) {
+                  Timber.tag(TAG).d(e, "The searched author is not a public key")
+                  return Single.just(emptyList())
+                }
+            socialMediaRepository.searchChirpsByAuthor(laoId, author, after)
+          }
+          else -> socialMediaRepository.searchChirpsByText(laoId, searched, after)
+        }
+    return results.observeOn(schedulerProvider.mainThread())
+  }
+
   @Throws(UnknownChirpException::class)
   fun getReactions(chirpId: MessageID): Observable<Set<Reaction>> {
     return socialMediaRepository
@@ -309,6 +326,8 @@ constructor(
     private const val LAO_FAILURE_MESSAGE = "failed to retrieve lao"
     private const val SOCIAL = "social"
     private const val REACTIONS = "reactions"
+    private const val HASHTAG_PREFIX = "#"
+    private const val AUTHOR_PREFIX = "@"
     const val MAX_CHAR_NUMBERS = 300
     const val MAX_CHAR_NUMBERS_STR = "300"
   }
@@ -9,10 +9,11 @@ import android.view.ViewGroup
 import androidx.fragment.app.Fragment
 import com.github.dedis.popstellar.R
 import com.github.dedis.popstellar.databinding.WitnessMessageFragmentBinding
-import com.github.dedis.popstellar.model.objects.WitnessMessage
+import com.github.dedis.popstellar.repository.WitnessMessageFeed
 import com.github.dedis.popstellar.ui.lao.LaoActivity.Companion.obtainViewModel
 import com.github.dedis.popstellar.ui.lao.LaoActivity.Companion.obtainWitnessingViewModel
 import dagger.hilt.android.AndroidEntryPoint
+import io.reactivex.disposables.CompositeDisposable
 import timber.log.Timber
 
 @AndroidEntryPoint
@@ -21,6 +22,7 @@ class WitnessMessageFragment : Fragment() {
   private lateinit var binding: WitnessMessageFragmentBinding
   private lateinit var witnessingViewModel: WitnessingViewModel
   private lateinit var adapter: WitnessMessageListViewAdapter
+  private val disposables = CompositeDisposable()
 
   override fun onCreateView(
       inflater: LayoutInflater,
@@ -47,12 +49,19 @@ class WitnessMessageFragment : Fragment() {
     listView.adapter = adapter
   }
 
+  override fun onDestroyView() {
+    // The changes are applied to the adapter of the view, which is not used anymore
+    disposables.clear()
+    super.onDestroyView()
+  }
+
   private fun setupListUpdates() {
-    witnessingViewModel.witnessMessages.observe(requireActivity()) { messages: List<WitnessMessage>?
-      ->
-      Timber.tag(TAG).d("witness messages updated")
-      adapter.replaceList(messages)
-    }
+    disposables.add(
+        witnessingViewModel.witnessMessageChanges.subscribe(
+            { change: WitnessMessageFeed.Change -> adapter.applyChange(change) },
+            { error: Throwable ->
+              Timber.tag(TAG).e(error, "Error in updating the witness messages")
+            }))
   }
 
   private fun setupDeleteButton() {
@@ -14,6 +14,7 @@ import com.github.dedis.popstellar.R
 import com.github.dedis.popstellar.databinding.WitnessMessageLayoutBinding
 import com.github.dedis.popstellar.model.objects.WitnessMessage
 import com.github.dedis.popstellar.model.objects.security.PublicKey
+import com.github.dedis.popstellar.repository.WitnessMessageFeed
 import com.github.dedis.popstellar.ui.lao.LaoActivity.Companion.obtainViewModel
 import com.github.dedis.popstellar.ui.lao.LaoActivity.Companion.obtainWitnessingViewModel
 import com.github.dedis.popstellar.ui.lao.LaoViewModel
@@ -32,36 +33,38 @@ class WitnessMessageListViewAdapter(
       obtainWitnessingViewModel(activity, laoViewModel.laoId)
   private val isWitness: Boolean = java.lang.Boolean.TRUE == laoViewModel.isWitness.value
 
-  private var messages: List<WitnessMessage>? = null
+  private val messages: MutableList<WitnessMessage> = ArrayList()
 
   init {
-    setList(messages)
+    messages?.let { applyChange(WitnessMessageFeed.Change.Reset(it)) }
   }
 
-  fun replaceList(messages: List<WitnessMessage>?) {
-    setList(messages)
+  /**
+   * Apply a change of the witness messages to the displayed list. A new signature only modifies
+   * its message, and the list view only binds the visible messages again.
+   *
+   * @param change of the witness messages
+   */
+  fun applyChange(change: WitnessMessageFeed.Change) {
+    change.applyTo(messages)
+    notifyDataSetChanged()
   }
 
   fun deleteSignedMessages() {
     witnessingViewModel.deleteSignedMessages()
   }
 
-  private fun setList(messages: List<WitnessMessage>?) {
-    this.messages = messages ?: return
-    notifyDataSetChanged()
-  }
-
   /**
    * How many items are in the data set represented by this Adapter.
    *
    * @return Count of items.
    */
   override fun getCount(): Int {
-    return messages?.size ?: 0
+    return messages.size
   }
 
   override fun getItem(position: Int): WitnessMessage? {
-    return messages?.get(position)
+    return messages.getOrNull(position)
   }
 
   override fun getItemId(position: Int): Long {
@@ -82,7 +85,7 @@ class WitnessMessageListViewAdapter(
 
     binding.lifecycleOwner = activity
 
-    val witnessMessage = messages?.get(position) ?: return binding.root
+    val witnessMessage = messages.getOrNull(position) ?: return binding.root
 
     // Set message title and description
     binding.messageTitle.text = witnessMessage.title
@@ -17,6 +17,7 @@ import com.github.dedis.popstellar.model.objects.view.LaoView
 import com.github.dedis.popstellar.model.qrcode.MainPublicKeyData
 import com.github.dedis.popstellar.model.qrcode.MainPublicKeyData.Companion.extractFrom
 import com.github.dedis.popstellar.repository.LAORepository
+import com.github.dedis.popstellar.repository.WitnessMessageFeed
 import com.github.dedis.popstellar.repository.WitnessingRepository
 import com.github.dedis.popstellar.repository.remote.GlobalNetworkManager
 import com.github.dedis.popstellar.ui.qrcode.QRCodeScanningViewModel
@@ -26,11 +27,11 @@ import com.github.dedis.popstellar.utility.security.KeyManager
 import com.google.gson.Gson
 import dagger.hilt.android.lifecycle.HiltViewModel
 import io.reactivex.Completable
+import io.reactivex.Observable
 import io.reactivex.Single
 import io.reactivex.android.schedulers.AndroidSchedulers
 import io.reactivex.disposables.CompositeDisposable
 import java.time.Instant
-import java.util.stream.Collectors
 import javax.inject.Inject
 import timber.log.Timber
 
@@ -53,20 +54,14 @@ constructor(
   // Accepted witnesses
   val witnesses = MutableLiveData<List<PublicKey>>()
 
-  // Received witness messages
-  val witnessMessages = MutableLiveData<List<WitnessMessage>>()
-
   override val nbScanned = MutableLiveData(0)
 
   val showPopup = MutableLiveData(false)
   private val disposables = CompositeDisposable()
 
-  fun setWitnessMessages(messages: List<WitnessMessage>) {
-    witnessMessages.value = messages
-  }
-
+  /** Whether the user is a witness, according to the witnesses observed from the repository */
   val isWitness: Boolean
-    get() = witnessingRepo.isWitness(laoId!!, keyManager.mainPublicKey)
+    get() = witnesses.value?.contains(keyManager.mainPublicKey) == true
 
   fun setWitnesses(witnesses: List<PublicKey>) {
     this.witnesses.value = witnesses
@@ -96,20 +91,20 @@ constructor(
                 { error: Throwable ->
                   Timber.tag(TAG).e(error, "Error in updating the witnesses of lao %s", laoId)
                 }), // Observe the witness messages
+        // The messages are observed once the witnesses are loaded, to check if they can be signed
         witnessingRepo
-            .getWitnessMessagesObservableInLao(laoId)
+            .getWitnessesObservableInLao(laoId)
+            .firstOrError()
+            .flatMapObservable { witnessingRepo.getWitnessMessageFeed(laoId) }
             .observeOn(AndroidSchedulers.mainThread())
-            .subscribe({ witnessMessage: List<WitnessMessage> ->
-              if (witnessMessage.isEmpty()) {
-                return@subscribe
-              }
-              // Order by latest arrived
-              setWitnessMessages(
-                  witnessMessage
-                      .stream()
-                      .sorted(Comparator.comparing(WitnessMessage::timestamp).reversed())
-                      .collect(Collectors.toList()))
-              val lastMessage = witnessMessages.value!![0]
+            .subscribe({ change: WitnessMessageFeed.Change ->
+              // Only a new message may need to be signed, the latest being the first of a reset
+              val lastMessage =
+                  when (change) {
+                    is WitnessMessageFeed.Change.Reset -> change.messages.firstOrNull()
+                    is WitnessMessageFeed.Change.MessageAdded -> change.message
+                    else -> null
+                  } ?: return@subscribe
 
               // When a new witness message is received, if it needs to be yet signed by the
               // witness
@@ -119,7 +114,7 @@ constructor(
               // mechanism
               val myPk = keyManager.mainPublicKey
               val isOrganizer = lao.isOrganizer(myPk)
-              val isWitness = witnessingRepo.isWitness(laoId, myPk)
+              val isWitness = witnessingRepo.getWitnesses(laoId).contains(myPk)
               val alreadySigned = lastMessage.witnesses.contains(myPk)
 
               // Allow to sign the message only if the user is a witness and hasn't signed yet
@@ -149,6 +144,17 @@ constructor(
     return this
   }
 
+  /**
+   * Changes of the witness messages of the lao, ordered from the newest to the oldest, starting
+   * with all the current messages
+   */
+  val witnessMessageChanges: Observable<WitnessMessageFeed.Change>
+    get() =
+        witnessingRepo
+            .getWitnessMessageFeed(laoId!!)
+            // The changes are applied to the displayed list, thus on the main thread
+            .observeOn(AndroidSchedulers.mainThread())
+
   /**
    * This function deletes the messages that have already passed the witnessing policy to clear
    * useless space.
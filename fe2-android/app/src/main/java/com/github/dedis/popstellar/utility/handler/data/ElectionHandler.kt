@@ -8,6 +8,7 @@ import com.github.dedis.popstellar.model.network.method.message.data.election.El
 import com.github.dedis.popstellar.model.network.method.message.data.election.ElectionResult
 import com.github.dedis.popstellar.model.network.method.message.data.election.ElectionResultQuestion
 import com.github.dedis.popstellar.model.network.method.message.data.election.ElectionSetup
+import com.github.dedis.popstellar.model.network.method.message.data.election.ElectionVersion
 import com.github.dedis.popstellar.model.network.method.message.data.election.QuestionResult
 import com.github.dedis.popstellar.model.objects.Election
 import com.github.dedis.popstellar.model.objects.Election.ElectionBuilder
@@ -144,6 +145,13 @@ constructor(
             .build()
     val laoId = channel.extractLaoId()
 
+    // The results of an open ballot can be checked against the votes received. They are still
+    // accepted if they differ, as this device might not have received all the votes.
+    if (election.electionVersion == ElectionVersion.OPEN_BALLOT &&
+        !election.tally.matches(election.electionQuestions, election.results)) {
+      Timber.tag(TAG).w("The results of election %s differ from the votes received", election.id)
+    }
+
     witnessingRepository.addWitnessMessage(laoId, electionResultWitnessMessage(messageId, election))
     if (witnessingRepository.areWitnessesEmpty(laoId)) {
       addElectionRoutine(electionRepository, election)
@@ -21,6 +21,7 @@ import com.github.dedis.popstellar.utility.error.InvalidMessageIdException
 import com.github.dedis.popstellar.utility.error.InvalidSignatureException
 import com.github.dedis.popstellar.utility.error.UnknownLaoException
 import com.github.dedis.popstellar.utility.security.KeyManager
+import com.github.dedis.popstellar.utility.security.SignatureVerifier
 import javax.inject.Inject
 import timber.log.Timber
 
@@ -146,10 +147,15 @@ constructor(
     }
 
     Timber.tag(TAG).d("Verifying signatures")
-    for (pair in stateLao.modificationSignatures) {
-      if (!pair.witness.verify(pair.signature, stateLao.modificationId)) {
-        throw InvalidSignatureException(stateLao, pair.signature)
-      }
+    val signatures = stateLao.modificationSignatures
+    val valid =
+        SignatureVerifier.verifyAll(
+            signatures.map {
+              SignatureVerifier.Request(it.witness, it.signature, stateLao.modificationId)
+            })
+    val invalid = valid.indexOf(false)
+    if (invalid != -1) {
+      throw InvalidSignatureException(stateLao, signatures[invalid].signature)
     }
     Timber.tag(TAG).d("Success to verify state lao signatures")
 
@@ -7,6 +7,7 @@ import com.github.dedis.popstellar.utility.error.DataHandlingException
 import com.github.dedis.popstellar.utility.error.InvalidSignatureException
 import com.github.dedis.popstellar.utility.error.InvalidWitnessingException
 import com.github.dedis.popstellar.utility.error.UnknownLaoException
+import com.github.dedis.popstellar.utility.security.SignatureVerifier
 import javax.inject.Inject
 import timber.log.Timber
 
@@ -36,10 +37,11 @@ constructor(private val laoRepo: LAORepository, private val witnessingRepo: Witn
       throw InvalidWitnessingException(witnessMessageSignature, witnessPk)
     }
 
-    // Check that the signature of the message id is correct
+    // Check that the signature of the message id is correct. It was already verified along with
+    // the message, so it is found in the verified signatures
     val messageID = witnessMessageSignature.messageId
     val signature = witnessMessageSignature.signature
-    if (!witnessPk.verify(signature, messageID)) {
+    if (!SignatureVerifier.verify(SignatureVerifier.Request(witnessPk, signature, messageID))) {
       throw InvalidSignatureException(witnessMessageSignature, signature)
     }
 
@@ -0,0 +1,120 @@
+package com.github.dedis.popstellar.utility.security
+
+import com.github.dedis.popstellar.model.objects.security.PublicKey
+import java.security.MessageDigest
+import java.security.NoSuchAlgorithmException
+import java.util.Arrays
+import java.util.Base64
+import java.util.concurrent.atomic.AtomicLong
+import timber.log.Timber
+
+/**
+ * Process-wide dictionary of the hashes of the public keys, as used by the digital cash to
+ * identify the owner of an output.
+ *
+ * The same few keys (the attendees of the LAOs) are hashed over and over when computing balances
+ * and displaying the history, so the hashes are remembered. The cache is bounded and evicts the
+ * least recently used keys first. Finding a key from its hash is left to the digital cash
+ * repository, which must know the hashes of all the attendees of a LAO.
+ */
+object PublicKeyHashCache {
+  private val TAG = PublicKeyHashCache::class.java.simpleName
+
+  /** Maximum number of keys remembered */
+  const val MAX_SIZE = 4096
+
+  /** Truncated length of the hash, in bytes */
+  private const val HASH_LENGTH = 20
+
+  private val digest: ThreadLocal<MessageDigest> = ThreadLocal.withInitial {
+    try {
+      MessageDigest.getInstance("SHA-256")
+    } catch (e: NoSuchAlgorithmException) {
+      Timber.tag(TAG).e(e, "Something is wrong by hashing the String element")
+      throw IllegalArgumentException("Error in computing the hash in public key")
+    }
+  }
+
+  // Ordered by access to evict the least recently used key
+  private val hashes =
+      object : LinkedHashMap<PublicKey, String>(MAX_SIZE, 0.75f, true) {
+        override fun removeEldestEntry(
+            eldest: MutableMap.MutableEntry<PublicKey, String>
+        ): Boolean {
+          return size > MAX_SIZE
+        }
+      }
+
+  private val hits = AtomicLong()
+  private val misses = AtomicLong()
+
+  /**
+   * Hash of a public key, computed only if it is not known yet
+   *
+   * @param publicKey to hash
+   * @return the base64 encoded truncated SHA256 hash of the key
+   */
+  @JvmStatic
+  fun getHash(publicKey: PublicKey): String {
+    synchronized(this) { hashes[publicKey] }
+        ?.let {
+          hits.incrementAndGet()
+          return it
+        }
+
+    misses.incrementAndGet()
+    val hash = computeHash(publicKey)
+    put(hash, publicKey)
+    return hash
+  }
+
+  /**
+   * Remember the hash of a public key, computed elsewhere (e.g. loaded from the database)
+   *
+   * @param hash of the public key
+   * @param publicKey hashed
+   */
+  @JvmStatic
+  @Synchronized
+  fun put(hash: String, publicKey: PublicKey) {
+    hashes[publicKey] = hash
+  }
+
+  /** Forget all the keys and reset the statistics */
+  @JvmStatic
+  @Synchronized
+  fun clear() {
+    hashes.clear()
+    hits.set(0)
+    misses.set(0)
+  }
+
+  /** Number of keys remembered */
+  @JvmStatic
+  val size: Int
+    @Synchronized get() = hashes.size
+
+  /** Number of lookups answered from the cache */
+  @JvmStatic
+  val hitCount: Long
+    get() = hits.get()
+
+  /** Number of lookups that were not in the cache */
+  @JvmStatic
+  val missCount: Long
+    get() = misses.get()
+
+  /** Ratio of the lookups answered from the cache, 0 if there was no lookup */
+  @JvmStatic
+  val hitRate: Double
+    get() {
+      val hitCount = hits.get()
+      val total = hitCount + misses.get()
+      return if (total == 0L) 0.0 else hitCount.toDouble() / total
+    }
+
+  private fun computeHash(publicKey: PublicKey): String {
+    val hash = digest.get().digest(publicKey.data)
+    return Base64.getUrlEncoder().encodeToString(Arrays.copyOf(hash, HASH_LENGTH))
+  }
+}
@@ -0,0 +1,121 @@
+package com.github.dedis.popstellar.utility.security
+
+import com.github.dedis.popstellar.model.objects.security.Base64URLData
+import com.github.dedis.popstellar.model.objects.security.MessageID
+import com.github.dedis.popstellar.model.objects.security.PublicKey
+import com.github.dedis.popstellar.model.objects.security.Signature
+import java.util.concurrent.atomic.AtomicLong
+import java.util.stream.Collectors
+
+/**
+ * Process-wide service verifying the signatures of the messages and of their witnesses.
+ *
+ * The same signatures are verified several times : a message can be received both from a
+ * broadcast and from a catchup, and the signature of a witness is checked by the network layer and
+ * then by the witnessing handler. The valid signatures are thus remembered, identified by the key
+ * and the hash of the signed data and signature. The invalid ones are always verified again.
+ *
+ * Ed25519 batch verification is not provided by Tink, the batches are instead split among the
+ * threads of the common fork-join pool.
+ */
+object SignatureVerifier {
+
+  /** Maximum number of valid signatures remembered */
+  const val MAX_SIZE = 16384
+
+  /** Batches smaller than this are verified on the calling thread */
+  private const val PARALLEL_THRESHOLD = 8
+
+  // Ordered by access to evict the least recently used signature
+  private val verified =
+      object : LinkedHashMap<Pair<PublicKey, MessageID>, Boolean>(MAX_SIZE, 0.75f, true) {
+        override fun removeEldestEntry(
+            eldest: MutableMap.MutableEntry<Pair<PublicKey, MessageID>, Boolean>
+        ): Boolean {
+          return size > MAX_SIZE
+        }
+      }
+
+  private val verifications = AtomicLong()
+  private val hits = AtomicLong()
+  private val verificationNanos = AtomicLong()
+
+  /**
+   * A signature to verify
+   *
+   * @param publicKey of the signer
+   * @param signature to verify
+   * @param data that was signed
+   */
+  class Request(val publicKey: PublicKey, val signature: Signature, val data: Base64URLData) {
+    // Hash of the data and signature, computed here as the id received with a message is not
+    // trusted
+    val id = MessageID(data, signature)
+  }
+
+  /**
+   * Verify a signature, unless it was already found valid
+   *
+   * @param request the signature to verify
+   * @return true if the signature is valid
+   */
+  @JvmStatic
+  fun verify(request: Request): Boolean {
+    val key = Pair(request.publicKey, request.id)
+    if (synchronized(verified) { verified[key] } != null) {
+      hits.incrementAndGet()
+      return true
+    }
+
+    val start = System.nanoTime()
+    val isValid = request.publicKey.verify(request.signature, request.data)
+    verificationNanos.addAndGet(System.nanoTime() - start)
+    verifications.incrementAndGet()
+
+    if (isValid) {
+      synchronized(verified) { verified[key] = true }
+    }
+    return isValid
+  }
+
+  /**
+   * Verify a batch of signatures, in parallel if it is large enough
+   *
+   * @param requests the signatures to verify
+   * @return whether each signature is valid, in the order of the requests
+   */
+  @JvmStatic
+  fun verifyAll(requests: List<Request>): List<Boolean> {
+    if (requests.size < PARALLEL_THRESHOLD) {
+      return requests.map(::verify)
+    }
+    return requests.parallelStream().map(::verify).collect(Collectors.toList())
+  }
+
+  /** Forget the verified signatures and reset the statistics */
+  @JvmStatic
+  fun clear() {
+    synchronized(verified) { verified.clear() }
+    verifications.set(0)
+    hits.set(0)
+    verificationNanos.set(0)
+  }
+
+  /** Number of signatures actually verified */
+  @JvmStatic
+  val verificationCount: Long
+    get() = verifications.get()
+
+  /** Number of signatures found valid without verifying them again */
+  @JvmStatic
+  val hitCount: Long
+    get() = hits.get()
+
+  /** Signatures verified per second of verification, summed over all threads, 0 if none was */
+  @JvmStatic
+  val throughput: Double
+    get() {
+      val nanos = verificationNanos.get()
+      return if (nanos == 0L) 0.0 else verifications.get() * 1e9 / nanos
+    }
+}
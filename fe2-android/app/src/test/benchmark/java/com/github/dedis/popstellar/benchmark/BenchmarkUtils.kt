@@ -0,0 +1,57 @@
+package com.github.dedis.popstellar.benchmark
+
+import com.github.dedis.popstellar.di.DataRegistryModule
+import com.github.dedis.popstellar.di.JsonModule
+import com.github.dedis.popstellar.model.network.method.message.data.DataRegistry
+import com.github.dedis.popstellar.utility.handler.data.ChirpHandler
+import com.github.dedis.popstellar.utility.handler.data.ConsensusHandler
+import com.github.dedis.popstellar.utility.handler.data.ElectionHandler
+import com.github.dedis.popstellar.utility.handler.data.LaoHandler
+import com.github.dedis.popstellar.utility.handler.data.MeetingHandler
+import com.github.dedis.popstellar.utility.handler.data.ReactionHandler
+import com.github.dedis.popstellar.utility.handler.data.RollCallHandler
+import com.github.dedis.popstellar.utility.handler.data.TransactionCoinHandler
+import com.github.dedis.popstellar.utility.handler.data.WitnessingHandler
+import com.google.gson.Gson
+import java.nio.charset.StandardCharsets
+import java.util.Objects
+import org.mockito.Mockito
+
+/** Objects shared by the benchmarks, built without the Android framework */
+object BenchmarkUtils {
+  /** Directory of the protocol examples in the resources */
+  const val EXAMPLES_DIR = "protocol/examples/"
+
+  /**
+   * Data registry mapping the protocol messages to their types. The handlers are never called by
+   * the benchmarks, hence they are mocked
+   */
+  val REGISTRY: DataRegistry =
+    DataRegistryModule.provideDataRegistry(
+      Mockito.mock(LaoHandler::class.java),
+      Mockito.mock(RollCallHandler::class.java),
+      Mockito.mock(MeetingHandler::class.java),
+      Mockito.mock(ElectionHandler::class.java),
+      Mockito.mock(ConsensusHandler::class.java),
+      Mockito.mock(ChirpHandler::class.java),
+      Mockito.mock(ReactionHandler::class.java),
+      Mockito.mock(TransactionCoinHandler::class.java),
+      Mockito.mock(WitnessingHandler::class.java)
+    )
+
+  val GSON: Gson = JsonModule.provideGson(REGISTRY)
+
+  /**
+   * Load an example of the protocol
+   *
+   * @param path of the example, relative to the examples directory
+   * @return the content of the example
+   */
+  @JvmStatic
+  fun loadExample(path: String): String {
+    val stream =
+      Objects.requireNonNull(BenchmarkUtils::class.java.classLoader)
+        .getResourceAsStream(EXAMPLES_DIR + path)
+    return stream.use { String(it.readBytes(), StandardCharsets.UTF_8) }
+  }
+}
@@ -0,0 +1,54 @@
+package com.github.dedis.popstellar.benchmark
+
+import com.github.dedis.popstellar.model.objects.digitalcash.CoinSelection
+import com.github.dedis.popstellar.model.objects.digitalcash.CoinSelector
+import com.github.dedis.popstellar.model.objects.digitalcash.UnspentOutput
+import java.util.Random
+import java.util.concurrent.TimeUnit
+import org.openjdk.jmh.annotations.Benchmark
+import org.openjdk.jmh.annotations.BenchmarkMode
+import org.openjdk.jmh.annotations.Fork
+import org.openjdk.jmh.annotations.Measurement
+import org.openjdk.jmh.annotations.Mode
+import org.openjdk.jmh.annotations.OutputTimeUnit
+import org.openjdk.jmh.annotations.Param
+import org.openjdk.jmh.annotations.Scope
+import org.openjdk.jmh.annotations.Setup
+import org.openjdk.jmh.annotations.State
+import org.openjdk.jmh.annotations.Warmup
+
+/** Selection of the outputs spent by a transaction among the unspent outputs of a wallet */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+open class CoinSelectionBenchmark {
+  @Param("100", "10000") lateinit var outputs: String
+  /** Paid amount, in percent of the balance of the wallet */
+  @Param("1", "10", "50") lateinit var percentOfBalance: String
+
+  private lateinit var unspentOutputs: List<UnspentOutput>
+  private var amount = 0L
+
+  @Setup
+  fun setup() {
+    // Seeded so that every run selects among the same outputs
+    val random = Random(SEED)
+    unspentOutputs =
+        List(outputs.toInt()) { UnspentOutput("tx$it", 0, HASH, 1L + random.nextInt(MAX_VALUE)) }
+    amount = unspentOutputs.sumOf { it.value } * percentOfBalance.toInt() / 100
+  }
+
+  @Benchmark
+  fun select(): CoinSelection {
+    return CoinSelector.select(unspentOutputs, amount)
+  }
+
+  companion object {
+    private const val SEED = 42L
+    private const val MAX_VALUE = 1000
+    private const val HASH = "hash"
+  }
+}
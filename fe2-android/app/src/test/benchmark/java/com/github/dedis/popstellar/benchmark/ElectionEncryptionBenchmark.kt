@@ -0,0 +1,80 @@
+package com.github.dedis.popstellar.benchmark
+
+import com.github.dedis.popstellar.model.network.method.message.data.election.ElectionVersion
+import com.github.dedis.popstellar.model.network.method.message.data.election.EncryptedVote
+import com.github.dedis.popstellar.model.network.method.message.data.election.PlainVote
+import com.github.dedis.popstellar.model.objects.Election
+import com.github.dedis.popstellar.model.objects.security.elGamal.ElectionKeyPair
+import com.github.dedis.popstellar.model.objects.security.elGamal.ElectionPublicKey
+import com.github.dedis.popstellar.model.objects.security.elGamal.PreparedElectionPublicKey
+import java.util.concurrent.TimeUnit
+import org.openjdk.jmh.annotations.Benchmark
+import org.openjdk.jmh.annotations.BenchmarkMode
+import org.openjdk.jmh.annotations.Fork
+import org.openjdk.jmh.annotations.Measurement
+import org.openjdk.jmh.annotations.Mode
+import org.openjdk.jmh.annotations.OutputTimeUnit
+import org.openjdk.jmh.annotations.Param
+import org.openjdk.jmh.annotations.Scope
+import org.openjdk.jmh.annotations.Setup
+import org.openjdk.jmh.annotations.State
+import org.openjdk.jmh.annotations.Warmup
+
+/** ElGamal encryption of the votes of a secret ballot election */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+open class ElectionEncryptionBenchmark {
+  /** Number of questions of the ballot, each one being answered by an encrypted vote */
+  @Param("1", "10", "100") lateinit var questions: String
+
+  private lateinit var electionKey: ElectionPublicKey
+  private lateinit var preparedKey: PreparedElectionPublicKey
+  private lateinit var election: Election
+  private lateinit var ballot: List<PlainVote>
+
+  @Setup
+  fun setup() {
+    electionKey = ElectionKeyPair.generateKeyPair().encryptionScheme
+    preparedKey = PreparedElectionPublicKey(electionKey)
+    election =
+        Election.ElectionBuilder("lao_id", CREATION, "election")
+            .setElectionVersion(ElectionVersion.SECRET_BALLOT)
+            .setElectionKey(electionKey.encodeToBase64())
+            .build()
+    ballot =
+        List(questions.toInt()) {
+          val questionId = Election.generateElectionQuestionId(election.id, "question $it")
+          PlainVote(questionId, it % 2, false, null, election.id)
+        }
+
+    // Prepare the key of the election before measuring
+    election.encrypt(ballot)
+  }
+
+  /** Encryption of a vote, which is the 2 bytes index of the chosen ballot option */
+  @Benchmark
+  fun encryptVote(): String? {
+    return electionKey.encrypt(VOTE)
+  }
+
+  /** Encryption of a vote with the multiples of the key precomputed */
+  @Benchmark
+  fun encryptVoteWithPreparedKey(): String {
+    return preparedKey.encrypt(VOTE)
+  }
+
+  /** Encryption of a whole ballot, as done when casting a vote in a secret ballot election */
+  @Benchmark
+  fun encryptBallot(): List<EncryptedVote> {
+    return election.encrypt(ballot)
+  }
+
+  companion object {
+    private const val CREATION = 1_000_000L
+    private val VOTE = byteArrayOf(0, 1)
+  }
+}
@@ -0,0 +1,80 @@
+package com.github.dedis.popstellar.benchmark
+
+import com.github.dedis.popstellar.model.network.method.message.data.election.ElectionVersion
+import com.github.dedis.popstellar.model.network.method.message.data.election.PlainVote
+import com.github.dedis.popstellar.model.objects.Election
+import com.github.dedis.popstellar.model.objects.security.MessageID
+import com.github.dedis.popstellar.model.objects.security.PublicKey
+import com.github.dedis.popstellar.testutils.Base64DataUtils
+import java.util.concurrent.TimeUnit
+import org.openjdk.jmh.annotations.Benchmark
+import org.openjdk.jmh.annotations.BenchmarkMode
+import org.openjdk.jmh.annotations.Fork
+import org.openjdk.jmh.annotations.Measurement
+import org.openjdk.jmh.annotations.Mode
+import org.openjdk.jmh.annotations.OutputTimeUnit
+import org.openjdk.jmh.annotations.Param
+import org.openjdk.jmh.annotations.Scope
+import org.openjdk.jmh.annotations.Setup
+import org.openjdk.jmh.annotations.State
+import org.openjdk.jmh.annotations.Warmup
+
+/**
+ * Registration of the votes of an election, one cast vote at a time as the election handler does,
+ * and lookup of the previous vote of a sender in the resulting election
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+open class ElectionVoteIngestionBenchmark {
+  @Param("1000", "10000") lateinit var votes: String
+
+  private lateinit var election: Election
+  private lateinit var senders: List<PublicKey>
+  private lateinit var messageIds: List<MessageID>
+  private lateinit var votesOfSenders: List<List<PlainVote>>
+  private lateinit var fullElection: Election
+
+  @Setup
+  fun setup() {
+    election =
+        Election.ElectionBuilder("lao_id", CREATION, "election")
+            .setElectionVersion(ElectionVersion.OPEN_BALLOT)
+            .build()
+    val questionId = Election.generateElectionQuestionId(election.id, "question")
+
+    senders = List(votes.toInt()) { Base64DataUtils.generatePublicKey() }
+    messageIds = List(votes.toInt()) { Base64DataUtils.generateMessageID() }
+    votesOfSenders =
+        List(votes.toInt()) { listOf(PlainVote(questionId, it % 2, false, null, election.id)) }
+    fullElection = ingestVotes()
+  }
+
+  @Benchmark
+  fun ingestVotes(): Election {
+    var updated = election
+    for (i in senders.indices) {
+      updated =
+          updated
+              .builder()
+              .updateMessageMap(senders[i], messageIds[i])
+              .updateVotes(senders[i], votesOfSenders[i])
+              .build()
+    }
+    return updated
+  }
+
+  /** Lookup done by the election handler for each cast vote, to find the previous one */
+  @Benchmark
+  @OutputTimeUnit(TimeUnit.NANOSECONDS)
+  fun lookupPreviousVote(): MessageID? {
+    return fullElection.messageMap[senders[senders.size / 2]]
+  }
+
+  companion object {
+    private const val CREATION = 1_000_000L
+  }
+}
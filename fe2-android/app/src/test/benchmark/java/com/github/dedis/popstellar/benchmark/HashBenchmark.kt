@@ -0,0 +1,51 @@
+package com.github.dedis.popstellar.benchmark
+
+import com.github.dedis.popstellar.model.objects.security.PublicKey
+import com.github.dedis.popstellar.testutils.Base64DataUtils
+import com.github.dedis.popstellar.utility.security.HashSHA256
+import java.util.concurrent.TimeUnit
+import org.openjdk.jmh.annotations.Benchmark
+import org.openjdk.jmh.annotations.BenchmarkMode
+import org.openjdk.jmh.annotations.Fork
+import org.openjdk.jmh.annotations.Measurement
+import org.openjdk.jmh.annotations.Mode
+import org.openjdk.jmh.annotations.OutputTimeUnit
+import org.openjdk.jmh.annotations.Scope
+import org.openjdk.jmh.annotations.Setup
+import org.openjdk.jmh.annotations.State
+import org.openjdk.jmh.annotations.Warmup
+
+/** Hashes computed to identify the objects of the protocol and the owners of the coins */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+open class HashBenchmark {
+  private lateinit var publicKey: PublicKey
+  private lateinit var laoId: String
+  private lateinit var name: String
+
+  @Setup
+  fun setup() {
+    publicKey = Base64DataUtils.generatePublicKey()
+    laoId = Base64DataUtils.generateMessageID().encoded
+    name = "Roll Call"
+  }
+
+  /** Hash of an identifier, as computed for the roll calls, elections, meetings... */
+  @Benchmark
+  fun hashIdentifier(): String {
+    return HashSHA256.hash("R", laoId, CREATION, name)
+  }
+
+  @Benchmark
+  fun publicKeyHash(): String {
+    return publicKey.computeHash()
+  }
+
+  companion object {
+    private const val CREATION = "1633036120"
+  }
+}
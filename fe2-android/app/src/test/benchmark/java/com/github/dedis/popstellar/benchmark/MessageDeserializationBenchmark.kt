@@ -0,0 +1,87 @@
+package com.github.dedis.popstellar.benchmark
+
+import com.github.dedis.popstellar.model.network.method.message.MessageGeneral
+import com.github.dedis.popstellar.model.network.method.message.data.Data
+import com.github.dedis.popstellar.model.network.serializer.JsonUtils
+import com.github.dedis.popstellar.model.network.serializer.JsonUtils.ValidationPolicy
+import com.github.dedis.popstellar.model.network.serializer.data.JsonDataSerializer
+import com.github.dedis.popstellar.testutils.Base64DataUtils
+import com.google.gson.JsonParser
+import java.nio.charset.StandardCharsets
+import java.util.concurrent.TimeUnit
+import org.openjdk.jmh.annotations.Benchmark
+import org.openjdk.jmh.annotations.BenchmarkMode
+import org.openjdk.jmh.annotations.Fork
+import org.openjdk.jmh.annotations.Measurement
+import org.openjdk.jmh.annotations.Mode
+import org.openjdk.jmh.annotations.OutputTimeUnit
+import org.openjdk.jmh.annotations.Param
+import org.openjdk.jmh.annotations.Scope
+import org.openjdk.jmh.annotations.Setup
+import org.openjdk.jmh.annotations.State
+import org.openjdk.jmh.annotations.Warmup
+
+/**
+ * Deserialization of the messages received from the network, comparing the former decoding of the
+ * data, which parsed its text several times, with the decoding parsing it once
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+open class MessageDeserializationBenchmark {
+  @Param(
+    "messageData/lao_create/lao_create.json",
+    "messageData/roll_call_close.json",
+    "messageData/chirp_add_publish/chirp_add_publish.json",
+    "messageData/election_setup/election_setup.json",
+    "messageData/vote_cast_vote/vote_cast_vote.json",
+    "messageData/coin/post_transaction.json"
+  )
+  lateinit var example: String
+
+  @Param("INBOUND_ONLY", "OFF") lateinit var validation: ValidationPolicy
+
+  private lateinit var dataSerializer: JsonDataSerializer
+  private lateinit var data: ByteArray
+  private lateinit var message: String
+
+  @Setup
+  fun setup() {
+    JsonUtils.validationPolicy = validation
+    dataSerializer = JsonDataSerializer(BenchmarkUtils.REGISTRY)
+
+    val json = BenchmarkUtils.loadExample(example)
+    val parsed = BenchmarkUtils.GSON.fromJson(json, Data::class.java)
+    data = json.toByteArray(StandardCharsets.UTF_8)
+    message =
+      BenchmarkUtils.GSON.toJson(
+        MessageGeneral(SENDER, parsed, BenchmarkUtils.GSON),
+        MessageGeneral::class.java
+      )
+  }
+
+  /** Data decoded as before, the tree being serialized back to text for the schema validation */
+  @Benchmark
+  fun dataThroughTree(): Data {
+    val tree = JsonParser.parseString(String(data, StandardCharsets.UTF_8))
+    return BenchmarkUtils.GSON.fromJson(tree, Data::class.java)
+  }
+
+  /** Data parsed once when validated, streamed to its type with the validation off */
+  @Benchmark
+  fun dataSingleParse(): Data {
+    return dataSerializer.decode(data, BenchmarkUtils.GSON)
+  }
+
+  @Benchmark
+  fun messageGeneral(): MessageGeneral {
+    return BenchmarkUtils.GSON.fromJson(message, MessageGeneral::class.java)
+  }
+
+  companion object {
+    private val SENDER = Base64DataUtils.generateKeyPair()
+  }
+}
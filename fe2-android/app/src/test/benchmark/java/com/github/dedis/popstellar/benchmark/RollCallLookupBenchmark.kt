@@ -0,0 +1,130 @@
+package com.github.dedis.popstellar.benchmark
+
+import android.app.Application
+import com.github.dedis.popstellar.model.objects.RollCall
+import com.github.dedis.popstellar.model.objects.event.EventState
+import com.github.dedis.popstellar.model.objects.security.PublicKey
+import com.github.dedis.popstellar.repository.RollCallRepository
+import com.github.dedis.popstellar.repository.database.AppDatabase
+import com.github.dedis.popstellar.repository.database.event.rollcall.RollCallDao
+import com.github.dedis.popstellar.testutils.Base64DataUtils
+import com.github.dedis.popstellar.testutils.MockitoKotlinHelpers
+import io.reactivex.Completable
+import io.reactivex.Single
+import io.reactivex.android.plugins.RxAndroidPlugins
+import io.reactivex.schedulers.Schedulers
+import java.util.concurrent.TimeUnit
+import org.mockito.ArgumentMatchers
+import org.mockito.Mockito
+import org.openjdk.jmh.annotations.Benchmark
+import org.openjdk.jmh.annotations.BenchmarkMode
+import org.openjdk.jmh.annotations.Fork
+import org.openjdk.jmh.annotations.Measurement
+import org.openjdk.jmh.annotations.Mode
+import org.openjdk.jmh.annotations.OutputTimeUnit
+import org.openjdk.jmh.annotations.Param
+import org.openjdk.jmh.annotations.Scope
+import org.openjdk.jmh.annotations.Setup
+import org.openjdk.jmh.annotations.State
+import org.openjdk.jmh.annotations.TearDown
+import org.openjdk.jmh.annotations.Warmup
+
+/**
+ * Lookups done by the screens of a LAO among its roll calls: the last closed one, whether one is
+ * open and all the attendees. The database is mocked, only the repository in memory is measured.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+open class RollCallLookupBenchmark {
+  @Param("500") lateinit var rollCalls: String
+
+  private lateinit var repository: RollCallRepository
+  private lateinit var closedRollCalls: List<RollCall>
+
+  @Setup
+  fun setup() {
+    // The repository observes the database results on the main thread, absent from the JVM
+    RxAndroidPlugins.setInitMainThreadSchedulerHandler { Schedulers.trampoline() }
+
+    val rollCallDao = Mockito.mock(RollCallDao::class.java)
+    Mockito.`when`(rollCallDao.insert(MockitoKotlinHelpers.any()))
+        .thenReturn(Completable.complete())
+    Mockito.`when`(rollCallDao.getRollCallsByLaoId(ArgumentMatchers.anyString()))
+        .thenReturn(Single.just(emptyList()))
+    val appDatabase = Mockito.mock(AppDatabase::class.java)
+    Mockito.`when`(appDatabase.rollCallDao()).thenReturn(rollCallDao)
+    repository = RollCallRepository(appDatabase, Mockito.mock(Application::class.java))
+
+    val attendees = List(ATTENDEES) { Base64DataUtils.generatePublicKey() }
+    closedRollCalls =
+        List(rollCalls.toInt()) {
+          // Each roll call is attended by a window of the attendees, overlapping the previous one
+          val rollCallAttendees = HashSet<PublicKey>()
+          for (i in 0 until ATTENDEES_PER_ROLL_CALL) {
+            rollCallAttendees.add(attendees[(it * 7 + i) % ATTENDEES])
+          }
+          buildRollCall(it, EventState.CLOSED, rollCallAttendees)
+        }
+    closedRollCalls.forEach { repository.updateRollCall(LAO_ID, it) }
+  }
+
+  @TearDown
+  fun tearDown() {
+    RxAndroidPlugins.reset()
+  }
+
+  @Benchmark
+  fun lastClosedRollCall(): RollCall {
+    return repository.getLastClosedRollCall(LAO_ID)
+  }
+
+  @Benchmark
+  fun canOpenRollCall(): Boolean {
+    return repository.canOpenRollCall(LAO_ID)
+  }
+
+  @Benchmark
+  fun allAttendees(): Set<PublicKey> {
+    return repository.getAllAttendeesInLao(LAO_ID)
+  }
+
+  /** Update done when a roll call is reopened then closed again, which updates the indices */
+  @Benchmark
+  @OutputTimeUnit(TimeUnit.MICROSECONDS)
+  fun reopenAndCloseRollCall(): RollCall {
+    val rollCall = closedRollCalls[closedRollCalls.size / 2]
+    repository.updateRollCall(LAO_ID, buildRollCall(closedRollCalls.size / 2, EventState.OPENED))
+    repository.updateRollCall(LAO_ID, rollCall)
+    return repository.getLastClosedRollCall(LAO_ID)
+  }
+
+  private fun buildRollCall(
+      index: Int,
+      state: EventState,
+      attendees: Set<PublicKey> = emptySet()
+  ): RollCall {
+    val end = CREATION + index + 1
+    return RollCall(
+        "id$index$state",
+        "rc$index",
+        "roll call $index",
+        CREATION,
+        CREATION,
+        end,
+        state,
+        HashSet(attendees),
+        "location",
+        "")
+  }
+
+  companion object {
+    private const val LAO_ID = "lao_id"
+    private const val CREATION = 1_000_000L
+    private const val ATTENDEES = 2000
+    private const val ATTENDEES_PER_ROLL_CALL = 100
+  }
+}
@@ -0,0 +1,85 @@
+package com.github.dedis.popstellar.benchmark
+
+import com.github.dedis.popstellar.model.network.GenericMessage
+import com.github.dedis.popstellar.model.network.method.message.MessageGeneral
+import com.github.dedis.popstellar.model.network.method.message.data.Data
+import com.github.dedis.popstellar.testutils.Base64DataUtils
+import java.util.concurrent.TimeUnit
+import org.openjdk.jmh.annotations.Benchmark
+import org.openjdk.jmh.annotations.BenchmarkMode
+import org.openjdk.jmh.annotations.Fork
+import org.openjdk.jmh.annotations.Measurement
+import org.openjdk.jmh.annotations.Mode
+import org.openjdk.jmh.annotations.OutputTimeUnit
+import org.openjdk.jmh.annotations.Param
+import org.openjdk.jmh.annotations.Scope
+import org.openjdk.jmh.annotations.Setup
+import org.openjdk.jmh.annotations.State
+import org.openjdk.jmh.annotations.Warmup
+
+/** Serialization of the data and messages sent by the app */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+open class SerializationBenchmark {
+  @Param(
+    "messageData/lao_create/lao_create.json",
+    "messageData/roll_call_close.json",
+    "messageData/chirp_add_publish/chirp_add_publish.json",
+    "messageData/election_setup/election_setup.json",
+    "messageData/vote_cast_vote/vote_cast_vote.json",
+    "messageData/coin/post_transaction.json"
+  )
+  lateinit var example: String
+
+  private lateinit var data: Data
+  private lateinit var message: MessageGeneral
+
+  @Setup
+  fun setup() {
+    data = BenchmarkUtils.GSON.fromJson(BenchmarkUtils.loadExample(example), Data::class.java)
+    message = MessageGeneral(Base64DataUtils.generateKeyPair(), data, BenchmarkUtils.GSON)
+  }
+
+  @Benchmark
+  fun serializeData(): String {
+    return BenchmarkUtils.GSON.toJson(data, Data::class.java)
+  }
+
+  @Benchmark
+  fun serializeMessage(): String {
+    return BenchmarkUtils.GSON.toJson(message, MessageGeneral::class.java)
+  }
+}
+
+/** Deserialization of complete JSON-RPC frames, as received from the network */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+open class FrameDeserializationBenchmark {
+  @Param(
+    "query/broadcast/broadcast.json",
+    "query/publish/publish.json",
+    "query/catchup/catchup.json",
+    "answer/general_message.json"
+  )
+  lateinit var example: String
+
+  private lateinit var frame: String
+
+  @Setup
+  fun setup() {
+    frame = BenchmarkUtils.loadExample(example)
+  }
+
+  @Benchmark
+  fun deserializeFrame(): GenericMessage {
+    return BenchmarkUtils.GSON.fromJson(frame, GenericMessage::class.java)
+  }
+}
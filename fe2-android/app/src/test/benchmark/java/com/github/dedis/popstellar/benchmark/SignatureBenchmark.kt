@@ -0,0 +1,52 @@
+package com.github.dedis.popstellar.benchmark
+
+import com.github.dedis.popstellar.model.network.method.message.MessageGeneral
+import com.github.dedis.popstellar.model.network.method.message.data.Data
+import com.github.dedis.popstellar.model.objects.security.KeyPair
+import com.github.dedis.popstellar.testutils.Base64DataUtils
+import java.util.concurrent.TimeUnit
+import org.openjdk.jmh.annotations.Benchmark
+import org.openjdk.jmh.annotations.BenchmarkMode
+import org.openjdk.jmh.annotations.Fork
+import org.openjdk.jmh.annotations.Measurement
+import org.openjdk.jmh.annotations.Mode
+import org.openjdk.jmh.annotations.OutputTimeUnit
+import org.openjdk.jmh.annotations.Scope
+import org.openjdk.jmh.annotations.Setup
+import org.openjdk.jmh.annotations.State
+import org.openjdk.jmh.annotations.Warmup
+
+/** Signature of the messages built by the app and verification of the received ones */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+open class SignatureBenchmark {
+  private lateinit var keyPair: KeyPair
+  private lateinit var data: Data
+  private lateinit var message: MessageGeneral
+
+  @Setup
+  fun setup() {
+    keyPair = Base64DataUtils.generateKeyPair()
+    data =
+      BenchmarkUtils.GSON.fromJson(
+        BenchmarkUtils.loadExample("messageData/chirp_add_publish/chirp_add_publish.json"),
+        Data::class.java
+      )
+    message = MessageGeneral(keyPair, data, BenchmarkUtils.GSON)
+  }
+
+  /** Building a message serializes its data and signs it */
+  @Benchmark
+  fun buildSignedMessage(): MessageGeneral {
+    return MessageGeneral(keyPair, data, BenchmarkUtils.GSON)
+  }
+
+  @Benchmark
+  fun verifyMessage(): Boolean {
+    return message.verify()
+  }
+}
@@ -0,0 +1,67 @@
+package com.github.dedis.popstellar.benchmark
+
+import com.github.dedis.popstellar.model.objects.Wallet
+import com.github.dedis.popstellar.model.objects.security.PoPToken
+import com.github.dedis.popstellar.testutils.Base64DataUtils
+import com.google.crypto.tink.KeysetHandle
+import com.google.crypto.tink.aead.AeadConfig
+import com.google.crypto.tink.aead.AeadKeyTemplates
+import com.google.crypto.tink.integration.android.AndroidKeysetManager
+import java.util.concurrent.TimeUnit
+import org.mockito.Mockito
+import org.openjdk.jmh.annotations.Benchmark
+import org.openjdk.jmh.annotations.BenchmarkMode
+import org.openjdk.jmh.annotations.Fork
+import org.openjdk.jmh.annotations.Measurement
+import org.openjdk.jmh.annotations.Mode
+import org.openjdk.jmh.annotations.OutputTimeUnit
+import org.openjdk.jmh.annotations.Scope
+import org.openjdk.jmh.annotations.Setup
+import org.openjdk.jmh.annotations.State
+import org.openjdk.jmh.annotations.Warmup
+
+/**
+ * Derivation of the PoP tokens of the user from the seed of the wallet, either taken from the
+ * memory or derived again because more roll calls are used than the wallet keeps.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+open class WalletBenchmark {
+  private lateinit var wallet: Wallet
+  private lateinit var laoId: String
+  private lateinit var rollCallId: String
+  private lateinit var rollCallIds: List<String>
+  private var next = 0
+
+  @Setup
+  fun setup() {
+    // The Android keystore is not available on the JVM, the wallet keyset is kept in memory
+    AeadConfig.register()
+    val keysetManager = Mockito.mock(AndroidKeysetManager::class.java)
+    Mockito.`when`(keysetManager.keysetHandle)
+      .thenReturn(KeysetHandle.generateNew(AeadKeyTemplates.AES256_GCM))
+
+    wallet = Wallet(keysetManager)
+    wallet.importSeed(wallet.newSeed())
+    laoId = Base64DataUtils.generateMessageID().encoded
+    rollCallId = Base64DataUtils.generateMessageID().encoded
+    rollCallIds = List(Wallet.MAX_CACHED_TOKENS * 2) { Base64DataUtils.generateMessageID().encoded }
+  }
+
+  @Benchmark
+  @OutputTimeUnit(TimeUnit.NANOSECONDS)
+  fun generatePoPToken(): PoPToken {
+    return wallet.generatePoPToken(laoId, rollCallId)
+  }
+
+  @Benchmark
+  fun derivePoPToken(): PoPToken {
+    // Cycling through twice as many roll calls as kept always evicts the next one
+    next = (next + 1) % rollCallIds.size
+    return wallet.generatePoPToken(laoId, rollCallIds[next])
+  }
+}
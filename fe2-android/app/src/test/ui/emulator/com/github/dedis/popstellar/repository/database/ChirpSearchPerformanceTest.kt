@@ -0,0 +1,131 @@
+package com.github.dedis.popstellar.repository.database
+
+import androidx.room.Room
+import androidx.test.ext.junit.runners.AndroidJUnit4
+import androidx.test.platform.app.InstrumentationRegistry
+import com.github.dedis.popstellar.di.DataRegistryModule
+import com.github.dedis.popstellar.di.JsonModule
+import com.github.dedis.popstellar.model.objects.Chirp
+import com.github.dedis.popstellar.model.objects.security.MessageID
+import com.github.dedis.popstellar.model.objects.security.PublicKey
+import com.github.dedis.popstellar.repository.database.socialmedia.ChirpEntity
+import com.github.dedis.popstellar.repository.database.socialmedia.ChirpSearchEntity
+import java.util.Random
+import java.util.concurrent.TimeUnit
+import org.junit.After
+import org.junit.Assert
+import org.junit.Before
+import org.junit.Test
+import org.junit.runner.RunWith
+
+/**
+ * Measure the search of the chirps on a device, as the full-text index is only available with the
+ * SQLite of Android. The first page of results must be found in less than 50 ms among 100k chirps.
+ */
+@RunWith(AndroidJUnit4::class)
+class ChirpSearchPerformanceTest {
+  private lateinit var appDatabase: AppDatabase
+  private lateinit var authors: List<PublicKey>
+
+  @Before
+  fun setup() {
+    appDatabase =
+      Room.inMemoryDatabaseBuilder(
+          InstrumentationRegistry.getInstrumentation().targetContext,
+          AppDatabase::class.java
+        )
+        .addTypeConverter(
+          CustomTypeConverters(
+            JsonModule.provideGson(DataRegistryModule.provideDataRegistryForGson())
+          )
+        )
+        .build()
+
+    val random = Random(SEED)
+    authors = List(AUTHORS) { PublicKey(randomBytes(random)) }
+    val chirps =
+      List(CHIRPS) {
+        val words = List(WORDS_PER_CHIRP) { "word${random.nextInt(VOCABULARY)}" }
+        val text = words.joinToString(" ") + " #tag${random.nextInt(HASHTAGS)}"
+        val author = authors[random.nextInt(AUTHORS)]
+        Chirp(MessageID(randomBytes(random)), author, text, START + it, MessageID(""))
+      }
+
+    // Insert by batches, as a single transaction would hold all the chirps at once
+    chirps.chunked(BATCH_SIZE).forEach { batch ->
+      appDatabase.runInTransaction {
+        appDatabase.chirpDao().insertAll(batch.map { ChirpEntity(LAO_ID, it) }).blockingAwait()
+        appDatabase
+          .chirpSearchDao()
+          .insertAll(batch.map { ChirpSearchEntity(LAO_ID, it) })
+          .blockingAwait()
+      }
+    }
+  }
+
+  @After
+  fun close() {
+    appDatabase.close()
+  }
+
+  @Test
+  fun searchByTextIsFast() {
+    assertFast(ChirpSearchEntity.textPrefixQuery("word1234")!!)
+  }
+
+  @Test
+  fun searchByHashtagIsFast() {
+    assertFast(ChirpSearchEntity.hashtagQuery("#tag7")!!)
+  }
+
+  @Test
+  fun searchByAuthorIsFast() {
+    assertFast(ChirpSearchEntity.authorQuery(authors[0]))
+  }
+
+  private fun assertFast(match: String) {
+    val dao = appDatabase.chirpSearchDao()
+    // The first search also loads the pages of the index in memory
+    val firstPage = dao.search(LAO_ID, match, PAGE_SIZE).blockingGet()
+    Assert.assertEquals(PAGE_SIZE, firstPage.size)
+
+    val last = firstPage.last().chirp
+
+    val durations =
+      List(RUNS) {
+        val start = System.nanoTime()
+        dao.search(LAO_ID, match, PAGE_SIZE).blockingGet()
+        val firstEnd = System.nanoTime()
+        dao.searchAfter(LAO_ID, match, last.timestamp, last.id, PAGE_SIZE).blockingGet()
+        listOf(firstEnd - start, System.nanoTime() - firstEnd)
+      }
+    val first = median(durations.map { it[0] })
+    val next = median(durations.map { it[1] })
+
+    Assert.assertTrue("The first page was searched in $first ms", first < MAX_MILLIS)
+    Assert.assertTrue("The next page was searched in $next ms", next < MAX_MILLIS)
+  }
+
+  private fun median(nanos: List<Long>): Long {
+    return TimeUnit.NANOSECONDS.toMillis(nanos.sorted()[nanos.size / 2])
+  }
+
+  companion object {
+    private const val LAO_ID = "LAO"
+    private const val SEED = 42L
+    private const val CHIRPS = 100_000
+    private const val AUTHORS = 500
+    private const val VOCABULARY = 5_000
+    private const val HASHTAGS = 200
+    private const val WORDS_PER_CHIRP = 12
+    private const val START = 1_600_000_000L
+    private const val BATCH_SIZE = 1_000
+    private const val PAGE_SIZE = 50
+    private const val RUNS = 9
+    private const val MAX_MILLIS = 50
+
+    private fun randomBytes(random: Random): ByteArray {
+      return ByteArray(32).also { random.nextBytes(it) }
+    }
+  }
+}
@@ -5,6 +5,7 @@ import com.github.dedis.popstellar.di.TestKeysetModule.provideWalletKeysetManage
 import com.github.dedis.popstellar.model.objects.Wallet
 import com.github.dedis.popstellar.utility.error.keys.KeyException
 import com.github.dedis.popstellar.utility.error.keys.SeedValidationException
+import com.github.dedis.popstellar.utility.error.keys.UninitializedWalletException
 import dagger.hilt.android.testing.HiltAndroidRule
 import dagger.hilt.android.testing.HiltAndroidTest
 import java.lang.String.join
@@ -83,4 +84,25 @@ class WalletTest {
 
     Assert.assertArrayEquals(wordArray, exported)
   }
+
+  @Test
+  @Throws(Exception::class)
+  fun tokensAreDerivedOnceAndForgottenOnLogout() {
+    val laoID = "T8grJq7LR9KGjE7741gXMqPny8xsLvsyBiwIFwoF7rg="
+    val rollCallID = "1234123412341234"
+    val wallet = Wallet(provideWalletKeysetManager())
+    wallet.importSeed(wallet.newSeed())
+
+    val token = wallet.generatePoPToken(laoID, rollCallID)
+    Assert.assertSame(token, wallet.generatePoPToken(laoID, rollCallID))
+
+    wallet.logout()
+    Assert.assertThrows(UninitializedWalletException::class.java) {
+      wallet.generatePoPToken(laoID, rollCallID)
+    }
+
+    // A new seed gives new tokens
+    wallet.importSeed(wallet.newSeed())
+    Assert.assertNotEquals(token, wallet.generatePoPToken(laoID, rollCallID))
+  }
 }
@@ -1,7 +1,6 @@
 package com.github.dedis.popstellar.ui.lao.witness
 
 import androidx.arch.core.executor.testing.InstantTaskExecutorRule
-import androidx.lifecycle.ViewModelProvider
 import androidx.test.espresso.Espresso
 import androidx.test.espresso.action.ViewActions
 import androidx.test.espresso.assertion.ViewAssertions
@@ -12,6 +11,7 @@ import com.github.dedis.popstellar.model.objects.Lao
 import com.github.dedis.popstellar.model.objects.WitnessMessage
 import com.github.dedis.popstellar.model.objects.view.LaoView
 import com.github.dedis.popstellar.repository.LAORepository
+import com.github.dedis.popstellar.repository.WitnessingRepository
 import com.github.dedis.popstellar.repository.remote.GlobalNetworkManager
 import com.github.dedis.popstellar.testutils.Base64DataUtils
 import com.github.dedis.popstellar.testutils.BundleBuilder
@@ -29,7 +29,7 @@ import dagger.hilt.android.testing.HiltAndroidRule
 import dagger.hilt.android.testing.HiltAndroidTest
 import io.reactivex.subjects.BehaviorSubject
 import java.time.Instant
-import java.util.concurrent.atomic.AtomicReference
+import javax.inject.Inject
 import org.hamcrest.CoreMatchers
 import org.junit.Rule
 import org.junit.Test
@@ -40,12 +40,12 @@ import org.mockito.Mock
 import org.mockito.Mockito
 import org.mockito.junit.MockitoJUnit
 import org.mockito.junit.MockitoTestRule
+import org.robolectric.shadows.ShadowLooper
 
 @HiltAndroidTest
 @RunWith(AndroidJUnit4::class)
 class WitnessMessageFragmentTest {
-  private lateinit var witnessingViewModel: WitnessingViewModel
-  private lateinit var witnessMessages: List<WitnessMessage>
+  @Inject lateinit var witnessingRepository: WitnessingRepository
 
   @BindValue @Mock lateinit var laoRepo: LAORepository
 
@@ -83,7 +83,6 @@ class WitnessMessageFragmentTest {
         WITNESS_MESSAGE.description = DESCRIPTION
         WITNESS_MESSAGE.addWitness(WITNESS1)
         WITNESS_MESSAGE.addWitness(WITNESS2)
-        witnessMessages = listOf(WITNESS_MESSAGE)
       }
     }
 
@@ -101,8 +100,7 @@ class WitnessMessageFragmentTest {
 
   @Test
   fun testWitnessMessageListDisplaysMessageTitle() {
-    witnessingViewModel = ViewModelProvider(laoActivity)[WitnessingViewModel::class.java]
-    witnessingViewModel.setWitnessMessages(witnessMessages)
+    showWitnessMessage()
 
     WitnessMessageFragmentPageObject.witnessMessageList()
       .check(ViewAssertions.matches(ViewMatchers.isDisplayed()))
@@ -114,8 +112,7 @@ class WitnessMessageFragmentTest {
 
   @Test
   fun testSignButtonState() {
-    witnessingViewModel = ViewModelProvider(laoActivity)[WitnessingViewModel::class.java]
-    witnessingViewModel.setWitnessMessages(witnessMessages)
+    showWitnessMessage()
 
     Espresso.onData(CoreMatchers.anything())
       .inAdapterView(WitnessMessageFragmentPageObject.witnessMessageListMatcher())
@@ -134,8 +131,7 @@ class WitnessMessageFragmentTest {
 
   @Test
   fun testWitnessMessageDescriptionDropdown() {
-    witnessingViewModel = ViewModelProvider(laoActivity)[WitnessingViewModel::class.java]
-    witnessingViewModel.setWitnessMessages(witnessMessages)
+    showWitnessMessage()
 
     // Check that the description title is displayed
     Espresso.onData(CoreMatchers.anything())
@@ -174,8 +170,7 @@ class WitnessMessageFragmentTest {
 
   @Test
   fun testWitnessMessageSignaturesDropdown() {
-    witnessingViewModel = ViewModelProvider(laoActivity)[WitnessingViewModel::class.java]
-    witnessingViewModel.setWitnessMessages(witnessMessages)
+    showWitnessMessage()
 
     // Check that the signatures title is displayed
     Espresso.onData(CoreMatchers.anything())
@@ -221,12 +216,11 @@ class WitnessMessageFragmentTest {
       )
   }
 
-  private val laoActivity: LaoActivity
-    get() {
-      val ref = AtomicReference<LaoActivity>()
-      activityScenarioRule.scenario.onActivity { newValue: LaoActivity -> ref.set(newValue) }
-      return ref.get()
-    }
+  private fun showWitnessMessage() {
+    // The message is published to the displayed list on the main thread
+    witnessingRepository.addWitnessMessage(LAO_ID, WITNESS_MESSAGE)
+    ShadowLooper.idleMainLooper()
+  }
 
   companion object {
     private const val LAO_NAME = "lao"
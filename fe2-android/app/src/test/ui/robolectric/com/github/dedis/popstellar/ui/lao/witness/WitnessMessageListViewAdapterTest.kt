@@ -6,6 +6,7 @@ import androidx.test.ext.junit.runners.AndroidJUnit4
 import com.github.dedis.popstellar.model.objects.Lao
 import com.github.dedis.popstellar.model.objects.Wallet
 import com.github.dedis.popstellar.model.objects.WitnessMessage
+import com.github.dedis.popstellar.repository.WitnessMessageFeed
 import com.github.dedis.popstellar.testutils.Base64DataUtils
 import com.github.dedis.popstellar.testutils.BundleBuilder
 import com.github.dedis.popstellar.testutils.IntentUtils
@@ -92,14 +93,26 @@ class WitnessMessageListViewAdapterTest {
   }
 
   @Test
-  fun replaceListTest() {
+  fun resetReplacesTheListTest() {
     adapter = WitnessMessageListViewAdapter(WITNESS_MESSAGES1, fragmentActivity)
-    adapter.replaceList(WITNESS_MESSAGES2)
+    adapter.applyChange(WitnessMessageFeed.Change.Reset(WITNESS_MESSAGES2))
 
     Assert.assertEquals(1, adapter.count.toLong())
     Assert.assertEquals(WITNESS_MESSAGE2, adapter.getItem(0))
   }
 
+  @Test
+  fun applyChangeTest() {
+    adapter = WitnessMessageListViewAdapter(WITNESS_MESSAGES1, fragmentActivity)
+    val witness = Base64DataUtils.generatePublicKey()
+
+    adapter.applyChange(WitnessMessageFeed.Change.WitnessAdded(MESSAGE_ID1, witness))
+    Assert.assertTrue(adapter.getItem(0)!!.witnesses.contains(witness))
+
+    adapter.applyChange(WitnessMessageFeed.Change.MessagesRemoved(setOf(MESSAGE_ID1)))
+    Assert.assertEquals(0, adapter.count.toLong())
+  }
+
   private val fragmentActivity: FragmentActivity
     get() {
       val ref = AtomicReference<FragmentActivity>()
@@ -0,0 +1,64 @@
+package com.github.dedis.popstellar.model
+
+import org.junit.Assert.assertEquals
+import org.junit.Assert.assertFalse
+import org.junit.Assert.assertNull
+import org.junit.Assert.assertSame
+import org.junit.Assert.assertTrue
+import org.junit.Test
+
+class PersistentMapTest {
+
+  @Test
+  fun putDoesNotModifyTheOriginalMap() {
+    val original = PersistentMap.empty<String, Int>().put("a", 1)
+    val updated = original.put("b", 2).put("a", 3)
+
+    assertEquals(mapOf("a" to 1), original)
+    assertEquals(mapOf("a" to 3, "b" to 2), updated)
+    assertEquals(2, updated.size)
+  }
+
+  @Test
+  fun manyEntriesAreFound() {
+    val expected = HashMap<Int, String>()
+    var map = PersistentMap.empty<Int, String>()
+    repeat(10_000) {
+      map = map.put(it * 31, it.toString())
+      expected[it * 31] = it.toString()
+    }
+
+    assertEquals(expected, map)
+    assertEquals(expected.hashCode(), map.hashCode())
+    assertEquals(expected.keys, map.keys)
+    assertNull(map[1])
+    assertFalse(map.containsKey(1))
+  }
+
+  @Test
+  fun keysWithTheSameHashAreKept() {
+    val first = SameHash("first")
+    val second = SameHash("second")
+    val map = PersistentMap.empty<SameHash, Int>().put(first, 1).put(second, 2).put(first, 3)
+
+    assertEquals(2, map.size)
+    assertEquals(3, map[first])
+    assertEquals(2, map[second])
+    assertTrue(map.containsKey(second))
+    assertNull(map[SameHash("third")])
+  }
+
+  @Test
+  fun persistentMapIsNotCopied() {
+    val map = PersistentMap.of(mapOf("a" to 1, "b" to 2))
+
+    assertEquals(mapOf("a" to 1, "b" to 2), map)
+    assertSame(map, PersistentMap.of(map))
+  }
+
+  private data class SameHash(val name: String) {
+    override fun hashCode(): Int {
+      return 42
+    }
+  }
+}
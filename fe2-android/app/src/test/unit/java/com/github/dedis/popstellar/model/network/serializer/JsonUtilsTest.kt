@@ -0,0 +1,76 @@
+package com.github.dedis.popstellar.model.network.serializer
+
+import com.github.dedis.popstellar.model.network.serializer.JsonUtils.ValidationPolicy
+import com.google.gson.JsonObject
+import com.google.gson.JsonParseException
+import org.junit.After
+import org.junit.Assert.assertEquals
+import org.junit.Assert.assertFalse
+import org.junit.Assert.assertThrows
+import org.junit.Assert.assertTrue
+import org.junit.Test
+
+class JsonUtilsTest {
+  private val invalidData = JsonObject()
+
+  @After
+  fun resetPolicy() {
+    JsonUtils.validationPolicy = ValidationPolicy.INBOUND_ONLY
+  }
+
+  @Test
+  fun localJsonIsOnlyValidatedWithFullPolicy() {
+    JsonUtils.verifyLocalJson(JsonUtils.DATA_SCHEMA, invalidData)
+
+    JsonUtils.validationPolicy = ValidationPolicy.FULL
+    assertThrows(JsonParseException::class.java) {
+      JsonUtils.verifyLocalJson(JsonUtils.DATA_SCHEMA, invalidData)
+    }
+  }
+
+  @Test
+  fun receivedJsonIsValidatedUnlessPolicyIsOff() {
+    ValidationPolicy.values()
+      .filter { it != ValidationPolicy.OFF }
+      .forEach { policy ->
+        JsonUtils.validationPolicy = policy
+        assertThrows(JsonParseException::class.java) {
+          JsonUtils.verifyJson(JsonUtils.DATA_SCHEMA, invalidData.toString())
+        }
+      }
+
+    JsonUtils.validationPolicy = ValidationPolicy.OFF
+    JsonUtils.verifyJson(JsonUtils.DATA_SCHEMA, invalidData.toString())
+  }
+
+  @Test
+  fun sampledPolicyValidatesSomeLocalJson() {
+    JsonUtils.validationPolicy = ValidationPolicy.SAMPLED
+
+    val failures =
+      (0 until JsonUtils.SAMPLING_INTERVAL).count {
+        try {
+          JsonUtils.verifyLocalJson(JsonUtils.DATA_SCHEMA, invalidData)
+          false
+        } catch (e: JsonParseException) {
+          true
+        }
+      }
+    assertEquals(1, failures)
+  }
+
+  @Test
+  fun validationTimeOfInvalidJsonIsRecordedAsInvalid() {
+    val type = "test#validation"
+    val before = JsonUtils.validationStats[JsonUtils.INVALID_TYPE]?.count ?: 0
+
+    assertThrows(JsonParseException::class.java) {
+      JsonUtils.verifyJson(JsonUtils.DATA_SCHEMA, invalidData.toString(), type)
+    }
+
+    val stats = JsonUtils.validationStats[JsonUtils.INVALID_TYPE]!!
+    assertEquals(before + 1, stats.count)
+    assertTrue(stats.totalTimeNanos > 0)
+    assertFalse(JsonUtils.validationStats.containsKey(type))
+  }
+}
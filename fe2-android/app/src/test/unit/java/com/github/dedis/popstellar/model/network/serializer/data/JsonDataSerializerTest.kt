@@ -0,0 +1,130 @@
+package com.github.dedis.popstellar.model.network.serializer.data
+
+import androidx.test.ext.junit.runners.AndroidJUnit4
+import com.github.dedis.popstellar.di.DataRegistryModuleHelper.buildRegistry
+import com.github.dedis.popstellar.model.network.JsonTestUtils
+import com.github.dedis.popstellar.model.network.JsonTestUtils.loadFile
+import com.github.dedis.popstellar.model.network.JsonTestUtils.parse
+import com.github.dedis.popstellar.model.network.method.message.MessageGeneral
+import com.github.dedis.popstellar.model.network.serializer.JsonUtils
+import com.github.dedis.popstellar.model.network.serializer.JsonUtils.ValidationPolicy
+import com.github.dedis.popstellar.testutils.Base64DataUtils
+import com.google.gson.JsonObject
+import com.google.gson.JsonParseException
+import java.nio.charset.StandardCharsets
+import org.junit.After
+import org.junit.Assert.assertEquals
+import org.junit.Assert.assertFalse
+import org.junit.Assert.assertThrows
+import org.junit.Test
+import org.junit.runner.RunWith
+
+@RunWith(AndroidJUnit4::class)
+class JsonDataSerializerTest {
+  private val serializer = JsonDataSerializer(buildRegistry())
+  private val gson = JsonTestUtils.GSON
+
+  @After
+  fun resetPolicy() {
+    JsonUtils.validationPolicy = ValidationPolicy.INBOUND_ONLY
+  }
+
+  @Test
+  fun decodedDataEqualsParsedData() {
+    EXAMPLES.forEach { path ->
+      val json = loadFile(EXAMPLES_DIR + path)
+
+      assertEquals(parse(json), serializer.decode(json.toByteArray(StandardCharsets.UTF_8), gson))
+    }
+  }
+
+  @Test
+  fun streamedDataEqualsParsedData() {
+    JsonUtils.validationPolicy = ValidationPolicy.OFF
+
+    EXAMPLES.forEach { path ->
+      val json = loadFile(EXAMPLES_DIR + path)
+
+      assertEquals(parse(json), serializer.decode(json.toByteArray(StandardCharsets.UTF_8), gson))
+    }
+  }
+
+  @Test
+  fun objectAndActionAreFoundAfterOtherFields() {
+    val json = loadFile(EXAMPLES_DIR + "lao_create/lao_create.json")
+    val obj = JsonTestUtils.GSON.fromJson(json, JsonObject::class.java)
+    val reordered = JsonObject()
+    obj.entrySet().filter { it.key != "object" && it.key != "action" }.forEach {
+      reordered.add(it.key, it.value)
+    }
+    reordered.add("action", obj["action"])
+    reordered.add("object", obj["object"])
+
+    assertEquals(
+      parse(json),
+      serializer.decode(
+        reordered.toString().toByteArray(StandardCharsets.UTF_8),
+        gson
+      )
+    )
+  }
+
+  @Test
+  fun messageDataIsDecoded() {
+    val data = parse(loadFile(EXAMPLES_DIR + "roll_call_create.json"))
+    val message = MessageGeneral(Base64DataUtils.generateKeyPair(), data, JsonTestUtils.GSON)
+    val json = JsonTestUtils.GSON.toJson(message, MessageGeneral::class.java)
+
+    assertEquals(data, JsonTestUtils.GSON.fromJson(json, MessageGeneral::class.java).data)
+  }
+
+  @Test
+  fun unknownDataIsRejected() {
+    ValidationPolicy.values().forEach { policy ->
+      JsonUtils.validationPolicy = policy
+      assertUnknownDataIsRejected()
+    }
+  }
+
+  private fun assertUnknownDataIsRejected() {
+    val unknown = """{"object": "unknown", "action": "create"}"""
+    val malformed = """{"object": "lao", "action": """
+
+    assertThrows(JsonParseException::class.java) {
+      serializer.decode(unknown.toByteArray(StandardCharsets.UTF_8), gson)
+    }
+    assertThrows(JsonParseException::class.java) {
+      serializer.decode(malformed.toByteArray(StandardCharsets.UTF_8), gson)
+    }
+  }
+
+  @Test
+  fun validationTimeIsRecordedByKnownType() {
+    val json = loadFile(EXAMPLES_DIR + "lao_create/lao_create.json")
+    val before = JsonUtils.validationStats["lao#create"]?.count ?: 0
+
+    serializer.decode(json.toByteArray(StandardCharsets.UTF_8), gson)
+    assertThrows(JsonParseException::class.java) {
+      serializer.decode(
+        """{"object": "lao", "action": "unknown"}""".toByteArray(StandardCharsets.UTF_8),
+        gson
+      )
+    }
+
+    assertEquals(before + 1, JsonUtils.validationStats["lao#create"]!!.count)
+    assertFalse(JsonUtils.validationStats.keys.any { it.contains("unknown") })
+  }
+
+  companion object {
+    private const val EXAMPLES_DIR = "protocol/examples/messageData/"
+    private val EXAMPLES =
+      listOf(
+        "lao_create/lao_create.json",
+        "roll_call_create.json",
+        "chirp_add_publish/chirp_add_publish.json",
+        "election_setup/election_setup.json",
+        "vote_cast_vote/vote_cast_vote.json",
+        "coin/post_transaction.json"
+      )
+  }
+}
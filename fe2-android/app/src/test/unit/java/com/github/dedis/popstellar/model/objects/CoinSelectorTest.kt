@@ -0,0 +1,69 @@
+package com.github.dedis.popstellar.model.objects
+
+import com.github.dedis.popstellar.model.objects.digitalcash.CoinSelector
+import com.github.dedis.popstellar.model.objects.digitalcash.UnspentOutput
+import org.junit.Assert.assertEquals
+import org.junit.Assert.assertThrows
+import org.junit.Assert.assertTrue
+import org.junit.Test
+
+class CoinSelectorTest {
+
+  @Test
+  fun exactMatchIsPreferred() {
+    val outputs = buildOutputs(50, 40, 30, 20)
+    val selection = CoinSelector.select(outputs, 60)
+
+    assertEquals(60L, selection.total)
+    assertEquals(0L, selection.change)
+    assertEquals(setOf(40L, 20L), selection.inputs.map { it.value }.toSet())
+  }
+
+  @Test
+  fun largestOutputsAreSpentWithoutExactMatch() {
+    val outputs = buildOutputs(10, 70, 40, 25)
+    val selection = CoinSelector.select(outputs, 100)
+
+    assertEquals(listOf(70L, 40L), selection.inputs.map { it.value })
+    assertEquals(10L, selection.change)
+  }
+
+  @Test
+  fun exactMatchNeedingMoreInputsIsIgnored() {
+    // 5 + 3 + 2 would avoid the change but needs three inputs instead of one
+    val outputs = buildOutputs(20, 5, 3, 2)
+    val selection = CoinSelector.select(outputs, 10)
+
+    assertEquals(listOf(20L), selection.inputs.map { it.value })
+    assertEquals(10L, selection.change)
+  }
+
+  @Test
+  fun manyEqualOutputsAreHandled() {
+    val outputs = buildOutputs(*LongArray(10_000) { 7 })
+    val selection = CoinSelector.select(outputs, 700)
+
+    assertEquals(100, selection.inputs.size)
+    assertEquals(0L, selection.change)
+  }
+
+  @Test
+  fun nothingIsSelectedForAZeroAmount() {
+    assertTrue(CoinSelector.select(buildOutputs(10), 0).inputs.isEmpty())
+  }
+
+  @Test
+  fun insufficientFundsAreRejected() {
+    assertThrows(IllegalArgumentException::class.java) {
+      CoinSelector.select(buildOutputs(10, 20), 31)
+    }
+  }
+
+  private fun buildOutputs(vararg values: Long): List<UnspentOutput> {
+    return values.mapIndexed { index, value -> UnspentOutput("tx$index", 0, HASH, value) }
+  }
+
+  companion object {
+    private const val HASH = "hash"
+  }
+}
@@ -0,0 +1,156 @@
+package com.github.dedis.popstellar.model.objects
+
+import com.github.dedis.popstellar.model.network.method.message.data.election.ElectionQuestion
+import com.github.dedis.popstellar.model.network.method.message.data.election.ElectionVersion
+import com.github.dedis.popstellar.model.network.method.message.data.election.EncryptedVote
+import com.github.dedis.popstellar.model.network.method.message.data.election.PlainVote
+import com.github.dedis.popstellar.model.network.method.message.data.election.QuestionResult
+import com.github.dedis.popstellar.model.objects.security.Base64URLData
+import com.github.dedis.popstellar.testutils.Base64DataUtils
+import org.junit.Assert.assertEquals
+import org.junit.Assert.assertFalse
+import org.junit.Assert.assertNull
+import org.junit.Assert.assertTrue
+import org.junit.Test
+
+class ElectionTallyTest {
+
+  @Test
+  fun votesAreCounted() {
+    val tally =
+      ElectionTally.of(
+        QUESTIONS,
+        listOf(listOf(vote(0)), listOf(vote(1)), listOf(vote(1), writeIn()))
+      )
+
+    assertEquals(1, tally.getCount(QUESTION.id, 0))
+    assertEquals(2, tally.getCount(QUESTION.id, 1))
+    assertEquals(0, tally.getCount(QUESTION.id, 2))
+    assertEquals(setOf(QuestionResult("a", 1), QuestionResult("b", 2)), tally.getResults(QUESTION))
+  }
+
+  @Test
+  fun previousVotesAreRetracted() {
+    val first = ElectionTally.of(QUESTIONS, emptyList()).replace(null, listOf(vote(0)))
+    val second = first.replace(listOf(vote(0)), listOf(vote(1)))
+
+    assertEquals(1, first.getCount(QUESTION.id, 0))
+    assertEquals(0, second.getCount(QUESTION.id, 0))
+    assertEquals(1, second.getCount(QUESTION.id, 1))
+  }
+
+  @Test
+  fun encryptedVotesAreNotCounted() {
+    val encrypted = EncryptedVote(QUESTION.id, encoded("vote"), false, null, ELECTION_ID)
+    val tally = ElectionTally.of(QUESTIONS, emptyList()).replace(null, listOf(encrypted))
+
+    assertEquals(setOf(QuestionResult("a", 0), QuestionResult("b", 0)), tally.getResults(QUESTION))
+  }
+
+  @Test
+  fun votesForAnUnknownBallotOptionAreNotCounted() {
+    val tally =
+      ElectionTally.of(
+        QUESTIONS,
+        listOf(listOf(vote(2)), listOf(vote(-1)), listOf(vote(Int.MAX_VALUE)), listOf(vote(1)))
+      )
+
+    assertEquals(setOf(QuestionResult("a", 0), QuestionResult("b", 1)), tally.getResults(QUESTION))
+    assertEquals(0, tally.getCount(QUESTION.id, 2))
+  }
+
+  @Test
+  fun votesForAnUnknownQuestionAreNotCounted() {
+    val unknownId = Base64DataUtils.generateMessageID().encoded
+    val tally =
+      ElectionTally.of(QUESTIONS, listOf(listOf(PlainVote(unknownId, 0, false, null, ELECTION_ID))))
+
+    assertEquals(0, tally.getCount(unknownId, 0))
+    assertEquals(setOf(QuestionResult("a", 0), QuestionResult("b", 0)), tally.getResults(QUESTION))
+  }
+
+  @Test
+  fun electionDoesNotCountOutOfRangeVotes() {
+    val election =
+      Election.ElectionBuilder("lao_id", 1000L, "election")
+        .setElectionVersion(ElectionVersion.OPEN_BALLOT)
+        .setElectionQuestions(QUESTIONS)
+        .updateVotes(Base64DataUtils.generatePublicKey(), listOf(vote(500000000)))
+        .build()
+
+    assertEquals(
+      setOf(QuestionResult("a", 0), QuestionResult("b", 0)),
+      election.getPartialResults(QUESTION)
+    )
+  }
+
+  @Test
+  fun resultsAreCheckedAgainstTheTally() {
+    val tally = ElectionTally.of(QUESTIONS, listOf(listOf(vote(1)), listOf(vote(1))))
+
+    assertTrue(tally.matches(listOf(QUESTION), mapOf(QUESTION.id to setOf(QuestionResult("b", 2)))))
+    assertFalse(
+      tally.matches(listOf(QUESTION), mapOf(QUESTION.id to setOf(QuestionResult("b", 1))))
+    )
+    assertFalse(
+      tally.matches(
+        listOf(QUESTION),
+        mapOf(QUESTION.id to setOf(QuestionResult("a", 1), QuestionResult("b", 2)))
+      )
+    )
+  }
+
+  @Test
+  fun electionKeepsItsTallyUpToDate() {
+    val sender = Base64DataUtils.generatePublicKey()
+    val election =
+      Election.ElectionBuilder("lao_id", 1000L, "election")
+        .setElectionVersion(ElectionVersion.OPEN_BALLOT)
+        .setElectionQuestions(QUESTIONS)
+        .updateVotes(sender, listOf(vote(0)))
+        .build()
+    val revoted = election.builder().updateVotes(sender, listOf(vote(1))).build()
+
+    assertEquals(
+      setOf(QuestionResult("a", 0), QuestionResult("b", 1)),
+      revoted.getPartialResults(QUESTION)
+    )
+    assertEquals(
+      ElectionTally.of(QUESTIONS, revoted.votesBySender.values).getResults(QUESTION),
+      revoted.getPartialResults(QUESTION)
+    )
+  }
+
+  @Test
+  fun secretBallotHasNoPartialResults() {
+    val election =
+      Election.ElectionBuilder("lao_id", 1000L, "election")
+        .setElectionVersion(ElectionVersion.SECRET_BALLOT)
+        .setElectionQuestions(QUESTIONS)
+        .build()
+
+    assertNull(election.getPartialResults(QUESTION))
+  }
+
+  private fun vote(index: Int): PlainVote {
+    return PlainVote(QUESTION.id, index, false, null, ELECTION_ID)
+  }
+
+  private fun writeIn(): PlainVote {
+    return PlainVote(QUESTION.id, null, true, encoded("write in"), ELECTION_ID)
+  }
+
+  private fun encoded(text: String): String {
+    return Base64URLData(text.toByteArray()).encoded
+  }
+
+  companion object {
+    private val ELECTION_ID = Election.generateElectionSetupId("lao_id", 1000L, "election")
+    private val QUESTION =
+      ElectionQuestion(
+        ELECTION_ID,
+        ElectionQuestion.Question("question", "Plurality", listOf("a", "b"), false)
+      )
+    private val QUESTIONS = listOf(QUESTION)
+  }
+}
@@ -8,6 +8,7 @@ import com.github.dedis.popstellar.model.objects.Election.ElectionBuilder
 import com.github.dedis.popstellar.model.objects.event.EventType
 import com.github.dedis.popstellar.model.objects.security.Base64URLData
 import com.github.dedis.popstellar.model.objects.security.elGamal.ElectionKeyPair.Companion.generateKeyPair
+import com.github.dedis.popstellar.testutils.Base64DataUtils
 import java.time.Instant
 import org.hamcrest.CoreMatchers
 import org.hamcrest.MatcherAssert
@@ -75,4 +76,44 @@ class ElectionTest {
   fun typeTest() {
     Assert.assertEquals(EventType.ELECTION, election.type)
   }
+
+  @Test
+  fun votesAreNotModifiedByTheBuiltElections() {
+    val sender1 = Base64DataUtils.generatePublicKey()
+    val sender2 = Base64DataUtils.generatePublicKey()
+    val messageId = Base64DataUtils.generateMessageID()
+    val withVote = election.builder().updateVotes(sender1, plainVotes).build()
+    val withTwoVotes =
+      withVote
+        .builder()
+        .updateVotes(sender2, plainVotes)
+        .updateMessageMap(sender2, messageId)
+        .build()
+
+    Assert.assertEquals(setOf(sender1), withVote.votesBySender.keys)
+    Assert.assertTrue(withVote.messageMap.isEmpty())
+    Assert.assertEquals(
+      mapOf(sender1 to plainVotes, sender2 to plainVotes),
+      withTwoVotes.votesBySender
+    )
+    Assert.assertEquals(messageId, withTwoVotes.messageMap[sender2])
+  }
+
+  @Test
+  fun encryptedVoteIsRejectedInOpenBallotElection() {
+    val encryptedVotes = election.encrypt(plainVotes)
+    val builder =
+      election.builder().updateVotes(Base64DataUtils.generatePublicKey(), encryptedVotes)
+
+    Assert.assertThrows(IllegalArgumentException::class.java) { builder.build() }
+  }
+
+  @Test
+  fun votesAreValidatedAgainWhenTheVersionChanges() {
+    val withVote =
+      election.builder().updateVotes(Base64DataUtils.generatePublicKey(), plainVotes).build()
+    val builder = withVote.builder().setElectionVersion(ElectionVersion.SECRET_BALLOT)
+
+    Assert.assertThrows(IllegalArgumentException::class.java) { builder.build() }
+  }
 }
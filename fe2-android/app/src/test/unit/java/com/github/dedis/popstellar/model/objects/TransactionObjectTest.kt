@@ -191,22 +191,6 @@ class TransactionObjectTest {
     Assert.assertTrue(builder.build().isSender(sender))
   }
 
-  @Throws(GeneralSecurityException::class)
-  @Test
-  fun indexTransactionTest() {
-    // test int get_index_transaction(PublicKey publicKey)
-    val builder = validTransactionBuilder
-    val type = "P2PKH"
-    // RECEIVER
-    val pubKeyHash = sender.computeHash()
-    val scriptTxOut = ScriptOutputObject(type, pubKeyHash)
-    val value = 32
-    val output = OutputObject(value.toLong(), scriptTxOut)
-    val listOutput = listOf(output)
-    builder.setOutputs(listOutput)
-    Assert.assertEquals(0, builder.build().getIndexTransaction(sender).toLong())
-  }
-
   @Test
   @Throws(GeneralSecurityException::class)
   fun computeIdTest() {
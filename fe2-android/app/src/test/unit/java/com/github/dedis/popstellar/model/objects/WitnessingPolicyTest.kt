@@ -0,0 +1,66 @@
+package com.github.dedis.popstellar.model.objects
+
+import com.github.dedis.popstellar.model.objects.security.PublicKey
+import com.github.dedis.popstellar.testutils.Base64DataUtils
+import org.junit.Assert.assertEquals
+import org.junit.Assert.assertThrows
+import org.junit.Assert.assertTrue
+import org.junit.Test
+
+class WitnessingPolicyTest {
+
+  @Test
+  fun defaultPolicyRequiresTwoThirdsOfTheWitnesses() {
+    assertEquals(1, WitnessingPolicy.DEFAULT.requiredWeight(emptySet()))
+    assertEquals(2, WitnessingPolicy.DEFAULT.requiredWeight(WITNESSES.take(3).toSet()))
+    assertEquals(4, WitnessingPolicy.DEFAULT.requiredWeight(WITNESSES.toSet()))
+  }
+
+  @Test
+  fun onlyWitnessesCount() {
+    val policy = WitnessingPolicy.KOfN(2)
+    val witnesses = WITNESSES.toSet()
+
+    assertEquals(1, policy.weightOf(WITNESSES[0], witnesses))
+    assertEquals(0, policy.weightOf(Base64DataUtils.generatePublicKey(), witnesses))
+    assertEquals(2, policy.requiredWeight(witnesses))
+  }
+
+  @Test
+  fun weightedPolicyUsesTheWeights() {
+    val weights = mapOf(WITNESSES[0] to 3, WITNESSES[1] to 1)
+    val policy = WitnessingPolicy.Weighted(weights, 4)
+    val witnesses = WITNESSES.toSet()
+
+    assertEquals(3, policy.weightOf(WITNESSES[0], witnesses))
+    assertEquals(0, policy.weightOf(WITNESSES[2], witnesses))
+    assertEquals(4, policy.requiredWeight(witnesses))
+  }
+
+  @Test
+  fun organizerMustSign() {
+    val organizer = WITNESSES[0]
+    val witnesses = WITNESSES.toSet()
+    val policy = WitnessingPolicy.OrganizerPlusK(organizer, 2)
+    val required = policy.requiredWeight(witnesses)
+
+    // All the other witnesses are not enough
+    val others = WITNESSES.drop(1).sumOf { policy.weightOf(it, witnesses) }
+    assertTrue(others < required)
+    // The organizer needs k other witnesses
+    val organizerWeight = policy.weightOf(organizer, witnesses)
+    assertTrue(organizerWeight + 1 < required)
+    assertEquals(required, organizerWeight + 2)
+  }
+
+  @Test
+  fun invalidPoliciesAreRejected() {
+    assertThrows(IllegalArgumentException::class.java) { WitnessingPolicy.KOfN(0) }
+    assertThrows(IllegalArgumentException::class.java) { WitnessingPolicy.Proportion(1.5f) }
+    assertThrows(IllegalArgumentException::class.java) { WitnessingPolicy.Weighted(emptyMap(), 0) }
+  }
+
+  companion object {
+    private val WITNESSES: List<PublicKey> = List(6) { Base64DataUtils.generatePublicKey() }
+  }
+}
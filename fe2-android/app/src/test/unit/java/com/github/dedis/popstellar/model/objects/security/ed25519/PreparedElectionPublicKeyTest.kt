@@ -0,0 +1,69 @@
+package com.github.dedis.popstellar.model.objects.security.ed25519
+
+import ch.epfl.dedis.lib.crypto.Ed25519Point
+import ch.epfl.dedis.lib.crypto.Point
+import com.github.dedis.popstellar.model.objects.security.elGamal.ElectionKeyPair.Companion.generateKeyPair
+import com.github.dedis.popstellar.model.objects.security.elGamal.FixedBaseTable
+import com.github.dedis.popstellar.model.objects.security.elGamal.PreparedElectionPublicKey
+import org.junit.Assert
+import org.junit.Test
+
+class PreparedElectionPublicKeyTest {
+  private val keyPair = generateKeyPair()
+  private val preparedKey = PreparedElectionPublicKey(keyPair.encryptionScheme)
+
+  @Test
+  fun encryptedMessageIsDecrypted() {
+    val message = byteArrayOf(0, 3)
+
+    Assert.assertArrayEquals(
+      message,
+      keyPair.decryptionScheme.decrypt(preparedKey.encrypt(message))
+    )
+  }
+
+  @Test
+  fun encryptionIsRandomized() {
+    val message = byteArrayOf(0, 3)
+
+    Assert.assertNotEquals(preparedKey.encrypt(message), preparedKey.encrypt(message))
+  }
+
+  @Test
+  fun batchIsEncryptedInOrder() {
+    val messages = List(5) { byteArrayOf(0, it.toByte()) }
+
+    val decrypted = preparedKey.encrypt(messages).map { keyPair.decryptionScheme.decrypt(it) }
+    Assert.assertEquals(messages.map { it.toList() }, decrypted.map { it.toList() })
+  }
+
+  @Test
+  fun preparedKeyIsCached() {
+    val electionKey = keyPair.encryptionScheme.encodeToBase64()
+
+    val prepared = PreparedElectionPublicKey.of(electionKey)
+    Assert.assertSame(prepared, PreparedElectionPublicKey.of(electionKey))
+    Assert.assertEquals(keyPair.encryptionScheme, prepared.electionPublicKey)
+  }
+
+  @Test
+  fun tableMultipliesByEachDigit() {
+    val base = Ed25519Point.base()
+    val table = FixedBaseTable(base)
+
+    // 0x35 = 53, whose digits are in two different positions
+    val scalar = ByteArray(FixedBaseTable.SCALAR_SIZE)
+    scalar[0] = 0x35
+    Assert.assertEquals(repeatedSum(base, 53), table.mul(scalar))
+
+    Assert.assertThrows(IllegalArgumentException::class.java) {
+      table.mul(ByteArray(FixedBaseTable.SCALAR_SIZE))
+    }
+  }
+
+  private fun repeatedSum(point: Point, times: Int): Point {
+    var sum = point
+    repeat(times - 1) { sum = sum.add(point) }
+    return sum
+  }
+}
@@ -0,0 +1,80 @@
+package com.github.dedis.popstellar.repository
+
+import com.github.dedis.popstellar.model.objects.Chirp
+import com.github.dedis.popstellar.model.objects.security.MessageID
+import com.github.dedis.popstellar.testutils.Base64DataUtils
+import org.junit.Assert.assertEquals
+import org.junit.Assert.assertFalse
+import org.junit.Assert.assertTrue
+import org.junit.Test
+
+class ChirpFeedTest {
+  private val feed = ChirpFeed()
+
+  @Test
+  fun chirpsAreOrderedFromTheNewest() {
+    val old = buildChirp(10)
+    val recent = buildChirp(30)
+    val middle = buildChirp(20)
+
+    listOf(old, recent, middle).forEach { assertTrue(feed.add(it)) }
+
+    assertEquals(listOf(recent, middle, old), feed.getChirps())
+  }
+
+  @Test
+  fun chirpIsOnlyAddedOnce() {
+    val chirp = buildChirp(10)
+
+    assertTrue(feed.add(chirp))
+    assertFalse(feed.add(chirp))
+    assertEquals(1, feed.size)
+  }
+
+  @Test
+  fun changesAreInsertedAtTheirPosition() {
+    val old = buildChirp(10)
+    val recent = buildChirp(30)
+    val middle = buildChirp(20)
+    feed.add(old)
+    val changes = feed.getChanges().test()
+
+    feed.add(recent)
+    feed.add(middle)
+
+    changes.assertValueCount(3)
+    val insert = changes.values()[2] as ChirpFeed.Change.Insert
+    assertEquals(1, insert.position)
+    assertEquals(middle, insert.chirp)
+  }
+
+  @Test
+  fun appliedChangesGiveTheFeed() {
+    val changes = feed.getChanges().test()
+    val chirps = (0 until 50).map { buildChirp((it * 7 % 50).toLong()) }
+    chirps.forEach { feed.add(it) }
+    feed.update(chirps[3].deleted())
+
+    val copy: MutableList<Chirp> = ArrayList()
+    changes.values().forEach { it.applyTo(copy) }
+
+    assertEquals(feed.getChirps(), copy)
+    assertTrue(copy.first { it.id == chirps[3].id }.isDeleted)
+  }
+
+  @Test
+  fun unknownChirpIsNotUpdated() {
+    val changes = feed.getChanges().test()
+
+    assertFalse(feed.update(buildChirp(10)))
+    changes.assertValueCount(1)
+  }
+
+  private fun buildChirp(timestamp: Long): Chirp {
+    return Chirp(Base64DataUtils.generateMessageID(), SENDER, "chirp", timestamp, MessageID(""))
+  }
+
+  companion object {
+    private val SENDER = Base64DataUtils.generatePublicKey()
+  }
+}
@@ -18,7 +18,6 @@ import com.github.dedis.popstellar.repository.database.AppDatabase
 import com.github.dedis.popstellar.repository.database.digitalcash.HashDao
 import com.github.dedis.popstellar.repository.database.digitalcash.TransactionDao
 import com.github.dedis.popstellar.testutils.Base64DataUtils
-import com.github.dedis.popstellar.testutils.MockitoKotlinHelpers
 import com.github.dedis.popstellar.testutils.ObservableUtils
 import com.github.dedis.popstellar.utility.error.keys.NoRollCallException
 import io.reactivex.Completable
@@ -65,7 +64,7 @@ class DigitalCashRepositoryTest {
       .thenReturn(Single.just(emptyList()))
     Mockito.`when`(transactionDao.deleteByLaoId(ArgumentMatchers.anyString()))
       .thenReturn(Completable.complete())
-    Mockito.`when`(transactionDao.insert(MockitoKotlinHelpers.any()))
+    Mockito.`when`(transactionDao.insertAll(ArgumentMatchers.anyList()))
       .thenReturn(Completable.complete())
   }
 
@@ -155,6 +154,37 @@ class DigitalCashRepositoryTest {
     )
   }
 
+  @Test
+  @Throws(GeneralSecurityException::class, NoRollCallException::class)
+  fun spentOutputsAreRemovedFromUnspentOutputs() {
+    val issuance =
+      getValidTransactionBuilder("issuance", ORGANIZER, listOf(USER1_PK), true, 1000).build()
+    repo.initializeDigitalCash(LAO_ID, listOf(USER1_PK, USER2_PK))
+    repo.updateTransactions(LAO_ID, issuance)
+
+    val payment = getValidTransactionBuilder("payment", USER1, listOf(USER2_PK), false, 400).build()
+    repo.updateTransactions(LAO_ID, payment)
+
+    val user1Outputs = repo.getUnspentOutputs(LAO_ID, USER1_PK)
+    Assert.assertEquals(1, user1Outputs.size)
+    Assert.assertEquals("payment", user1Outputs[0].txOutHash)
+    Assert.assertEquals(600L, user1Outputs[0].value)
+    Assert.assertEquals(listOf(400L), repo.getUnspentOutputs(LAO_ID, USER2_PK).map { it.value })
+  }
+
+  @Test
+  @Throws(GeneralSecurityException::class, NoRollCallException::class)
+  fun duplicatedTransactionIsOnlyCountedOnce() {
+    val issuance =
+      getValidTransactionBuilder("issuance", ORGANIZER, listOf(USER1_PK), true, 1000).build()
+    repo.initializeDigitalCash(LAO_ID, listOf(USER1_PK))
+    repo.updateTransactions(LAO_ID, issuance)
+    repo.updateTransactions(LAO_ID, issuance)
+
+    Assert.assertEquals(1000L, repo.getUserBalance(LAO_ID, USER1_PK))
+    Assert.assertEquals(1, repo.getTransactions(LAO_ID, USER1_PK)!!.size)
+  }
+
   companion object {
     private val ORGANIZER = Base64DataUtils.generateKeyPair()
     private val USER1 = Base64DataUtils.generateKeyPair()
@@ -213,15 +243,16 @@ class DigitalCashRepositoryTest {
 
       val senderPublicKey = sender.publicKey
       val type = "P2PKH"
-      val txOutIndex = 0
-      val txOutHash =
-        if (isIssuance) TransactionObject.TX_OUT_HASH_COINBASE
-        else "47DEQpj8HBSa--TImW-5JCeuQeRkm5NMpJWZG3hSuFU="
       val scriptTxIn: ScriptInputObject
       val sig = sender.sign(senderPublicKey).encoded
       scriptTxIn = ScriptInputObject(type, senderPublicKey, Signature(sig))
-      val input = InputObject(txOutHash, txOutIndex, scriptTxIn)
-      val listInput = listOf(input)
+      // A payment spends all the unspent outputs of the sender
+      val listInput =
+        if (isIssuance) listOf(InputObject(TransactionObject.TX_OUT_HASH_COINBASE, 0, scriptTxIn))
+        else
+          repo.getUnspentOutputs(LAO_ID, senderPublicKey).map {
+            InputObject(it.txOutHash, it.txOutIndex, scriptTxIn)
+          }
       builder.setInputs(listInput)
 
       val channel = fromString("/root/laoId/coin/myChannel")
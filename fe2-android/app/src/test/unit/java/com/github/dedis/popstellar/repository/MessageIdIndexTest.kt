@@ -0,0 +1,42 @@
+package com.github.dedis.popstellar.repository
+
+import com.github.dedis.popstellar.testutils.Base64DataUtils
+import org.junit.Assert.assertEquals
+import org.junit.Assert.assertFalse
+import org.junit.Assert.assertTrue
+import org.junit.Test
+
+class MessageIdIndexTest {
+
+  @Test
+  fun addedIdsAreAlwaysFound() {
+    val index = MessageIdIndex(4)
+    val ids = (0 until 1000).map { Base64DataUtils.generateMessageID() }
+
+    index.addAll(ids)
+
+    // The table was resized multiple times without losing any id
+    ids.forEach { assertTrue(index.mightContain(it)) }
+    assertEquals(ids.toSet().size, index.size)
+  }
+
+  @Test
+  fun unknownIdIsNotFound() {
+    val index = MessageIdIndex()
+    val id = Base64DataUtils.generateMessageID()
+    index.add(id)
+
+    assertFalse(index.mightContain(Base64DataUtils.generateMessageIDOtherThan(id)))
+  }
+
+  @Test
+  fun addingTwiceDoesNotIncreaseSize() {
+    val index = MessageIdIndex()
+    val id = Base64DataUtils.generateMessageID()
+
+    index.add(id)
+    index.add(id)
+
+    assertEquals(1, index.size)
+  }
+}
@@ -0,0 +1,123 @@
+package com.github.dedis.popstellar.repository
+
+import android.app.Application
+import androidx.test.core.app.ApplicationProvider
+import androidx.test.ext.junit.runners.AndroidJUnit4
+import com.github.dedis.popstellar.model.objects.RollCall
+import com.github.dedis.popstellar.model.objects.event.EventState
+import com.github.dedis.popstellar.model.objects.security.PublicKey
+import com.github.dedis.popstellar.repository.database.AppDatabase
+import com.github.dedis.popstellar.repository.database.event.rollcall.RollCallDao
+import com.github.dedis.popstellar.testutils.Base64DataUtils
+import com.github.dedis.popstellar.testutils.MockitoKotlinHelpers
+import com.github.dedis.popstellar.utility.error.keys.NoRollCallException
+import io.reactivex.Completable
+import io.reactivex.Single
+import org.junit.Assert
+import org.junit.Before
+import org.junit.Rule
+import org.junit.Test
+import org.junit.runner.RunWith
+import org.mockito.ArgumentMatchers
+import org.mockito.Mock
+import org.mockito.Mockito
+import org.mockito.junit.MockitoJUnit
+import org.mockito.junit.MockitoRule
+
+@RunWith(AndroidJUnit4::class)
+class RollCallRepositoryTest {
+  private val application = ApplicationProvider.getApplicationContext<Application>()
+
+  @Mock private lateinit var appDatabase: AppDatabase
+
+  @Mock private lateinit var rollCallDao: RollCallDao
+  private lateinit var rollCallRepository: RollCallRepository
+
+  @JvmField @Rule(order = 0) val mockitoRule: MockitoRule = MockitoJUnit.rule()
+
+  @Before
+  fun setUp() {
+    Mockito.`when`(appDatabase.rollCallDao()).thenReturn(rollCallDao)
+    rollCallRepository = RollCallRepository(appDatabase, application)
+
+    Mockito.`when`(rollCallDao.insert(MockitoKotlinHelpers.any()))
+      .thenReturn(Completable.complete())
+    Mockito.`when`(rollCallDao.getRollCallsByLaoId(ArgumentMatchers.anyString()))
+      .thenReturn(Single.just(emptyList()))
+  }
+
+  @Test
+  fun lastClosedRollCallIsTracked() {
+    Assert.assertThrows(NoRollCallException::class.java) {
+      rollCallRepository.getLastClosedRollCall(LAO_ID)
+    }
+
+    val first = rollCall("first", EventState.CLOSED, 10, setOf(ATTENDEE1))
+    val second = rollCall("second", EventState.CLOSED, 20, setOf(ATTENDEE2))
+    rollCallRepository.updateRollCall(LAO_ID, second)
+    rollCallRepository.updateRollCall(LAO_ID, first)
+    Assert.assertEquals(second, rollCallRepository.getLastClosedRollCall(LAO_ID))
+
+    // Reopening the last closed roll call makes the previous one the last
+    rollCallRepository.updateRollCall(LAO_ID, rollCall("second", EventState.OPENED, 20, setOf()))
+    Assert.assertEquals(first, rollCallRepository.getLastClosedRollCall(LAO_ID))
+  }
+
+  @Test
+  fun openRollCallsAreTracked() {
+    Assert.assertTrue(rollCallRepository.canOpenRollCall(LAO_ID))
+
+    rollCallRepository.updateRollCall(LAO_ID, rollCall("rc", EventState.OPENED, 0, setOf()))
+    Assert.assertFalse(rollCallRepository.canOpenRollCall(LAO_ID))
+
+    rollCallRepository.updateRollCall(LAO_ID, rollCall("rc", EventState.CLOSED, 10, setOf()))
+    Assert.assertTrue(rollCallRepository.canOpenRollCall(LAO_ID))
+  }
+
+  @Test
+  fun attendeesOfAllRollCallsAreTracked() {
+    rollCallRepository.updateRollCall(
+      LAO_ID,
+      rollCall("first", EventState.CLOSED, 10, setOf(ATTENDEE1, ATTENDEE2))
+    )
+    rollCallRepository.updateRollCall(
+      LAO_ID,
+      rollCall("second", EventState.CLOSED, 20, setOf(ATTENDEE2))
+    )
+    Assert.assertEquals(
+      setOf(ATTENDEE1, ATTENDEE2),
+      rollCallRepository.getAllAttendeesInLao(LAO_ID)
+    )
+
+    // An attendee removed from a roll call is kept as long as it attended another one
+    rollCallRepository.updateRollCall(LAO_ID, rollCall("first", EventState.CLOSED, 10, setOf()))
+    Assert.assertEquals(setOf(ATTENDEE2), rollCallRepository.getAllAttendeesInLao(LAO_ID))
+  }
+
+  private fun rollCall(
+    name: String,
+    state: EventState,
+    end: Long,
+    attendees: Set<PublicKey>
+  ): RollCall {
+    return RollCall(
+      "$name-$state",
+      name,
+      name,
+      CREATION,
+      CREATION,
+      end,
+      state,
+      HashSet(attendees),
+      "location",
+      ""
+    )
+  }
+
+  companion object {
+    private const val LAO_ID = "LAO_ID"
+    private const val CREATION = 1L
+    private val ATTENDEE1 = Base64DataUtils.generatePublicKey()
+    private val ATTENDEE2 = Base64DataUtils.generatePublicKey()
+  }
+}
@@ -9,13 +9,20 @@ import com.github.dedis.popstellar.model.objects.Reaction
 import com.github.dedis.popstellar.model.objects.security.MessageID
 import com.github.dedis.popstellar.repository.database.AppDatabase
 import com.github.dedis.popstellar.repository.database.socialmedia.ChirpDao
+import com.github.dedis.popstellar.repository.database.socialmedia.ChirpEntity
+import com.github.dedis.popstellar.repository.database.socialmedia.ChirpSearchDao
 import com.github.dedis.popstellar.repository.database.socialmedia.ReactionDao
+import com.github.dedis.popstellar.repository.database.socialmedia.ReactionIds
 import com.github.dedis.popstellar.testutils.Base64DataUtils
 import com.github.dedis.popstellar.testutils.MockitoKotlinHelpers
 import com.github.dedis.popstellar.testutils.ObservableUtils
 import com.github.dedis.popstellar.utility.error.UnknownChirpException
 import io.reactivex.Completable
+import io.reactivex.Maybe
 import io.reactivex.Single
+import io.reactivex.plugins.RxJavaPlugins
+import io.reactivex.schedulers.Schedulers
+import io.reactivex.schedulers.TestScheduler
 import java.time.Instant
 import org.junit.Assert
 import org.junit.Before
@@ -27,6 +34,7 @@ import org.mockito.Mock
 import org.mockito.Mockito
 import org.mockito.junit.MockitoJUnit
 import org.mockito.junit.MockitoRule
+import org.robolectric.shadows.ShadowLooper
 
 @RunWith(AndroidJUnit4::class)
 class SocialMediaRepositoryTest {
@@ -38,6 +46,8 @@ class SocialMediaRepositoryTest {
 
   @Mock private lateinit var chirpDao: ChirpDao
 
+  @Mock private lateinit var chirpSearchDao: ChirpSearchDao
+
   private lateinit var repo: SocialMediaRepository
 
   @JvmField @Rule(order = 0) val mockitoRule: MockitoRule = MockitoJUnit.rule()
@@ -46,39 +56,211 @@ class SocialMediaRepositoryTest {
   fun setup() {
     Mockito.`when`(appDatabase.chirpDao()).thenReturn(chirpDao)
     Mockito.`when`(appDatabase.reactionDao()).thenReturn(reactionDao)
+    Mockito.`when`(appDatabase.chirpSearchDao()).thenReturn(chirpSearchDao)
     repo = SocialMediaRepository(appDatabase, application)
 
-    Mockito.`when`(chirpDao.insert(MockitoKotlinHelpers.any())).thenReturn(Completable.complete())
-    Mockito.`when`(reactionDao.insert(MockitoKotlinHelpers.any()))
+    Mockito.`when`(chirpDao.insertAll(ArgumentMatchers.anyList()))
+      .thenReturn(Completable.complete())
+    Mockito.`when`(reactionDao.insertAll(ArgumentMatchers.anyList()))
+      .thenReturn(Completable.complete())
+    Mockito.`when`(chirpSearchDao.insertAll(ArgumentMatchers.anyList()))
+      .thenReturn(Completable.complete())
+    Mockito.`when`(chirpSearchDao.deleteByChirpId(MockitoKotlinHelpers.any()))
       .thenReturn(Completable.complete())
-    Mockito.`when`(chirpDao.getChirpsByLaoId(ArgumentMatchers.anyString()))
+    Mockito.`when`(
+        chirpDao.getLatestChirps(ArgumentMatchers.anyString(), ArgumentMatchers.anyInt())
+      )
+      .thenReturn(Single.just(emptyList()))
+    Mockito.`when`(reactionDao.getReactionsByChirpIds(ArgumentMatchers.anyList()))
+      .thenReturn(Single.just(emptyList()))
+    Mockito.`when`(chirpDao.getChirpIds(ArgumentMatchers.anyString()))
       .thenReturn(Single.just(emptyList()))
-    Mockito.`when`(reactionDao.getReactionsByChirpId(MockitoKotlinHelpers.any()))
+    Mockito.`when`(reactionDao.getReactionIds(ArgumentMatchers.anyString()))
       .thenReturn(Single.just(emptyList()))
   }
 
   @Test
-  fun addingAChirpAfterSubscriptionUpdatesIds() {
-    val ids = repo.getChirpsOfLao(LAO_ID).test()
-    // assert the current element is an empty set
-    ObservableUtils.assertCurrentValueIs(ids, emptySet())
+  fun addingAChirpAfterSubscriptionUpdatesFeed() {
+    val feed = repo.getChirpFeed(LAO_ID).test()
+    // assert the first change is an empty feed
+    Assert.assertEquals(emptyList<Chirp>(), applyChanges(feed.values()))
     repo.addChirp(LAO_ID, CHIRP_1)
 
-    // assert we received a new value : the set containing the chirp
-    ObservableUtils.assertCurrentValueIs(ids, setOf(CHIRP_1.id))
+    // assert we received a new change : the insertion of the chirp
+    Assert.assertEquals(listOf(CHIRP_1), applyChanges(feed.values()))
   }
 
   @Test
-  fun addingChirpBeforeSubscriptionUpdateIds() {
+  fun addingChirpBeforeSubscriptionUpdateFeed() {
     repo.addChirp(LAO_ID, CHIRP_1)
-    val ids = repo.getChirpsOfLao(LAO_ID).test()
+    val feed = repo.getChirpFeed(LAO_ID).test()
 
-    // The value at subscription contains only the first chirp's id
-    ObservableUtils.assertCurrentValueIs(ids, setOf(CHIRP_1.id))
+    // The feed at subscription contains only the first chirp
+    feed.assertValueCount(1)
+    Assert.assertEquals(listOf(CHIRP_1), applyChanges(feed.values()))
     repo.addChirp(LAO_ID, CHIRP_2)
 
-    // The value at subscription contains the two chirps' ids
-    ObservableUtils.assertCurrentValueIs(ids, setOf(CHIRP_1.id, CHIRP_2.id))
+    // The newest chirp is inserted first
+    Assert.assertEquals(listOf(CHIRP_2, CHIRP_1), applyChanges(feed.values()))
+  }
+
+  @Test
+  fun deletingAChirpUpdatesFeed() {
+    repo.addChirp(LAO_ID, CHIRP_1)
+    val feed = repo.getChirpFeed(LAO_ID).test()
+
+    Assert.assertTrue(repo.deleteChirp(LAO_ID, CHIRP_1.id))
+
+    val chirps = applyChanges(feed.values())
+    Assert.assertEquals(1, chirps.size)
+    Assert.assertTrue(chirps[0].isDeleted)
+  }
+
+  @Test
+  fun storedChirpsAreLoadedByPages() {
+    val firstPage = List(100) { ChirpEntity(LAO_ID, buildChirp(1000L + it)) }
+    val secondPage = listOf(ChirpEntity(LAO_ID, buildChirp(10)))
+    val last = firstPage[99]
+    Mockito.`when`(chirpDao.getLatestChirps(LAO_ID, 100)).thenReturn(Single.just(firstPage))
+    Mockito.`when`(chirpDao.getChirpsAfter(LAO_ID, last.timestamp, last.chirpId, 100))
+      .thenReturn(Single.just(secondPage))
+
+    // Read the disk synchronously, the pages are then added on the main looper
+    RxJavaPlugins.setIoSchedulerHandler { Schedulers.trampoline() }
+    try {
+      val feed = repo.getChirpFeed(LAO_ID).test()
+      ShadowLooper.idleMainLooper()
+
+      // Only the first page is loaded until more chirps are needed
+      Assert.assertEquals(100, applyChanges(feed.values()).size)
+      Mockito.verify(chirpDao, Mockito.never())
+        .getChirpsAfter(
+          ArgumentMatchers.anyString(),
+          ArgumentMatchers.anyLong(),
+          MockitoKotlinHelpers.any(),
+          ArgumentMatchers.anyInt()
+        )
+
+      repo.loadMoreChirps(LAO_ID)
+      ShadowLooper.idleMainLooper()
+      Assert.assertEquals(101, applyChanges(feed.values()).size)
+
+      // The last page was not full, there is nothing more to load
+      repo.loadMoreChirps(LAO_ID)
+      Mockito.verify(chirpDao)
+        .getChirpsAfter(
+          ArgumentMatchers.anyString(),
+          ArgumentMatchers.anyLong(),
+          MockitoKotlinHelpers.any(),
+          ArgumentMatchers.anyInt()
+        )
+    } finally {
+      RxJavaPlugins.reset()
+    }
+  }
+
+  @Test
+  fun reactionsOfAPageAreLoadedAtOnce() {
+    Mockito.`when`(chirpDao.getLatestChirps(LAO_ID, 100))
+      .thenReturn(Single.just(listOf(ChirpEntity(LAO_ID, CHIRP_1), ChirpEntity(LAO_ID, CHIRP_2))))
+    Mockito.`when`(reactionDao.getReactionsByChirpIds(listOf(CHIRP1_ID, CHIRP2_ID)))
+      .thenReturn(Single.just(listOf(REACTION_1, REACTION_2)))
+
+    RxJavaPlugins.setIoSchedulerHandler { Schedulers.trampoline() }
+    try {
+      repo.getChirpFeed(LAO_ID)
+      ShadowLooper.idleMainLooper()
+
+      Assert.assertEquals(
+        setOf(REACTION_1, REACTION_2),
+        repo.getReactionsByChirp(LAO_ID, CHIRP1_ID)
+      )
+      Mockito.verify(reactionDao, Mockito.never()).getReactionsByChirpId(MockitoKotlinHelpers.any())
+    } finally {
+      RxJavaPlugins.reset()
+    }
+  }
+
+  @Test
+  fun storedChirpNotPagedInCanBeReactedToAndDeleted() {
+    // The chirp is stored but its page is not loaded
+    Mockito.`when`(chirpDao.getChirpIds(LAO_ID)).thenReturn(Single.just(listOf(CHIRP1_ID)))
+    Mockito.`when`(chirpDao.getChirpById(LAO_ID, CHIRP1_ID))
+      .thenReturn(Maybe.just(ChirpEntity(LAO_ID, CHIRP_1)))
+    Mockito.`when`(reactionDao.getReactionsByChirpId(CHIRP1_ID))
+      .thenReturn(Single.just(listOf(REACTION_2)))
+
+    RxJavaPlugins.setIoSchedulerHandler { Schedulers.trampoline() }
+    try {
+      repo.getChirpFeed(LAO_ID)
+
+      Assert.assertTrue(repo.addReaction(LAO_ID, REACTION_1))
+      // The chirp is loaded in the background, the reaction being applied once it is loaded
+      ShadowLooper.idleMainLooper()
+      Assert.assertEquals(
+        setOf(REACTION_1, REACTION_2),
+        repo.getReactionsByChirp(LAO_ID, CHIRP1_ID)
+      )
+
+      Assert.assertTrue(repo.deleteChirp(LAO_ID, CHIRP1_ID))
+      Assert.assertTrue(applyChanges(repo.getChirpFeed(LAO_ID).test().values())[0].isDeleted)
+    } finally {
+      RxJavaPlugins.reset()
+    }
+  }
+
+  @Test
+  fun storedReactionOfAChirpNotPagedInCanBeDeleted() {
+    Mockito.`when`(chirpDao.getChirpIds(LAO_ID)).thenReturn(Single.just(listOf(CHIRP1_ID)))
+    Mockito.`when`(reactionDao.getReactionIds(LAO_ID))
+      .thenReturn(Single.just(listOf(ReactionIds(REACTION_1.id, CHIRP1_ID))))
+    Mockito.`when`(chirpDao.getChirpById(LAO_ID, CHIRP1_ID))
+      .thenReturn(Maybe.just(ChirpEntity(LAO_ID, CHIRP_1)))
+    Mockito.`when`(reactionDao.getReactionsByChirpId(CHIRP1_ID))
+      .thenReturn(Single.just(listOf(REACTION_1)))
+
+    RxJavaPlugins.setIoSchedulerHandler { Schedulers.trampoline() }
+    try {
+      repo.getChirpFeed(LAO_ID)
+
+      Assert.assertTrue(repo.deleteReaction(LAO_ID, REACTION_1.id))
+      ShadowLooper.idleMainLooper()
+      Assert.assertEquals(setOf(REACTION_1.deleted()), repo.getReactionsByChirp(LAO_ID, CHIRP1_ID))
+    } finally {
+      RxJavaPlugins.reset()
+    }
+  }
+
+  @Test
+  fun messagesAboutStoredChirpsAreRejectedUntilTheirIdsAreLoaded() {
+    Mockito.`when`(chirpDao.getChirpIds(LAO_ID)).thenReturn(Single.just(listOf(CHIRP1_ID)))
+    Mockito.`when`(chirpDao.getChirpById(LAO_ID, CHIRP1_ID))
+      .thenReturn(Maybe.just(ChirpEntity(LAO_ID, CHIRP_1)))
+    Mockito.`when`(reactionDao.getReactionsByChirpId(CHIRP1_ID))
+      .thenReturn(Single.just(emptyList()))
+
+    // The ids are read on a scheduler that has not run yet, so the reaction is processed later
+    val scheduler = TestScheduler()
+    RxJavaPlugins.setIoSchedulerHandler { scheduler }
+    try {
+      Assert.assertFalse(repo.addReaction(LAO_ID, REACTION_1))
+
+      scheduler.triggerActions()
+      Assert.assertTrue(repo.addReaction(LAO_ID, REACTION_1))
+
+      // A reaction to a chirp that is not stored is still rejected
+      val unknown =
+        Reaction(
+          Base64DataUtils.generateMessageID(),
+          SENDER,
+          EMOJI,
+          CHIRP2_ID,
+          Instant.now().epochSecond
+        )
+      Assert.assertFalse(repo.addReaction(LAO_ID, unknown))
+    } finally {
+      RxJavaPlugins.reset()
+    }
   }
 
   @Test
@@ -135,6 +317,34 @@ class SocialMediaRepositoryTest {
     chirp.assertValueCount(valueCount)
   }
 
+  @Test
+  fun searchIndexFollowsTheChirps() {
+    repo.addChirp(LAO_ID, CHIRP_1)
+    Mockito.`when`(
+        chirpSearchDao.search(
+          ArgumentMatchers.eq(LAO_ID),
+          ArgumentMatchers.eq("text:chirp*"),
+          ArgumentMatchers.anyInt()
+        )
+      )
+      .thenReturn(Single.just(listOf(ChirpEntity(LAO_ID, CHIRP_1))))
+
+    val search = repo.searchChirpsByText(LAO_ID, "chirp", null).test()
+    search.awaitTerminalEvent()
+    search.assertValue(listOf(CHIRP_1))
+    // The chirp was written in the index before searching
+    Mockito.verify(chirpSearchDao).insertAll(ArgumentMatchers.anyList())
+
+    Assert.assertTrue(repo.deleteChirp(LAO_ID, CHIRP1_ID))
+    Mockito.verify(chirpSearchDao, Mockito.timeout(1000)).deleteByChirpId(CHIRP1_ID)
+  }
+
+  @Test
+  fun searchingNoWordReturnsNothing() {
+    repo.searchChirpsByText(LAO_ID, " !? ", null).test().assertValue(emptyList())
+    repo.searchChirpsByHashtag(LAO_ID, "#", null).test().assertValue(emptyList())
+  }
+
   @Test
   fun deletingANonExistingChirpReturnsFalse() {
     // Given a fresh repo, with an added chirp
@@ -208,6 +418,12 @@ class SocialMediaRepositoryTest {
     ObservableUtils.assertCurrentValueIs(reactions, setOf(REACTION_2, REACTION_1.deleted()))
   }
 
+  private fun applyChanges(changes: List<ChirpFeed.Change>): List<Chirp> {
+    val chirps: MutableList<Chirp> = ArrayList()
+    changes.forEach { it.applyTo(chirps) }
+    return chirps
+  }
+
   companion object {
     private val LAO_ID = generateLaoId(Base64DataUtils.generatePublicKey(), 1000, "LAO")
     private val SENDER = Base64DataUtils.generatePublicKey()
@@ -233,6 +449,10 @@ class SocialMediaRepositoryTest {
         Instant.now().epochSecond
       )
 
+    private fun buildChirp(timestamp: Long): Chirp {
+      return Chirp(Base64DataUtils.generateMessageID(), SENDER, "chirp", timestamp, MessageID(""))
+    }
+
     @SafeVarargs
     private fun <E> setOf(vararg elems: E): Set<E> {
       val set: MutableSet<E> = HashSet()
@@ -0,0 +1,111 @@
+package com.github.dedis.popstellar.repository
+
+import com.github.dedis.popstellar.model.objects.Channel
+import com.github.dedis.popstellar.model.objects.InputObject
+import com.github.dedis.popstellar.model.objects.OutputObject
+import com.github.dedis.popstellar.model.objects.digitalcash.ScriptInputObject
+import com.github.dedis.popstellar.model.objects.digitalcash.ScriptOutputObject
+import com.github.dedis.popstellar.model.objects.digitalcash.TransactionObject
+import com.github.dedis.popstellar.model.objects.digitalcash.TransactionObjectBuilder
+import com.github.dedis.popstellar.testutils.Base64DataUtils
+import org.junit.Assert.assertEquals
+import org.junit.Assert.assertTrue
+import org.junit.Test
+
+class UnspentOutputSetTest {
+  private val set = UnspentOutputSet()
+
+  @Test
+  fun issuanceCreatesUnspentOutputs() {
+    set.add(ISSUANCE)
+
+    assertEquals(2, set.size)
+    assertEquals(100L, set.getBalance(ALICE))
+    assertEquals(50L, set.getBalance(BOB))
+    assertEquals(0L, set.getBalance("unknown"))
+  }
+
+  @Test
+  fun paymentSpendsItsInputs() {
+    set.add(ISSUANCE)
+    set.add(PAYMENT)
+
+    assertEquals(70L, set.getBalance(ALICE))
+    assertEquals(80L, set.getBalance(BOB))
+    assertEquals(listOf("payment"), set.getUnspentOutputs(ALICE).map { it.txOutHash })
+    assertEquals(2, set.getUnspentOutputs(BOB).size)
+  }
+
+  @Test
+  fun bulkAddDoesNotDependOnOrder() {
+    set.addAll(listOf(PAYMENT, ISSUANCE))
+
+    assertEquals(70L, set.getBalance(ALICE))
+    assertEquals(80L, set.getBalance(BOB))
+  }
+
+  @Test
+  fun outputSpentBeforeBeingAddedStaysSpent() {
+    set.add(PAYMENT)
+    set.add(ISSUANCE)
+
+    assertEquals(70L, set.getBalance(ALICE))
+    assertEquals(80L, set.getBalance(BOB))
+  }
+
+  @Test
+  fun clearRemovesEverything() {
+    set.add(ISSUANCE)
+    set.clear()
+
+    assertEquals(0, set.size)
+    assertEquals(0L, set.getBalance(ALICE))
+    assertTrue(set.getUnspentOutputs(ALICE).isEmpty())
+  }
+
+  companion object {
+    private const val TYPE = "P2PKH"
+    private val ALICE = Base64DataUtils.generatePublicKey().computeHash()
+    private val BOB = Base64DataUtils.generatePublicKey().computeHash()
+    private val SCRIPT_INPUT =
+      ScriptInputObject(
+        TYPE,
+        Base64DataUtils.generatePublicKey(),
+        Base64DataUtils.generateSignature()
+      )
+
+    private val ISSUANCE =
+      buildTransaction(
+        "issuance",
+        listOf(InputObject(TransactionObject.TX_OUT_HASH_COINBASE, 0, SCRIPT_INPUT)),
+        listOf(
+          OutputObject(100, ScriptOutputObject(TYPE, ALICE)),
+          OutputObject(50, ScriptOutputObject(TYPE, BOB))
+        )
+      )
+
+    // Alice sends 30 to Bob and gets the 70 left back
+    private val PAYMENT =
+      buildTransaction(
+        "payment",
+        listOf(InputObject("issuance", 0, SCRIPT_INPUT)),
+        listOf(
+          OutputObject(70, ScriptOutputObject(TYPE, ALICE)),
+          OutputObject(30, ScriptOutputObject(TYPE, BOB))
+        )
+      )
+
+    private fun buildTransaction(
+      id: String,
+      inputs: List<InputObject>,
+      outputs: List<OutputObject>
+    ): TransactionObject {
+      return TransactionObjectBuilder()
+        .setChannel(Channel.fromString("/root/laoId/coin"))
+        .setInputs(inputs)
+        .setOutputs(outputs)
+        .setTransactionId(id)
+        .build()
+    }
+  }
+}
@@ -0,0 +1,70 @@
+package com.github.dedis.popstellar.repository
+
+import com.github.dedis.popstellar.model.objects.WitnessMessage
+import com.github.dedis.popstellar.testutils.Base64DataUtils
+import org.junit.Assert.assertEquals
+import org.junit.Assert.assertFalse
+import org.junit.Assert.assertTrue
+import org.junit.Test
+
+class WitnessMessageFeedTest {
+  private val feed = WitnessMessageFeed()
+
+  @Test
+  fun signatureIsPublishedAlone() {
+    val message = WitnessMessage(Base64DataUtils.generateMessageID())
+    feed.add(message)
+    val changes = feed.getChanges().test()
+
+    assertTrue(feed.addWitness(message, WITNESS))
+    feed.accept(message.messageId)
+
+    changes.assertValueCount(3)
+    val witnessAdded = changes.values()[1] as WitnessMessageFeed.Change.WitnessAdded
+    assertEquals(message.messageId, witnessAdded.messageID)
+    assertEquals(WITNESS, witnessAdded.witness)
+    val accepted = changes.values()[2] as WitnessMessageFeed.Change.MessageAccepted
+    assertEquals(message.messageId, accepted.messageID)
+  }
+
+  @Test
+  fun witnessIsOnlyAddedOnce() {
+    val message = WitnessMessage(Base64DataUtils.generateMessageID())
+    feed.add(message)
+    val changes = feed.getChanges().test()
+
+    assertTrue(feed.addWitness(message, WITNESS))
+    assertFalse(feed.addWitness(message, WITNESS))
+    changes.assertValueCount(2)
+  }
+
+  @Test
+  fun appliedChangesGiveTheFeed() {
+    val changes = feed.getChanges().test()
+    val messages = List(20) { WitnessMessage(Base64DataUtils.generateMessageID()) }
+    messages.forEach { feed.add(it) }
+    messages.forEachIndexed { i, message ->
+      if (i % 2 == 0) feed.addWitness(message, WITNESS)
+    }
+    feed.remove(setOf(messages[3].messageId, messages[4].messageId))
+
+    val copy: MutableList<WitnessMessage> = ArrayList()
+    changes.values().forEach { it.applyTo(copy) }
+
+    assertEquals(feed.getMessages(), copy)
+    assertEquals(18, copy.size)
+    assertTrue(copy.first { it.messageId == messages[2].messageId }.witnesses.contains(WITNESS))
+  }
+
+  @Test
+  fun unknownMessageIsNotRemoved() {
+    val changes = feed.getChanges().test()
+
+    feed.remove(setOf(Base64DataUtils.generateMessageID()))
+    changes.assertValueCount(1)
+  }
+
+  companion object {
+    private val WITNESS = Base64DataUtils.generatePublicKey()
+  }
+}
@@ -9,6 +9,7 @@ import com.github.dedis.popstellar.model.objects.Meeting
 import com.github.dedis.popstellar.model.objects.Meeting.Companion.generateCreateMeetingId
 import com.github.dedis.popstellar.model.objects.RollCall
 import com.github.dedis.popstellar.model.objects.WitnessMessage
+import com.github.dedis.popstellar.model.objects.WitnessingPolicy
 import com.github.dedis.popstellar.model.objects.event.EventState
 import com.github.dedis.popstellar.model.objects.security.PublicKey
 import com.github.dedis.popstellar.repository.database.AppDatabase
@@ -21,6 +22,7 @@ import com.github.dedis.popstellar.repository.database.witnessing.PendingDao
 import com.github.dedis.popstellar.repository.database.witnessing.PendingEntity
 import com.github.dedis.popstellar.repository.database.witnessing.WitnessDao
 import com.github.dedis.popstellar.repository.database.witnessing.WitnessingDao
+import com.github.dedis.popstellar.repository.database.witnessing.WitnessingEntity
 import com.github.dedis.popstellar.testutils.Base64DataUtils
 import com.github.dedis.popstellar.testutils.MockitoKotlinHelpers
 import com.github.dedis.popstellar.utility.error.UnknownElectionException
@@ -91,10 +93,8 @@ class WitnessingRepositoryTest {
       .thenReturn(Completable.complete())
     Mockito.`when`(witnessDao.getWitnessesByLao(ArgumentMatchers.anyString()))
       .thenReturn(Single.just(emptyList()))
-    Mockito.`when`(witnessDao.isWitness(ArgumentMatchers.anyString(), MockitoKotlinHelpers.any()))
-      .thenReturn(0)
 
-    Mockito.`when`(witnessingDao.insert(MockitoKotlinHelpers.any()))
+    Mockito.`when`(witnessingDao.insertAll(ArgumentMatchers.anyList()))
       .thenReturn(Completable.complete())
     Mockito.`when`(witnessingDao.getWitnessMessagesByLao(ArgumentMatchers.anyString()))
       .thenReturn(Single.just(emptyList()))
@@ -106,7 +106,7 @@ class WitnessingRepositoryTest {
     Mockito.`when`(pendingDao.insert(MockitoKotlinHelpers.any())).thenReturn(Completable.complete())
     Mockito.`when`(pendingDao.getPendingObjectsFromLao(ArgumentMatchers.anyString()))
       .thenReturn(Single.just(emptyList()))
-    Mockito.`when`(pendingDao.removePendingObject(MockitoKotlinHelpers.any()))
+    Mockito.`when`(pendingDao.removePendingObjects(ArgumentMatchers.anySet()))
       .thenReturn(Completable.complete())
 
     Mockito.`when`(rollCallDao.insert(MockitoKotlinHelpers.any()))
@@ -133,7 +133,7 @@ class WitnessingRepositoryTest {
       .thenReturn(Single.just(emptyList()))
     Mockito.`when`(transactionDao.deleteByLaoId(ArgumentMatchers.anyString()))
       .thenReturn(Completable.complete())
-    Mockito.`when`(transactionDao.insert(MockitoKotlinHelpers.any()))
+    Mockito.`when`(transactionDao.insertAll(ArgumentMatchers.anyList()))
       .thenReturn(Completable.complete())
 
     witnessingRepository.addWitnesses(LAO_ID, WITNESSES)
@@ -145,6 +145,85 @@ class WitnessingRepositoryTest {
     appDatabase.close()
   }
 
+  @Test
+  fun witnessChecksAreAnsweredFromMemoryOnceLoaded() {
+    // The first check may wait for the witnesses to be loaded from the disk
+    Assert.assertTrue(witnessingRepository.isWitness(LAO_ID, WITNESS))
+    val blockingLoads = witnessingRepository.blockingLoadCount
+
+    Assert.assertFalse(
+      witnessingRepository.isWitness(LAO_ID, Base64DataUtils.generatePublicKey())
+    )
+    Assert.assertFalse(witnessingRepository.areWitnessesEmpty(LAO_ID))
+    Assert.assertEquals(blockingLoads, witnessingRepository.blockingLoadCount)
+  }
+
+  @Test
+  fun witnessesAreObservedOnceLoaded() {
+    val witnesses = witnessingRepository.getWitnessesObservableInLao(LAO_ID).test()
+
+    // The first set published is already the complete one
+    witnesses.awaitCount(1)
+    Assert.assertEquals(WITNESSES, witnesses.values()[0])
+  }
+
+  @Test
+  fun signaturesArePublishedAndPersistedTogether() {
+    val witnessMessage = WitnessMessage(Base64DataUtils.generateMessageID())
+    val messageId = witnessMessage.messageId
+    witnessingRepository.addWitnessMessage(LAO_ID, witnessMessage)
+    val changes = witnessingRepository.getWitnessMessageFeed(LAO_ID).test()
+
+    Assert.assertTrue(witnessingRepository.addWitnessToMessage(LAO_ID, messageId, WITNESS))
+    Assert.assertTrue(witnessingRepository.addWitnessToMessage(LAO_ID, messageId, WITNESS))
+    val otherWitness = Base64DataUtils.generatePublicKey()
+    Assert.assertTrue(witnessingRepository.addWitnessToMessage(LAO_ID, messageId, otherWitness))
+
+    // Reset, then the two new signatures and the acceptance after the first one
+    changes.assertValueCount(4)
+    Assert.assertTrue(changes.values()[2] is WitnessMessageFeed.Change.MessageAccepted)
+
+    // The message is written once at its creation and once for both signatures
+    val captor = MockitoKotlinHelpers.argumentCaptor<List<WitnessingEntity>>()
+    Mockito.verify(witnessingDao, Mockito.after(1000).atLeastOnce())
+      .insertAll(MockitoKotlinHelpers.capture(captor))
+    val writes = captor.allValues.flatten().filter { it.messageID == messageId }
+    Assert.assertEquals(2, writes.size)
+    Assert.assertEquals(setOf(WITNESS, otherWitness), writes.last().message.witnesses)
+  }
+
+  @Test
+  fun onlyAcceptedMessagesAreDeleted() {
+    val signed = WitnessMessage(Base64DataUtils.generateMessageID())
+    val unsigned = WitnessMessage(Base64DataUtils.generateMessageID())
+    witnessingRepository.addWitnessMessage(LAO_ID, signed)
+    witnessingRepository.addWitnessMessage(LAO_ID, unsigned)
+    witnessingRepository.addWitnessToMessage(LAO_ID, signed.messageId, WITNESS)
+
+    witnessingRepository.deleteSignedMessages(LAO_ID)
+
+    Assert.assertFalse(witnessingRepository.getWitnessMessage(LAO_ID, signed.messageId).isPresent)
+    Assert.assertTrue(witnessingRepository.getWitnessMessage(LAO_ID, unsigned.messageId).isPresent)
+  }
+
+  @Test
+  fun policyChangeReleasesPendingEntities() {
+    val witnessMessage = WitnessMessage(Base64DataUtils.generateMessageID())
+    val pendingEntity = PendingEntity(witnessMessage.messageId, LAO_ID, ROLL_CALL)
+    witnessingRepository.setWitnessingPolicy(LAO_ID, WitnessingPolicy.KOfN(2))
+    witnessingRepository.addWitnessMessage(LAO_ID, witnessMessage)
+    witnessingRepository.addPendingEntity(pendingEntity)
+
+    // A single signature is not enough
+    witnessingRepository.addWitnessToMessage(LAO_ID, witnessMessage.messageId, WITNESS)
+    Assert.assertThrows(UnknownRollCallException::class.java) {
+      rollCallRepo.getRollCallWithId(LAO_ID, ROLL_CALL.id)
+    }
+
+    witnessingRepository.setWitnessingPolicy(LAO_ID, WitnessingPolicy.KOfN(1))
+    Assert.assertEquals(ROLL_CALL, rollCallRepo.getRollCallWithId(LAO_ID, ROLL_CALL.id))
+  }
+
   @Test
   @Throws(UnknownRollCallException::class)
   fun achieveSignatureThresholdPerformActionRollCall() {
@@ -0,0 +1,154 @@
+package com.github.dedis.popstellar.repository.database
+
+import androidx.test.ext.junit.runners.AndroidJUnit4
+import com.github.dedis.popstellar.model.network.JsonTestUtils
+import com.github.dedis.popstellar.model.network.method.message.MessageGeneral
+import com.github.dedis.popstellar.model.network.method.message.PublicKeySignaturePair
+import com.github.dedis.popstellar.model.network.method.message.data.lao.CreateLao
+import com.github.dedis.popstellar.model.objects.Chirp
+import com.github.dedis.popstellar.model.objects.Lao
+import com.github.dedis.popstellar.model.objects.PendingUpdate
+import com.github.dedis.popstellar.model.objects.RollCall
+import com.github.dedis.popstellar.model.objects.digitalcash.TransactionObject
+import com.github.dedis.popstellar.model.objects.event.EventState
+import com.github.dedis.popstellar.model.objects.security.MessageID
+import com.github.dedis.popstellar.repository.DigitalCashRepositoryTest.Companion.getValidTransactionBuilder
+import com.github.dedis.popstellar.testutils.Base64DataUtils
+import java.nio.charset.StandardCharsets
+import java.time.Instant
+import org.junit.Assert.assertEquals
+import org.junit.Assert.assertFalse
+import org.junit.Assert.assertThrows
+import org.junit.Assert.assertTrue
+import org.junit.Test
+import org.junit.runner.RunWith
+
+@RunWith(AndroidJUnit4::class)
+class BinaryEntityCodecTest {
+  private val codec = BinaryEntityCodec(JsonTestUtils.GSON)
+
+  @Test
+  fun messageRoundTrip() {
+    val encoded = codec.encodeMessage(MESSAGE)
+
+    assertTrue(BinaryEntityCodec.isBinary(encoded))
+    val decoded = codec.decodeMessage(encoded)
+    assertEquals(MESSAGE, decoded)
+    assertEquals(MESSAGE.data, decoded.data)
+  }
+
+  @Test
+  fun witnessSignaturesAreKept() {
+    val witness = PublicKeySignaturePair(Base64DataUtils.generatePublicKey(), MESSAGE.signature)
+    val message = MessageGeneral(SENDER, MESSAGE.data, listOf(witness), JsonTestUtils.GSON)
+
+    val decoded = codec.decodeMessage(codec.encodeMessage(message)).witnessSignatures
+    assertEquals(1, decoded.size)
+    assertEquals(witness.witness, decoded[0].witness)
+    assertEquals(witness.signature, decoded[0].signature)
+  }
+
+  @Test
+  fun binaryMessageIsSmallerThanJson() {
+    val json = JsonTestUtils.GSON.toJson(MESSAGE, MessageGeneral::class.java)
+
+    assertTrue(codec.encodeMessage(MESSAGE).size < json.toByteArray(StandardCharsets.UTF_8).size)
+  }
+
+  @Test
+  fun laoRoundTrip() {
+    val lao = Lao("name", Base64DataUtils.generatePublicKey(), CREATION)
+    lao.modificationId = Base64DataUtils.generateMessageID()
+    lao.addPendingUpdate(PendingUpdate(CREATION + 1, Base64DataUtils.generateMessageID()))
+
+    assertEquals(lao, codec.decodeLao(codec.encodeLao(lao)))
+  }
+
+  @Test
+  fun rollCallRoundTrip() {
+    val rollCall =
+      RollCall(
+        "id",
+        "persistent id",
+        "title",
+        CREATION,
+        CREATION + 10,
+        CREATION + 20,
+        EventState.CLOSED,
+        mutableSetOf(Base64DataUtils.generatePublicKey(), Base64DataUtils.generatePublicKey()),
+        "location",
+        "description"
+      )
+
+    assertEquals(rollCall, codec.decodeRollCall(codec.encodeRollCall(rollCall)))
+  }
+
+  @Test
+  fun chirpRoundTrip() {
+    val deleted = CHIRP.deleted()
+
+    assertEquals(CHIRP, codec.decodeChirp(codec.encodeChirp(CHIRP)))
+    assertTrue(codec.decodeChirp(codec.encodeChirp(deleted)).isDeleted)
+  }
+
+  @Test
+  fun transactionRoundTrip() {
+    val transaction = getValidTransactionBuilder("id", Base64DataUtils.generateKeyPair()).build()
+    val decoded = codec.decodeTransaction(codec.encodeTransaction(transaction))
+
+    assertEquals(transaction, decoded)
+    assertEquals(transaction.channel, decoded.channel)
+    assertEquals(transaction.inputs[0].pubKey, decoded.inputs[0].pubKey)
+    assertEquals(transaction.outputs[0].pubKeyHash, decoded.outputs[0].pubKeyHash)
+    assertEquals(transaction.outputs[0].value, decoded.outputs[0].value)
+  }
+
+  @Test
+  fun legacyJsonIsStillDecoded() {
+    val message = JsonTestUtils.GSON.toJson(MESSAGE, MessageGeneral::class.java)
+    val chirp = JsonTestUtils.GSON.toJson(CHIRP, Chirp::class.java)
+    val transaction =
+      JsonTestUtils.GSON.toJson(
+        getValidTransactionBuilder("id", Base64DataUtils.generateKeyPair()).build(),
+        TransactionObject::class.java
+      )
+
+    assertFalse(BinaryEntityCodec.isBinary(message.toByteArray(StandardCharsets.UTF_8)))
+    assertEquals(MESSAGE, codec.decodeMessage(message.toByteArray(StandardCharsets.UTF_8)))
+    assertEquals(CHIRP, codec.decodeChirp(chirp.toByteArray(StandardCharsets.UTF_8)))
+    assertEquals(
+      "id",
+      codec.decodeTransaction(transaction.toByteArray(StandardCharsets.UTF_8)).transactionId
+    )
+  }
+
+  @Test
+  fun legacyJsonWithTrailingNullCharacterIsDecoded() {
+    val chirp = JsonTestUtils.GSON.toJson(CHIRP, Chirp::class.java) + "\u0000"
+
+    assertEquals(CHIRP, codec.decodeChirp(chirp.toByteArray(StandardCharsets.UTF_8)))
+  }
+
+  @Test
+  fun unknownVersionIsRejected() {
+    val encoded = codec.encodeChirp(CHIRP)
+    encoded[1] = (BinaryEntityCodec.VERSION + 1).toByte()
+
+    assertThrows(IllegalStateException::class.java) { codec.decodeChirp(encoded) }
+  }
+
+  companion object {
+    private val CREATION = Instant.now().epochSecond
+    private val SENDER = Base64DataUtils.generateKeyPair()
+    private val MESSAGE =
+      MessageGeneral(SENDER, CreateLao("lao", SENDER.publicKey, ArrayList()), JsonTestUtils.GSON)
+    private val CHIRP =
+      Chirp(
+        Base64DataUtils.generateMessageID(),
+        SENDER.publicKey,
+        "This is a chirp !",
+        CREATION,
+        MessageID("")
+      )
+  }
+}
@@ -0,0 +1,59 @@
+package com.github.dedis.popstellar.repository.database
+
+import androidx.test.core.app.ApplicationProvider
+import androidx.test.ext.junit.runners.AndroidJUnit4
+import com.github.dedis.popstellar.di.AppDatabaseModuleHelper.getAppDatabase
+import com.github.dedis.popstellar.model.objects.Channel
+import com.github.dedis.popstellar.repository.database.catchup.CatchupDao
+import com.github.dedis.popstellar.repository.database.catchup.CatchupEntity
+import com.github.dedis.popstellar.testutils.Base64DataUtils
+import org.junit.After
+import org.junit.Assert
+import org.junit.Before
+import org.junit.Test
+import org.junit.runner.RunWith
+
+@RunWith(AndroidJUnit4::class)
+class CatchupDatabaseTest {
+  private lateinit var appDatabase: AppDatabase
+  private lateinit var catchupDao: CatchupDao
+
+  @Before
+  fun before() {
+    appDatabase = getAppDatabase(ApplicationProvider.getApplicationContext())
+    catchupDao = appDatabase.catchupDao()
+  }
+
+  @After
+  fun close() {
+    appDatabase.close()
+  }
+
+  @Test
+  fun insertReplacesPreviousMark() {
+    val first = CatchupEntity(CHANNEL.asString, Base64DataUtils.generateMessageID(), 1)
+    val second = CatchupEntity(CHANNEL.asString, Base64DataUtils.generateMessageID(), 2)
+
+    catchupDao.insert(first).test().assertComplete()
+    catchupDao.insert(second).test().assertComplete()
+
+    val catchups = catchupDao.getAllCatchups().test().values()[0]!!
+    Assert.assertEquals(1, catchups.size)
+    Assert.assertEquals(second.lastMessageId, catchups[0].lastMessageId)
+    Assert.assertEquals(2, catchups[0].timestamp)
+  }
+
+  @Test
+  fun deleteRemovesMark() {
+    val entity = CatchupEntity(CHANNEL.asString, Base64DataUtils.generateMessageID(), 1)
+    catchupDao.insert(entity).test().assertComplete()
+
+    catchupDao.delete(CHANNEL.asString).test().assertComplete()
+
+    Assert.assertTrue(catchupDao.getAllCatchups().test().values()[0]!!.isEmpty())
+  }
+
+  companion object {
+    private val CHANNEL = Channel.getLaoChannel("lao").subChannel("social")
+  }
+}
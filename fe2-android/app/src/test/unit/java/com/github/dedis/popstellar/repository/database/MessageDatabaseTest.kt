@@ -101,4 +101,16 @@ class MessageDatabaseTest {
         messageEntities[2].messageId == messageID3)
     }
   }
+
+  @Test
+  fun insertAllTest() {
+    val message1 = MessageEntity(Base64DataUtils.generateMessageID(), null)
+    val message2 = MessageEntity(Base64DataUtils.generateMessageID(), null)
+    val testObserver = messageDao.insertAll(listOf(message1, message2)).test()
+    testObserver.awaitTerminalEvent()
+    testObserver.assertComplete()
+
+    Assert.assertEquals(message1, messageDao.getMessageById(message1.messageId))
+    Assert.assertEquals(message2, messageDao.getMessageById(message2.messageId))
+  }
 }
@@ -9,12 +9,19 @@ import com.github.dedis.popstellar.model.objects.Reaction
 import com.github.dedis.popstellar.model.objects.security.MessageID
 import com.github.dedis.popstellar.repository.database.socialmedia.ChirpDao
 import com.github.dedis.popstellar.repository.database.socialmedia.ChirpEntity
+import com.github.dedis.popstellar.repository.database.socialmedia.ChirpSearchDao
+import com.github.dedis.popstellar.repository.database.socialmedia.ChirpSearchEntity
+import com.github.dedis.popstellar.repository.database.socialmedia.ChirpSearchEntity.Companion.authorQuery
+import com.github.dedis.popstellar.repository.database.socialmedia.ChirpSearchEntity.Companion.extractHashtags
+import com.github.dedis.popstellar.repository.database.socialmedia.ChirpSearchEntity.Companion.hashtagQuery
+import com.github.dedis.popstellar.repository.database.socialmedia.ChirpSearchEntity.Companion.textPrefixQuery
 import com.github.dedis.popstellar.repository.database.socialmedia.ReactionDao
 import com.github.dedis.popstellar.repository.database.socialmedia.ReactionEntity
 import com.github.dedis.popstellar.testutils.Base64DataUtils
 import io.reactivex.observers.TestObserver
 import java.time.Instant
 import org.junit.After
+import org.junit.Assert
 import org.junit.Before
 import org.junit.Test
 import org.junit.runner.RunWith
@@ -24,12 +31,14 @@ class SocialMediaDatabaseTest {
   private lateinit var appDatabase: AppDatabase
   private lateinit var chirpDao: ChirpDao
   private lateinit var reactionDao: ReactionDao
+  private lateinit var chirpSearchDao: ChirpSearchDao
 
   @Before
   fun before() {
     appDatabase = getAppDatabase(ApplicationProvider.getApplicationContext())
     chirpDao = appDatabase.chirpDao()
     reactionDao = appDatabase.reactionDao()
+    chirpSearchDao = appDatabase.chirpSearchDao()
   }
 
   @After
@@ -58,6 +67,155 @@ class SocialMediaDatabaseTest {
     testObserver2.assertComplete()
   }
 
+  @Test
+  fun chirpsArePagedFromTheNewest() {
+    val testObserver =
+      chirpDao.insertAll(listOf(CHIRP_ENTITY, ChirpEntity(LAO_ID, CHIRP_2))).test()
+    testObserver.awaitTerminalEvent()
+    testObserver.assertComplete()
+
+    val firstPage = chirpDao.getLatestChirps(LAO_ID, 1).blockingGet()
+    Assert.assertEquals(listOf(CHIRP_2), firstPage.map { it.chirp })
+
+    val last = firstPage[0]
+    val secondPage = chirpDao.getChirpsAfter(LAO_ID, last.timestamp, last.chirpId, 1).blockingGet()
+    Assert.assertEquals(listOf(CHIRP_1), secondPage.map { it.chirp })
+
+    val end = secondPage[0]
+    Assert.assertTrue(
+      chirpDao.getChirpsAfter(LAO_ID, end.timestamp, end.chirpId, 1).blockingGet().isEmpty()
+    )
+  }
+
+  @Test
+  fun reactionsOfSeveralChirpsAreRetrieved() {
+    val reaction2 =
+      Reaction(
+        Base64DataUtils.generateMessageID(),
+        SENDER,
+        EMOJI,
+        CHIRP2_ID,
+        Instant.now().epochSecond
+      )
+    val testObserver =
+      reactionDao.insertAll(listOf(REACTION_ENTITY, ReactionEntity(reaction2))).test()
+    testObserver.awaitTerminalEvent()
+    testObserver.assertComplete()
+
+    Assert.assertEquals(
+      setOf(REACTION_1, reaction2),
+      reactionDao.getReactionsByChirpIds(listOf(CHIRP1_ID, CHIRP2_ID)).blockingGet().toSet()
+    )
+    Assert.assertEquals(
+      listOf(REACTION_1),
+      reactionDao.getReactionsByChirpIds(listOf(CHIRP1_ID)).blockingGet()
+    )
+  }
+
+  @Test
+  fun storedIdsOfTheLaoAreRetrieved() {
+    val otherLao = generateLaoId(OTHER_SENDER, 1000, "LAO")
+    val otherChirp = Chirp(CHIRP3_ID, SENDER, "This is a chirp !", 1004, MessageID(""))
+    val entities =
+      listOf(CHIRP_ENTITY, ChirpEntity(LAO_ID, CHIRP_2), ChirpEntity(otherLao, otherChirp))
+    chirpDao.insertAll(entities).blockingAwait()
+    reactionDao.insert(REACTION_ENTITY).blockingAwait()
+
+    Assert.assertEquals(
+      setOf(CHIRP1_ID, CHIRP2_ID),
+      chirpDao.getChirpIds(LAO_ID).blockingGet().toSet()
+    )
+    val reactionIds = reactionDao.getReactionIds(LAO_ID).blockingGet()
+    Assert.assertEquals(listOf(REACTION_1.id), reactionIds.map { it.reactionId })
+    Assert.assertEquals(listOf(CHIRP1_ID), reactionIds.map { it.chirpId })
+    Assert.assertTrue(reactionDao.getReactionIds(otherLao).blockingGet().isEmpty())
+
+    Assert.assertEquals(CHIRP_1, chirpDao.getChirpById(LAO_ID, CHIRP1_ID).blockingGet().chirp)
+    chirpDao.getChirpById(otherLao, CHIRP1_ID).test().assertNoValues().assertComplete()
+  }
+
+  @Test
+  fun chirpsAreSearchedByTextPrefix() {
+    insertSearchedChirps()
+
+    Assert.assertEquals(listOf(CHIRP2_ID, CHIRP1_ID), search(textPrefixQuery("Thi")))
+    Assert.assertEquals(listOf(CHIRP2_ID), search(textPrefixQuery("this anoth")))
+    Assert.assertEquals(emptyList<MessageID>(), search(textPrefixQuery("nothing")))
+  }
+
+  @Test
+  fun chirpsAreSearchedByAuthorAndHashtag() {
+    val other = Chirp(CHIRP3_ID, OTHER_SENDER, "Nice #PoP #party", 1002, MessageID(""))
+    insertSearchedChirps(ChirpEntity(LAO_ID, other))
+
+    Assert.assertEquals(listOf(CHIRP3_ID), search(authorQuery(OTHER_SENDER)))
+    Assert.assertEquals(listOf(CHIRP2_ID, CHIRP1_ID), search(authorQuery(SENDER)))
+    Assert.assertEquals(listOf(CHIRP3_ID), search(hashtagQuery("#pop")!!))
+    Assert.assertEquals(emptyList<MessageID>(), search(hashtagQuery("#par")!!))
+  }
+
+  @Test
+  fun searchIsPagedAndLimitedToTheLao() {
+    val otherLao = generateLaoId(OTHER_SENDER, 1000, "LAO")
+    val otherChirp = Chirp(CHIRP3_ID, SENDER, "This is a chirp !", 1004, MessageID(""))
+    insertSearchedChirps(ChirpEntity(otherLao, otherChirp))
+
+    val match = textPrefixQuery("chirp")!!
+    val firstPage = chirpSearchDao.search(LAO_ID, match, 1).blockingGet()
+    Assert.assertEquals(listOf(CHIRP_2), firstPage.map { it.chirp })
+    val secondPage = searchAfter(match, CHIRP_2)
+    Assert.assertEquals(listOf(CHIRP1_ID), secondPage.map { it.chirpId })
+    Assert.assertTrue(searchAfter(match, CHIRP_1).isEmpty())
+  }
+
+  @Test
+  fun searchPageStartsAfterChirpsOfTheSameTimestamp() {
+    val sameTime = Chirp(CHIRP3_ID, SENDER, "Same chirp time", CHIRP_2.timestamp, MessageID(""))
+    insertSearchedChirps(ChirpEntity(LAO_ID, sameTime))
+
+    val match = textPrefixQuery("chirp")!!
+    val pages = generateSequence(chirpSearchDao.search(LAO_ID, match, 1).blockingGet()) {
+      it.firstOrNull()?.let { last -> searchAfter(match, last.chirp) }
+    }
+    val found = pages.takeWhile { it.isNotEmpty() }.flatten().map { it.chirpId }.toList()
+
+    // Each chirp is found exactly once, the newest first
+    Assert.assertEquals(3, found.size)
+    Assert.assertEquals(setOf(CHIRP2_ID, CHIRP3_ID), found.take(2).toSet())
+    Assert.assertEquals(CHIRP1_ID, found.last())
+  }
+
+  @Test
+  fun deletedChirpIsNotFound() {
+    insertSearchedChirps()
+    // Indexing a chirp twice has no effect
+    insertSearchedChirps()
+
+    chirpSearchDao.deleteByChirpId(CHIRP1_ID).blockingAwait()
+
+    Assert.assertEquals(listOf(CHIRP2_ID), search(textPrefixQuery("chirp")))
+  }
+
+  @Test
+  fun hashtagsAreExtracted() {
+    Assert.assertEquals("pop dedis_2", extractHashtags("#PoP is great # #dedis_2!"))
+    Assert.assertEquals("", extractHashtags("No hashtag"))
+  }
+
+  private fun insertSearchedChirps(vararg others: ChirpEntity) {
+    val entities = listOf(CHIRP_ENTITY, ChirpEntity(LAO_ID, CHIRP_2)) + others
+    chirpDao.insertAll(entities).blockingAwait()
+    chirpSearchDao.insertAll(entities.map { ChirpSearchEntity(it.laoId, it.chirp) }).blockingAwait()
+  }
+
+  private fun search(match: String?): List<MessageID> {
+    return chirpSearchDao.search(LAO_ID, match!!, 10).blockingGet().map { it.chirpId }
+  }
+
+  private fun searchAfter(match: String, last: Chirp): List<ChirpEntity> {
+    return chirpSearchDao.searchAfter(LAO_ID, match, last.timestamp, last.id, 1).blockingGet()
+  }
+
   @Test
   fun insertReactionTest() {
     val testObserver = reactionDao.insert(REACTION_ENTITY).test()
@@ -83,6 +241,8 @@ class SocialMediaDatabaseTest {
     private val SENDER = Base64DataUtils.generatePublicKey()
     private val CHIRP1_ID = Base64DataUtils.generateMessageID()
     private val CHIRP2_ID = Base64DataUtils.generateMessageID()
+    private val CHIRP3_ID = Base64DataUtils.generateMessageID()
+    private val OTHER_SENDER = Base64DataUtils.generatePublicKey()
     private const val EMOJI = "\uD83D\uDC4D"
     private val CHIRP_1 = Chirp(CHIRP1_ID, SENDER, "This is a chirp !", 1001, MessageID(""))
     private val CHIRP_2 = Chirp(CHIRP2_ID, SENDER, "This is another chirp !", 1003, MessageID(""))
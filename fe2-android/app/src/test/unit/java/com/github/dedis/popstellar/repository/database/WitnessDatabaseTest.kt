@@ -75,18 +75,6 @@ class WitnessDatabaseTest {
     testObserver2.assertComplete()
   }
 
-  @Test
-  fun isWitnessTest() {
-    Assert.assertEquals(0, witnessDao.isWitness(LAO_ID, WITNESS).toLong())
-    val witnesses: MutableList<WitnessEntity> = ArrayList()
-    witnesses.add(WITNESS_ENTITY)
-    val testObserver = witnessDao.insertAll(witnesses).test()
-
-    testObserver.awaitTerminalEvent()
-    testObserver.assertComplete()
-    Assert.assertEquals(1, witnessDao.isWitness(LAO_ID, WITNESS).toLong())
-  }
-
   @Test
   fun insertWitnessingTest() {
     val testObserver = witnessingDao.insert(WITNESSING_ENTITY).test()
@@ -183,7 +171,7 @@ class WitnessDatabaseTest {
     testObserver2.awaitTerminalEvent()
     testObserver2.assertComplete()
 
-    val testObserver3 = pendingDao.removePendingObject(MESSAGE_ID).test()
+    val testObserver3 = pendingDao.removePendingObjects(setOf(MESSAGE_ID)).test()
     testObserver3.awaitTerminalEvent()
     testObserver3.assertComplete()
 
@@ -0,0 +1,111 @@
+package com.github.dedis.popstellar.repository.database
+
+import io.reactivex.Completable
+import io.reactivex.schedulers.TestScheduler
+import java.util.concurrent.TimeUnit
+import org.junit.Assert.assertEquals
+import org.junit.Test
+
+class WriteBehindQueueTest {
+  private val scheduler = TestScheduler()
+  private val batches: MutableList<List<Int>> = ArrayList()
+
+  private fun buildQueue(insertAll: (List<Int>) -> Completable): WriteBehindQueue<Int> {
+    return WriteBehindQueue("test", insertAll, BATCH_SIZE, FLUSH_DELAY_MS, scheduler)
+  }
+
+  private val queue = buildQueue { entities: List<Int> ->
+    Completable.fromAction { batches.add(entities) }
+  }
+
+  @Test
+  fun fullBatchIsWrittenAtOnce() {
+    (0 until BATCH_SIZE).forEach { queue.enqueue(it) }
+    assertEquals(BATCH_SIZE, queue.backlog)
+
+    scheduler.triggerActions()
+
+    assertEquals(listOf((0 until BATCH_SIZE).toList()), batches)
+    assertEquals(0, queue.backlog)
+    assertEquals(BATCH_SIZE.toLong(), queue.written)
+  }
+
+  @Test
+  fun partialBatchIsWrittenAfterDelay() {
+    queue.enqueue(1)
+    queue.enqueue(2)
+
+    scheduler.advanceTimeBy(FLUSH_DELAY_MS - 1, TimeUnit.MILLISECONDS)
+    assertEquals(0, batches.size)
+
+    scheduler.advanceTimeBy(1, TimeUnit.MILLISECONDS)
+    assertEquals(listOf(listOf(1, 2)), batches)
+  }
+
+  @Test
+  fun flushCompletesOnceEverythingIsWritten() {
+    queue.enqueue(1)
+    val flushed = queue.flush().test()
+    // Flushing an empty queue still waits for the previous batches
+    val emptyFlush = queue.flush().test()
+    flushed.assertNotComplete()
+    emptyFlush.assertNotComplete()
+
+    scheduler.triggerActions()
+
+    flushed.assertComplete()
+    emptyFlush.assertComplete()
+    assertEquals(listOf(listOf(1)), batches)
+  }
+
+  @Test
+  fun flushAllWaitsForEveryQueue() {
+    val otherBatches: MutableList<List<Int>> = ArrayList()
+    val otherQueue = buildQueue { entities: List<Int> ->
+      Completable.fromAction { otherBatches.add(entities) }
+    }
+    queue.enqueue(1)
+    otherQueue.enqueue(2)
+
+    val flushed = WriteBehindQueue.flushAll().test()
+    flushed.assertNotComplete()
+
+    scheduler.triggerActions()
+
+    // Queues of other tests may still be writing on their own scheduler
+    flushed.awaitTerminalEvent(1, TimeUnit.SECONDS)
+    flushed.assertComplete()
+    assertEquals(listOf(listOf(1)), batches)
+    assertEquals(listOf(listOf(2)), otherBatches)
+    queue.dispose()
+    otherQueue.dispose()
+  }
+
+  @Test
+  fun failedBatchDoesNotBlockTheQueue() {
+    var fail = true
+    val failingQueue = buildQueue { entities: List<Int> ->
+      if (fail) {
+        fail = false
+        Completable.error(IllegalStateException())
+      } else {
+        Completable.fromAction { batches.add(entities) }
+      }
+    }
+
+    failingQueue.enqueue(1)
+    failingQueue.flush()
+    failingQueue.enqueue(2)
+    failingQueue.flush()
+    scheduler.triggerActions()
+
+    assertEquals(listOf(listOf(2)), batches)
+    assertEquals(0, failingQueue.backlog)
+    assertEquals(1L, failingQueue.written)
+  }
+
+  companion object {
+    private const val BATCH_SIZE = 4
+    private const val FLUSH_DELAY_MS = 100L
+  }
+}
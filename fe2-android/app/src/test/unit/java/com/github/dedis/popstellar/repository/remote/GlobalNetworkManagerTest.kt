@@ -1,6 +1,7 @@
 package com.github.dedis.popstellar.repository.remote
 
 import com.github.dedis.popstellar.model.objects.Channel
+import com.github.dedis.popstellar.repository.CatchupRepository
 import com.github.dedis.popstellar.testutils.MockitoKotlinHelpers
 import com.github.dedis.popstellar.utility.handler.MessageHandler
 import com.github.dedis.popstellar.utility.scheduler.TestSchedulerProvider
@@ -20,6 +21,8 @@ class GlobalNetworkManagerTest {
 
   @Mock lateinit var gson: Gson
 
+  @Mock lateinit var catchupRepo: CatchupRepository
+
   @Test
   fun initializationProducesAValidConnection() {
     val schedulerProvider = TestSchedulerProvider()
@@ -32,7 +35,7 @@ class GlobalNetworkManagerTest {
     Mockito.`when`(factory.createMultiConnection(ArgumentMatchers.anyString()))
       .thenReturn(firstConnection)
 
-    val networkManager = GlobalNetworkManager(handler, factory, gson, schedulerProvider)
+    val networkManager = GlobalNetworkManager(handler, factory, gson, schedulerProvider, catchupRepo)
     Mockito.verify(factory).createMultiConnection(ArgumentMatchers.anyString())
 
     val sendMessage = networkManager.messageSender.unsubscribe(Channel.ROOT)
@@ -55,7 +58,8 @@ class GlobalNetworkManagerTest {
     Mockito.`when`(factory.createMultiConnection(ArgumentMatchers.anyString()))
       .thenReturn(firstConnection)
 
-    val networkManager = GlobalNetworkManager(handler, factory, gson, TestSchedulerProvider())
+    val networkManager =
+      GlobalNetworkManager(handler, factory, gson, TestSchedulerProvider(), catchupRepo)
     Mockito.verify(factory).createMultiConnection(ArgumentMatchers.anyString())
 
     val secondConnection = Mockito.mock(MultiConnection::class.java)
@@ -0,0 +1,128 @@
+package com.github.dedis.popstellar.repository.remote
+
+import androidx.test.ext.junit.runners.AndroidJUnit4
+import com.github.dedis.popstellar.di.DataRegistryModuleHelper.buildRegistry
+import com.github.dedis.popstellar.di.JsonModule.provideGson
+import com.github.dedis.popstellar.model.network.method.Broadcast
+import com.github.dedis.popstellar.model.network.method.message.MessageGeneral
+import com.github.dedis.popstellar.model.network.method.message.data.lao.CreateLao
+import com.github.dedis.popstellar.model.objects.Channel
+import com.github.dedis.popstellar.model.objects.security.Signature
+import com.github.dedis.popstellar.testutils.Base64DataUtils
+import com.github.dedis.popstellar.utility.scheduler.TestSchedulerProvider
+import java.util.concurrent.TimeUnit
+import org.junit.Assert.assertEquals
+import org.junit.Assert.assertTrue
+import org.junit.Test
+import org.junit.runner.RunWith
+import org.mockito.Mockito
+
+@RunWith(AndroidJUnit4::class)
+class InboundMessagePipelineTest {
+  private val schedulerProvider = TestSchedulerProvider()
+  private val applied: MutableList<MessageGeneral> = ArrayList()
+
+  @Test
+  fun messagesAreAppliedInSubmissionOrder() {
+    val pipeline = InboundMessagePipeline(schedulerProvider, { applied.add(it.message) }, 4)
+    val messages = (0 until 10).map { buildMessage("lao$it") }
+
+    messages.forEach { pipeline.submit(Broadcast(CHANNEL, it)) }
+    schedulerProvider.testScheduler.advanceTimeBy(1, TimeUnit.SECONDS)
+
+    assertEquals(messages, applied)
+    InboundMessagePipeline.Stage.values().forEach { stage ->
+      val metrics = pipeline.metrics.getValue(stage)
+      assertEquals(0, metrics.queueDepth)
+      assertEquals(messages.size.toLong(), metrics.processed)
+    }
+    pipeline.dispose()
+  }
+
+  @Test
+  fun messagesWithInvalidSignatureAreDropped() {
+    val pipeline = InboundMessagePipeline(schedulerProvider, { applied.add(it.message) })
+    val valid = buildMessage("valid")
+    val invalid =
+        MessageGeneral(
+            valid.sender,
+            valid.dataEncoded,
+            valid.data,
+            Signature("UB6xpjpUGN5VtmWAw1T3npHxiZfKaXzx3ny5PXl_qF4"),
+            valid.messageId,
+            emptyList())
+
+    pipeline.submit(Broadcast(CHANNEL, invalid))
+    schedulerProvider.testScheduler.advanceTimeBy(1, TimeUnit.SECONDS)
+
+    assertTrue(applied.isEmpty())
+    pipeline.dispose()
+  }
+
+  @Test
+  fun pipelineKeepsRunningWhenAVerificationFails() {
+    val pipeline = InboundMessagePipeline(schedulerProvider, { applied.add(it.message) })
+    val failing = Mockito.mock(MessageGeneral::class.java)
+    Mockito.`when`(failing.messageId).thenReturn(Base64DataUtils.generateMessageID())
+    Mockito.`when`(failing.verify()).thenThrow(IllegalStateException("failure"))
+    val valid = buildMessage("valid")
+
+    val observer = pipeline.submit(CHANNEL, listOf(failing)).test()
+    pipeline.submit(Broadcast(CHANNEL, valid))
+    schedulerProvider.testScheduler.advanceTimeBy(1, TimeUnit.SECONDS)
+
+    observer.assertComplete()
+    assertEquals(listOf(valid), applied)
+    pipeline.dispose()
+  }
+
+  @Test
+  fun catchupCompletesOnceAllMessagesAreApplied() {
+    val pipeline = InboundMessagePipeline(schedulerProvider, { applied.add(it.message) })
+    val messages = listOf(buildMessage("first"), buildMessage("second"))
+
+    val observer = pipeline.submit(CHANNEL, messages).test()
+    observer.assertNotComplete()
+
+    schedulerProvider.testScheduler.advanceTimeBy(1, TimeUnit.SECONDS)
+
+    observer.assertComplete()
+    assertEquals(messages, applied)
+    pipeline.dispose()
+  }
+
+  @Test
+  fun duplicatesInFlightAreAppliedOnce() {
+    val pipeline = InboundMessagePipeline(schedulerProvider, { applied.add(it.message) })
+    val message = buildMessage("duplicate")
+
+    val observer = pipeline.submit(CHANNEL, listOf(message, message)).test()
+    schedulerProvider.testScheduler.advanceTimeBy(1, TimeUnit.SECONDS)
+
+    observer.assertComplete()
+    assertEquals(listOf(message), applied)
+    pipeline.dispose()
+  }
+
+  @Test
+  fun catchupFailsWhenAMessageCannotBeApplied() {
+    val pipeline =
+        InboundMessagePipeline(schedulerProvider, { throw IllegalStateException("failure") })
+
+    val observer = pipeline.submit(CHANNEL, listOf(buildMessage("failing"))).test()
+    schedulerProvider.testScheduler.advanceTimeBy(1, TimeUnit.SECONDS)
+
+    observer.assertError(IllegalStateException::class.java)
+    pipeline.dispose()
+  }
+
+  private fun buildMessage(name: String): MessageGeneral {
+    return MessageGeneral(KEY_PAIR, CreateLao(name, KEY_PAIR.publicKey, ArrayList()), GSON)
+  }
+
+  companion object {
+    private val GSON = provideGson(buildRegistry())
+    private val KEY_PAIR = Base64DataUtils.generateKeyPair()
+    private val CHANNEL = Channel.ROOT.subChannel("channel")
+  }
+}
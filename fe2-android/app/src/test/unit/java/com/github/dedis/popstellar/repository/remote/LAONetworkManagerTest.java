@@ -7,6 +7,7 @@ import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.Mockito.*;
 
 import androidx.arch.core.executor.testing.InstantTaskExecutorRule;
+import androidx.test.core.app.ApplicationProvider;
 import androidx.test.ext.junit.runners.AndroidJUnit4;
 import com.github.dedis.popstellar.di.DataRegistryModuleHelper;
 import com.github.dedis.popstellar.di.JsonModule;
@@ -20,6 +21,9 @@ import com.github.dedis.popstellar.model.network.method.message.data.lao.CreateL
 import com.github.dedis.popstellar.model.objects.Channel;
 import com.github.dedis.popstellar.model.objects.PeerAddress;
 import com.github.dedis.popstellar.model.objects.security.KeyPair;
+import com.github.dedis.popstellar.repository.CatchupRepository;
+import com.github.dedis.popstellar.repository.database.AppDatabase;
+import com.github.dedis.popstellar.repository.database.catchup.CatchupDao;
 import com.github.dedis.popstellar.testutils.Base64DataUtils;
 import com.github.dedis.popstellar.utility.error.*;
 import com.github.dedis.popstellar.utility.error.keys.NoRollCallException;
@@ -29,6 +33,8 @@ import com.google.gson.Gson;
 import com.tinder.scarlet.WebSocket;
 import dagger.hilt.android.testing.HiltAndroidRule;
 import dagger.hilt.android.testing.HiltAndroidTest;
+import io.reactivex.Completable;
+import io.reactivex.Single;
 import io.reactivex.disposables.Disposable;
 import io.reactivex.observers.TestObserver;
 import io.reactivex.schedulers.TestScheduler;
@@ -66,6 +72,10 @@ public class LAONetworkManagerTest {
 
   @Mock MessageHandler handler;
   @Mock MultiConnection connection;
+  @Mock AppDatabase appDatabase;
+  @Mock CatchupDao catchupDao;
+
+  private CatchupRepository catchupRepo;
 
   @Before
   public void setup() {
@@ -74,6 +84,12 @@ public class LAONetworkManagerTest {
     when(connection.observeConnectionEvents()).thenReturn(events);
     when(connection.connectToPeers(any())).thenReturn(true);
 
+    when(appDatabase.catchupDao()).thenReturn(catchupDao);
+    when(catchupDao.getAllCatchups()).thenReturn(Single.just(new ArrayList<>()));
+    when(catchupDao.insert(any())).thenReturn(Completable.complete());
+    when(catchupDao.delete(any())).thenReturn(Completable.complete());
+    catchupRepo = new CatchupRepository(appDatabase, ApplicationProvider.getApplicationContext());
+
     // Default behavior : success
     Answer<?> answer =
         args -> {
@@ -99,6 +115,7 @@ public class LAONetworkManagerTest {
             connection,
             JsonModule.provideGson(DataRegistryModuleHelper.buildRegistry()),
             schedulerProvider,
+            catchupRepo,
             new HashSet<>());
 
     Answer<?> answer =
@@ -135,6 +152,7 @@ public class LAONetworkManagerTest {
             connection,
             JsonModule.provideGson(DataRegistryModuleHelper.buildRegistry()),
             schedulerProvider,
+            catchupRepo,
             new HashSet<>());
 
     Answer<?> answer =
@@ -170,6 +188,7 @@ public class LAONetworkManagerTest {
             connection,
             JsonModule.provideGson(DataRegistryModuleHelper.buildRegistry()),
             schedulerProvider,
+            catchupRepo,
             new HashSet<>());
 
     Answer<?> answer =
@@ -207,6 +226,7 @@ public class LAONetworkManagerTest {
             connection,
             JsonModule.provideGson(DataRegistryModuleHelper.buildRegistry()),
             schedulerProvider,
+            catchupRepo,
             new HashSet<>());
 
     ErrorCode error = new ErrorCode(3, "error");
@@ -250,6 +270,7 @@ public class LAONetworkManagerTest {
             connection,
             JsonModule.provideGson(DataRegistryModuleHelper.buildRegistry()),
             schedulerProvider,
+            catchupRepo,
             new HashSet<>());
 
     networkManager.subscribe(CHANNEL).subscribe(); // First subscribe
@@ -292,6 +313,7 @@ public class LAONetworkManagerTest {
             connection,
             JsonModule.provideGson(DataRegistryModuleHelper.buildRegistry()),
             schedulerProvider,
+            catchupRepo,
             new HashSet<>());
 
     // Set a response that stores requested ids
@@ -345,6 +367,60 @@ public class LAONetworkManagerTest {
     verifyNoMoreInteractions(connection);
   }
 
+  @Test
+  public void catchupResumesAfterLastSeenMessage()
+      throws UnknownElectionException,
+          UnknownRollCallException,
+          UnknownLaoException,
+          DataHandlingException,
+          NoRollCallException,
+          UnknownWitnessMessageException {
+    TestSchedulerProvider schedulerProvider = new TestSchedulerProvider();
+    TestScheduler testScheduler = schedulerProvider.testScheduler;
+    LAONetworkManager networkManager =
+        new LAONetworkManager(
+            handler,
+            connection,
+            JsonModule.provideGson(DataRegistryModuleHelper.buildRegistry()),
+            schedulerProvider,
+            catchupRepo,
+            new HashSet<>());
+
+    MessageGeneral msg1 = new MessageGeneral(KEY_PAIR, DATA, gson);
+    MessageGeneral msg2 =
+        new MessageGeneral(
+            KEY_PAIR, new CreateLao("Lao2", KEY_PAIR.getPublicKey(), new ArrayList<>()), gson);
+    List<MessageGeneral> history = new ArrayList<>(Arrays.asList(msg1, msg2));
+
+    Answer<?> answer =
+        args -> {
+          Catchup catchup = args.getArgument(0);
+          messages.onNext(new ResultMessages(catchup.getRequestId(), new ArrayList<>(history)));
+          return null;
+        };
+    doAnswer(answer).when(connection).sendMessage(any(Catchup.class));
+
+    networkManager.catchup(CHANNEL).subscribe();
+    testScheduler.advanceTimeBy(1, TimeUnit.SECONDS);
+
+    verify(handler).handleMessage(networkManager, CHANNEL, msg1);
+    verify(handler).handleMessage(networkManager, CHANNEL, msg2);
+
+    // A new message was published while disconnected, only that one should be processed
+    MessageGeneral msg3 =
+        new MessageGeneral(
+            KEY_PAIR, new CreateLao("Lao3", KEY_PAIR.getPublicKey(), new ArrayList<>()), gson);
+    history.add(msg3);
+
+    networkManager.catchup(CHANNEL).subscribe();
+    testScheduler.advanceTimeBy(1, TimeUnit.SECONDS);
+
+    verify(handler).handleMessage(networkManager, CHANNEL, msg3);
+    verifyNoMoreInteractions(handler);
+
+    networkManager.dispose();
+  }
+
   @Test
   public void identifyUnrecoverableFailures()
       throws UnknownElectionException,
@@ -367,6 +443,7 @@ public class LAONetworkManagerTest {
             connection,
             JsonModule.provideGson(DataRegistryModuleHelper.buildRegistry()),
             schedulerProvider,
+            catchupRepo,
             new HashSet<>());
 
     Broadcast broadcast = new Broadcast(CHANNEL, new MessageGeneral(KEY_PAIR, DATA, gson));
@@ -411,6 +488,7 @@ public class LAONetworkManagerTest {
             connection,
             JsonModule.provideGson(DataRegistryModuleHelper.buildRegistry()),
             schedulerProvider,
+            catchupRepo,
             new HashSet<>());
 
     // Extend the connections with a new peer
@@ -0,0 +1,96 @@
+package com.github.dedis.popstellar.repository.remote
+
+import com.github.dedis.popstellar.model.network.answer.Result
+import com.github.dedis.popstellar.utility.scheduler.TestSchedulerProvider
+import java.util.concurrent.TimeUnit
+import java.util.concurrent.TimeoutException
+import org.junit.Assert.assertEquals
+import org.junit.Assert.assertFalse
+import org.junit.Assert.assertTrue
+import org.junit.Test
+
+class PendingRequestsTest {
+  private val schedulerProvider = TestSchedulerProvider()
+  private val pendingRequests = PendingRequests(schedulerProvider, TIMEOUT)
+
+  @Test
+  fun answerCompletesTheMatchingRequest() {
+    val first = pendingRequests.register(1).test()
+    val second = pendingRequests.register(2).test()
+    assertEquals(2, pendingRequests.inFlightCount)
+
+    assertTrue(pendingRequests.complete(Result(2)))
+
+    first.assertNotComplete()
+    second.assertValue(Result(2))
+    assertEquals(1, pendingRequests.inFlightCount)
+  }
+
+  @Test
+  fun unknownAnswerIsIgnored() {
+    val request = pendingRequests.register(1).test()
+
+    assertFalse(pendingRequests.complete(Result(42)))
+
+    request.assertNotComplete()
+    assertEquals(1, pendingRequests.inFlightCount)
+  }
+
+  @Test
+  fun requestWithoutAnswerExpires() {
+    val request = pendingRequests.register(1).test()
+
+    schedulerProvider.testScheduler.advanceTimeBy(TIMEOUT.toLong(), TimeUnit.SECONDS)
+    request.assertNotComplete()
+
+    schedulerProvider.testScheduler.advanceTimeBy(1, TimeUnit.SECONDS)
+    request.assertError(TimeoutException::class.java)
+    assertEquals(0, pendingRequests.inFlightCount)
+    assertEquals(1, pendingRequests.expired)
+  }
+
+  @Test
+  fun disposeFailsThePendingRequests() {
+    val request = pendingRequests.register(1).test()
+
+    pendingRequests.dispose()
+
+    request.assertError(IllegalStateException::class.java)
+    assertEquals(0, pendingRequests.inFlightCount)
+  }
+
+  @Test
+  fun requestRegisteredAfterDisposeFails() {
+    pendingRequests.dispose()
+
+    pendingRequests.register(1).test().assertError(IllegalStateException::class.java)
+    assertEquals(0, pendingRequests.inFlightCount)
+  }
+
+  @Test
+  fun answeredRequestDoesNotExpire() {
+    val request = pendingRequests.register(1).test()
+    pendingRequests.complete(Result(1))
+
+    schedulerProvider.testScheduler.advanceTimeBy(2L * TIMEOUT, TimeUnit.SECONDS)
+
+    request.assertValue(Result(1))
+    assertEquals(0, pendingRequests.expired)
+  }
+
+  @Test
+  fun timerRestartsAfterBeingIdle() {
+    pendingRequests.register(1).test()
+    schedulerProvider.testScheduler.advanceTimeBy(2L * TIMEOUT, TimeUnit.SECONDS)
+
+    val request = pendingRequests.register(2).test()
+    schedulerProvider.testScheduler.advanceTimeBy(TIMEOUT + 1L, TimeUnit.SECONDS)
+
+    request.assertError(TimeoutException::class.java)
+    assertEquals(2, pendingRequests.expired)
+  }
+
+  companion object {
+    private const val TIMEOUT = 5
+  }
+}
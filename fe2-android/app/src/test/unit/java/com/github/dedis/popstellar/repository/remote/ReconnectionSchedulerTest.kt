@@ -0,0 +1,60 @@
+package com.github.dedis.popstellar.repository.remote
+
+import com.github.dedis.popstellar.model.objects.Channel
+import io.reactivex.Completable
+import io.reactivex.subjects.CompletableSubject
+import org.junit.Assert.assertEquals
+import org.junit.Test
+
+class ReconnectionSchedulerTest {
+
+  @Test
+  fun viewedChannelThenLaoChannelsComeFirst() {
+    val scheduler = ReconnectionScheduler()
+    val social = LAO_CHANNEL.subChannel("social").subChannel("chirps")
+    val coin = LAO_CHANNEL.subChannel("coin")
+    val election = LAO_CHANNEL.subChannel("election")
+
+    val prioritized = scheduler.prioritize(listOf(social, coin, LAO_CHANNEL, election), election)
+
+    assertEquals(listOf(election, LAO_CHANNEL, coin, social), prioritized)
+  }
+
+  @Test
+  fun concurrencyIsBounded() {
+    val scheduler = ReconnectionScheduler(2)
+    val channels = (0 until 5).map { LAO_CHANNEL.subChannel("channel$it") }
+    val tasks = LinkedHashMap<Channel, CompletableSubject>()
+
+    val observer =
+        scheduler
+            .schedule(channels, null) { channel: Channel ->
+              CompletableSubject.create().also { tasks[channel] = it }
+            }
+            .test()
+
+    // Only two channels are processed at first
+    assertEquals(2, tasks.size)
+
+    // Completing one of them starts the next one, even when it fails
+    tasks.values.first().onError(IllegalStateException())
+    assertEquals(3, tasks.size)
+
+    repeat(4) { tasks.values.first { !it.hasComplete() && !it.hasThrowable() }.onComplete() }
+
+    assertEquals(5, tasks.size)
+    observer.assertComplete()
+  }
+
+  @Test
+  fun emptyChannelsCompleteImmediately() {
+    ReconnectionScheduler()
+        .schedule(emptyList(), null) { Completable.never() }
+        .test()
+        .assertComplete()
+  }
+
+  companion object {
+    private val LAO_CHANNEL = Channel.getLaoChannel("lao")
+  }
+}
@@ -120,7 +120,9 @@ class RollCallHandlerTest {
     Mockito.`when`(appDatabase.messageDao()).thenReturn(messageDao)
     Mockito.`when`(messageDao.takeFirstNMessages(ArgumentMatchers.anyInt()))
       .thenReturn(Single.just(ArrayList()))
-    Mockito.`when`(messageDao.insert(MockitoKotlinHelpers.any())).thenReturn(Completable.complete())
+    Mockito.`when`(messageDao.getAllMessageIds()).thenReturn(Single.just(ArrayList()))
+    Mockito.`when`(messageDao.insertAll(ArgumentMatchers.anyList()))
+      .thenReturn(Completable.complete())
     Mockito.`when`(messageDao.getMessageById(MockitoKotlinHelpers.any())).thenReturn(null)
 
     Mockito.`when`(appDatabase.rollCallDao()).thenReturn(rollCallDao)
@@ -134,13 +136,11 @@ class RollCallHandlerTest {
       .thenReturn(Single.just(ArrayList()))
     Mockito.`when`(witnessDao.insertAll(MockitoKotlinHelpers.any()))
       .thenReturn(Completable.complete())
-    Mockito.`when`(witnessDao.isWitness(ArgumentMatchers.anyString(), MockitoKotlinHelpers.any()))
-      .thenReturn(0)
 
     Mockito.`when`(appDatabase.witnessingDao()).thenReturn(witnessingDao)
     Mockito.`when`(witnessingDao.getWitnessMessagesByLao(ArgumentMatchers.anyString()))
       .thenReturn(Single.just(ArrayList()))
-    Mockito.`when`(witnessingDao.insert(MockitoKotlinHelpers.any()))
+    Mockito.`when`(witnessingDao.insertAll(ArgumentMatchers.anyList()))
       .thenReturn(Completable.complete())
     Mockito.`when`(
         witnessingDao.deleteMessagesByIds(ArgumentMatchers.anyString(), MockitoKotlinHelpers.any())
@@ -151,7 +151,7 @@ class RollCallHandlerTest {
     Mockito.`when`(pendingDao.getPendingObjectsFromLao(ArgumentMatchers.anyString()))
       .thenReturn(Single.just(ArrayList()))
     Mockito.`when`(pendingDao.insert(MockitoKotlinHelpers.any())).thenReturn(Completable.complete())
-    Mockito.`when`(pendingDao.removePendingObject(MockitoKotlinHelpers.any()))
+    Mockito.`when`(pendingDao.removePendingObjects(ArgumentMatchers.anySet()))
       .thenReturn(Completable.complete())
 
     val laoRepo = LAORepository(appDatabase, application)
@@ -91,13 +91,15 @@ class TransactionCoinHandlerTest {
     Mockito.`when`(appDatabase.messageDao()).thenReturn(messageDao)
     Mockito.`when`(messageDao.takeFirstNMessages(ArgumentMatchers.anyInt()))
       .thenReturn(Single.just(ArrayList()))
-    Mockito.`when`(messageDao.insert(MockitoKotlinHelpers.any())).thenReturn(Completable.complete())
+    Mockito.`when`(messageDao.getAllMessageIds()).thenReturn(Single.just(ArrayList()))
+    Mockito.`when`(messageDao.insertAll(ArgumentMatchers.anyList()))
+      .thenReturn(Completable.complete())
     Mockito.`when`(messageDao.getMessageById(MockitoKotlinHelpers.any())).thenReturn(null)
 
     Mockito.`when`(appDatabase.transactionDao()).thenReturn(transactionDao)
     Mockito.`when`(transactionDao.getTransactionsByLaoId(ArgumentMatchers.anyString()))
       .thenReturn(Single.just(ArrayList()))
-    Mockito.`when`(transactionDao.insert(MockitoKotlinHelpers.any()))
+    Mockito.`when`(transactionDao.insertAll(ArgumentMatchers.anyList()))
       .thenReturn(Completable.complete())
     Mockito.`when`(transactionDao.deleteByLaoId(ArgumentMatchers.anyString()))
       .thenReturn(Completable.complete())
@@ -0,0 +1,52 @@
+package com.github.dedis.popstellar.utility.security
+
+import com.github.dedis.popstellar.testutils.Base64DataUtils
+import java.security.MessageDigest
+import java.util.Arrays
+import java.util.Base64
+import org.junit.Assert.assertEquals
+import org.junit.Before
+import org.junit.Test
+
+class PublicKeyHashCacheTest {
+
+  @Before
+  fun setUp() {
+    PublicKeyHashCache.clear()
+  }
+
+  @Test
+  fun hashIsTheTruncatedSha256OfTheKey() {
+    val publicKey = Base64DataUtils.generatePublicKey()
+    val digest = MessageDigest.getInstance("SHA-256").digest(publicKey.data)
+    val expected = Base64.getUrlEncoder().encodeToString(Arrays.copyOf(digest, 20))
+
+    assertEquals(expected, PublicKeyHashCache.getHash(publicKey))
+    assertEquals(expected, publicKey.computeHash())
+  }
+
+  @Test
+  fun hashIsOnlyComputedOnce() {
+    val publicKey = Base64DataUtils.generatePublicKey()
+
+    val hash = PublicKeyHashCache.getHash(publicKey)
+    assertEquals(hash, PublicKeyHashCache.getHash(publicKey))
+
+    assertEquals(1L, PublicKeyHashCache.missCount)
+    assertEquals(1L, PublicKeyHashCache.hitCount)
+    assertEquals(0.5, PublicKeyHashCache.hitRate, 0.0)
+  }
+
+  @Test
+  fun leastRecentlyUsedKeysAreEvicted() {
+    val first = Base64DataUtils.generatePublicKey()
+    first.computeHash()
+    repeat(PublicKeyHashCache.MAX_SIZE) { Base64DataUtils.generatePublicKey().computeHash() }
+
+    assertEquals(PublicKeyHashCache.MAX_SIZE, PublicKeyHashCache.size)
+    // The first key was evicted, its hash is computed again
+    val misses = PublicKeyHashCache.missCount
+    first.computeHash()
+    assertEquals(misses + 1, PublicKeyHashCache.missCount)
+  }
+}
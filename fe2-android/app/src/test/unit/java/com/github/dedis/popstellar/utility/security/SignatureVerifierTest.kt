@@ -0,0 +1,80 @@
+package com.github.dedis.popstellar.utility.security
+
+import com.github.dedis.popstellar.model.objects.security.Base64URLData
+import com.github.dedis.popstellar.model.objects.security.KeyPair
+import com.github.dedis.popstellar.testutils.Base64DataUtils
+import org.junit.Assert.assertEquals
+import org.junit.Assert.assertFalse
+import org.junit.Assert.assertTrue
+import org.junit.Before
+import org.junit.Test
+
+class SignatureVerifierTest {
+
+  @Before
+  fun setUp() {
+    SignatureVerifier.clear()
+  }
+
+  @Test
+  fun validSignatureIsOnlyVerifiedOnce() {
+    val request = signed(Base64DataUtils.generateKeyPair(), DATA)
+
+    assertTrue(SignatureVerifier.verify(request))
+    // A new request for the same signature
+    assertTrue(
+      SignatureVerifier.verify(SignatureVerifier.Request(request.publicKey, request.signature, DATA))
+    )
+
+    assertEquals(1L, SignatureVerifier.verificationCount)
+    assertEquals(1L, SignatureVerifier.hitCount)
+    assertTrue(SignatureVerifier.throughput > 0)
+  }
+
+  @Test
+  fun invalidSignatureIsRejectedEveryTime() {
+    val keyPair = Base64DataUtils.generateKeyPair()
+    val valid = signed(keyPair, DATA)
+    val forged = SignatureVerifier.Request(keyPair.publicKey, valid.signature, OTHER_DATA)
+
+    assertTrue(SignatureVerifier.verify(valid))
+    assertFalse(SignatureVerifier.verify(forged))
+    assertFalse(SignatureVerifier.verify(forged))
+    assertEquals(3L, SignatureVerifier.verificationCount)
+  }
+
+  @Test
+  fun signatureOfAnotherKeyIsRejected() {
+    val valid = signed(Base64DataUtils.generateKeyPair(), DATA)
+    val otherKey = Base64DataUtils.generatePublicKey()
+    val forged = SignatureVerifier.Request(otherKey, valid.signature, DATA)
+
+    assertTrue(SignatureVerifier.verify(valid))
+    assertFalse(SignatureVerifier.verify(forged))
+  }
+
+  @Test
+  fun batchResultsAreInOrder() {
+    val keyPair = Base64DataUtils.generateKeyPair()
+    val requests =
+      List(20) {
+        val data = Base64URLData(byteArrayOf(it.toByte()))
+        if (it % 3 == 0) {
+          SignatureVerifier.Request(keyPair.publicKey, keyPair.sign(OTHER_DATA), data)
+        } else {
+          signed(keyPair, data)
+        }
+      }
+
+    assertEquals(List(20) { it % 3 != 0 }, SignatureVerifier.verifyAll(requests))
+  }
+
+  private fun signed(keyPair: KeyPair, data: Base64URLData): SignatureVerifier.Request {
+    return SignatureVerifier.Request(keyPair.publicKey, keyPair.sign(data), data)
+  }
+
+  companion object {
+    private val DATA = Base64URLData("data".toByteArray())
+    private val OTHER_DATA = Base64URLData("other data".toByteArray())
+  }
+}